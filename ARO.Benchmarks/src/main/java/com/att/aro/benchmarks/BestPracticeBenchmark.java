@@ -0,0 +1,60 @@
+/*
+ *  Copyright 2019 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.benchmarks;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.att.aro.core.IAROService;
+import com.att.aro.core.bestpractice.pojo.AbstractBestPracticeResult;
+import com.att.aro.core.bestpractice.pojo.BestPracticeType;
+
+/**
+ * Runs each best practice over the analysis of the synthetic trace through
+ * IAROService.analyze, including the prerequisites it shares with other best
+ * practices such as the cache analysis.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BestPracticeBenchmark {
+
+	/**
+	 * All best practices when not given with -p bestPractice=...
+	 */
+	@Param
+	public BestPracticeType bestPractice;
+
+	@Benchmark
+	public List<AbstractBestPracticeResult> runTest(TraceState state) {
+		return state.getBean(IAROService.class).analyze(state.result, Collections.singletonList(bestPractice));
+	}
+}
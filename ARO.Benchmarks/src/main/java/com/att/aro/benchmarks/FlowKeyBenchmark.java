@@ -0,0 +1,106 @@
+/*
+ *  Copyright 2019 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.benchmarks;
+
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.att.aro.core.packetanalysis.pojo.FlowKey;
+import com.att.aro.core.packetreader.pojo.InetAddressTable;
+import com.att.aro.core.packetreader.pojo.TCPPacket;
+
+/**
+ * Decodes TCP frames and counts them per session, keyed by a String built
+ * from new addresses the way SessionManagerImpl used to, or by a FlowKey of
+ * interned addresses. Run with -prof gc to see the allocation per packet.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FlowKeyBenchmark {
+
+	private static final int PACKETS = 10000;
+
+	@Param({ "string", "flowkey" })
+	public String key;
+
+	private byte[][] frames;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		frames = new byte[256][];
+		for (int index = 0; index < frames.length; index++) {
+			frames[index] = frame(index % 64);
+		}
+	}
+
+	@Benchmark
+	public Object decode() {
+		InetAddressTable table = "flowkey".equals(key) ? new InetAddressTable() : null;
+		Map<Object, Integer> sessions = new HashMap<>();
+		Map<InetAddress, Integer> addressIds = new HashMap<>();
+		for (int index = 0; index < PACKETS; index++) {
+			byte[] data = frames[index % frames.length];
+			TCPPacket packet = new TCPPacket(0, index, data.length, 0, data, table);
+			Object sessionKey;
+			if (table == null) {
+				sessionKey = packet.getSourceIPAddress().getHostAddress() + " " + packet.getSourcePort() + " "
+						+ packet.getDestinationPort() + " " + packet.getDestinationIPAddress().getHostAddress();
+			} else {
+				sessionKey = FlowKey.of(id(addressIds, packet.getSourceIPAddress()), packet.getSourcePort(),
+						packet.getDestinationPort(), id(addressIds, packet.getDestinationIPAddress()));
+			}
+			sessions.merge(sessionKey, 1, Integer::sum);
+		}
+		return sessions;
+	}
+
+	private int id(Map<InetAddress, Integer> addressIds, InetAddress address) {
+		Integer id = addressIds.get(address);
+		if (id == null) {
+			id = addressIds.size();
+			addressIds.put(address, id);
+		}
+		return id;
+	}
+
+	private byte[] frame(int flow) {
+		ByteBuffer buffer = ByteBuffer.allocate(40);
+		buffer.put((byte) 0x45).put((byte) 0).putShort((short) 40).putInt(0).put((byte) 64).put((byte) 6).putShort((short) 0);
+		buffer.put(new byte[] { 10, 0, 0, 2 }).put(new byte[] { 93, (byte) 184, 0, (byte) (flow % 8) });
+		buffer.putShort((short) (40000 + flow)).putShort((short) 443).putInt(1).putInt(0).put((byte) 0x50).put((byte) 0x10);
+		return buffer.array();
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ *  Copyright 2019 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.att.aro.core.packetanalysis.impl.ByteArrayLineReaderImpl;
+import com.att.aro.core.packetanalysis.impl.ParseHeaderLineImpl;
+import com.att.aro.core.packetanalysis.pojo.HttpDirection;
+import com.att.aro.core.packetanalysis.pojo.HttpRequestResponseInfo;
+
+/**
+ * Reads and parses the header blocks of http-headers.txt, a corpus of
+ * captured request and response headers, the way RequestResponseBuilderImpl
+ * does for every HTTP message of a trace.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeaderParsingBenchmark {
+
+	private static final String CORPUS = "/http-headers.txt";
+
+	private final ByteArrayLineReaderImpl reader = new ByteArrayLineReaderImpl();
+	private final ParseHeaderLineImpl parser = new ParseHeaderLineImpl();
+	private byte[][] messages;
+
+	@Setup
+	public void setup() throws IOException {
+		messages = readCorpus();
+	}
+
+	@Benchmark
+	public void readLines(Blackhole blackhole) throws IOException {
+		for (byte[] message : messages) {
+			reader.init(message);
+			String line;
+			while ((line = reader.readLine()) != null) {
+				blackhole.consume(line);
+			}
+		}
+	}
+
+	@Benchmark
+	public void parseHeaders(Blackhole blackhole) throws IOException {
+		for (byte[] message : messages) {
+			reader.init(message);
+			HttpRequestResponseInfo rrInfo = new HttpRequestResponseInfo();
+			String line = reader.readLine();
+			rrInfo.setDirection(line.startsWith("HTTP/") ? HttpDirection.RESPONSE : HttpDirection.REQUEST);
+			while ((line = reader.readLine()) != null && !line.isEmpty()) {
+				parser.parseHeaderLine(line, rrInfo);
+			}
+			blackhole.consume(rrInfo);
+		}
+	}
+
+	/**
+	 * Returns the messages of the corpus, separated by blank lines in the
+	 * file, as CRLF terminated header blocks.
+	 */
+	static byte[][] readCorpus() throws IOException {
+		List<byte[]> messages = new ArrayList<>();
+		try (BufferedReader corpus = new BufferedReader(
+				new InputStreamReader(HeaderParsingBenchmark.class.getResourceAsStream(CORPUS), StandardCharsets.UTF_8))) {
+			StringBuilder message = new StringBuilder();
+			String line;
+			while ((line = corpus.readLine()) != null) {
+				if (line.isEmpty()) {
+					addMessage(messages, message);
+				} else {
+					message.append(line).append("\r\n");
+				}
+			}
+			addMessage(messages, message);
+		}
+		return messages.toArray(new byte[messages.size()][]);
+	}
+
+	private static void addMessage(List<byte[]> messages, StringBuilder message) {
+		if (message.length() > 0) {
+			messages.add(message.append("\r\n").toString().getBytes(StandardCharsets.UTF_8));
+			message.setLength(0);
+		}
+	}
+}
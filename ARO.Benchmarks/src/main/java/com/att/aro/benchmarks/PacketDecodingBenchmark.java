@@ -0,0 +1,53 @@
+/*
+ *  Copyright 2019 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.att.aro.core.packetreader.IPacketService;
+
+/**
+ * Decodes every frame of the synthetic trace with
+ * IPacketService.createPacket.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PacketDecodingBenchmark {
+
+	private static final short IPV4 = 0x0800;
+
+	@Benchmark
+	public void createPacket(TraceState state, Blackhole blackhole) {
+		IPacketService packetService = state.getBean(IPacketService.class);
+		for (SyntheticTrace.Frame frame : state.trace.getFrames()) {
+			byte[] data = frame.getData();
+			blackhole.consume(packetService.createPacket(IPV4, frame.getSeconds(), frame.getMicroSeconds(), data.length,
+					SyntheticTrace.ETHERNET_HEADER_LENGTH, data));
+		}
+	}
+}
@@ -0,0 +1,90 @@
+/*
+ *  Copyright 2019 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.att.aro.core.packetanalysis.IPacketAnalyzer;
+import com.att.aro.core.packetanalysis.IRrcStateMachineFactory;
+import com.att.aro.core.packetanalysis.IThroughputCalculator;
+import com.att.aro.core.packetanalysis.pojo.PacketAnalyzerResult;
+import com.att.aro.core.packetanalysis.pojo.PacketInfo;
+import com.att.aro.core.packetanalysis.pojo.PacketTable;
+
+/**
+ * Compares the packet passes of the analysis given a plain packet list, which
+ * they turn into a packet table on every call, with the same passes given the
+ * table PacketAnalyzerImpl builds once per analysis. Run with -prof gc to see
+ * the allocation per call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PacketTableBenchmark {
+
+	@Param({ "list", "table" })
+	public String input;
+
+	private List<PacketInfo> packets;
+
+	@Setup(Level.Trial)
+	public void setup(TraceState state) {
+		List<PacketInfo> allPackets = state.getPackets();
+		packets = "table".equals(input) ? PacketTable.of(allPackets, state.result.getSessionlist()) : new ArrayList<>(allPackets);
+	}
+
+	@Benchmark
+	public Object buildTable(TraceState state) {
+		return PacketTable.of(state.getPackets(), state.result.getSessionlist());
+	}
+
+	@Benchmark
+	public Object getStatistic(TraceState state) {
+		return state.getBean(IPacketAnalyzer.class).getStatistic(packets);
+	}
+
+	@Benchmark
+	public Object createStateMachine(TraceState state) {
+		PacketAnalyzerResult result = state.result;
+		return state.getBean(IRrcStateMachineFactory.class).create(packets, result.getProfile(),
+				result.getStatistic().getPacketDuration(), result.getTraceresult().getTraceDuration(),
+				result.getStatistic().getTotalByte(), null);
+	}
+
+	@Benchmark
+	public Object calculateThroughput(TraceState state) {
+		return state.getBean(IThroughputCalculator.class).calculateThroughput(0,
+				state.result.getTraceresult().getTraceDuration(), 0.5, packets);
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ *  Copyright 2019 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.benchmarks;
+
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.att.aro.core.packetanalysis.pojo.PacketInfo;
+import com.att.aro.core.packetanalysis.pojo.SequenceIndex;
+import com.att.aro.core.packetreader.pojo.Packet;
+
+/**
+ * Compares the TreeMap the sessions used to key their packets by sequence
+ * number with SequenceIndex, adding the packets of one direction of a session
+ * the way Session.addTcpPacket does and then walking them in sequence order.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SequenceIndexBenchmark {
+
+	private static final int SEGMENT_SIZE = 1460;
+
+	@Param({ "inOrder", "reordered", "retransmissions" })
+	public String stream;
+
+	@Param({ "10000" })
+	public int packetCount;
+
+	private long[] sequenceNumbers;
+	private PacketInfo[] packets;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		Random random = new Random(1);
+		sequenceNumbers = new long[packetCount];
+		packets = new PacketInfo[packetCount];
+		long next = 0xFFFF0000L;
+		for (int index = 0; index < packetCount; index++) {
+			long sequenceNumber = next;
+			if ("reordered".equals(stream) && random.nextInt(10) == 0) {
+				// a segment overtaken by up to 8 later ones
+				sequenceNumber = next + SEGMENT_SIZE * (1 + random.nextInt(8));
+			} else if ("retransmissions".equals(stream) && random.nextInt(4) == 0) {
+				// a segment sent again after up to 32 others
+				sequenceNumber = next - SEGMENT_SIZE * random.nextInt(32);
+			} else {
+				next += SEGMENT_SIZE;
+			}
+			// 32 bit sequence numbers, the stream wraps around
+			sequenceNumbers[index] = sequenceNumber & 0xFFFFFFFFL;
+			packets[index] = new PacketInfo(new Packet(0, index, SEGMENT_SIZE, 0, null));
+		}
+	}
+
+	@Benchmark
+	public long treeMap() {
+		long base = sequenceNumbers[0];
+		TreeMap<Long, PacketInfo> index = new TreeMap<>();
+		for (int position = 0; position < packetCount; position++) {
+			long key = SequenceIndex.unwrap(sequenceNumbers[position], base);
+			if (index.containsKey(key)) {
+				PacketInfo previous = index.get(key);
+				if (previous.getPayloadLen() == packets[position].getPayloadLen()) {
+					continue;
+				}
+			}
+			index.put(key, packets[position]);
+		}
+		long sum = 0;
+		for (long key : index.keySet()) {
+			sum += key + index.get(key).getPayloadLen();
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public long sequenceIndex() {
+		long base = sequenceNumbers[0];
+		SequenceIndex index = new SequenceIndex();
+		for (int position = 0; position < packetCount; position++) {
+			long key = SequenceIndex.unwrap(sequenceNumbers[position], base);
+			PacketInfo previous = index.get(key);
+			if (previous != null && previous.getPayloadLen() == packets[position].getPayloadLen()) {
+				continue;
+			}
+			index.put(key, packets[position]);
+		}
+		long sum = 0;
+		for (int position = 0; position < index.size(); position++) {
+			sum += index.keyAt(position) + index.valueAt(position).getPayloadLen();
+		}
+		return sum;
+	}
+}
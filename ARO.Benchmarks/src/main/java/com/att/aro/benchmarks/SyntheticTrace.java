@@ -0,0 +1,297 @@
+/*
+ *  Copyright 2019 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates a reproducible Ethernet capture of HTTP traffic for the
+ * benchmarks, so they run offline and on the same input on every machine.
+ * <p>
+ * The trace holds one DNS lookup per server and one TCP connection per
+ * request. Each connection opens, sends a GET, receives a response of about
+ * objectBytes in MSS sized segments, and closes. Objects are picked at random
+ * from a catalog half the size of the number of connections, so about half
+ * of the responses are duplicates for the cache analysis. Connections start
+ * in bursts separated by idle periods, which gives the RRC state machine and
+ * the burst analysis something to work on.
+ */
+public class SyntheticTrace {
+
+	/**
+	 * Ethernet link type of the pcap file header.
+	 */
+	public static final int LINKTYPE_ETHERNET = 1;
+
+	/**
+	 * Length of the Ethernet header in front of every frame.
+	 */
+	public static final int ETHERNET_HEADER_LENGTH = 14;
+
+	private static final int PCAP_MAGIC = 0xA1B2C3D4;
+	private static final int FIN = 0x01;
+	private static final int SYN = 0x02;
+	private static final int PSH = 0x08;
+	private static final int ACK = 0x10;
+	private static final int MSS = 1400;
+	private static final int SERVERS = 16;
+	private static final int CONNECTIONS_PER_BURST = 8;
+	private static final long START_SECONDS = 1500000000L;
+	private static final byte[] CLIENT = { 10, 0, 0, 2 };
+	private static final byte[] DNS_SERVER = { 8, 8, 8, 8 };
+
+	/**
+	 * A captured frame.
+	 */
+	public static final class Frame implements Comparable<Frame> {
+		private final long micros;
+		private final byte[] data;
+
+		Frame(long micros, byte[] data) {
+			this.micros = micros;
+			this.data = data;
+		}
+
+		public long getSeconds() {
+			return START_SECONDS + micros / 1000000L;
+		}
+
+		public long getMicroSeconds() {
+			return micros % 1000000L;
+		}
+
+		public byte[] getData() {
+			return data;
+		}
+
+		@Override
+		public int compareTo(Frame other) {
+			return Long.compare(micros, other.micros);
+		}
+	}
+
+	private final List<Frame> frames = new ArrayList<>();
+	private final Random random;
+	private final int objectBytes;
+
+	/**
+	 * @param connections The number of HTTP connections.
+	 * @param objectBytes The average size of the response bodies.
+	 * @param seed Seed of the generator, the same seed gives the same trace.
+	 */
+	public SyntheticTrace(int connections, int objectBytes, long seed) {
+		this.random = new Random(seed);
+		this.objectBytes = objectBytes;
+		generate(connections);
+		Collections.sort(frames);
+	}
+
+	public List<Frame> getFrames() {
+		return frames;
+	}
+
+	/**
+	 * Writes the trace as a pcap file.
+	 */
+	public void write(File file) throws IOException {
+		try (OutputStream out = new FileOutputStream(file)) {
+			ByteBuffer header = ByteBuffer.allocate(24).order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(PCAP_MAGIC).putShort((short) 2).putShort((short) 4).putInt(0).putInt(0).putInt(65535).putInt(LINKTYPE_ETHERNET);
+			out.write(header.array());
+			ByteBuffer record = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+			for (Frame frame : frames) {
+				record.clear();
+				record.putInt((int) frame.getSeconds()).putInt((int) frame.getMicroSeconds()).putInt(frame.data.length).putInt(frame.data.length);
+				out.write(record.array());
+				out.write(frame.data);
+			}
+		}
+	}
+
+	private void generate(int connections) {
+		int objects = Math.max(1, connections / 2);
+		boolean[] resolved = new boolean[SERVERS];
+		long micros = 0;
+		for (int connection = 0; connection < connections; connection++) {
+			if (connection % CONNECTIONS_PER_BURST == 0 && connection > 0) {
+				// idle long enough for the radio to demote
+				micros += 15000000L + random.nextInt(5000000);
+			}
+			int object = random.nextInt(objects);
+			int server = object % SERVERS;
+			if (!resolved[server]) {
+				micros = dnsLookup(micros, server);
+				resolved[server] = true;
+			}
+			httpConnection(micros, 40000 + connection % 20000, server, object);
+			micros += 20000 + random.nextInt(80000);
+		}
+	}
+
+	private long dnsLookup(long micros, int server) {
+		int id = random.nextInt(65536);
+		int port = 50000 + random.nextInt(10000);
+		byte[] name = name(server);
+		ByteBuffer query = ByteBuffer.allocate(12 + name.length + 4);
+		query.putShort((short) id).putShort((short) 0x0100).putShort((short) 1).putShort((short) 0).putInt(0);
+		query.put(name).putShort((short) 1).putShort((short) 1);
+		frames.add(new Frame(micros, udp(CLIENT, port, DNS_SERVER, 53, query.array())));
+
+		ByteBuffer answer = ByteBuffer.allocate(12 + name.length + 4 + 16);
+		answer.putShort((short) id).putShort((short) 0x8180).putShort((short) 1).putShort((short) 1).putInt(0);
+		answer.put(name).putShort((short) 1).putShort((short) 1);
+		answer.putShort((short) 0xC00C).putShort((short) 1).putShort((short) 1).putInt(300).putShort((short) 4).put(address(server));
+		long answered = micros + 20000 + random.nextInt(30000);
+		frames.add(new Frame(answered, udp(DNS_SERVER, 53, CLIENT, port, answer.array())));
+		return answered + 1000;
+	}
+
+	private void httpConnection(long start, int port, int server, int object) {
+		byte[] serverAddress = address(server);
+		long rtt = 30000 + random.nextInt(40000);
+		long micros = start;
+		int clientSeq = random.nextInt();
+		int serverSeq = random.nextInt();
+
+		frames.add(new Frame(micros, tcp(CLIENT, port, serverAddress, 80, clientSeq, 0, SYN, null)));
+		micros += rtt;
+		frames.add(new Frame(micros, tcp(serverAddress, 80, CLIENT, port, serverSeq, clientSeq + 1, SYN | ACK, null)));
+		micros += 200;
+		clientSeq++;
+		serverSeq++;
+		frames.add(new Frame(micros, tcp(CLIENT, port, serverAddress, 80, clientSeq, serverSeq, ACK, null)));
+
+		byte[] request = ("GET /objects/" + object + ".json HTTP/1.1\r\n" + "Host: " + host(server) + "\r\n"
+				+ "User-Agent: okhttp/3.12.1\r\n" + "Accept: application/json\r\n" + "Connection: close\r\n\r\n")
+						.getBytes(StandardCharsets.US_ASCII);
+		micros += 500;
+		frames.add(new Frame(micros, tcp(CLIENT, port, serverAddress, 80, clientSeq, serverSeq, PSH | ACK, request)));
+		clientSeq += request.length;
+
+		byte[] response = response(object);
+		micros += rtt;
+		int segments = 0;
+		for (int offset = 0; offset < response.length; offset += MSS) {
+			byte[] segment = new byte[Math.min(MSS, response.length - offset)];
+			System.arraycopy(response, offset, segment, 0, segment.length);
+			frames.add(new Frame(micros, tcp(serverAddress, 80, CLIENT, port, serverSeq, clientSeq, ACK, segment)));
+			serverSeq += segment.length;
+			micros += 100 + random.nextInt(400);
+			if (++segments % 2 == 0) {
+				frames.add(new Frame(micros, tcp(CLIENT, port, serverAddress, 80, clientSeq, serverSeq, ACK, null)));
+			}
+		}
+
+		frames.add(new Frame(micros, tcp(serverAddress, 80, CLIENT, port, serverSeq, clientSeq, FIN | ACK, null)));
+		micros += rtt / 2;
+		frames.add(new Frame(micros, tcp(CLIENT, port, serverAddress, 80, clientSeq, serverSeq + 1, FIN | ACK, null)));
+		micros += rtt / 2;
+		frames.add(new Frame(micros, tcp(serverAddress, 80, CLIENT, port, serverSeq + 1, clientSeq + 1, ACK, null)));
+	}
+
+	/**
+	 * Returns the response for object, the same object always gives the same
+	 * body.
+	 */
+	private byte[] response(int object) {
+		Random content = new Random(object);
+		int length = objectBytes / 2 + content.nextInt(objectBytes + 1);
+		byte[] body = new byte[length];
+		for (int index = 0; index < length; index++) {
+			body[index] = (byte) ('a' + content.nextInt(26));
+		}
+		byte[] headers = ("HTTP/1.1 200 OK\r\n" + "Date: Fri, 14 Jul 2017 02:40:00 GMT\r\n" + "Content-Type: application/json; charset=utf-8\r\n"
+				+ "Content-Length: " + length + "\r\n" + "Cache-Control: public, max-age=" + (object % 3 == 0 ? 0 : 3600) + "\r\n"
+				+ "ETag: \"" + Integer.toHexString(object) + "\"\r\n" + "Last-Modified: Thu, 13 Jul 2017 02:40:00 GMT\r\n"
+				+ "Connection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+		byte[] response = new byte[headers.length + length];
+		System.arraycopy(headers, 0, response, 0, headers.length);
+		System.arraycopy(body, 0, response, headers.length, length);
+		return response;
+	}
+
+	private byte[] tcp(byte[] source, int sourcePort, byte[] destination, int destinationPort, int seq, int ack, int flags, byte[] payload) {
+		int payloadLength = payload == null ? 0 : payload.length;
+		ByteBuffer segment = ipv4(source, destination, 6, 20 + payloadLength);
+		segment.putShort((short) sourcePort).putShort((short) destinationPort).putInt(seq).putInt(ack);
+		segment.put((byte) 0x50).put((byte) flags).putShort((short) 65535).putShort((short) 0).putShort((short) 0);
+		if (payload != null) {
+			segment.put(payload);
+		}
+		return segment.array();
+	}
+
+	private byte[] udp(byte[] source, int sourcePort, byte[] destination, int destinationPort, byte[] payload) {
+		ByteBuffer datagram = ipv4(source, destination, 17, 8 + payload.length);
+		datagram.putShort((short) sourcePort).putShort((short) destinationPort).putShort((short) (8 + payload.length)).putShort((short) 0);
+		datagram.put(payload);
+		return datagram.array();
+	}
+
+	/**
+	 * Returns a frame with the Ethernet and IPv4 headers written, positioned
+	 * at the start of the transport header.
+	 */
+	private ByteBuffer ipv4(byte[] source, byte[] destination, int protocol, int transportLength) {
+		ByteBuffer frame = ByteBuffer.allocate(ETHERNET_HEADER_LENGTH + 20 + transportLength);
+		frame.put(new byte[] { 0, 0x1A, 0x11, 0, 0, 1 }).put(new byte[] { 0, 0x1A, 0x11, 0, 0, 2 }).putShort((short) 0x0800);
+		int ipStart = frame.position();
+		frame.put((byte) 0x45).put((byte) 0).putShort((short) (20 + transportLength)).putShort((short) random.nextInt(65536));
+		frame.putShort((short) 0x4000).put((byte) 64).put((byte) protocol).putShort((short) 0).put(source).put(destination);
+		frame.putShort(ipStart + 10, checksum(frame.array(), ipStart, 20));
+		return frame;
+	}
+
+	private static short checksum(byte[] data, int offset, int length) {
+		int sum = 0;
+		for (int index = offset; index < offset + length; index += 2) {
+			sum += ((data[index] & 0xFF) << 8) | (data[index + 1] & 0xFF);
+		}
+		while ((sum >> 16) != 0) {
+			sum = (sum & 0xFFFF) + (sum >> 16);
+		}
+		return (short) ~sum;
+	}
+
+	private static byte[] address(int server) {
+		return new byte[] { 93, (byte) 184, 0, (byte) (10 + server) };
+	}
+
+	private static String host(int server) {
+		return "cdn" + server + ".example.com";
+	}
+
+	private static byte[] name(int server) {
+		ByteBuffer name = ByteBuffer.allocate(64);
+		for (String label : host(server).split("\\.")) {
+			name.put((byte) label.length()).put(label.getBytes(StandardCharsets.US_ASCII));
+		}
+		name.put((byte) 0);
+		byte[] encoded = new byte[name.position()];
+		System.arraycopy(name.array(), 0, encoded, 0, encoded.length);
+		return encoded;
+	}
+}
@@ -0,0 +1,95 @@
+/*
+ *  Copyright 2019 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.att.aro.core.packetanalysis.IBurstCollectionAnalysis;
+import com.att.aro.core.packetanalysis.ICacheAnalysis;
+import com.att.aro.core.packetanalysis.IRequestResponseBuilder;
+import com.att.aro.core.packetanalysis.IRrcStateRangeFactory;
+import com.att.aro.core.packetanalysis.ISessionManager;
+import com.att.aro.core.packetanalysis.pojo.AbstractTraceResult;
+import com.att.aro.core.packetanalysis.pojo.PacketAnalyzerResult;
+import com.att.aro.core.packetanalysis.pojo.PacketInfo;
+import com.att.aro.core.packetanalysis.pojo.Session;
+
+/**
+ * Reruns the steps of PacketAnalyzerImpl over the analysis of the synthetic
+ * trace, each step with the inputs the analysis gave it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TraceAnalysisBenchmark {
+
+	/**
+	 * Includes copying the packets, as PacketAnalyzerImpl does before it
+	 * analyzes a trace it read earlier again.
+	 */
+	@Benchmark
+	public List<Session> assembleSessions(TraceState state) {
+		List<PacketInfo> packets = new ArrayList<>(state.getPackets().size());
+		for (PacketInfo packet : state.getPackets()) {
+			packets.add(packet.copy());
+		}
+		return state.getBean(ISessionManager.class).processPacketsAndAssembleSessions(packets);
+	}
+
+	@Benchmark
+	public void buildRequestResponse(TraceState state, Blackhole blackhole) throws IOException {
+		IRequestResponseBuilder builder = state.getBean(IRequestResponseBuilder.class);
+		for (Session session : state.result.getSessionlist()) {
+			if (!session.isUdpOnly()) {
+				blackhole.consume(builder.createRequestResponseInfo(session));
+			}
+		}
+	}
+
+	@Benchmark
+	public Object createRrcStateRanges(TraceState state) {
+		return state.getBean(IRrcStateRangeFactory.class).create(state.getPackets(), state.result.getProfile(),
+				state.result.getTraceresult().getTraceDuration());
+	}
+
+	@Benchmark
+	public Object analyzeBursts(TraceState state) {
+		PacketAnalyzerResult result = state.result;
+		AbstractTraceResult traceResult = result.getTraceresult();
+		return state.getBean(IBurstCollectionAnalysis.class).analyze(state.getPackets(), result.getProfile(),
+				result.getStatistic().getPacketSizeToCountMap(), result.getStatemachine().getStaterangelist(),
+				traceResult.getUserEvents(), traceResult.getCpuActivityList().getCpuActivities(), result.getSessionlist());
+	}
+
+	@Benchmark
+	public Object analyzeCache(TraceState state) {
+		return state.getBean(ICacheAnalysis.class).analyze(state.result.getSessionlist());
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ *  Copyright 2019 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ApplicationContext;
+
+import com.att.aro.core.SpringContextUtil;
+import com.att.aro.core.packetanalysis.IPacketAnalyzer;
+import com.att.aro.core.packetanalysis.pojo.PacketAnalyzerResult;
+import com.att.aro.core.packetanalysis.pojo.PacketInfo;
+
+/**
+ * A synthetic trace and its analysis, shared by the benchmarks of the
+ * analysis steps. The trace is written and analyzed once per trial, the
+ * benchmarks rerun single steps over the result.
+ */
+@State(Scope.Benchmark)
+public class TraceState {
+
+	private static final long SEED = 20190715L;
+
+	@Param({ "100", "1000" })
+	public int connections;
+
+	@Param({ "20000" })
+	public int objectBytes;
+
+	ApplicationContext context;
+	SyntheticTrace trace;
+	PacketAnalyzerResult result;
+	private File traceFile;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		context = SpringContextUtil.getInstance().getContext();
+		trace = new SyntheticTrace(connections, objectBytes, SEED);
+		traceFile = File.createTempFile("synthetic", ".cap");
+		trace.write(traceFile);
+		result = context.getBean(IPacketAnalyzer.class).analyzeTraceFile(traceFile.getPath(), null, null);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		if (traceFile != null && !traceFile.delete()) {
+			traceFile.deleteOnExit();
+		}
+	}
+
+	<T> T getBean(Class<T> type) {
+		return context.getBean(type);
+	}
+
+	List<PacketInfo> getPackets() {
+		return result.getTraceresult().getAllpackets();
+	}
+}
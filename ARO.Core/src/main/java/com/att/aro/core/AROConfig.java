@@ -67,6 +67,7 @@ import com.att.aro.core.packetanalysis.IVideoTrafficCollector;
 import com.att.aro.core.packetanalysis.impl.BurstCollectionAnalysisImpl;
 import com.att.aro.core.packetanalysis.impl.ByteArrayLineReaderImpl;
 import com.att.aro.core.packetanalysis.impl.CacheAnalysisImpl;
+import com.att.aro.core.packetanalysis.impl.DecodedContentStore;
 import com.att.aro.core.packetanalysis.impl.EnergyModelFactoryImpl;
 import com.att.aro.core.packetanalysis.impl.HtmlExtractor;
 import com.att.aro.core.packetanalysis.impl.HttpRequestResponseHelperImpl;
@@ -79,6 +80,7 @@ import com.att.aro.core.packetanalysis.impl.RrcStateMachineFactoryImpl;
 import com.att.aro.core.packetanalysis.impl.RrcStateRangeFactoryImpl;
 import com.att.aro.core.packetanalysis.impl.SessionManagerImpl;
 import com.att.aro.core.packetanalysis.impl.ThroughputCalculatorImpl;
+import com.att.aro.core.packetanalysis.impl.TraceAnalysisCache;
 import com.att.aro.core.packetanalysis.impl.TraceDataReaderImpl;
 import com.att.aro.core.packetanalysis.impl.VideoStreamConstructor;
 import com.att.aro.core.packetanalysis.impl.VideoTrafficCollectorImpl;
@@ -87,6 +89,7 @@ import com.att.aro.core.packetreader.IPacketReader;
 import com.att.aro.core.packetreader.IPacketService;
 import com.att.aro.core.packetreader.IPcapngHelper;
 import com.att.aro.core.packetreader.impl.DomainNameParserImpl;
+import com.att.aro.core.packetreader.impl.MappedPacketReaderImpl;
 import com.att.aro.core.packetreader.impl.NetmonPacketReaderImpl;
 import com.att.aro.core.packetreader.impl.PacketReaderImpl;
 import com.att.aro.core.packetreader.impl.PacketServiceImpl;
@@ -174,6 +177,7 @@ import com.att.aro.core.util.FFmpegConfirmationImpl;
 import com.att.aro.core.util.IStringParse;
 import com.att.aro.core.util.PcapConfirmationImpl;
 import com.att.aro.core.util.StringParse;
+import com.att.aro.core.util.Util;
 import com.att.aro.core.video.IScreenRecorder;
 import com.att.aro.core.video.IVideoCapture;
 import com.att.aro.core.video.IVideoWriter;
@@ -223,7 +227,9 @@ public class AROConfig {
 
 	@Bean
 	public IAROService getAROService() {
-		return new AROServiceImpl();
+		AROServiceImpl aroService = new AROServiceImpl();
+		aroService.setParallelism(Runtime.getRuntime().availableProcessors());
+		return aroService;
 	}
 	
 	@Bean
@@ -243,6 +249,11 @@ public class AROConfig {
 
 	@Bean(name = "packetReader")
 	public IPacketReader getPacketReader() {
+		return new MappedPacketReaderImpl();
+	}
+
+	@Bean(name = "jpcapPacketReader")
+	public IPacketReader getJpcapPacketReader() {
 		return new PacketReaderImpl();
 	}
 
@@ -288,7 +299,9 @@ public class AROConfig {
 
 	@Bean
 	public ISessionManager getSessionManager() {
-		return new SessionManagerImpl();
+		SessionManagerImpl sessionManager = new SessionManagerImpl();
+		sessionManager.setParallelism(Runtime.getRuntime().availableProcessors());
+		return sessionManager;
 	}
 
 	@Bean
@@ -314,7 +327,16 @@ public class AROConfig {
 
 	@Bean
 	public ITraceDataReader getTraceDataReader() {
-		return new TraceDataReaderImpl();
+		TraceDataReaderImpl traceDataReader = new TraceDataReaderImpl();
+		traceDataReader.setOffHeapPayload(true);
+		return traceDataReader;
+	}
+
+	@Bean
+	public TraceAnalysisCache getTraceAnalysisCache() {
+		TraceAnalysisCache analysisCache = new TraceAnalysisCache();
+		analysisCache.setOffHeapPayload(true);
+		return analysisCache;
 	}
 
 	@Bean
@@ -474,7 +496,9 @@ public class AROConfig {
 
 	@Bean
 	public IPacketAnalyzer getPacketAnalyzer() {
-		return new PacketAnalyzerImpl();
+		PacketAnalyzerImpl packetAnalyzer = new PacketAnalyzerImpl();
+		packetAnalyzer.setParallelism(Runtime.getRuntime().availableProcessors());
+		return packetAnalyzer;
 	}
 
 	@Bean(name="httpRequestResponseHelper")
@@ -482,6 +506,11 @@ public class AROConfig {
 		return new HttpRequestResponseHelperImpl();
 	}
 
+	@Bean
+	public DecodedContentStore getDecodedContentStore() {
+		return new DecodedContentStore(DecodedContentStore.DEFAULT_BUDGET, true);
+	}
+
 	@Bean
 	public ICacheAnalysis getCacheAnalysis() {
 		return new CacheAnalysisImpl();
@@ -608,12 +637,16 @@ public class AROConfig {
 
 	@Bean(name = "videoStreamingAnalysis")
 	public IVideoTrafficCollector getVideoStreamingAnalysis() {
-		return new VideoTrafficCollectorImpl();
+		VideoTrafficCollectorImpl videoTrafficCollector = new VideoTrafficCollectorImpl();
+		videoTrafficCollector.setParallelism(Runtime.getRuntime().availableProcessors());
+		return videoTrafficCollector;
 	}
 
 	@Bean(name = "videoStreamConstructor")
 	public VideoStreamConstructor getVideoStreamConstructor() {
-		return new VideoStreamConstructor();
+		VideoStreamConstructor videoStreamConstructor = new VideoStreamConstructor();
+		videoStreamConstructor.setFfprobeFallback(Boolean.parseBoolean(SettingsImpl.getInstance().getAttribute(Util.FFPROBE_FALLBACK)));
+		return videoStreamConstructor;
 	}
 
 	@Bean(name = "bufferOccupancyCalculatorImpl")
@@ -101,6 +101,7 @@ public class ImageFormatImpl implements IBestPractice {
 			if (isAndroid()) {
 
 				convExtn = "webp";
+				Util.loadWebPLibrary();
 			} else {
 				convExtn = "jp2";
 			}
@@ -18,7 +18,7 @@ package com.att.aro.core.bestpractice.impl;
 import java.net.InetAddress;
 import java.text.MessageFormat;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -31,7 +31,6 @@ import org.springframework.beans.factory.annotation.Value;
 import com.att.aro.core.bestpractice.IBestPractice;
 import com.att.aro.core.bestpractice.pojo.AbstractBestPracticeResult;
 import com.att.aro.core.bestpractice.pojo.BPResultType;
-import com.att.aro.core.bestpractice.pojo.IatInfo;
 import com.att.aro.core.bestpractice.pojo.PeriodicTransferResult;
 import com.att.aro.core.configuration.pojo.Profile;
 import com.att.aro.core.packetanalysis.pojo.Burst;
@@ -51,11 +50,6 @@ import com.att.aro.core.packetreader.pojo.PacketDirection;
  * Date: November 6, 2014
  */
 public class PeriodicTransferImpl implements IBestPractice {
-	/*
-	 *  Maximum number of requests the algorithm can process in reasonable time.
-	 *  Testings have shown that the number should be smaller than 400 or even smaller for large traces.
-	 */
-	private static final int MAX_NUM_OF_REQUESTS = 200;
 	private static final int SMALL_PERIODICITY = 3;
 	
 	int periodicCount = 0;
@@ -258,53 +252,11 @@ public class PeriodicTransferImpl implements IBestPractice {
 		
 		// ignore request occurring only few times
 		if (timeList.size() > SMALL_PERIODICITY) {
-
-			// requests occurring too frequently must be split to improve performance
-			if (timeList.size() > MAX_NUM_OF_REQUESTS) {
-
-				List<List<Double>> chunks = splitIntoChunks(timeList, MAX_NUM_OF_REQUESTS);
-				boolean ret = false;
-				for (List<Double> list : chunks) {
-					if (isPeriodicalTraffic(list, profile)) {
-						ret = true;
-					}
-				}
-				return ret;
-
-			} else {
-				// requests occurring less frequently can be processed all at once
-				return isPeriodicalTraffic(timeList, profile);
-			}
+			return isPeriodicalTraffic(timeList, profile);
 		} else {
 			return false;
 		}
 	}
-	/**
-	 * Splits List into smaller Lists/chunks
-	 * 
-	 * @param timeList List of timestamps when the object was requested
-	 * @param maxChunkLength determines the maximum size of chunks
-	 * @return List of chunks
-	 */
-	protected List<List<Double>> splitIntoChunks(List<Double> timeList, final int maxChunkLength) {
-		
-		List<List<Double>> chunks = new ArrayList<List<Double>>();
-		int size = timeList.size();
-		int reminder = size % maxChunkLength;
-		
-		for(int ii=0; ii < size; ii += maxChunkLength) {
-	
-			if(ii + maxChunkLength <= size) {
-				chunks.add(timeList.subList(ii, ii + maxChunkLength));
-			} else if (reminder > 0) {
-				chunks.add(timeList.subList(size - reminder, size));
-			} else {
-				assert(false);
-			}
-			
-		}
-		return chunks;
-	}
 	/**
 	 * Determines whether the request are periodic.
 	 * 
@@ -312,76 +264,95 @@ public class PeriodicTransferImpl implements IBestPractice {
 	 * @return true if periodic, false if not
 	 */
 	private boolean isPeriodicalTraffic(List<Double> timeList, Profile profile) {
-		
-		int numberOfRequests = timeList.size();
-		// Collection for storing Inter-Arrival Times
-		List<IatInfo> iatInfoList = new ArrayList<IatInfo>(numberOfRequests * (numberOfRequests - 1) / 2);
-		//logger.info("isPeriodicTraffic.calculateInterArrrivalTime");
-		calculateInterArrivalTime(timeList, numberOfRequests, iatInfoList);
-		//logger.info("isPeriodicTraffic.sortInterArritvalTime");
-		sortInterArrivalTime(iatInfoList);
-		//logger.info("isPeriodicTraffic.calculateClusterParameters");
-		return calculateClusterParameters(iatInfoList, profile);
+		double[] times = new double[timeList.size()];
+		for (int i = 0; i < times.length; i++) {
+			times[i] = timeList.get(i).doubleValue();
+		}
+		return isPeriodicalTraffic(times, profile.getPeriodMinCycle(), profile.getPeriodCycleTol(), profile.getPeriodMinSamples());
 	}
 	/**
-	 * Creates clusters from the list of Inter-Arrival Time list and calculates
-	 * cluster related parameters. Compare these parameters with the profile thresholds and
-	 * returns boolean as a result of the comparison.
+	 * Determines whether the events are periodic.
+	 * 
+	 * The Inter-Arrival Times (IATs) between pairs of events are taken in increasing order and each IAT starts a
+	 * cluster of the IATs which are less than maxVariation above it. The events are periodic if a cluster whose
+	 * average IAT is greater than minVariation links at least minSamples subsequent events, each following the
+	 * previous one by an IAT of the cluster.
 	 * 
-	 * @param iatInfoList List of IAT objects
+	 * Only the IATs of pairs within the cycle window are generated. A cluster averages above minVariation only if
+	 * it reaches above it, so the window starts maxVariation below minVariation. A series spans at least minSamples
+	 * times the lowest IAT of its cluster, so the window ends maxVariation above the cycle which fits minSamples
+	 * times between the first and the last event. The IATs are generated in increasing order, only those of the
+	 * current cluster are kept and no more are generated once the outcome is decided. The longest series of a cluster
+	 * is found by walking the events in time order with a sliding window over the earlier events, so a cluster
+	 * costs time linear in the number of events. Clusters which cannot lengthen the longest series found are
+	 * skipped.
+	 * 
+	 * @param times Timestamps of the events, in the order they were collected
+	 * @param minVariation The average IAT a cluster must exceed
+	 * @param maxVariation The tolerance of the IATs in a cluster
+	 * @param minSamples The number of subsequent events a cluster must link
 	 * @return true if periodic, false if not
 	 */
-	private boolean calculateClusterParameters(List<IatInfo> iatInfoList, Profile profile) {
-		//logger.info("calculateClusterParameters -> profile.getPeriodMinCycle");
-		/*
-		 * This parameter is used to find clusters of PTs (periodic transfers). 
-		 * This parameter/criterion is applied onto all identified clusters of PTs. 
-		 * In order for the cluster to be considered periodical its average value of 
-		 * IATs must be greater than this parameter. 
-		 * The default value of the parameter is 10 seconds.
-		 */
-		double minVariation = profile.getPeriodMinCycle();
-		/* 
-		 * This parameter is used to find clusters of PTs. Each PT has so called 
-		 * IAT (Inter Arrival Time) which is the length of time this PT took place. 
-		 * A cluster is only created from PTs which have their IAT values close 
-		 * to each another within the value specified here by this parameters. 
-		 * Only resulting clusters are considered to be further analyzed for periodicity. 
-		 * The default value of the parameter is 1 second.
-		 */
-		//logger.info("calculateClusterParameters -> profile.getPeriodCycleTol");
-		double maxVariation = profile.getPeriodCycleTol();
-		/*
-		 * This parameter is used to find clusters of PTs.
-		 * A cluster of PTs must contain PTs which are continuously linked. 
-		 * The number of linked PTs must be greater than this parameter. 
-		 * The default value is 3.
-		 */
-		//logger.info("calculateClusterParameters -> profile.getPeriodMinSamples");
-		int minSamples = profile.getPeriodMinSamples();
-		
-		int iatInfoSize = iatInfoList.size();
+	boolean isPeriodicalTraffic(double[] times, double minVariation, double maxVariation, int minSamples) {
+
+		int numberOfEvents = times.length;
+		// without a tolerance no IAT is in a cluster
+		if (numberOfEvents < 2 || !(maxVariation > 0)) {
+			return false;
+		}
+		int[] order = sortByTime(times);
+		double[] sortedTimes = new double[numberOfEvents];
+		for (int i = 0; i < numberOfEvents; i++) {
+			sortedTimes[i] = times[order[i]];
+		}
+		double first = sortedTimes[0];
+		double last = sortedTimes[numberOfEvents - 1];
+		// the cycle window, with room for the rounding of the IATs
+		double shortestCycle = minVariation - 2 * maxVariation;
+		double longestCycle = (last - first) / Math.max(minSamples, 1)
+				+ 4 * Math.ulp(Math.max(Math.abs(first), Math.abs(last)));
+
+		InterArrivalTimes iats = new InterArrivalTimes(sortedTimes, shortestCycle);
+		int[] chain = new int[numberOfEvents];
+		int[] window = new int[numberOfEvents];
 		int bestNonOverlapSize = 0;
 		double cycle = 0;
-		List<IatInfo> iAtCluster;
-		double sumOfClusterIATs;
-		int nonOverlapSize;
-		double avgIatInCluster;
-		//logger.info("calculateClusterParameters -> for loop, size: "+iatInfoSize);
-		for (int idx = 0; idx < iatInfoSize; idx++) {
+		int evaluatedEnd = -1;
+		int firstOfEqual = 0;
+		double previous = 0;
+		for (int idx = 0; idx < iats.size() || iats.generate(); idx++) {
+			double lowest = iats.get(idx);
+			if (lowest > longestCycle) {
+				break;
+			}
+			if (idx == 0 || previous != lowest) {
+				firstOfEqual = idx;
+			}
+			previous = lowest;
+			iats.release(idx);
+			while (iats.hasNext() && iats.peek() - lowest < maxVariation) {
+				iats.generate();
+			}
+			int end = iats.size();
 
-			iAtCluster = new ArrayList<IatInfo>();
-			sumOfClusterIATs = 0;
-			//logger.info("calculateClusterParameters.createIatCluster, ids: "+idx+" of size: "+iatInfoSize);
-			sumOfClusterIATs += createIatCluster(iatInfoList, iAtCluster, idx, maxVariation);
-			
-			avgIatInCluster = sumOfClusterIATs / iAtCluster.size();
+			// a cluster ending where the last evaluated one ends is part of it
+			int clusterSize = end - idx;
+			if (clusterSize <= bestNonOverlapSize || end == evaluatedEnd) {
+				continue;
+			}
+			double avgIatInCluster = averageIat(iats, idx, end, minVariation);
 			if (avgIatInCluster > minVariation) {
-				//logger.info("calculateClusterParameters.gerNonOverlapSize");
-				nonOverlapSize = getNonOverlapSize(iAtCluster);
+				evaluatedEnd = end;
+				// equal IATs before idx are not part of the cluster
+				long firstPair = idx > firstOfEqual ? findPair(times, sortedTimes, order, lowest, idx - firstOfEqual) : -1;
+				int nonOverlapSize = getNonOverlapSize(sortedTimes, order, lowest, maxVariation, firstPair, chain, window);
 				if (nonOverlapSize > bestNonOverlapSize) {
 					bestNonOverlapSize = nonOverlapSize;
 					cycle = avgIatInCluster;
+					// a longer series can only replace the cycle by another average above minVariation
+					if (bestNonOverlapSize >= minSamples && minVariation >= 0) {
+						break;
+					}
 				}
 			}
 		}
@@ -390,123 +361,289 @@ public class PeriodicTransferImpl implements IBestPractice {
 			return false;
 		} else {
 			return cycle > 0;
-		} 
+		}
+	}
+	/**
+	 * Returns the average of the IATs from idx to end, summed one by one like the cluster was built when the
+	 * running sums are too close to minVariation to decide.
+	 */
+	private double averageIat(InterArrivalTimes iats, int idx, int end, double minVariation) {
+		int clusterSize = end - idx;
+		double avgIatInCluster = (iats.sumBefore(end) - iats.sumBefore(idx)) / clusterSize;
+		// bound of the rounding error of a cluster sum taken from the running sums
+		double sumError = 4.0 * (end + 1) * Math.ulp(iats.sumBefore(end));
+		if (Math.abs(avgIatInCluster - minVariation) * clusterSize <= sumError) {
+			double sumOfClusterIATs = 0;
+			for (int i = idx; i < end; i++) {
+				sumOfClusterIATs += iats.get(i);
+			}
+			avgIatInCluster = sumOfClusterIATs / clusterSize;
+		}
+		return avgIatInCluster;
 	}
 	/**
-	 * Method to calculate the over lap events in burst.
+	 * Finds the longest series of subsequent events linked together by IATs of a cluster.
 	 * 
-	 * It finds the longest series of subsequent events linked together by event end ID and event begin ID.
+	 * The events are walked in time order. The window holds the earlier events whose IAT to the current event is
+	 * above lowest and less than maxVariation above it, ordered by decreasing length of the series ending at them,
+	 * so the longest series the current event extends is at its head. Events exactly lowest earlier are checked one
+	 * by one, as the cluster may start in the middle of the pairs with that IAT.
 	 * 
+	 * @param sortedTimes Timestamps of the events sorted by time
+	 * @param order Positions of the sorted events in the original order
+	 * @param lowest The smallest IAT of the cluster
+	 * @param maxVariation The tolerance of the IATs in the cluster
+	 * @param firstPair The first pair with IAT lowest in the cluster, -1 if all of them are
+	 * @return The number of IATs in the longest series
 	 */
-	int getNonOverlapSize(List<IatInfo> iAtCluster) {
-
-		sortIatClusterByBeginTime(iAtCluster);
-
-		// find the longest path
-		int clusterSize = iAtCluster.size();
-		int[] opt = new int[clusterSize];
-		int best = -1;
-		int tmpBest;
-		IatInfo iatInfo;
+	private int getNonOverlapSize(double[] sortedTimes, int[] order, double lowest, double maxVariation, long firstPair,
+			int[] chain, int[] window) {
 
-		for (int i = 0; i < clusterSize; i++) {
-			iatInfo = iAtCluster.get(i);
-			tmpBest = 1;
-
-			for (int j = 0; j <= i - 1; j++) {
-				if (opt[j] >= tmpBest && iAtCluster.get(j).getEndEvent() == iatInfo.getBeginEvent()) {
-					tmpBest = opt[j] + 1;
+		int numberOfEvents = sortedTimes.length;
+		int best = 0;
+		int head = 0;
+		int tail = 0;
+		int next = 0;
+		for (int event = 0; event < numberOfEvents; event++) {
+			double time = sortedTimes[event];
+			while (next < event && time - sortedTimes[next] > lowest) {
+				while (tail > head && chain[window[tail - 1]] <= chain[next]) {
+					tail--;
 				}
+				window[tail++] = next++;
 			}
-
-			if (tmpBest > best) {
-				best = tmpBest;
+			while (head < tail && !(time - sortedTimes[window[head]] - lowest < maxVariation)) {
+				head++;
 			}
 
-			opt[i] = tmpBest;
+			int length = head < tail ? chain[window[head]] + 1 : 0;
+			for (int earlier = next; earlier < event && time - sortedTimes[earlier] == lowest; earlier++) {
+				if (chain[earlier] + 1 > length
+						&& (firstPair < 0 || pair(order[earlier], order[event], numberOfEvents) >= firstPair)) {
+					length = chain[earlier] + 1;
+				}
+			}
+			chain[event] = length;
+			best = Math.max(best, length);
 		}
-
 		return best;
 	}
 	/**
-	 * @param iAtCluster
+	 * Returns the pair of events, in the order the IATs were originally generated, which is the given number of
+	 * pairs after the first pair with the IAT iat.
+	 * 
+	 * The events an IAT iat later or earlier than an event are found by binary search, as the differences to the
+	 * events keep their time order.
 	 */
-	private void sortIatClusterByBeginTime(List<IatInfo> iAtCluster) {
-		Collections.sort(iAtCluster, new SortByBeginTime());
+	private long findPair(double[] times, double[] sortedTimes, int[] order, double iat, int count) {
+		int numberOfEvents = times.length;
+		int[] partners = new int[numberOfEvents];
+		int found = 0;
+		for (int i = 0; i < numberOfEvents - 1; i++) {
+			double time = times[i];
+			int partnerCount = 0;
+			int laterEnd = firstLater(sortedTimes, time, iat, true);
+			for (int k = firstLater(sortedTimes, time, iat, false); k < laterEnd; k++) {
+				if (order[k] > i) {
+					partners[partnerCount++] = order[k];
+				}
+			}
+			// events at the same time are both earlier and later
+			if (iat > 0) {
+				int earlierEnd = firstEarlier(sortedTimes, time, iat, true);
+				for (int k = firstEarlier(sortedTimes, time, iat, false); k < earlierEnd; k++) {
+					if (order[k] > i) {
+						partners[partnerCount++] = order[k];
+					}
+				}
+			}
+			if (found + partnerCount > count) {
+				Arrays.sort(partners, 0, partnerCount);
+				return pair(i, partners[count - found], numberOfEvents);
+			}
+			found += partnerCount;
+		}
+		return -1;
 	}
-	
-	/* 
-	 * Finds all IAT objects with IAT.time close to IAT.time of a IAT object identified by index idx. 
-	 * If IAT.time difference between the objects is less than the threshold (maxVariation), 
-	 * the IAT object is added to IAT Cluster.Sum of all IAT.time in the cluster is returned. 
+	/**
+	 * Returns the first event, in time order, which is at least iat later than time, or more than iat if strict.
 	 */
-	
+	private static int firstLater(double[] sortedTimes, double time, double iat, boolean strict) {
+		int low = 0;
+		int high = sortedTimes.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			double difference = sortedTimes[middle] - time;
+			if (strict ? difference > iat : difference >= iat) {
+				high = middle;
+			} else {
+				low = middle + 1;
+			}
+		}
+		return low;
+	}
 	/**
-	 * @param iatInfoList List of IAT objects
-	 * @param iat IAT object
-	 * @param iAtCluster Cluster of IAT objects 
-	 * @param idx Starting index
-	 * @param maxVariation max. variation
-	 * @return Sum of all IAT.time in the cluster is returned.
-	 **/
-	double createIatCluster(List<IatInfo> iatInfoList, List<IatInfo> iAtCluster, int idx, double maxVariation) {
-
-		int index = idx;
-		IatInfo iat = iatInfoList.get(index);
-		IatInfo iatInfo;
-		int iatInfoSize = iatInfoList.size();
-		double sumOfIatInCluster = 0;
-		while ((index < iatInfoSize) && (iatInfoList.get(index).getIat() - iat.getIat() < maxVariation)) {
-			iatInfo = iatInfoList.get(index);
-			iAtCluster.add(iatInfo);
-			sumOfIatInCluster += iatInfo.getIat();
-			++index;
-		}
-		return sumOfIatInCluster;
+	 * Returns the first event, in time order, which is at most iat earlier than time, or less than iat if strict.
+	 */
+	private static int firstEarlier(double[] sortedTimes, double time, double iat, boolean strict) {
+		int low = 0;
+		int high = sortedTimes.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			double difference = time - sortedTimes[middle];
+			if (strict ? difference < iat : difference <= iat) {
+				high = middle;
+			} else {
+				low = middle + 1;
+			}
+		}
+		return low;
+	}
+	private static long pair(int event1, int event2, int numberOfEvents) {
+		return (long) Math.min(event1, event2) * numberOfEvents + Math.max(event1, event2);
 	}
 	/**
-	 * Sorts Inter-Arrival Time collection.
-	 * 
-	 * @param iatInfoList Collection to be sorted.
+	 * Returns the positions of the events sorted by time, events at the same time keep their order.
 	 */
-	private void sortInterArrivalTime(List<IatInfo> iatInfoList) {
-		Collections.sort(iatInfoList, new SortByIAT());
+	private int[] sortByTime(final double[] times) {
+		Integer[] positions = new Integer[times.length];
+		for (int i = 0; i < times.length; i++) {
+			positions[i] = i;
+		}
+		// the sort is stable
+		Arrays.sort(positions, Comparator.comparingDouble(position -> times[position]));
+		int[] order = new int[times.length];
+		for (int i = 0; i < times.length; i++) {
+			order[i] = positions[i];
+		}
+		return order;
 	}
 	/**
-	 * Calculates Inter-Arrival Time between all events in the collection, time between each events.
+	 * The IATs between the pairs of events, generated in increasing order.
 	 * 
-	 * @param timeList Contains a collection of events represented by the event's occurrence timestamp.
-	 * @param numberOfRequests The total number of events.
-	 * @param iatInfoList Stores the results; the calculated IAT, begin time, and other information.
+	 * Every event is paired with the events after it one by one, starting with the first event at least the
+	 * shortest IAT later, and a heap orders the events by the IAT to the event they are paired with next. The IATs generated are kept with their running sums from the first one still
+	 * needed on.
 	 */
-	private void calculateInterArrivalTime(List<Double> timeList, int numberOfRequests, List<IatInfo> iatInfoList) {
-		
-		double time1;
-		double time2;
-		IatInfo iInfo;
-		
-		for (int i = 0; i < numberOfRequests - 1; i++) {
-			for (int j = i + 1; j < numberOfRequests; j++) {
-				time1 = timeList.get(i).doubleValue();
-				time2 = timeList.get(j).doubleValue();
+	private static class InterArrivalTimes {
+		private final double[] sortedTimes;
+		// the event each event is paired with next
+		private final int[] next;
+		private final int[] heap;
+		private int heapSize;
+		private double[] iats = new double[64];
+		private double[] sums = new double[64];
+		private int released;
+		private int size;
+		private double total;
+
+		InterArrivalTimes(double[] sortedTimes, double shortestIat) {
+			this.sortedTimes = sortedTimes;
+			int numberOfEvents = sortedTimes.length;
+			next = new int[numberOfEvents];
+			heap = new int[numberOfEvents];
+			for (int event = 0; event < numberOfEvents - 1; event++) {
+				next[event] = Math.max(event + 1, firstLater(sortedTimes, sortedTimes[event], shortestIat, false));
+				if (next[event] < numberOfEvents) {
+					heap[heapSize++] = event;
+				}
+			}
+			for (int i = heapSize / 2 - 1; i >= 0; i--) {
+				siftDown(i);
+			}
+		}
+
+		boolean hasNext() {
+			return heapSize > 0;
+		}
+
+		/**
+		 * Returns the IAT generate would add.
+		 */
+		double peek() {
+			return iat(heap[0]);
+		}
 
-				iInfo = new IatInfo();
-				if (time1 <= time2) {
-					iInfo.setBeginTime(time1);
-					iInfo.setIat(time2 - time1);
-					iInfo.setBeginEvent(i);
-					iInfo.setEndEvent(j);
-				} else {
+		/**
+		 * Adds the next IAT, returns false if all of them are added.
+		 */
+		boolean generate() {
+			if (heapSize == 0) {
+				return false;
+			}
+			int event = heap[0];
+			double iat = iat(event);
+			if (++next[event] == sortedTimes.length) {
+				heap[0] = heap[--heapSize];
+			}
+			siftDown(0);
+
+			if (size - released == iats.length) {
+				grow();
+			}
+			int slot = size & (iats.length - 1);
+			iats[slot] = iat;
+			sums[slot] = total;
+			total += iat;
+			size++;
+			return true;
+		}
+
+		/**
+		 * Returns the number of IATs added.
+		 */
+		int size() {
+			return size;
+		}
+
+		double get(int position) {
+			return iats[position & (iats.length - 1)];
+		}
+
+		/**
+		 * Returns the sum of the IATs added before the position.
+		 */
+		double sumBefore(int position) {
+			return position == size ? total : sums[position & (iats.length - 1)];
+		}
 
-					iInfo.setBeginTime(time2);
-					iInfo.setIat(time1 - time2);
-					iInfo.setBeginEvent(j);
-					iInfo.setEndEvent(i);
+		/**
+		 * Drops the IATs before the position.
+		 */
+		void release(int position) {
+			released = position;
+		}
+
+		private double iat(int event) {
+			return sortedTimes[next[event]] - sortedTimes[event];
+		}
 
+		private void siftDown(int index) {
+			int event = heap[index];
+			double iat = heapSize > index ? iat(event) : 0;
+			while (2 * index + 1 < heapSize) {
+				int child = 2 * index + 1;
+				if (child + 1 < heapSize && iat(heap[child + 1]) < iat(heap[child])) {
+					child++;
 				}
+				if (iat(heap[child]) >= iat) {
+					break;
+				}
+				heap[index] = heap[child];
+				index = child;
+			}
+			heap[index] = event;
+		}
 
-				iatInfoList.add(iInfo);
+		private void grow() {
+			double[] grownIats = new double[iats.length * 2];
+			double[] grownSums = new double[sums.length * 2];
+			for (int position = released; position < size; position++) {
+				grownIats[position & (grownIats.length - 1)] = get(position);
+				grownSums[position & (grownSums.length - 1)] = sums[position & (sums.length - 1)];
 			}
+			iats = grownIats;
+			sums = grownSums;
 		}
 	}
 	/**
@@ -665,19 +802,4 @@ public class PeriodicTransferImpl implements IBestPractice {
 //		}
 //	}
 
-	private class SortByBeginTime implements Comparator<IatInfo> {
-		@Override
-		public int compare(IatInfo info1, IatInfo info2) {
-			return Double.valueOf(info1.getBeginTime()).compareTo(info2.getBeginTime());
-		}
-	}
-
-	private class SortByIAT implements Comparator<IatInfo> {
-
-		@Override
-		public int compare(IatInfo info1, IatInfo info2) {
-			return Double.valueOf(info1.getIat()).compareTo(info2.getIat());
-		}
-	}
-
 }//end class
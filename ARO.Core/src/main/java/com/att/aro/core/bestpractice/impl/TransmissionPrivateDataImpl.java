@@ -194,7 +194,7 @@ public class TransmissionPrivateDataImpl implements IBestPractice {
 		try {
 			for (HttpRequestResponseInfo rrInfo : session.getRequestResponseInfo()) {
 				if (rrInfo.getDirection() == HttpDirection.REQUEST) {
-					dataWrapper.write(rrInfo.getPayloadData().toByteArray());
+					rrInfo.getPayloadData().writeTo(dataWrapper);
 				}
 			}
 			dataWrapper.flush();
@@ -24,6 +24,7 @@ import org.springframework.beans.factory.annotation.Value;
 import com.att.aro.core.bestpractice.IBestPractice;
 import com.att.aro.core.bestpractice.pojo.AbstractBestPracticeResult;
 import com.att.aro.core.bestpractice.pojo.BPResultType;
+import com.att.aro.core.bestpractice.pojo.IntervalSweep;
 import com.att.aro.core.bestpractice.pojo.UnnecessaryConnectionEntry;
 import com.att.aro.core.bestpractice.pojo.UnnecessaryConnectionResult;
 import com.att.aro.core.packetanalysis.pojo.Burst;
@@ -90,30 +91,45 @@ public class UnnecessaryConnectionImpl implements IBestPractice {
 	}
 	/**
 	 * To Validate the simultaneous TCP connections
+	 * 
+	 * A burst and the bursts following it which end within 60 seconds of its start are tightly coupled. The bursts
+	 * within the 60 seconds are found by a binary search over the end times and counted with running totals.
 	 */
 	private void validateUnnecessaryConnections(List<Burst> burstCollection) {
 		int setCount = 0;
 		int maxCount = 0;
 		Burst maxBurst = null;
-		for (int i = 0; i < burstCollection.size(); ++i) {
+		int size = burstCollection.size();
+		double[] beginTimes = new double[size];
+		double[] endTimes = new double[size];
+		// bursts other than user input, and their bytes, before each burst
+		int[] countedBursts = new int[size + 1];
+		long[] countedBytes = new long[size + 1];
+		for (int i = 0; i < size; ++i) {
+			Burst burstInfo = burstCollection.get(i);
+			beginTimes[i] = burstInfo.getBeginTime();
+			endTimes[i] = burstInfo.getEndTime();
+			countedBursts[i + 1] = countedBursts[i];
+			countedBytes[i + 1] = countedBytes[i];
+			if (burstInfo.getBurstCategory() != BurstCategory.USER_INPUT) {
+				countedBursts[i + 1]++;
+				countedBytes[i + 1] += burstInfo.getBurstBytes();
+			}
+		}
+		IntervalSweep sweep = new IntervalSweep(beginTimes, endTimes);
+
+		for (int i = 0; i < size; ++i) {
 			Burst burstInfo = burstCollection.get(i);
 			if (burstInfo.getBurstCategory() == BurstCategory.USER_INPUT
 					|| burstInfo.getBurstCategory() == BurstCategory.SCREEN_ROTATION) {
 				continue;
 			}
-			double startTime = burstInfo.getBeginTime();
+			double startTime = beginTimes[i];
 			double endTime = startTime + 60.0;
-			int count = 1;
-			double totalSize=0;
-			for (int j = i + 1; j < burstCollection.size()
-					&& burstCollection.get(j).getEndTime() <= endTime; ++j) {
-				if (burstCollection.get(j).getBurstCategory() != BurstCategory.USER_INPUT
-						|| burstInfo.getBurstCategory() == BurstCategory.SCREEN_ROTATION) {
-					++count;
-					totalSize += burstCollection.get(j).getBurstBytes();
-					
-				}
-			}
+			int next = i + 1;
+			int last = sweep.firstEndingAfter(next, endTime);
+			int count = 1 + countedBursts[last] - countedBursts[next];
+			double totalSize = countedBytes[last] - countedBytes[next];
 			//Checking for 4 burts within 60 sec 
 			if (count >= 4) {
 				ucEntryList.add(new UnnecessaryConnectionEntry(startTime, endTime, count, totalSize/1024));
@@ -0,0 +1,134 @@
+/*
+ *  Copyright 2019 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.core.bestpractice.pojo;
+
+import java.util.Arrays;
+
+/**
+ * Sweeps the start and end events of a set of intervals, such as session lifetimes or bursts, in time order.
+ * 
+ * The largest number of intervals open at once is found by walking the sorted start times and the sorted end times
+ * together, an interval ending at the time another starts does not overlap it. Intervals are identified by their
+ * position in the arrays the sweep was created with.
+ */
+public final class IntervalSweep {
+
+	private final double[] starts;
+	private final double[] ends;
+	private int maxOverlap;
+	private double maxOverlapTime = Double.NaN;
+	private double[] endMaxima;
+
+	/**
+	 * @param starts The start times of the intervals
+	 * @param ends The end times of the intervals, in the same order as the start times
+	 */
+	public IntervalSweep(double[] starts, double[] ends) {
+		if (starts.length != ends.length) {
+			throw new IllegalArgumentException("Intervals have " + starts.length + " start and " + ends.length + " end times");
+		}
+		this.starts = starts;
+		this.ends = ends;
+		sweep();
+	}
+
+	private void sweep() {
+		double[] startEvents = starts.clone();
+		double[] endEvents = ends.clone();
+		Arrays.sort(startEvents);
+		Arrays.sort(endEvents);
+		int overlap = 0;
+		int startIndex = 0;
+		int endIndex = 0;
+		while (startIndex < startEvents.length && endIndex < endEvents.length) {
+			if (startEvents[startIndex] < endEvents[endIndex]) {
+				overlap++;
+				if (overlap > maxOverlap) {
+					maxOverlap = overlap;
+					maxOverlapTime = startEvents[startIndex];
+				}
+				startIndex++;
+			} else {
+				overlap--;
+				endIndex++;
+			}
+		}
+	}
+
+	public int size() {
+		return starts.length;
+	}
+
+	/**
+	 * Returns the largest number of intervals open at once.
+	 */
+	public int getMaxOverlap() {
+		return maxOverlap;
+	}
+
+	/**
+	 * Returns the start time at which the largest number of intervals was first open, NaN if there are no intervals.
+	 */
+	public double getMaxOverlapTime() {
+		return maxOverlapTime;
+	}
+
+	/**
+	 * Returns the interval starting at getMaxOverlapTime(), the last one if several start at that time, -1 if there
+	 * are no intervals.
+	 */
+	public int getMaxOverlapInterval() {
+		for (int index = starts.length - 1; index >= 0; index--) {
+			if (Double.compare(starts[index], maxOverlapTime) == 0) {
+				return index;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the first interval at or after from which does not end by time, size() if all of them do.
+	 * 
+	 * Intervals following each other, like bursts, are found by a binary search over the latest end times so far.
+	 * When an interval before from ends after time the intervals are scanned.
+	 */
+	public int firstEndingAfter(int from, double time) {
+		if (endMaxima == null) {
+			endMaxima = new double[ends.length];
+			for (int index = 0; index < ends.length; index++) {
+				endMaxima[index] = index == 0 ? ends[0] : Math.max(endMaxima[index - 1], ends[index]);
+			}
+		}
+		if (from > 0 && !(endMaxima[from - 1] <= time)) {
+			int index = from;
+			while (index < ends.length && ends[index] <= time) {
+				index++;
+			}
+			return index;
+		}
+		int low = from;
+		int high = ends.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (endMaxima[middle] <= time) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+}
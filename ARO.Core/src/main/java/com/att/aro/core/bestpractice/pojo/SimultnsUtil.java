@@ -16,24 +16,16 @@
 package com.att.aro.core.bestpractice.pojo;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
-
-import org.apache.log4j.Logger;
-import org.apache.log4j.LogManager;
 
 import com.att.aro.core.packetanalysis.pojo.HttpRequestResponseInfo;
 import com.att.aro.core.packetanalysis.pojo.Session;
 import com.att.aro.core.packetanalysis.pojo.SessionValues;
 
 public final class SimultnsUtil {
-	private static final Logger LOGGER = LogManager.getLogger(SimultnsUtil.class.getName());
-	TreeMap<Double, String> ipMap = new TreeMap<Double, String>();
-
 	public Map<String, ArrayList<Session>> getDistinctMap(List<Session> sessions) {
 		Map<String, ArrayList<Session>> distinctMap = new HashMap<String, ArrayList<Session>>();
 		for (Session session : sessions) {
@@ -50,25 +42,25 @@ public final class SimultnsUtil {
 		return distinctMap;
 	}
 
+	/**
+	 * Returns the entry of the most sessions open at once, null if fewer than maxCount sessions are ever open at
+	 * once. The entry describes the session whose start first brought that many sessions.
+	 */
 	public MultipleConnectionsEntry getTimeMap(List<SessionValues> tMap, int maxCount, boolean isManyServer) {
 		String ipInside = "";
 		String domainVal = "";
-		TreeMap<Double, Double> timeMap = new TreeMap<Double, Double>();
-		TreeMap<Double, HttpRequestResponseInfo> reqRespTimeMap = new TreeMap<Double, HttpRequestResponseInfo>();
-		int iterator = 0;
-		double sessionStartTime = 0.0;
-		double sessionEndTime = 0.0;
-		double[] start = new double[tMap.size()];
-		double[] end = new double[tMap.size()];
-		for (SessionValues indSessionVal : tMap) {
-			sessionStartTime = indSessionVal.getStartTime();
-			sessionEndTime = indSessionVal.getEndTime();
-			timeMap.put(sessionStartTime, sessionEndTime);
-			start[iterator] = sessionStartTime;
-			end[iterator] = sessionEndTime;
+		int size = tMap.size();
+		double[] start = new double[size];
+		double[] end = new double[size];
+		String[] ips = new String[size];
+		HttpRequestResponseInfo[] reqResps = new HttpRequestResponseInfo[size];
+		for (int iterator = 0; iterator < size; iterator++) {
+			SessionValues indSessionVal = tMap.get(iterator);
+			start[iterator] = indSessionVal.getStartTime();
+			end[iterator] = indSessionVal.getEndTime();
 			ipInside = indSessionVal.getIp().substring(indSessionVal.getIp().lastIndexOf('/') + 1,
 					indSessionVal.getIp().length());
-			ipMap.put(sessionStartTime, ipInside);
+			ips[iterator] = ipInside;
 			if (indSessionVal.getReqRespInfo() != null) {
 				HttpRequestResponseInfo reqResponseSessionData = indSessionVal.getReqRespInfo();
 				reqResponseSessionData.setSession(indSessionVal.getIndSession());
@@ -77,78 +69,29 @@ public final class SimultnsUtil {
 				} else {
 					domainVal = ipInside;
 				}
-				reqRespTimeMap.put(sessionStartTime, reqResponseSessionData);
+				reqResps[iterator] = reqResponseSessionData;
 			} else {
-				reqRespTimeMap.put(sessionStartTime, new HttpRequestResponseInfo());
+				reqResps[iterator] = new HttpRequestResponseInfo();
 			}
-			iterator++;
 		}
-		return maxOverlapIntervalCount(domainVal, start, end, maxCount, timeMap, isManyServer, reqRespTimeMap,
-				ipInside);
-	}
 
-	private MultipleConnectionsEntry maxOverlapIntervalCount(String domainVal, double[] start, double[] end,
-			int maxCount,
-			TreeMap<Double, Double> timeMap, boolean isManyEndpoints,
-			TreeMap<Double, HttpRequestResponseInfo> reqRespTimeMap, String ipInside) {
-		int startTimePointer = start.length, endTimePointer = end.length;
-		Arrays.sort(start);
-		Arrays.sort(end);
-		MultipleConnectionsEntry simultnsConnEntry = null;
-		TreeMap<String, MultipleConnectionsEntry> simultnsConnectionEntryMap = new TreeMap<String, MultipleConnectionsEntry>();
-		double startTime = 0.0;
-		int currentOverlap = 0;
-		int maxOverlap = 0;
-		int startTimeCounter = 0;
-		int endTimeCounter = 0;
-		while (startTimeCounter < startTimePointer && endTimeCounter < endTimePointer) {
-			startTime = start[startTimeCounter];
-			if (startTime < end[endTimeCounter]) {
-				currentOverlap++;
-				if (currentOverlap >= maxCount && maxOverlap < currentOverlap) {
-					if (!isManyEndpoints) {
-						if (simultnsConnectionEntryMap.containsKey(domainVal) && maxCount == 3) {
-							simultnsConnectionEntryMap.replace(domainVal,
-									new MultipleConnectionsEntry(reqRespTimeMap.get(startTime),
-											domainVal.substring(domainVal.lastIndexOf('/') + 1, domainVal.length()),
-											currentOverlap, startTime, timeMap.get(startTime), ipInside, isManyEndpoints));
-						} else {
-							simultnsConnectionEntryMap.put(domainVal,
-									new MultipleConnectionsEntry(reqRespTimeMap.get(startTime),
-											domainVal.substring(domainVal.lastIndexOf('/') + 1, domainVal.length()),
-											currentOverlap, startTime, timeMap.get(startTime), ipInside, isManyEndpoints));
-						}
-					} else {
-						String domain = "";
-						if (reqRespTimeMap.get(startTime) != null
-								&& reqRespTimeMap.get(startTime).getHostName() != null) {
-							domain = reqRespTimeMap.get(startTime).getHostName();
-						} else {
-							domain = ipMap.get(startTime);
-						}
-						simultnsConnectionEntryMap.put(domainVal,
-								new MultipleConnectionsEntry(reqRespTimeMap.get(startTime),
-										domain.substring(domain.lastIndexOf('/') + 1, domain.length()),
-										currentOverlap, startTime, timeMap.get(startTime), ipMap.get(startTime), isManyEndpoints));
-					}
-					if (maxOverlap < currentOverlap) {
-						maxOverlap = currentOverlap;
-					}
-				}
-				startTimeCounter++;
-			} else {
-				currentOverlap--;
-				endTimeCounter++;
-			}
+		IntervalSweep sweep = new IntervalSweep(start, end);
+		int index = sweep.getMaxOverlapInterval();
+		if (index < 0 || sweep.getMaxOverlap() < maxCount) {
+			return null;
 		}
-		if (simultnsConnectionEntryMap.containsKey(domainVal)) {
-			simultnsConnEntry = simultnsConnectionEntryMap.get(domainVal);
+		HttpRequestResponseInfo reqResp = reqResps[index];
+		if (isManyServer) {
+			String domain = reqResp.getHostName() != null ? reqResp.getHostName() : ips[index];
+			return new MultipleConnectionsEntry(reqResp, domain.substring(domain.lastIndexOf('/') + 1, domain.length()),
+					sweep.getMaxOverlap(), start[index], end[index], ips[index], isManyServer);
+		} else {
+			return new MultipleConnectionsEntry(reqResp, domainVal.substring(domainVal.lastIndexOf('/') + 1, domainVal.length()),
+					sweep.getMaxOverlap(), start[index], end[index], ipInside, isManyServer);
 		}
-		return simultnsConnEntry;
 	}
 
 	public List<SessionValues> createDomainsTCPSessions(Collection<Session> allTCPSessions) {
-		LOGGER.info("Test Message");
 		List<SessionValues> sessionValues = new ArrayList<SessionValues>();
 		Session lastSession = null;
 		for (Session aSession : allTCPSessions) {
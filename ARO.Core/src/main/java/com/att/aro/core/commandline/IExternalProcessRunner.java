@@ -48,5 +48,15 @@ public interface IExternalProcessRunner {
 	String executeCmd(String cmd);
 		
 	String executeCmdRunner(String cmd, boolean earlyExit, String msg);
+
+	/**
+	 * Runs command with input on its standard input, without a shell, and
+	 * returns its standard output. The standard error is discarded.
+	 * 
+	 * @param timeout milliseconds after which the process is killed
+	 * @return everything the process wrote to its standard output, null if
+	 *         the process was killed after timeout or exited with an error
+	 */
+	byte[] runWithInput(String[] command, byte[] input, long timeout) throws IOException;
 	
 }
@@ -17,10 +17,15 @@ package com.att.aro.core.commandline.impl;
 
 import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.ProcessBuilder.Redirect;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
@@ -112,6 +117,58 @@ public class ExternalProcessRunnerImpl implements IExternalProcessRunner {
 		return builder.toString();
 	}
 
+	@Override
+	public byte[] runWithInput(String[] command, byte[] input, long timeout) throws IOException {
+		ProcessBuilder pbldr = new ProcessBuilder(command).redirectError(Redirect.to(new File(Util.isWindowsOS() ? "NUL" : "/dev/null")));
+		String binPath = Util.getBinPath();
+		if (!StringUtils.isEmpty(binPath)) {
+			Map<String, String> envs = pbldr.environment();
+			envs.put("PATH", System.getenv("PATH") + ":" + binPath);
+		}
+		Process process = pbldr.start();
+
+		// written on its own thread, the process may not read all of it before writing its output
+		Thread writer = new Thread(() -> {
+			try (OutputStream stdin = process.getOutputStream()) {
+				stdin.write(input);
+			} catch (IOException e) {
+				LOG.debug("Process stopped reading its input: " + e.getMessage());
+			}
+		}, "ProcessInput");
+		writer.setDaemon(true);
+		writer.start();
+		AtomicBoolean killed = new AtomicBoolean();
+		Thread watchdog = new Thread(() -> {
+			try {
+				if (!process.waitFor(timeout, TimeUnit.MILLISECONDS)) {
+					LOG.error("Killing <" + command[0] + "> after " + timeout + " ms");
+					killed.set(true);
+					process.destroyForcibly();
+				}
+			} catch (InterruptedException e) {
+				process.destroyForcibly();
+			}
+		}, "ProcessWatchdog");
+		watchdog.setDaemon(true);
+		watchdog.start();
+
+		try (InputStream stdout = process.getInputStream(); ByteArrayOutputStream out = readInputStream(stdout)) {
+			// the watchdog bounds the wait, the output of a killed or failed process is partial
+			int exitValue = process.waitFor();
+			if (killed.get() || exitValue != 0) {
+				LOG.debug("<" + command[0] + "> exited with " + exitValue + ", discarding its output");
+				return null;
+			}
+			return out.toByteArray();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		} finally {
+			process.destroy();
+			watchdog.interrupt();
+		}
+	}
+
 	@Override
 	public String runCmd(String[] command) throws IOException {
 		Process process = procfactory.create(command);
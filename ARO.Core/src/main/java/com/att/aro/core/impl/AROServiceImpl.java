@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -78,6 +79,11 @@ import com.att.aro.core.util.Util;
  */
 public class AROServiceImpl implements IAROService {
 	private static final Logger LOGGER = LogManager.getLogger(AROServiceImpl.class.getName());
+	/**
+	 * How long a single best practice may run before it is left out of the
+	 * results.
+	 */
+	static final long BP_TIMEOUT = TimeUnit.MINUTES.toMillis(10);
 	private IPacketAnalyzer packetanalyzer;
 	private ICacheAnalysis cacheAnalyzer;
 	@Autowired
@@ -86,6 +92,8 @@ public class AROServiceImpl implements IAROService {
 	private IFileManager filemanager;
 	@Value("${ga.request.timing.bpTimings.title}")
 	private String bpTimingsTitle;
+	private int parallelism = 1;
+	private long bpTimeout = BP_TIMEOUT;
 	private IReport jsonreport;
 
 	@Autowired
@@ -160,6 +168,18 @@ public class AROServiceImpl implements IAROService {
 		this.cacheAnalyzer = cacheanalysis;
 	}
 
+	/**
+	 * Sets the number of best practices run at the same time, 1 runs them one
+	 * after another on the calling thread.
+	 */
+	public void setParallelism(int parallelism) {
+		this.parallelism = Math.max(1, parallelism);
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
 	@Autowired
 	@Qualifier("periodicTransfer")
 	public void setPeriodicTransfer(IBestPractice periodicTransfer) {
@@ -628,6 +648,8 @@ public class AROServiceImpl implements IAROService {
 	 * Performs BestPractice tests identified in the requests
 	 * List&lt;BestPracticeType&gt; requests.<br>
 	 * Test results are added to a resultList, ArrayList&lt;IBestPractice&gt;
+	 * in the order of the requests. Up to parallelism tests run at the same
+	 * time, see BestPracticeScheduler.
 	 *
 	 *
 	 * @param result
@@ -641,36 +663,22 @@ public class AROServiceImpl implements IAROService {
 		if (result == null) {
 			return null;
 		}
-		List<AbstractBestPracticeResult> resultlist = new ArrayList<AbstractBestPracticeResult>();
-		IBestPractice worker = null;
-		if (requests.contains(BestPracticeType.USING_CACHE) || requests.contains(BestPracticeType.CACHE_CONTROL)
-				 || requests.contains(BestPracticeType.DUPLICATE_CONTENT)) {
-					this.createCacheAnalysis(result);
-		}
-		for (BestPracticeType type : requests) {
-			worker = getBPWorker(type);
-			if (worker != null) {
-				try {
-					long bpStartTime = System.currentTimeMillis();
-					resultlist.add(worker.runTest(result));
-					GoogleAnalyticsUtil.getGoogleAnalyticsInstance().sendAnalyticsTimings(type.getDescription(),
-							System.currentTimeMillis() - bpStartTime, bpTimingsTitle);
-				} catch (Exception | Error ex) {
-					LOGGER.error("Error running best practice " + type.getDescription() + " : ", ex);
-					new Thread(() -> sendExceptiontoGA(type)).start();
-				}
-			}
-		}
+		BestPracticeScheduler scheduler = new BestPracticeScheduler(parallelism, bpTimeout, bpTimingsTitle);
+		// decoded content is memoized per body by DecodedContentStore, images and video data are built once by the packet analysis
+		scheduler.addStage(() -> createCacheAnalysis(result), BestPracticeType.USING_CACHE, BestPracticeType.CACHE_CONTROL,
+				BestPracticeType.DUPLICATE_CONTENT);
+		// the video workers share the streaming video data and the video preferences
+		scheduler.addSerial(BestPracticeType.getByCategory(BestPracticeType.Category.VIDEO).toArray(new BestPracticeType[0]));
+		// the image workers write into the Image folder of the trace
+		scheduler.addSerial(BestPracticeType.IMAGE_MDATA, BestPracticeType.IMAGE_CMPRS, BestPracticeType.IMAGE_FORMAT,
+				BestPracticeType.IMAGE_COMPARE);
+		List<AbstractBestPracticeResult> resultlist = scheduler.run(result, requests, this::getBPWorker);
 		for(AbstractBestPracticeResult testresult : resultlist){
 			sendGABPResult(testresult);
 		}
 		return resultlist;
 	}
 	
-    private void sendExceptiontoGA(BestPracticeType type){
-    	GoogleAnalyticsUtil.getGoogleAnalyticsInstance().sendErrorEvents("Exception", "Error running best practice: "+ type.getDescription(), false);
-    }
-    
 	private void sendGABPResult(AbstractBestPracticeResult testresult){
 		if(testresult == null){
 			return;
@@ -0,0 +1,291 @@
+/*
+ *  Copyright 2019 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.core.impl;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+import com.att.aro.core.bestpractice.IBestPractice;
+import com.att.aro.core.bestpractice.pojo.AbstractBestPracticeResult;
+import com.att.aro.core.bestpractice.pojo.BestPracticeType;
+import com.att.aro.core.packetanalysis.pojo.PacketAnalyzerResult;
+import com.att.aro.core.util.GoogleAnalyticsUtil;
+
+/**
+ * Runs the best practice workers of one analysis.
+ * <p>
+ * Prerequisites shared by several best practices are declared as stages with
+ * addStage, a stage is computed once by the first worker that needs it while
+ * the other workers wait for it. Workers run concurrently on a pool of at most
+ * parallelism threads, except the workers declared with addSerial which share
+ * state and run one after another. A worker that fails or runs longer than the
+ * timeout is left out of the results without affecting the others. A worker
+ * that times out is interrupted and another thread takes its place, run waits
+ * a while for it to stop and then abandons it with an error in the log.
+ * <p>
+ * A scheduler is meant for a single call to run.
+ */
+public class BestPracticeScheduler {
+
+	private static final Logger LOGGER = LogManager.getLogger(BestPracticeScheduler.class.getName());
+
+	private final int parallelism;
+	private final long timeoutMillis;
+	private final String timingsTitle;
+	private final Map<BestPracticeType, List<FutureTask<Void>>> stages = new EnumMap<>(BestPracticeType.class);
+	private final Set<BestPracticeType> serial = EnumSet.noneOf(BestPracticeType.class);
+	private ThreadPoolExecutor pool;
+
+	/**
+	 * @param parallelism The number of workers run at the same time, workers
+	 *            run one after another on the calling thread when 1 or less.
+	 * @param timeoutMillis How long a worker may run, including the stages it
+	 *            waits for. Not enforced when workers run on the calling thread.
+	 * @param timingsTitle Title of the timings sent to Google Analytics.
+	 */
+	public BestPracticeScheduler(int parallelism, long timeoutMillis, String timingsTitle) {
+		this.parallelism = parallelism;
+		this.timeoutMillis = timeoutMillis;
+		this.timingsTitle = timingsTitle;
+	}
+
+	/**
+	 * Declares a prerequisite of types, run once before the first worker of
+	 * one of types.
+	 */
+	public void addStage(Runnable stage, BestPracticeType... types) {
+		FutureTask<Void> task = new FutureTask<>(stage, null);
+		for (BestPracticeType type : types) {
+			stages.computeIfAbsent(type, key -> new ArrayList<>()).add(task);
+		}
+	}
+
+	/**
+	 * Declares that the workers of types keep state they share with each other,
+	 * they run one after another in the order they are requested.
+	 */
+	public void addSerial(BestPracticeType... types) {
+		for (BestPracticeType type : types) {
+			serial.add(type);
+		}
+	}
+
+	/**
+	 * Runs the workers of requests over result.
+	 *
+	 * @param workers Returns the worker of a best practice, null if there is none.
+	 * @return The results in the order of requests.
+	 */
+	public List<AbstractBestPracticeResult> run(PacketAnalyzerResult result, List<BestPracticeType> requests,
+			Function<BestPracticeType, IBestPractice> workers) {
+		// best practice workers keep state in fields, a worker requested twice runs once
+		Map<IBestPractice, Task> tasksByWorker = new IdentityHashMap<>();
+		List<Task> tasks = new ArrayList<>();
+		List<Task> uniqueTasks = new ArrayList<>();
+		for (BestPracticeType type : requests) {
+			IBestPractice worker = workers.apply(type);
+			if (worker != null) {
+				Task task = tasksByWorker.get(worker);
+				if (task == null) {
+					task = new Task(type, worker, result);
+					tasksByWorker.put(worker, task);
+					uniqueTasks.add(task);
+				}
+				tasks.add(task);
+			}
+		}
+
+		List<AbstractBestPracticeResult> resultlist = new ArrayList<AbstractBestPracticeResult>();
+		if (parallelism <= 1 || uniqueTasks.size() <= 1) {
+			for (Task task : tasks) {
+				task.run();
+				collect(task, resultlist, false);
+			}
+			return resultlist;
+		}
+
+		// the serial workers form a chain, each one queues the next when it is done
+		List<Task> firstTasks = new ArrayList<>();
+		Task lastSerial = null;
+		for (Task task : uniqueTasks) {
+			if (!serial.contains(task.type)) {
+				firstTasks.add(task);
+			} else if (lastSerial == null) {
+				firstTasks.add(task);
+				lastSerial = task;
+			} else {
+				lastSerial.next = task;
+				lastSerial = task;
+			}
+		}
+
+		int threads = Math.min(parallelism, firstTasks.size());
+		pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), runnable -> {
+			Thread thread = new Thread(runnable, "BestPractice");
+			// a worker abandoned after its timeout must not keep the application from exiting
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			for (Task task : firstTasks) {
+				pool.execute(task);
+			}
+			for (Task task : tasks) {
+				if (!collect(task, resultlist, true)) {
+					break;
+				}
+			}
+		} finally {
+			pool.shutdownNow();
+			awaitTermination(uniqueTasks);
+		}
+		return resultlist;
+	}
+
+	/**
+	 * Waits a while for the workers still running after shutdownNow, then
+	 * abandons those that do not check for interrupts.
+	 */
+	private void awaitTermination(List<Task> tasks) {
+		try {
+			if (!pool.awaitTermination(Math.max(timeoutMillis, 1000), TimeUnit.MILLISECONDS)) {
+				StringBuilder running = new StringBuilder();
+				for (Task task : tasks) {
+					if (task.started != 0 && !task.finished) {
+						running.append(running.length() > 0 ? ", " : "").append(task.type.getDescription());
+					}
+				}
+				LOGGER.error("Abandoning best practices that ignored their timeout: " + running);
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Adds the result of task to resultlist, returns false if the calling
+	 * thread was interrupted.
+	 */
+	private boolean collect(Task task, List<AbstractBestPracticeResult> resultlist, boolean timed) {
+		try {
+			resultlist.add(timed ? task.await(timeoutMillis) : task.get());
+		} catch (TimeoutException ex) {
+			task.cancel(true);
+			// the worker may ignore the interrupt and keep its thread, the queued workers get another one
+			pool.setMaximumPoolSize(pool.getMaximumPoolSize() + 1);
+			pool.setCorePoolSize(pool.getCorePoolSize() + 1);
+			LOGGER.error("Best practice " + task.type.getDescription() + " timed out after " + timeoutMillis + " ms");
+			sendExceptiontoGA(task.type);
+		} catch (ExecutionException | CancellationException ex) {
+			LOGGER.error("Error running best practice " + task.type.getDescription() + " : ", ex.getCause() != null ? ex.getCause() : ex);
+			sendExceptiontoGA(task.type);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+		return true;
+	}
+
+	private void sendExceptiontoGA(BestPracticeType type) {
+		new Thread(() -> GoogleAnalyticsUtil.getGoogleAnalyticsInstance().sendErrorEvents("Exception",
+				"Error running best practice: " + type.getDescription(), false)).start();
+	}
+
+	private class Task extends FutureTask<AbstractBestPracticeResult> {
+
+		private final BestPracticeType type;
+		private volatile long started;
+		private volatile boolean finished;
+		private Task next;
+
+		Task(BestPracticeType type, IBestPractice worker, PacketAnalyzerResult result) {
+			super(new Callable<AbstractBestPracticeResult>() {
+				@Override
+				public AbstractBestPracticeResult call() throws Exception {
+					for (FutureTask<Void> stage : stages.getOrDefault(type, new ArrayList<FutureTask<Void>>())) {
+						stage.run();
+						stage.get();
+					}
+					long bpStartTime = System.currentTimeMillis();
+					AbstractBestPracticeResult testresult = worker.runTest(result);
+					GoogleAnalyticsUtil.getGoogleAnalyticsInstance().sendAnalyticsTimings(type.getDescription(),
+							System.currentTimeMillis() - bpStartTime, timingsTitle);
+					return testresult;
+				}
+			});
+			this.type = type;
+		}
+
+		@Override
+		public void run() {
+			if (started == 0) {
+				started = System.currentTimeMillis();
+			}
+			try {
+				super.run();
+			} finally {
+				finished = true;
+			}
+		}
+
+		@Override
+		protected void done() {
+			if (next != null && pool != null) {
+				try {
+					pool.execute(next);
+				} catch (RejectedExecutionException ex) {
+					// run returned without waiting for the rest of the chain
+				}
+			}
+		}
+
+		/**
+		 * Waits for the result, at most timeout milliseconds after the task
+		 * started. Time spent queued for a thread is not counted.
+		 */
+		AbstractBestPracticeResult await(long timeout) throws InterruptedException, ExecutionException, TimeoutException {
+			while (true) {
+				long start = started;
+				long remaining = start == 0 ? timeout : start + timeout - System.currentTimeMillis();
+				try {
+					return get(Math.max(remaining, 1), TimeUnit.MILLISECONDS);
+				} catch (TimeoutException ex) {
+					if (started != 0 && System.currentTimeMillis() - started >= timeout) {
+						throw ex;
+					}
+				}
+			}
+		}
+	}
+}
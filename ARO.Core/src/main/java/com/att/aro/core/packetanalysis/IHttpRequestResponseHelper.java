@@ -15,6 +15,8 @@
 */
 package com.att.aro.core.packetanalysis;
 
+import java.io.InputStream;
+
 import com.att.aro.core.packetanalysis.pojo.HttpRequestResponseInfo;
 import com.att.aro.core.packetanalysis.pojo.Session;
 
@@ -23,6 +25,7 @@ public interface IHttpRequestResponseHelper {
 	long getActualByteCount(HttpRequestResponseInfo item, Session session);
 	String getContentString(HttpRequestResponseInfo req, Session session) throws Exception;
 	byte[] getContent(HttpRequestResponseInfo req, Session session) throws Exception;
+	InputStream openContent(HttpRequestResponseInfo req, Session session) throws Exception;
 	boolean isJavaScript(String contentType);
 	boolean isCss(String contentType);
 	boolean isHtml(String contentType);
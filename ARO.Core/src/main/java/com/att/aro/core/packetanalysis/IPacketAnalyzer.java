@@ -23,6 +23,7 @@ import com.att.aro.core.configuration.pojo.Profile;
 import com.att.aro.core.packetanalysis.pojo.AnalysisFilter;
 import com.att.aro.core.packetanalysis.pojo.PacketAnalyzerResult;
 import com.att.aro.core.packetanalysis.pojo.PacketInfo;
+import com.att.aro.core.packetanalysis.pojo.ProfileAnalysis;
 import com.att.aro.core.packetanalysis.pojo.Statistic;
 
 public interface IPacketAnalyzer {
@@ -31,4 +32,14 @@ public interface IPacketAnalyzer {
 	PacketAnalyzerResult analyzeTraceDirectory(String traceDirectory, Profile profile, 
 			AnalysisFilter filter) throws FileNotFoundException;
 	Statistic getStatistic(List<PacketInfo> packetlist);
+
+	/**
+	 * Computes the state machine, energy model and bursts of an analyzed trace
+	 * for each of the profiles, reusing its packets and sessions.
+	 * 
+	 * @param analyzerResult A trace analyzed by analyzeTraceFile or analyzeTraceDirectory
+	 * @param profiles The profiles to compare
+	 * @return The analyses in the order of the profiles
+	 */
+	List<ProfileAnalysis> analyzeProfiles(PacketAnalyzerResult analyzerResult, List<Profile> profiles);
 }
@@ -29,4 +29,12 @@ import com.att.aro.core.packetanalysis.pojo.TimeRange;
 public interface IRrcStateMachineFactory {
 	AbstractRrcStateMachine create(List<PacketInfo> packetlist, Profile profile, double packetDuration, 
 			double traceDuration,double totalBytes, TimeRange timerange);
+
+	/**
+	 * Creates the state machine, recording the RRC state of each packet in the
+	 * packet only if markPackets is true. State machines created without
+	 * marking the packets can be created from the same packets at once.
+	 */
+	AbstractRrcStateMachine create(List<PacketInfo> packetlist, Profile profile, double packetDuration,
+			double traceDuration, double totalBytes, TimeRange timerange, boolean markPackets);
 }
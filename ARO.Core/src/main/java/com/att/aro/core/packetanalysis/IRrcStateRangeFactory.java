@@ -27,4 +27,10 @@ import com.att.aro.core.packetanalysis.pojo.RrcStateRange;
  */
 public interface IRrcStateRangeFactory {
 	List<RrcStateRange> create(List<PacketInfo> packetlist, Profile profile, double traceDuration);
+
+	/**
+	 * Creates the RrcStateRanges, recording the RRC state of each packet in
+	 * the packet only if markPackets is true.
+	 */
+	List<RrcStateRange> create(List<PacketInfo> packetlist, Profile profile, double traceDuration, boolean markPackets);
 }
@@ -16,6 +16,7 @@
 package com.att.aro.core.packetanalysis;
 
 import java.util.List;
+import java.util.function.UnaryOperator;
 
 import com.att.aro.core.packetanalysis.pojo.PacketInfo;
 import com.att.aro.core.packetanalysis.pojo.Session;
@@ -23,5 +24,15 @@ import com.att.aro.core.packetanalysis.pojo.Session;
 public interface ISessionManager {
 	List<Session> processPacketsAndAssembleSessions(List<PacketInfo> packets);
 
+	/**
+	 * Returns the sessions of a filtered view of copies of the packets
+	 * baseSessions were assembled from, packetCopies returns the copy of a
+	 * packet of baseSessions. The packets must be numbered from 1 in view
+	 * order. The sessions of connections the view keeps whole are copied, the
+	 * others are assembled anew. baseSessions and their packets are left
+	 * unchanged.
+	 */
+	List<Session> assembleFilteredSessions(List<PacketInfo> packets, List<Session> baseSessions, UnaryOperator<PacketInfo> packetCopies);
+
 	void setiOSSecureTracePath(String tracePath);
 }
@@ -20,7 +20,6 @@ import java.util.Collections;
 import java.util.EnumMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -37,6 +36,7 @@ import com.att.aro.core.packetanalysis.pojo.BurstAnalysisInfo;
 import com.att.aro.core.packetanalysis.pojo.BurstCategory;
 import com.att.aro.core.packetanalysis.pojo.BurstCollectionAnalysisData;
 import com.att.aro.core.packetanalysis.pojo.PacketInfo;
+import com.att.aro.core.packetanalysis.pojo.PacketTable;
 import com.att.aro.core.packetanalysis.pojo.RRCState;
 import com.att.aro.core.packetanalysis.pojo.RrcStateRange;
 import com.att.aro.core.packetanalysis.pojo.Session;
@@ -66,7 +66,7 @@ public class BurstCollectionAnalysisImpl implements IBurstCollectionAnalysis {
 		BurstCollectionAnalysisData data = new BurstCollectionAnalysisData();
 		
 		Set<Integer> mss = calculateMssLargerPacketSizeSet(packetSizeToCountMap);
-		List<Burst> burstCollection = groupIntoBursts(packets, profile, mss, rrcstaterangelist);
+		List<Burst> burstCollection = groupIntoBursts(PacketTable.of(packets), profile, mss, rrcstaterangelist);
 		data.setBurstCollection(burstCollection);
 		
 		if(!burstCollection.isEmpty()){
@@ -483,47 +483,57 @@ public class BurstCollectionAnalysisImpl implements IBurstCollectionAnalysis {
 	 * Groups packets into Burst Collections
 	 * @return 
 	 */
-	private List<Burst> groupIntoBursts(List<PacketInfo> packets, Profile profile, Set<Integer> mss, 
+	private List<Burst> groupIntoBursts(PacketTable packets, Profile profile, Set<Integer> mss, 
 			List<RrcStateRange> rrcstaterangelist) {
 		List<Burst> burstCollection;
 		// Validate that there are packets
-		if (packets == null || packets.isEmpty()) {
+		if (packets.isEmpty()) {
 			burstCollection = Collections.emptyList();
 			return burstCollection;
 		}
 		ArrayList<Burst> result = new ArrayList<Burst>();
 		double burstThresh = profile.getBurstTh();
 		double longBurstThresh = profile.getLongBurstTh();
-		List<PacketInfo> burstPackets = new ArrayList<PacketInfo>();
-		// Step 1: Build bursts using burst time threshold
-		PacketInfo lastPacket = null;
-		for (PacketInfo packet : packets) {
-			if ((lastPacket == null
-					|| (packet.getTimeStamp() - lastPacket.getTimeStamp() > burstThresh && 
-							!mss.contains(lastPacket.getPayloadLen()))) && (!burstPackets.isEmpty())) {
-
-				result.add(new Burst(burstPackets));
-				burstPackets.clear();
+		int[] mssSizes = new int[mss.size()];
+		int mssCount = 0;
+		for (Integer size : mss) {
+			mssSizes[mssCount++] = size;
+		}
+		// Step 1: Build bursts using burst time threshold, keeping the positions of their first and last packets
+		List<int[]> bounds = new ArrayList<int[]>();
+		int begin = 0;
+		for (int index = 1; index < packets.size(); index++) {
+			if (packets.getTimestamp(index) - packets.getTimestamp(index - 1) > burstThresh
+					&& !contains(mssSizes, packets.getPayloadLength(index - 1))) {
+				result.add(new Burst(packets.subList(begin, index)));
+				bounds.add(new int[] { begin, index - 1 });
+				begin = index;
 			}
-			burstPackets.add(packet);
-			lastPacket = packet;
 		}
-		result.add(new Burst(burstPackets));
+		result.add(new Burst(packets.subList(begin, packets.size())));
+		bounds.add(new int[] { begin, packets.size() - 1 });
 
 		// Step 2: Remove promotion delays and merge bursts if possible
-		Map<PacketInfo, Double> timestampList = normalizeCore(packets, rrcstaterangelist);
+		double[] timestampList = normalizeCore(packets, rrcstaterangelist);
 		List<Burst> newBurstColl = new ArrayList<Burst>(result.size());
 		int size = result.size();
 		Burst newBurst = result.get(0);
+		int newBurstEnd = bounds.get(0)[1];
 		for (int i = 0; i < size - 1; i++) {
 			Burst bnext = result.get(i + 1);
-			double time1 = timestampList.get(newBurst.getEndPacket());
-			double time2 = timestampList.get(bnext.getBeginPacket());
+			int[] nextBounds = bounds.get(i + 1);
+			double time1 = timestampList[newBurstEnd];
+			double time2 = timestampList[nextBounds[0]];
 			if ((time2 - time1) < burstThresh) {
+				// merge keeps the later of the two end packets
+				if (packets.getTimestamp(newBurstEnd) < packets.getTimestamp(nextBounds[1])) {
+					newBurstEnd = nextBounds[1];
+				}
 				newBurst.merge(bnext);
 			} else {
 				newBurstColl.add(newBurst);
 				newBurst = bnext;
+				newBurstEnd = nextBounds[1];
 			}
 		}
 		newBurstColl.add(newBurst);
@@ -545,13 +555,23 @@ public class BurstCollectionAnalysisImpl implements IBurstCollectionAnalysis {
 		}
 		return burstCollection;
 	}
+
+	private static boolean contains(int[] values, int value) {
+		for (int candidate : values) {
+			if (candidate == value) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * Method orginally found in whatif.cpp
 	 * 
 	 * @param packets
-	 *            returns timestampList - List of doubles
+	 *            returns timestampList - the timestamps of the packets without the promotion delays, by position
 	 */
-	private Map<PacketInfo, Double> normalizeCore(List<PacketInfo> packets, List<RrcStateRange> rrcstaterangelist) {
+	private double[] normalizeCore(PacketTable packets, List<RrcStateRange> rrcstaterangelist) {
 
 		// Step 1: Identify Promotions
 		List<RrcStateRange> promoDelays = new ArrayList<RrcStateRange>();
@@ -562,9 +582,9 @@ public class BurstCollectionAnalysisImpl implements IBurstCollectionAnalysis {
 			}
 		}
 		Collections.sort(promoDelays);
-		PacketTimestamp[] timeStampList = new PacketTimestamp[packets.size()];
-		for (int i = 0; i < packets.size(); i++) {
-			timeStampList[i] = new PacketTimestamp(packets.get(i));
+		double[] timeStampList = new double[packets.size()];
+		for (int i = 0; i < timeStampList.length; i++) {
+			timeStampList[i] = packets.getTimestamp(i);
 		}
 
 		// Step 2: Remove all promo delays
@@ -574,7 +594,7 @@ public class BurstCollectionAnalysisImpl implements IBurstCollectionAnalysis {
 		int pdMiddlePosKey = -1; // "in-the-middle" position
 		double middlePos = 0; // How to initialize??
 		for (int i = 0; i < timeStampList.length; i++) {
-			double timeStamp = timeStampList[i].timestamp;
+			double timeStamp = timeStampList[i];
 			while (pdKey < pdSize && timeStamp >= promoDelays.get(pdKey).getEndTime() - EPS) {
 				if (pdMiddlePosKey != -1) {
 //					assert (pdMiddlePosKey == pdKey && i > 0 && promoDelays.get(pdKey).getEndTime() >= middlePos);
@@ -599,14 +619,10 @@ public class BurstCollectionAnalysisImpl implements IBurstCollectionAnalysis {
 					middlePos = timeStamp;
 				}
 			}
-			timeStampList[i].timestamp = timeStampList[i].timestamp - timeStampShift;
-//			assert (i == 0 || timeStampList[i].timestamp >= timeStampList[i - 1].timestamp);
-		}
-		Map<PacketInfo, Double> result = new LinkedHashMap<PacketInfo, Double>(timeStampList.length);
-		for (int i = 0; i < timeStampList.length; ++i) {
-			result.put(timeStampList[i].packet, timeStampList[i].timestamp);
+			timeStampList[i] = timeStampList[i] - timeStampShift;
+//			assert (i == 0 || timeStampList[i] >= timeStampList[i - 1]);
 		}
-		return result;
+		return timeStampList;
 	}
 
 	/**
@@ -644,19 +660,5 @@ public class BurstCollectionAnalysisImpl implements IBurstCollectionAnalysis {
 		}
 		return mssLargerPacketSizeSet;
 	}
-	//helper classes
-	/**
-	 * Private utility class
-	 */
-	private class PacketTimestamp {
-		private PacketInfo packet;
-		private double timestamp;
-
-		public PacketTimestamp(PacketInfo packet) {
-			this.packet = packet;
-			this.timestamp = packet.getTimeStamp();
-		}
-	}
 
-	
 }
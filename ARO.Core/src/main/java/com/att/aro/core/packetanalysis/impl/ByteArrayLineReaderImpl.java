@@ -16,7 +16,8 @@
 package com.att.aro.core.packetanalysis.impl;
 
 import java.io.IOException;
-import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 import com.att.aro.core.util.Util;
 import com.att.aro.core.packetanalysis.IByteArrayLineReader;
@@ -28,6 +29,8 @@ import com.att.aro.core.packetanalysis.IByteArrayLineReader;
  */
 public class ByteArrayLineReaderImpl implements IByteArrayLineReader {
 	
+	private static final byte END_OF_STREAM = (byte) 0xFF;
+
 	private int length;
 	private byte[] byteArray;
 	private int index;
@@ -65,23 +68,6 @@ public class ByteArrayLineReaderImpl implements IByteArrayLineReader {
 		}
 	}
 
-	/**
-	 * Reads from input stream keeping counter of how much has been read
-	 * 
-	 * @return
-	 * @throws IOException
-	 */
-	private int readInput() {
-		int result;
-		if (index < length) {
-			result = byteArray[index];
-			++index;
-		} else {
-			result = -1;
-		}
-		return result;
-	}
-
 	/**
 	 * Read a line of text from the HTTP request/response stream. 
 	 * Line terminations recognized by crlf (\r\n)
@@ -92,29 +78,39 @@ public class ByteArrayLineReaderImpl implements IByteArrayLineReader {
 	 * @throws IOException
 	 */
 	public String readLine() throws IOException {
-		int num;
-		try(ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+		int start = index;
+		if (start >= length) {
+			return null;
+		}
 
-			// Look for CRLF
-			while ((num = readInput()) != -1) {
-				if (num == '\r') {
-					num = readInput();
-					if (num == '\n') {
+		// Look for CRLF, the byte following a CR without LF belongs to the line
+		for (int pos = start; pos < length; pos++) {
+			if (byteArray[pos] == END_OF_STREAM) {
+				// a 0xFF byte has always been read as the end of the stream
+				index = pos + 1;
+				return pos > start ? new String(byteArray, start, pos - start, StandardCharsets.UTF_8) : null;
+			}
+			if (byteArray[pos] == '\r') {
+				if (pos + 1 == length) {
+					// a CR ending the stream has always been returned followed by the byte 0xFF
+					byte[] line = Arrays.copyOfRange(byteArray, start, length + 1);
+					line[line.length - 1] = END_OF_STREAM;
+					index = length;
+					return new String(line, StandardCharsets.UTF_8);
+				}
+				if (byteArray[pos + 1] == '\n') {
 
-						// Return found line of text
-						return new String(output.toByteArray(), "UTF-8");
-					} else {
-						output.write('\r');
-						output.write(num);
-					}
-				} else {
-					output.write(num);
+					// Return found line of text
+					index = pos + 2;
+					return new String(byteArray, start, pos - start, StandardCharsets.UTF_8);
 				}
+				pos++;
 			}
-
-			// End of stream
-			return output.size() > 0 ? new String(output.toByteArray(), "UTF-8") : null;
 		}
+
+		// End of stream
+		index = length;
+		return new String(byteArray, start, length - start, StandardCharsets.UTF_8);
 	}
 
 	public int getIndex() {
@@ -15,8 +15,9 @@
 */
 package com.att.aro.core.packetanalysis.impl;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
@@ -39,6 +40,7 @@ import com.att.aro.core.packetanalysis.IHttpRequestResponseHelper;
 import com.att.aro.core.packetanalysis.pojo.CacheAnalysis;
 import com.att.aro.core.packetanalysis.pojo.CacheEntry;
 import com.att.aro.core.packetanalysis.pojo.CacheExpiration;
+import com.att.aro.core.packetanalysis.pojo.ContentDigest;
 import com.att.aro.core.packetanalysis.pojo.Diagnosis;
 import com.att.aro.core.packetanalysis.pojo.DuplicateEntry;
 import com.att.aro.core.packetanalysis.pojo.HttpDirection;
@@ -64,6 +66,16 @@ public class CacheAnalysisImpl implements ICacheAnalysis {
 	private String cacheAnalysisTitle;
 	@Value("${ga.request.timing.analysisCategory.title}")
 	private String analysisCategory;
+	private boolean verifyContent = false;
+
+	/**
+	 * Sets whether content with matching digests is also compared byte for
+	 * byte, off by default. The comparison decodes both bodies again, it only
+	 * rules out a SHA-256 collision.
+	 */
+	public void setVerifyContent(boolean verifyContent) {
+		this.verifyContent = verifyContent;
+	}
 
 	@Override
 	public CacheAnalysis analyze(List<Session> sessionlist) {
@@ -166,7 +178,7 @@ public class CacheAnalysisImpl implements ICacheAnalysis {
 					diagnosis = Diagnosis.CACHING_DIAG_ETAG_DUPLICATE;
 				}
 				dulpicateEntires.add(new DuplicateEntry(request, response, diagnosis, firstPacket, session,
-						getContent(response, session)));
+						getContentDigest(response, session)));
 				continue;
 			} else {
 				int oldCount = cacheEntry.getCacheCount();
@@ -189,7 +201,7 @@ public class CacheAnalysisImpl implements ICacheAnalysis {
 					newCacheEntry = new CacheEntry(request, response, Diagnosis.CACHING_DIAG_NOT_EXPIRED_DUP,
 							firstPacket);
 					dulpicateEntires.add(new DuplicateEntry(request, response, Diagnosis.CACHING_DIAG_NOT_EXPIRED_DUP,
-							firstPacket, session, getContent(response, session)));
+							firstPacket, session, getContentDigest(response, session)));
 					diagnosisResults.add(newCacheEntry);
 					break;
 				default:
@@ -211,7 +223,7 @@ public class CacheAnalysisImpl implements ICacheAnalysis {
 					newCacheEntry = new CacheEntry(request, response, Diagnosis.CACHING_DIAG_NOT_EXPIRED_DUP_PARTIALHIT,
 							bytesInCache, firstPacket);
 					dulpicateEntires.add(new DuplicateEntry(request, response, Diagnosis.CACHING_DIAG_NOT_EXPIRED_DUP,
-							firstPacket, session, getContent(response, session)));
+							firstPacket, session, getContentDigest(response, session)));
 					diagnosisResults.add(newCacheEntry);
 					break;
 				default:
@@ -238,7 +250,7 @@ public class CacheAnalysisImpl implements ICacheAnalysis {
 						dupEntry.setCount(1);
 						dulpicateEntiresMap.put(key, dupEntry);
 					} else {
-						if (Arrays.equals(dulpicateEntiresMap.get(key).getContent(), dupEntry.getContent())) {
+						if (isSameContent(dulpicateEntiresMap.get(key), dupEntry)) {
 							int count = dulpicateEntiresMap.get(key).getCount();
 							if (count == 1) {
 								cache = new CacheEntry(dulpicateEntiresMap.get(key).getRequest(),
@@ -253,7 +265,7 @@ public class CacheAnalysisImpl implements ICacheAnalysis {
 							dupsWithOrig.add(cache);
 							dupEntry = new DuplicateEntry(dupEntry.getRequest(), dupEntry.getResponse(),
 									dupEntry.getDiagnosis(), dupEntry.getSessionFirstPacket(), dupEntry.getSession(),
-									dupEntry.getContent());
+									dupEntry.getContentDigest());
 							dupEntry.setCount(count + 1);
 							dulpicateEntiresMap.replace(key, dupEntry);
 						}
@@ -302,13 +314,13 @@ public class CacheAnalysisImpl implements ICacheAnalysis {
 						Diagnosis.CACHING_DIAG_OBJ_NOT_CHANGED_DUP_PARTIALHIT_SERVER, bytesInCache, firstPacket);
 				dulpicateEntires.add(new DuplicateEntry(request, response,
 						Diagnosis.CACHING_DIAG_OBJ_NOT_CHANGED_DUP_PARTIALHIT_SERVER, firstPacket, session,
-						getContent(response, session)));
+						getContentDigest(response, session)));
 			} else {
 				newCacheEntry = new CacheEntry(request, response,
 						Diagnosis.CACHING_DIAG_OBJ_NOT_CHANGED_DUP_PARTIALHIT_CLIENT, bytesInCache, firstPacket);
 				dulpicateEntires.add(new DuplicateEntry(request, response,
 						Diagnosis.CACHING_DIAG_OBJ_NOT_CHANGED_DUP_PARTIALHIT_CLIENT, firstPacket, session,
-						getContent(response, session)));
+						getContentDigest(response, session)));
 			}
 		}
 		return newCacheEntry;
@@ -323,13 +335,13 @@ public class CacheAnalysisImpl implements ICacheAnalysis {
 						firstPacket);
 				dulpicateEntires
 						.add(new DuplicateEntry(request, response, Diagnosis.CACHING_DIAG_OBJ_NOT_CHANGED_DUP_SERVER,
-								firstPacket, session, getContent(response, session)));
+								firstPacket, session, getContentDigest(response, session)));
 			} else {
 				newCacheEntry = new CacheEntry(request, response, Diagnosis.CACHING_DIAG_OBJ_NOT_CHANGED_DUP_CLIENT,
 						firstPacket);
 				dulpicateEntires
 						.add(new DuplicateEntry(request, response, Diagnosis.CACHING_DIAG_OBJ_NOT_CHANGED_DUP_CLIENT,
-								firstPacket, session, getContent(response, session)));
+								firstPacket, session, getContentDigest(response, session)));
 			}
 		}
 		return newCacheEntry;
@@ -548,13 +560,71 @@ public class CacheAnalysisImpl implements ICacheAnalysis {
 		}
 	}
 
-	public byte[] getContent(HttpRequestResponseInfo response, Session session) {
-		byte[] content = new byte[0];
-		try {
-			content = rrhelper.getContent(response, session);
+	/**
+	 * Returns the digest of the content of response, the content itself is not
+	 * kept. Returns null if the content could not be read.
+	 */
+	public ContentDigest getContentDigest(HttpRequestResponseInfo response, Session session) {
+		try (InputStream content = rrhelper.openContent(response, session)) {
+			return ContentDigest.of(content);
 		} catch (Exception e) {
-			LOG.error("Error in retrieving Content: "+e.getMessage());
+			LOG.error("Error in retrieving Content: " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Compares the content of two duplicate entries by length and digest. When
+	 * setVerifyContent is on the content is also compared byte for byte when
+	 * the digests match. Content that could not be read is never the same.
+	 */
+	boolean isSameContent(DuplicateEntry original, DuplicateEntry duplicate) {
+		if (original.getContentDigest() == null || !original.getContentDigest().equals(duplicate.getContentDigest())) {
+			return false;
+		}
+		if (!verifyContent || isSameStream(original, duplicate)) {
+			return true;
+		}
+		LOG.warn("Content digest collision: " + original.getContentDigest());
+		return false;
+	}
+
+	private boolean isSameStream(DuplicateEntry original, DuplicateEntry duplicate) {
+		try (InputStream left = rrhelper.openContent(original.getResponse(), original.getSession());
+				InputStream right = rrhelper.openContent(duplicate.getResponse(), duplicate.getSession())) {
+			if (left == null || right == null) {
+				return left == right;
+			}
+			byte[] leftBuffer = new byte[8192];
+			byte[] rightBuffer = new byte[8192];
+			int length;
+			do {
+				length = readBlock(left, leftBuffer);
+				if (readBlock(right, rightBuffer) != length) {
+					return false;
+				}
+				for (int index = 0; index < length; index++) {
+					if (leftBuffer[index] != rightBuffer[index]) {
+						return false;
+					}
+				}
+			} while (length == leftBuffer.length);
+			return true;
+		} catch (Exception e) {
+			LOG.error("Error in retrieving Content: " + e.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * Reads until buffer is full or the stream ends, returns the number of bytes read.
+	 */
+	private int readBlock(InputStream content, byte[] buffer) throws IOException {
+		int length = 0;
+		int read;
+		while (length < buffer.length && (read = content.read(buffer, length, buffer.length - length)) >= 0) {
+			length += read;
 		}
-		return content;
+		return length;
 	}
 }// end class
@@ -0,0 +1,310 @@
+/*
+ *  Copyright 2019 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.core.packetanalysis.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+import com.att.aro.core.packetanalysis.pojo.HttpRequestResponseInfo;
+
+/**
+ * Keeps the decoded content of the requests and responses of one analysis so
+ * each body is decoded at most once, however many analyzers ask for it.
+ * <p>
+ * Entries are keyed by the identity of the HttpRequestResponseInfo. Decoded
+ * content is held in memory up to a byte budget, the least recently used
+ * entries beyond it are either dropped or, when spilling is enabled, moved to
+ * a temporary file. Content larger than the budget is never held in memory.
+ * A body is written to the spill file at most once and the file does not grow
+ * beyond its limit, content that does not fit is dropped instead. clear()
+ * starts a new analysis.
+ * <p>
+ * Callers share the returned arrays and must not modify them.
+ */
+public class DecodedContentStore {
+
+	private static final Logger LOG = LogManager.getLogger(DecodedContentStore.class.getName());
+
+	/**
+	 * Default number of bytes of decoded content held in memory.
+	 */
+	public static final long DEFAULT_BUDGET = 64L * 1024 * 1024;
+
+	/**
+	 * Default number of bytes the spill file may hold.
+	 */
+	public static final long DEFAULT_SPILL_LIMIT = 1024L * 1024 * 1024;
+
+	/**
+	 * Decodes the content of a request or response.
+	 */
+	public interface ContentDecoder {
+		byte[] decode() throws Exception;
+	}
+
+	private final long budget;
+	private final boolean spill;
+	private final long spillLimit;
+
+	private final LinkedHashMap<Key, byte[]> contents = new LinkedHashMap<>(16, 0.75f, true);
+	private final Map<Key, long[]> spilled = new HashMap<>();
+	private final Map<Key, FutureTask<byte[]>> decoding = new HashMap<>();
+	private long size;
+	private File spillFile;
+	private RandomAccessFile spillData;
+
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long spilledBytes;
+
+	/**
+	 * @param budget The number of bytes of decoded content held in memory.
+	 * @param spill Whether content evicted from memory is written to a temporary file.
+	 */
+	public DecodedContentStore(long budget, boolean spill) {
+		this(budget, spill, DEFAULT_SPILL_LIMIT);
+	}
+
+	/**
+	 * @param budget The number of bytes of decoded content held in memory.
+	 * @param spill Whether content evicted from memory is written to a temporary file.
+	 * @param spillLimit The number of bytes the temporary file may hold.
+	 */
+	public DecodedContentStore(long budget, boolean spill, long spillLimit) {
+		this.budget = budget;
+		this.spill = spill;
+		this.spillLimit = spillLimit;
+	}
+
+	/**
+	 * Returns the decoded content of key, decoded with decoder if it is not
+	 * stored yet. Concurrent callers asking for the same key wait for a single
+	 * decode. Failures are not stored, the next call decodes again.
+	 *
+	 * @throws Exception the exception thrown by decoder
+	 */
+	public byte[] get(HttpRequestResponseInfo request, ContentDecoder decoder) throws Exception {
+		Key key = new Key(request);
+		FutureTask<byte[]> task;
+		boolean owner = false;
+		synchronized (this) {
+			byte[] content = lookup(key);
+			if (content != null) {
+				hits++;
+				return content;
+			}
+			task = decoding.get(key);
+			if (task == null) {
+				task = new FutureTask<>(decoder::decode);
+				decoding.put(key, task);
+				owner = true;
+				misses++;
+			} else {
+				hits++;
+			}
+		}
+
+		if (owner) {
+			task.run();
+		}
+		try {
+			byte[] content = task.get();
+			if (owner) {
+				synchronized (this) {
+					decoding.remove(key);
+					store(key, content);
+				}
+			}
+			return content;
+		} catch (ExecutionException e) {
+			if (owner) {
+				synchronized (this) {
+					decoding.remove(key);
+				}
+			}
+			Throwable cause = e.getCause();
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw cause instanceof Exception ? (Exception) cause : e;
+		}
+	}
+
+	/**
+	 * Drops all content, logging the statistics of the analysis that used it.
+	 */
+	public synchronized void clear() {
+		if (hits + misses > 0) {
+			LOG.info(getStatistics());
+		}
+		contents.clear();
+		spilled.clear();
+		size = 0;
+		hits = 0;
+		misses = 0;
+		evictions = 0;
+		spilledBytes = 0;
+		closeSpillFile();
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Returns the number of bytes held in memory.
+	 */
+	public synchronized long getSize() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of bytes written to the spill file.
+	 */
+	public synchronized long getSpilledBytes() {
+		return spilledBytes;
+	}
+
+	public synchronized String getStatistics() {
+		return String.format("Decoded content: %d hits, %d misses, %d evictions, %d bytes in memory, %d bytes spilled", hits,
+				misses, evictions, size, spilledBytes);
+	}
+
+	private byte[] lookup(Key key) {
+		byte[] content = contents.get(key);
+		if (content == null) {
+			long[] location = spilled.get(key);
+			if (location != null) {
+				content = readSpilled(location);
+				// the spilled copy stays valid, evicting the content again does not rewrite it
+				if (content != null && content.length <= budget) {
+					store(key, content);
+				}
+			}
+		}
+		return content;
+	}
+
+	private void store(Key key, byte[] content) {
+		if (content.length > budget) {
+			spill(key, content);
+			return;
+		}
+		contents.put(key, content);
+		size += content.length;
+		Iterator<Map.Entry<Key, byte[]>> iterator = contents.entrySet().iterator();
+		while (size > budget && iterator.hasNext()) {
+			Map.Entry<Key, byte[]> eldest = iterator.next();
+			iterator.remove();
+			size -= eldest.getValue().length;
+			evictions++;
+			spill(eldest.getKey(), eldest.getValue());
+		}
+	}
+
+	private void spill(Key key, byte[] content) {
+		if (!spill || spilled.containsKey(key)) {
+			return;
+		}
+		if (spilledBytes + content.length > spillLimit) {
+			LOG.debug("Spill file is full, dropping " + content.length + " bytes of decoded content");
+			return;
+		}
+		try {
+			if (spillData == null) {
+				spillFile = File.createTempFile("aro_content", ".tmp");
+				spillFile.deleteOnExit();
+				spillData = new RandomAccessFile(spillFile, "rw");
+			}
+			long offset = spillData.length();
+			spillData.seek(offset);
+			spillData.write(content);
+			spilled.put(key, new long[] { offset, content.length });
+			spilledBytes += content.length;
+		} catch (IOException e) {
+			LOG.warn("Failed to spill decoded content: " + e.getMessage());
+		}
+	}
+
+	private byte[] readSpilled(long[] location) {
+		try {
+			byte[] content = new byte[(int) location[1]];
+			spillData.seek(location[0]);
+			spillData.readFully(content);
+			return content;
+		} catch (IOException e) {
+			LOG.warn("Failed to read spilled content: " + e.getMessage());
+			return null;
+		}
+	}
+
+	private void closeSpillFile() {
+		if (spillData != null) {
+			try {
+				spillData.close();
+			} catch (IOException e) {
+				LOG.warn("Failed to close " + spillFile + ": " + e.getMessage());
+			}
+			if (!spillFile.delete()) {
+				LOG.debug("Failed to delete " + spillFile);
+			}
+			spillData = null;
+			spillFile = null;
+		}
+	}
+
+	/**
+	 * HttpRequestResponseInfo compares equal by its time stamp, host name and
+	 * content length, the store keys a request or response by its identity.
+	 */
+	private static final class Key {
+
+		private final HttpRequestResponseInfo request;
+
+		Key(HttpRequestResponseInfo request) {
+			this.request = request;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Key && ((Key) obj).request == request;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(request);
+		}
+	}
+}
@@ -15,22 +15,26 @@
  */
 package com.att.aro.core.packetanalysis.impl;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
-import java.util.Arrays;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
+import org.brotli.dec.BrotliInputStream;
 import org.springframework.beans.factory.annotation.Autowired;
 
-import com.att.aro.core.packetanalysis.IByteArrayLineReader;
 import com.att.aro.core.packetanalysis.IHttpRequestResponseHelper;
 import com.att.aro.core.packetanalysis.pojo.HttpRequestResponseInfo;
+import com.att.aro.core.packetanalysis.pojo.PayloadRope;
 import com.att.aro.core.packetanalysis.pojo.Session;
 
 /**
@@ -40,12 +44,17 @@ import com.att.aro.core.packetanalysis.pojo.Session;
 public class HttpRequestResponseHelperImpl implements IHttpRequestResponseHelper {
 	private static final int TWO_MB = 2 * 1024 * 1024;
 	private static final Logger LOG = LogManager.getLogger(HttpRequestResponseHelperImpl.class.getName());
-	
-	private IByteArrayLineReader storageReader;
-	
+	private static final String CONTENT_ENCODING_BROTLI = "br";
+
+	private DecodedContentStore contentStore;
+
+	/**
+	 * Sets the store that keeps decoded content between calls to getContent,
+	 * without a store the content is decoded on every call.
+	 */
 	@Autowired
-	public void setByteArrayLineReader(IByteArrayLineReader reader){
-		this.storageReader = reader;
+	public void setDecodedContentStore(DecodedContentStore contentStore) {
+		this.contentStore = contentStore;
 	}
 
 	/**
@@ -116,105 +125,121 @@ public class HttpRequestResponseHelperImpl implements IHttpRequestResponseHelper
 	}
 
 	/**
-	 * get content of the request/response in byte[]
+	 * get content of the request/response in byte[], de-chunked and
+	 * decompressed. The returned array may be shared with other callers and
+	 * must not be modified.
 	 * 
 	 * @param request
 	 * @return byte array
 	 * @throws Exception
 	 */
 	public byte[] getContent(HttpRequestResponseInfo request, Session session) throws Exception {
+		if (contentStore == null) {
+			return decodeContent(request);
+		}
+		return contentStore.get(request, () -> decodeContent(request));
+	}
+
+	private byte[] decodeContent(HttpRequestResponseInfo request) throws Exception {
 
 		LOG.debug("getContent(Req, Session) :" + request.toString());
 		String contentEncoding = request.getContentEncoding();
-		byte[] payload;
-		ByteArrayOutputStream output;
-
-		payload = request.getPayloadData().toByteArray();
+		PayloadRope payload = request.getPayloadData();
+		if (!request.isChunked() && !isCompressed(contentEncoding)) {
+			checkComplete(request);
+			return payload.toByteArray();
+		}
 
-		if (request.isChunked()) {
-			storageReader.init(payload);
-			String line;
-			output = new ByteArrayOutputStream();
-			while (true) {
-
-				line = storageReader.readLine();
-
-				if (line != null) {
-					String[] str = line.split(";");
-					int size = 0;
-					try {
-						String trim = str[0].trim();
-						size = Integer.parseInt(trim, 16);
-					} catch (NumberFormatException e) {
-						LOG.warn("Unexpected begin of the chunk format : " + line);
-					}
-					if (size > 0) {
+		ByteArrayOutputStream output = new ByteArrayOutputStream(payload.size());
+		try (InputStream content = openContent(request)) {
+			byte[] buffer = new byte[8192];
+			int len;
+			while ((len = content.read(buffer)) >= 0) {
+				output.write(buffer, 0, len);
+			}
+		} catch (ChunkException e) {
+			throw new Exception(e.getMessage());
+		} catch (IOException ioe) {
+			LOG.error("Error Extracting Content from Request");
+			throw new Exception(String.format("Zip Extract Exception  %.3f: %s. The content may be corrupted.",
+					request.getTimeStamp(), request.getAssocReqResp()));
+		}
 
-						// Save content offsets
-						output.write(
-								Arrays.copyOfRange(payload, storageReader.getIndex(), storageReader.getIndex() + size));
-						storageReader.skipForward(size);
+		if (output.size() == 0 && isCompressed(contentEncoding)) {
+			request.setExtractable(false);
+		}
+		return output.toByteArray();
+	}
 
-						// CRLF at end of each chunk
-						line = storageReader.readLine();
+	/**
+	 * Returns a stream of the content of request that de-chunks and
+	 * decompresses the payload while it is read, the content is not kept.
+	 * 
+	 * @param request
+	 * @return content stream
+	 * @throws Exception when less than the content length arrived
+	 */
+	public InputStream openContent(HttpRequestResponseInfo request, Session session) throws Exception {
+		return openContent(request);
+	}
 
-						if (line != null && line.length() > 0) {
-							LOG.warn("Unexpected end of chunk: " + line);
-						}
-					} else {
-						request.setChunkModeFinished(true);
-						line = storageReader.readLine(); // End of chunks
+	private InputStream openContent(HttpRequestResponseInfo request) throws Exception {
+		InputStream content = request.getPayloadData().openStream();
+		if (request.isChunked()) {
+			ChunkedContentStream chunks = new ChunkedContentStream(content, request);
+			InputStream decoded = decompress(chunks, request.getContentEncoding());
+			return decoded == chunks ? chunks : new ChunkedTrailerStream(decoded, chunks);
+		}
+		checkComplete(request);
+		return decompress(content, request.getContentEncoding());
+	}
 
-						if (line != null && line.length() > 0) {
-							LOG.warn("Unexpected end of chunked data: " + line);
-						}
-						break;
-					}
-				} else {
-					break;
-				}
-			}
-			if (request.isChunkModeFinished()) {
-				payload = output.toByteArray();
-			} else {
-				throw new Exception(String.format("Unexpected Chunk End %.3f: %s The content may be corrupted.",
-						request.getTimeStamp(), request.getAssocReqResp().getObjNameWithoutParams()));
+	private InputStream decompress(InputStream content, String contentEncoding) throws IOException {
+		if (HttpRequestResponseInfo.CONTENT_ENCODING_GZIP.equals(contentEncoding)) {
+			return new GZIPInputStream(content);
+		} else if (HttpRequestResponseInfo.CONTENT_ENCODING_DEFLATE.equals(contentEncoding)) {
+			// deflate is meant to be zlib wrapped, some servers send raw deflate data
+			PushbackInputStream header = new PushbackInputStream(content, 2);
+			byte[] start = new byte[2];
+			int length = 0;
+			int read;
+			while (length < start.length && (read = header.read(start, length, start.length - length)) > 0) {
+				length += read;
 			}
-		} else if (payload.length < request.getContentLength()) {
+			header.unread(start, 0, length);
+			return new InflaterInputStream(header, new Inflater(!(length == 2 && isZlibHeader(start))));
+		} else if (CONTENT_ENCODING_BROTLI.equals(contentEncoding)) {
+			return new BrotliInputStream(content);
+		}
+		return content;
+	}
+
+	private boolean isCompressed(String contentEncoding) {
+		return HttpRequestResponseInfo.CONTENT_ENCODING_GZIP.equals(contentEncoding)
+				|| HttpRequestResponseInfo.CONTENT_ENCODING_DEFLATE.equals(contentEncoding) || CONTENT_ENCODING_BROTLI.equals(contentEncoding);
+	}
+
+	/**
+	 * Throws if less than the content length of request arrived.
+	 */
+	private void checkComplete(HttpRequestResponseInfo request) throws Exception {
+		int size = request.getPayloadData().size();
+		if (size < request.getContentLength()) {
 			request.setExtractable(false);
-			int percentage = payload.length / request.getContentLength() * 100;
+			int percentage = size / request.getContentLength() * 100;
 			throw new Exception(String.format(
 					"PayloadException %.3f: %s The content may be corrupted. Buffer exceeded: only %d percent arrived",
 					request.getTimeStamp(), request.getAssocReqResp().getObjNameWithoutParams(), percentage));
 		}
+	}
 
-		// Decompress GZIP Content
-		if ("gzip".equals(contentEncoding) && payload != null) {
-			GZIPInputStream gzip = null;
-			output = new ByteArrayOutputStream();
-			gzip = new GZIPInputStream(new ByteArrayInputStream(payload));
-			try {
-				byte[] buffer = new byte[2048];
-				int len;
-				while ((len = gzip.read(buffer)) >= 0) {
-					output.write(buffer, 0, len);
-				}
-				gzip.close();
-			} catch (IOException ioe) {
-				LOG.error("Error Extracting Content from Request");
-				throw new Exception(String.format("Zip Extract Exception  %.3f: %s. The content may be corrupted.",
-						request.getTimeStamp(), request.getAssocReqResp()));
-			}
-		} else {
-			return payload;
-		}
-
-		if (output.size() > 0) {
-			return output.toByteArray();
-		} else {
-			request.setExtractable(false);
-			return new byte[0];
-		}
+	/**
+	 * Returns true if data starts with a zlib header (RFC 1950).
+	 */
+	private boolean isZlibHeader(byte[] data) {
+		int cmf = data[0] & 0xFF;
+		int flg = data[1] & 0xFF;
+		return (cmf & 0x0F) == 8 && (cmf >> 4) <= 7 && ((cmf << 8) | flg) % 31 == 0;
 	}
 
 	/**
@@ -238,9 +263,11 @@ public class HttpRequestResponseHelperImpl implements IHttpRequestResponseHelper
 				return true;
 			}
 
-			// Otherwise do byte by byte compare
-			byte[] bufferLeft = left.getPayloadData().toByteArray();
-			byte[] bufferRight = right.getPayloadData().toByteArray();
+			// Otherwise compare the payloads in place, range by range
+			PayloadRope payloadLeft = left.getPayloadData();
+			PayloadRope payloadRight = right.getPayloadData();
+			int sizeLeft = payloadLeft.size();
+			int sizeRight = payloadRight.size();
 
 			Iterator<Map.Entry<Integer, Integer>> itleft = left.getContentOffsetLength().entrySet().iterator();
 			Iterator<Map.Entry<Integer, Integer>> itright = right.getContentOffsetLength().entrySet().iterator();
@@ -255,15 +282,15 @@ public class HttpRequestResponseHelperImpl implements IHttpRequestResponseHelper
 				stopLeft = indexLeft + entryLeft.getValue();
 				indexRight = entryRight.getKey();
 				stopRight = entryRight.getValue();
-				do {
-					if (bufferLeft[indexLeft] != bufferRight[indexRight]) {
+				while (indexLeft < sizeLeft && indexRight < sizeRight) {
+					// every range compares at least one byte
+					int length = Math.max(1, Math.min(Math.min(stopLeft - indexLeft, stopRight - indexRight),
+							Math.min(sizeLeft - indexLeft, sizeRight - indexRight)));
+					if (!payloadLeft.rangeEquals(indexLeft, payloadRight, indexRight, length)) {
 						return false;
 					}
-					++indexLeft;
-					++indexRight;
-					if (indexLeft >= bufferLeft.length || indexRight >= bufferRight.length) {
-						break;
-					}
+					indexLeft += length;
+					indexRight += length;
 					if (indexLeft >= stopLeft) {
 						if (itleft.hasNext()) {
 							entryLeft = itleft.next();
@@ -282,7 +309,7 @@ public class HttpRequestResponseHelperImpl implements IHttpRequestResponseHelper
 							break;
 						}
 					}
-				} while (true);
+				}
 			}
 			yes = true;
 		} else {
@@ -335,4 +362,182 @@ public class HttpRequestResponseHelperImpl implements IHttpRequestResponseHelper
 		}
 
 	}
+
+	/**
+	 * Thrown when chunked content ends before its last chunk.
+	 */
+	private static class ChunkException extends IOException {
+
+		private static final long serialVersionUID = 1L;
+
+		ChunkException(String message) {
+			super(message);
+		}
+	}
+
+	/**
+	 * De-chunks a body sent with chunked transfer encoding while it is read.
+	 */
+	private static class ChunkedContentStream extends InputStream {
+
+		private final InputStream source;
+		private final HttpRequestResponseInfo request;
+		private int remaining;
+		private boolean finished;
+
+		ChunkedContentStream(InputStream source, HttpRequestResponseInfo request) {
+			this.source = source;
+			this.request = request;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (!hasChunk()) {
+				return -1;
+			}
+			int value = source.read();
+			if (value < 0) {
+				throw unexpectedEnd();
+			}
+			consumed(1);
+			return value;
+		}
+
+		@Override
+		public int read(byte[] dst, int offset, int length) throws IOException {
+			if (length == 0) {
+				return 0;
+			}
+			if (!hasChunk()) {
+				return -1;
+			}
+			int read = source.read(dst, offset, Math.min(length, remaining));
+			if (read < 0) {
+				throw unexpectedEnd();
+			}
+			consumed(read);
+			return read;
+		}
+
+		/**
+		 * Moves to the next chunk when the current one is read, returns false
+		 * after the last chunk.
+		 */
+		private boolean hasChunk() throws IOException {
+			while (remaining == 0) {
+				if (finished) {
+					return false;
+				}
+				nextChunk();
+			}
+			return true;
+		}
+
+		private void consumed(int count) throws IOException {
+			remaining -= count;
+			if (remaining == 0) {
+				// CRLF at end of each chunk
+				String line = readLine();
+				if (line != null && line.length() > 0) {
+					LOG.warn("Unexpected end of chunk: " + line);
+				}
+			}
+		}
+
+		/**
+		 * Skips the chunks that are left.
+		 */
+		void skipToEnd() throws IOException {
+			while (hasChunk()) {
+				long skipped = source.skip(remaining);
+				if (skipped <= 0) {
+					if (source.read() < 0) {
+						throw unexpectedEnd();
+					}
+					skipped = 1;
+				}
+				consumed((int) skipped);
+			}
+		}
+
+		private void nextChunk() throws IOException {
+			String line = readLine();
+			if (line == null) {
+				throw unexpectedEnd();
+			}
+			int size = 0;
+			try {
+				size = Integer.parseInt(line.split(";")[0].trim(), 16);
+			} catch (NumberFormatException e) {
+				LOG.warn("Unexpected begin of the chunk format : " + line);
+			}
+			if (size > 0) {
+				remaining = size;
+			} else {
+				request.setChunkModeFinished(true);
+				finished = true;
+				line = readLine(); // End of chunks
+				if (line != null && line.length() > 0) {
+					LOG.warn("Unexpected end of chunked data: " + line);
+				}
+			}
+		}
+
+		/**
+		 * Reads a line terminated by CRLF, null at the end of the stream.
+		 */
+		private String readLine() throws IOException {
+			StringBuilder line = new StringBuilder();
+			int value;
+			while ((value = source.read()) >= 0) {
+				if (value == '\r') {
+					int next = source.read();
+					if (next == '\n' || next < 0) {
+						return line.toString();
+					}
+					line.append('\r').append((char) next);
+				} else {
+					line.append((char) value);
+				}
+			}
+			return line.length() > 0 ? line.toString() : null;
+		}
+
+		private ChunkException unexpectedEnd() {
+			return new ChunkException(String.format("Unexpected Chunk End %.3f: %s The content may be corrupted.",
+					request.getTimeStamp(), request.getAssocReqResp().getObjNameWithoutParams()));
+		}
+	}
+
+	/**
+	 * Reads the chunks left once the decompressed content ends, which marks
+	 * the chunked content finished or fails if its last chunk is missing.
+	 */
+	private static class ChunkedTrailerStream extends FilterInputStream {
+
+		private final ChunkedContentStream chunks;
+
+		ChunkedTrailerStream(InputStream decoded, ChunkedContentStream chunks) {
+			super(decoded);
+			this.chunks = chunks;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int value = super.read();
+			if (value < 0) {
+				chunks.skipToEnd();
+			}
+			return value;
+		}
+
+		@Override
+		public int read(byte[] dst, int offset, int length) throws IOException {
+			int read = super.read(dst, offset, length);
+			if (read < 0) {
+				chunks.skipToEnd();
+			}
+			return read;
+		}
+	}
 }
@@ -15,12 +15,15 @@
 */
 package com.att.aro.core.packetanalysis.impl;
 
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.Inet4Address;
 import java.net.Inet6Address;
 import java.net.InetAddress;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -28,6 +31,11 @@ import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.UnaryOperator;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.log4j.LogManager;
@@ -38,6 +46,7 @@ import org.springframework.beans.factory.annotation.Value;
 import com.att.aro.core.bestpractice.pojo.BestPracticeType;
 import com.att.aro.core.configuration.IProfileFactory;
 import com.att.aro.core.configuration.pojo.Profile;
+import com.att.aro.core.fileio.IFileManager;
 import com.att.aro.core.packetanalysis.IBurstCollectionAnalysis;
 import com.att.aro.core.packetanalysis.IEnergyModelFactory;
 import com.att.aro.core.packetanalysis.IPacketAnalyzer;
@@ -56,8 +65,9 @@ import com.att.aro.core.packetanalysis.pojo.HttpDirection;
 import com.att.aro.core.packetanalysis.pojo.HttpRequestResponseInfo;
 import com.att.aro.core.packetanalysis.pojo.IPPacketSummary;
 import com.att.aro.core.packetanalysis.pojo.PacketAnalyzerResult;
-import com.att.aro.core.packetanalysis.pojo.PacketCounter;
 import com.att.aro.core.packetanalysis.pojo.PacketInfo;
+import com.att.aro.core.packetanalysis.pojo.PacketTable;
+import com.att.aro.core.packetanalysis.pojo.ProfileAnalysis;
 import com.att.aro.core.packetanalysis.pojo.Session;
 import com.att.aro.core.packetanalysis.pojo.Statistic;
 import com.att.aro.core.packetanalysis.pojo.TimeRange;
@@ -66,6 +76,8 @@ import com.att.aro.core.packetanalysis.pojo.TraceFileResult;
 import com.att.aro.core.packetreader.pojo.IPPacket;
 import com.att.aro.core.packetreader.pojo.TCPPacket;
 import com.att.aro.core.packetreader.pojo.UDPPacket;
+import com.att.aro.core.peripheral.pojo.CpuActivityList;
+import com.att.aro.core.securedpacketreader.ISSLKeyService;
 import com.att.aro.core.settings.SettingsUtil;
 import com.att.aro.core.tracemetadata.IMetaDataHelper;
 import com.att.aro.core.util.GoogleAnalyticsUtil;
@@ -108,14 +120,49 @@ public class PacketAnalyzerImpl implements IPacketAnalyzer {
 	private String analysisCategory;
 	@Autowired
 	private IMetaDataHelper metaDataHelper;
+	@Autowired
+	private IFileManager filemanager;
+	@Autowired
+	private DecodedContentStore contentStore;
+	@Autowired
+	private ISSLKeyService sslKeyService;
 
 	private SortedMap<Double, HttpRequestResponseInfo> requestMap = new TreeMap<>();
 
+	private int parallelism = 1;
+
+	/**
+	 * The trace read by the last analysis, reused while the same unchanged trace
+	 * is analyzed again with another filter or profile. Dropped as soon as
+	 * another trace is analyzed.
+	 */
+	private TraceBase traceBase;
+
+	private TraceAnalysisCache analysisCache;
+
+	/**
+	 * Sets the number of profiles analyzeProfiles analyzes at once.
+	 * 
+	 * @param parallelism
+	 */
+	public void setParallelism(int parallelism) {
+		this.parallelism = Math.max(1, parallelism);
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
 	@Autowired
 	public void setTraceReader(ITraceDataReader traceReader) {
 		this.tracereader = traceReader;
 	}
 
+	@Autowired
+	public void setAnalysisCache(TraceAnalysisCache analysisCache) {
+		this.analysisCache = analysisCache;
+	}
+
 	@Autowired
 	public void setRrcStateMachineFactory(IRrcStateMachineFactory rrcStateMachineFactory) {
 		this.statemachinefactory = rrcStateMachineFactory;
@@ -148,15 +195,40 @@ public class PacketAnalyzerImpl implements IPacketAnalyzer {
 
 	@Override
 	public PacketAnalyzerResult analyzeTraceFile(String traceFilePath, Profile profile, AnalysisFilter filter) throws IOException {
-		TraceFileResult result = tracereader.readTraceFile(traceFilePath);
+		TraceFileResult result = null;
+		TraceBase base = reuseTraceBase(traceFilePath);
+		if (base == null) {
+			base = loadTraceBase(traceFilePath);
+		}
+		if (base == null) {
+			result = tracereader.readTraceFile(traceFilePath);
+			base = keepTraceBase(traceFilePath, result);
+		}
+		if (base != null) {
+			result = (TraceFileResult) base.restore(sessionmanager);
+		}
 
-		return finalResult(result, profile, filter);
+		PacketAnalyzerResult res = finalResult(result, profile, filter, base);
+		storeTraceBase(base);
+		return res;
 	}
 
 	@Override
 	public PacketAnalyzerResult analyzeTraceDirectory(String traceDirectory, Profile profile, AnalysisFilter filter) throws FileNotFoundException {
 		long bpStartTime = System.currentTimeMillis();
-		TraceDirectoryResult result = tracereader.readTraceDirectory(traceDirectory);
+		TraceDirectoryResult result = null;
+		TraceBase base = reuseTraceBase(traceDirectory);
+		if (base == null) {
+			base = loadTraceBase(traceDirectory);
+		}
+		if (base == null) {
+			result = tracereader.readTraceDirectory(traceDirectory);
+			result.setMetaData(metaDataHelper.initMetaData(result));
+			base = keepTraceBase(traceDirectory, result);
+		}
+		if (base != null) {
+			result = (TraceDirectoryResult) base.restore(sessionmanager);
+		}
 		if (filter != null) {
 			TimeRange tempTimeRange = filter.getTimeRange();
 			if (tempTimeRange != null) {
@@ -178,14 +250,104 @@ public class PacketAnalyzerImpl implements IPacketAnalyzer {
 				result.setAttenautionEvent(tempResult.getAttenautionEvent());
 			}
 		}
-		result.setMetaData(metaDataHelper.initMetaData(result));
-		PacketAnalyzerResult res = finalResult(result, profile, filter);
+		PacketAnalyzerResult res = finalResult(result, profile, filter, base);
+		storeTraceBase(base);
 		GoogleAnalyticsUtil.getGoogleAnalyticsInstance().sendAnalyticsTimings(pktAnalysisTitle, System.currentTimeMillis() - bpStartTime, analysisCategory);
 		LOGGER.info(String.format("Time to process PacketAnalyzerImpl %s :%12.4f", pktAnalysisTitle, ((float) (System.currentTimeMillis() - bpStartTime)) / (60 * 60)));
 		return res;
 	}
 
+	/**
+	 * Returns the trace read by the last analysis if it was read from path and
+	 * none of its files changed since, otherwise drops it.
+	 */
+	private TraceBase reuseTraceBase(String path) {
+		TraceBase base = traceBase;
+		if (base != null && base.path.equals(path) && base.fingerprint == fingerprint(path)) {
+			LOGGER.debug("Reusing trace read from " + path);
+			return base;
+		}
+		traceBase = null;
+		return null;
+	}
+
+	private TraceBase keepTraceBase(String path, AbstractTraceResult result) {
+		traceBase = null;
+		if (result != null && result.getAllpackets() != null) {
+			long fingerprint = fingerprint(path);
+			if (fingerprint != 0) {
+				traceBase = new TraceBase(path, fingerprint, result);
+			}
+		}
+		return traceBase;
+	}
+
+	/**
+	 * Returns the trace read from path in an earlier run of the tool if it was
+	 * cached and none of its files changed since, otherwise null.
+	 */
+	private TraceBase loadTraceBase(String path) {
+		TraceAnalysisCache.Entry entry = analysisCache != null ? analysisCache.load(path) : null;
+		if (entry == null) {
+			return null;
+		}
+		long fingerprint = fingerprint(path);
+		if (fingerprint != 0) {
+			traceBase = new TraceBase(path, fingerprint, entry.getResult(), entry.getSessions());
+		}
+		return traceBase;
+	}
+
+	/**
+	 * Writes the trace and its sessions to the analysis cache once the sessions
+	 * were assembled, unless they were loaded from it.
+	 */
+	private void storeTraceBase(TraceBase base) {
+		if (analysisCache != null && base != null && !base.cached && base.sessions != null) {
+			base.cached = true;
+			analysisCache.store(base.path, base.result, base.sessions);
+		}
+	}
+
+	/**
+	 * Returns a value that changes when a file of the trace is added, replaced
+	 * or modified, 0 if path is neither a file nor a directory.
+	 */
+	private long fingerprint(String path) {
+		File trace = filemanager.createFile(path);
+		File[] files;
+		if (trace.isFile()) {
+			files = new File[] { trace };
+		} else if (trace.isDirectory() && (files = trace.listFiles()) != null) {
+			Arrays.sort(files);
+		} else {
+			return 0;
+		}
+		long fingerprint = 1;
+		for (File file : files) {
+			if (file.isFile()) {
+				fingerprint = 31 * fingerprint + file.getName().hashCode();
+				fingerprint = 31 * fingerprint + file.length();
+				fingerprint = 31 * fingerprint + file.lastModified();
+			}
+		}
+		return fingerprint;
+	}
+
 	protected PacketAnalyzerResult finalResult(AbstractTraceResult result, Profile profile, AnalysisFilter filter) {
+		return finalResult(result, profile, filter, null);
+	}
+
+	/**
+	 * Analyzes result, reusing the sessions of base for the connections the
+	 * filter leaves whole when base is not null. result must then have been
+	 * restored from base.
+	 */
+	private PacketAnalyzerResult finalResult(AbstractTraceResult result, Profile profile, AnalysisFilter filter, TraceBase base) {
+		if (contentStore != null) {
+			// content decoded for the previous analysis belongs to its sessions
+			contentStore.clear();
+		}
 		PacketAnalyzerResult data = new PacketAnalyzerResult();
 		List<PacketInfo> filteredPackets; // List of packets included in analysis (application filtered)
 		Profile aProfile = profile;
@@ -202,6 +364,8 @@ public class PacketAnalyzerImpl implements IPacketAnalyzer {
 
 		TimeRange timeRange = null;
 
+		// the copies of all packets of the trace, in the order of the base
+		List<PacketInfo> packetCopies = base != null && result != null ? result.getAllpackets() : null;
 		filteredPackets = new ArrayList<PacketInfo>();
 		if (filter == null) {
 			if (result != null) {
@@ -221,8 +385,17 @@ public class PacketAnalyzerImpl implements IPacketAnalyzer {
 			result.setAllpackets(filteredPackets);
 			sessionmanager.setiOSSecureTracePath(result.getTraceDirectory());// for iOS trace
 		}
-		List<Session> sessionList = sessionmanager.processPacketsAndAssembleSessions(filteredPackets);
+		List<Session> sessionList;
+		if (packetCopies != null) {
+			sessionList = sessionmanager.assembleFilteredSessions(filteredPackets, base.sessions(sessionmanager), TraceBase.packetCopies(packetCopies));
+		} else {
+			sessionList = sessionmanager.processPacketsAndAssembleSessions(filteredPackets);
+		}
 		generateRequestMap(sessionList);
+		if (sslKeyService != null) {
+			// the keys are matched while the secure sessions are assembled
+			sslKeyService.logStatistics();
+		}
 		List<PacketInfo> filteredPacketsNoDNSUDP = new ArrayList<PacketInfo>();
 		for (Session session : sessionList) {
 			for (PacketInfo packet : session.getPackets()) {
@@ -236,13 +409,13 @@ public class PacketAnalyzerImpl implements IPacketAnalyzer {
 			stat.setAppName(new HashSet<String>(result.getAppInfos()));
 		}
 
+		// the RRC, burst and throughput passes read the packets from one table
+		PacketTable packetTable = PacketTable.of(filteredPackets, sessionList);
 		int totBytes = 0;
 		int totPayloadBytes = 0;
-		if (!CollectionUtils.isEmpty(filteredPackets)) {
-			for (PacketInfo pkt : filteredPackets) {
-				totBytes += pkt.getLen();
-				totPayloadBytes += pkt.getPayloadLen();
-			}
+		for (int index = 0; index < packetTable.size(); index++) {
+			totBytes += packetTable.getLength(index);
+			totPayloadBytes += packetTable.getPayloadLength(index);
 		}
 		stat.setTotalByte(totBytes);
 		stat.setTotalPayloadBytes(totPayloadBytes);
@@ -250,13 +423,13 @@ public class PacketAnalyzerImpl implements IPacketAnalyzer {
 
 		if (result != null) {
 			LOGGER.debug("Starting pre processing in PAI");
-			AbstractRrcStateMachine statemachine = statemachinefactory.create(filteredPackets, aProfile, stat.getPacketDuration(), result.getTraceDuration(), stat.getTotalByte(),
+			AbstractRrcStateMachine statemachine = statemachinefactory.create(packetTable, aProfile, stat.getPacketDuration(), result.getTraceDuration(), stat.getTotalByte(),
 					timeRange);
 
 			EnergyModel energymodel = energymodelfactory.create(aProfile, statemachine.getTotalRRCEnergy(), result.getGpsInfos(), result.getCameraInfos(),
 					result.getBluetoothInfos(), result.getScreenStateInfos());
 
-			BurstCollectionAnalysisData burstcollectiondata = burstcollectionanalyzer.analyze(filteredPackets, aProfile, stat.getPacketSizeToCountMap(),
+			BurstCollectionAnalysisData burstcollectiondata = burstcollectionanalyzer.analyze(packetTable, aProfile, stat.getPacketSizeToCountMap(),
 					statemachine.getStaterangelist(), result.getUserEvents(), result.getCpuActivityList().getCpuActivities(), sessionList);
 			data.clearBPResults();
 			try {
@@ -299,6 +472,68 @@ public class PacketAnalyzerImpl implements IPacketAnalyzer {
 		return data;
 	}
 
+	/**
+	 * The packets and sessions of the analyzed trace are shared by all the
+	 * profiles, the state machines are created without marking the packets so
+	 * the profiles can be analyzed at once. Returns an empty list if the trace
+	 * has no analyzed packets.
+	 */
+	@Override
+	public List<ProfileAnalysis> analyzeProfiles(PacketAnalyzerResult analyzerResult, List<Profile> profiles) {
+		final AbstractTraceResult result = analyzerResult.getTraceresult();
+		final Statistic stat = analyzerResult.getStatistic();
+		if (result == null || stat == null || profiles.isEmpty()) {
+			return Collections.emptyList();
+		}
+		final List<Session> sessionList = analyzerResult.getSessionlist();
+		final PacketTable packetTable = PacketTable.of(result.getAllpackets(), sessionList);
+		final TimeRange timeRange = analyzerResult.getFilter() != null ? analyzerResult.getFilter().getTimeRange() : null;
+
+		List<ProfileAnalysis> analyses = new ArrayList<>(profiles.size());
+		if (parallelism == 1 || profiles.size() == 1) {
+			for (Profile profile : profiles) {
+				analyses.add(analyzeProfile(result, packetTable, sessionList, stat, timeRange, profile));
+			}
+			return analyses;
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(Math.min(parallelism, profiles.size()));
+		try {
+			List<Callable<ProfileAnalysis>> tasks = new ArrayList<>(profiles.size());
+			for (final Profile profile : profiles) {
+				tasks.add(() -> analyzeProfile(result, packetTable, sessionList, stat, timeRange, profile));
+			}
+			for (Future<ProfileAnalysis> future : pool.invokeAll(tasks)) {
+				analyses.add(future.get());
+			}
+			return analyses;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Profile analysis was interrupted", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException("Profile analysis failed", e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private ProfileAnalysis analyzeProfile(AbstractTraceResult result, PacketTable packetTable, List<Session> sessionList,
+			Statistic stat, TimeRange timeRange, Profile profile) {
+		AbstractRrcStateMachine statemachine = statemachinefactory.create(packetTable, profile, stat.getPacketDuration(),
+				result.getTraceDuration(), stat.getTotalByte(), timeRange, false);
+
+		EnergyModel energymodel = energymodelfactory.create(profile, statemachine.getTotalRRCEnergy(), result.getGpsInfos(),
+				result.getCameraInfos(), result.getBluetoothInfos(), result.getScreenStateInfos());
+
+		BurstCollectionAnalysisData burstcollectiondata = burstcollectionanalyzer.analyze(packetTable, profile,
+				stat.getPacketSizeToCountMap(), statemachine.getStaterangelist(), result.getUserEvents(),
+				result.getCpuActivityList().getCpuActivities(), sessionList);
+		return new ProfileAnalysis(profile, statemachine, energymodel, burstcollectiondata);
+	}
+
 	/**
 	 * Runs the filtering process on the specified packets/PacketInfos.
 	 * 
@@ -361,7 +596,7 @@ public class PacketAnalyzerImpl implements IPacketAnalyzer {
 	public Statistic getStatistic(List<PacketInfo> packetlist) {
 		Statistic stat = new Statistic();
 		Set<String> appNames = new HashSet<String>();
-		List<PacketInfo> packets = packetlist;
+		PacketTable packets = PacketTable.of(packetlist);
 		if (!packets.isEmpty()) {
 			int totalHTTPSBytes = 0;
 			int totalTCPBytes = 0;
@@ -372,33 +607,30 @@ public class PacketAnalyzerImpl implements IPacketAnalyzer {
 			List<ApplicationPacketSummary> applicationPacketSummary = new ArrayList<ApplicationPacketSummary>();
 			Map<Integer, Integer> packetSizeToCountMap = new HashMap<Integer, Integer>();
 
-			PacketInfo lastPacket = packets.get(packets.size() - 1);
-			Map<String, PacketCounter> appPackets = new HashMap<String, PacketCounter>();
-			Map<InetAddress, PacketCounter> ipPackets = new HashMap<InetAddress, PacketCounter>();
-			for (PacketInfo packet : packets) {
-				totalBytes += packet.getLen();
-
-				if (packet.getPacket() instanceof TCPPacket) {
-					TCPPacket tcp = (TCPPacket) packet.getPacket();
-					if ((tcp.isSsl()) || (tcp.getDestinationPort() == 443) || (tcp.getSourcePort() == 443)) {
-						totalHTTPSBytes += packet.getLen();
+			// packets and bytes by app and by remote IP, indexed by the ids of the packet table
+			int[] appPacketCounts = new int[packets.getAppCount()];
+			long[] appByteCounts = new long[packets.getAppCount()];
+			int[] ipPacketCounts = new int[packets.getRemoteAddressCount()];
+			long[] ipByteCounts = new long[packets.getRemoteAddressCount()];
+			for (int index = 0; index < packets.size(); index++) {
+				int len = packets.getLength(index);
+				totalBytes += len;
+
+				if (packets.isTCP(index)) {
+					if (packets.isHttps(index)) {
+						totalHTTPSBytes += len;
 					}
-					totalTCPBytes += packet.getLen();
+					totalTCPBytes += len;
 				}
 
-				String appName = packet.getAppName();
-				appNames.add(appName);
-				PacketCounter pCounter = appPackets.get(appName);
-				if (pCounter == null) {
-					pCounter = new PacketCounter();
-					appPackets.put(appName, pCounter);
-				}
-				pCounter.add(packet);
+				int appId = packets.getAppId(index);
+				appPacketCounts[appId]++;
+				appByteCounts[appId] += len;
 
-				if (packet.getPacket() instanceof IPPacket) {
+				if (packets.isIP(index)) {
 
 					// Count packets by packet size
-					Integer packetSize = packet.getPayloadLen();
+					Integer packetSize = packets.getPayloadLength(index);
 
 					Integer iValue = packetSizeToCountMap.get(packetSize);
 					if (iValue == null) {
@@ -409,24 +641,32 @@ public class PacketAnalyzerImpl implements IPacketAnalyzer {
 					packetSizeToCountMap.put(packetSize, iValue);
 
 					// Get IP address summary
-					InetAddress ipAddress = packet.getRemoteIPAddress();
-					pCounter = ipPackets.get(ipAddress);
-					if (pCounter == null) {
-						pCounter = new PacketCounter();
-						ipPackets.put(ipAddress, pCounter);
-					}
-					pCounter.add(packet);
+					int ipId = packets.getRemoteAddressId(index);
+					ipPacketCounts[ipId]++;
+					ipByteCounts[ipId] += len;
 				}
 			}
-			for (Map.Entry<InetAddress, PacketCounter> ipPacketMap : ipPackets.entrySet()) {
-				ipPacketSummary.add(new IPPacketSummary(ipPacketMap.getKey(), ipPacketMap.getValue().getPacketCount(), ipPacketMap.getValue().getTotalBytes()));
+			// summaries are listed in the order of a HashMap filled in the order the packets were seen
+			Map<InetAddress, Integer> ipPackets = new HashMap<InetAddress, Integer>();
+			for (int ipId = 0; ipId < packets.getRemoteAddressCount(); ipId++) {
+				ipPackets.put(packets.getRemoteAddress(ipId), ipId);
+			}
+			for (Map.Entry<InetAddress, Integer> ipPacketMap : ipPackets.entrySet()) {
+				int ipId = ipPacketMap.getValue();
+				ipPacketSummary.add(new IPPacketSummary(ipPacketMap.getKey(), ipPacketCounts[ipId], ipByteCounts[ipId]));
 			}
-			for (Map.Entry<String, PacketCounter> appPacketMap : appPackets.entrySet()) {
+			Map<String, Integer> appPackets = new HashMap<String, Integer>();
+			for (int appId = 0; appId < packets.getAppCount(); appId++) {
+				appNames.add(packets.getAppName(appId));
+				appPackets.put(packets.getAppName(appId), appId);
+			}
+			for (Map.Entry<String, Integer> appPacketMap : appPackets.entrySet()) {
+				int appId = appPacketMap.getValue();
 				applicationPacketSummary
-						.add(new ApplicationPacketSummary(appPacketMap.getKey(), appPacketMap.getValue().getPacketCount(), appPacketMap.getValue().getTotalBytes()));
+						.add(new ApplicationPacketSummary(appPacketMap.getKey(), appPacketCounts[appId], appByteCounts[appId]));
 			}
 
-			packetsDuration = lastPacket.getTimeStamp() - packets.get(0).getTimeStamp();
+			packetsDuration = packets.getTimestamp(packets.size() - 1) - packets.getTimestamp(0);
 			avgKbps = packetsDuration != 0 ? totalTCPBytes * 8.0 / 1000.0 / packetsDuration : 0.0;
 
 			stat.setApplicationPacketSummary(applicationPacketSummary);
@@ -493,4 +733,78 @@ public class PacketAnalyzerImpl implements IPacketAnalyzer {
 		return requestMap;
 	}
 
+	/**
+	 * The unfiltered trace as read from disk and the sessions assembled from all
+	 * of its packets. Neither is handed out: restore() gives every analysis its
+	 * own copy of the result and of the packets, and the analysis copies the
+	 * sessions it reuses, so analyzing the trace again leaves the results of
+	 * earlier analyses as they were.
+	 */
+	private static class TraceBase {
+		private final String path;
+		private final long fingerprint;
+		private final AbstractTraceResult result;
+		private List<Session> sessions;
+		// true once the base is in the analysis cache
+		private boolean cached;
+
+		TraceBase(String path, long fingerprint, AbstractTraceResult result) {
+			this.path = path;
+			this.fingerprint = fingerprint;
+			this.result = result.copy();
+			// the copies of a packet are found by its id, see packetCopies
+			List<PacketInfo> packets = result.getAllpackets();
+			for (int index = 0; index < packets.size(); index++) {
+				packets.get(index).setPacketId(index + 1);
+			}
+		}
+
+		/**
+		 * Restores a base loaded from the analysis cache, sessions were
+		 * assembled from all packets of result.
+		 */
+		TraceBase(String path, long fingerprint, AbstractTraceResult result, List<Session> sessions) {
+			this(path, fingerprint, result);
+			this.sessions = sessions;
+			this.cached = true;
+		}
+
+		/**
+		 * Returns a copy of the result holding copies of all packets, in the
+		 * order of the base and numbered from 1. The sessions of the base are
+		 * assembled first, so the copies carry the marks of the assembly that
+		 * the sessions reused by the analysis rely on.
+		 */
+		AbstractTraceResult restore(ISessionManager sessionmanager) {
+			sessions(sessionmanager);
+			AbstractTraceResult copy = result.copy();
+			List<PacketInfo> packets = new ArrayList<>(result.getAllpackets().size());
+			for (PacketInfo packetInfo : result.getAllpackets()) {
+				packets.add(packetInfo.copy());
+			}
+			copy.setAllpackets(packets);
+			if (copy.getCpuActivityList() != null) {
+				CpuActivityList cpuActivityList = copy.getCpuActivityList().copy();
+				cpuActivityList.clearTimeRange();
+				copy.setCpuActivityList(cpuActivityList);
+			}
+			return copy;
+		}
+
+		/**
+		 * Maps a packet of the base to its copy in copies, the packets of a
+		 * restored result.
+		 */
+		static UnaryOperator<PacketInfo> packetCopies(List<PacketInfo> copies) {
+			return packetInfo -> copies.get(packetInfo.getPacketId() - 1);
+		}
+
+		List<Session> sessions(ISessionManager sessionmanager) {
+			if (sessions == null) {
+				sessions = sessionmanager.processPacketsAndAssembleSessions(result.getAllpackets());
+			}
+			return sessions;
+		}
+	}
+
 }// end class
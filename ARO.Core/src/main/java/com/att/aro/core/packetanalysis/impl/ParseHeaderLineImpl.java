@@ -17,17 +17,25 @@ package com.att.aro.core.packetanalysis.impl;
 
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.regex.Matcher;
 
 import org.apache.log4j.Logger;
 import org.apache.log4j.LogManager;
 
 import com.att.aro.core.packetanalysis.IParseHeaderLine;
 import com.att.aro.core.packetanalysis.pojo.HttpDirection;
-import com.att.aro.core.packetanalysis.pojo.HttpPattern;
 import com.att.aro.core.packetanalysis.pojo.HttpRequestResponseInfo;
 import com.att.aro.core.util.Util;
 
+/**
+ * Parses HTTP header lines in a single pass. The header name is looked up in
+ * a table of the known headers and the value is scanned without regular
+ * expressions.
+ * <p>
+ * Header names are matched with the same rules as the patterns in
+ * HttpPattern: the first letter of each word of Host, Content-Length,
+ * Transfer-Encoding, Content-Encoding and Content-Type and the T of ETag may
+ * be either case, the other names are case sensitive.
+ */
 public class ParseHeaderLineImpl implements IParseHeaderLine{
 
 	private static final Logger LOGGER = LogManager.getLogger(ParseHeaderLineImpl.class.getName());
@@ -41,10 +49,84 @@ public class ParseHeaderLineImpl implements IParseHeaderLine{
 	private static final String MUSTREVALIDATE = "must-revalidate";
 	private static final String PROXYREVALIDATE = "proxy-revalidate";
 	private static final String ONLYIFCACHED = "only-if-cached";
+	private static final String MAXAGE = "max-age";
+	private static final String SMAXAGE = "s-maxage";
+	private static final String MINFRESH = "min-fresh";
+	private static final String MAXSTALE = "max-stale";
+	private static final String BYTES = "bytes ";
 
 	private static final Object HEADERS_SEPARATOR = " ";
-	
-	
+
+	private enum Header {
+		HOST("Host", false, 0),
+		CONTENT_LENGTH("Content-Length", false, 0, 8),
+		TRANSFER_ENCODING("Transfer-Encoding", false, 0, 9),
+		CONTENT_ENCODING("Content-Encoding", false, 0, 8),
+		CONTENT_TYPE("Content-Type", false, 0, 8),
+		DATE("Date", true),
+		PRAGMA("Pragma", true),
+		CACHE_CONTROL("Cache-Control", true),
+		ETAG("ETag", true, 1),
+		AGE("Age", true),
+		EXPIRES("Expires", true),
+		LAST_MODIFIED("Last-Modified", true),
+		CONTENT_RANGE("Content-Range", true),
+		REFERER("Referer", true),
+		IF_MODIFIED_SINCE("If-Modified-Since", true),
+		IF_NONE_MATCH("If-None-Match", true);
+
+		private final String name;
+		private final boolean spaceBeforeColon;
+		private final boolean[] eitherCase;
+
+		/**
+		 * @param spaceBeforeColon Whether white space may separate the name from the colon.
+		 * @param eitherCase The positions in name that may be upper or lower case.
+		 */
+		Header(String name, boolean spaceBeforeColon, int... eitherCase) {
+			this.name = name;
+			this.spaceBeforeColon = spaceBeforeColon;
+			this.eitherCase = new boolean[name.length()];
+			for (int index : eitherCase) {
+				this.eitherCase[index] = true;
+			}
+		}
+
+		/**
+		 * Returns whether line starts with this name.
+		 */
+		boolean matches(String line) {
+			for (int index = 0; index < name.length(); index++) {
+				char chr = line.charAt(index);
+				char expected = name.charAt(index);
+				if (chr != expected && !(eitherCase[index] && chr == Character.toLowerCase(expected))) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * The known headers by the length of their name.
+	 */
+	private static final Header[][] HEADERS_BY_LENGTH;
+
+	static {
+		int maxLength = 0;
+		for (Header header : Header.values()) {
+			maxLength = Math.max(maxLength, header.name.length());
+		}
+		HEADERS_BY_LENGTH = new Header[maxLength + 1][0];
+		for (Header header : Header.values()) {
+			Header[] headers = HEADERS_BY_LENGTH[header.name.length()];
+			Header[] grown = new Header[headers.length + 1];
+			System.arraycopy(headers, 0, grown, 0, headers.length);
+			grown[headers.length] = header;
+			HEADERS_BY_LENGTH[header.name.length()] = grown;
+		}
+	}
+
 	/**
 	 * Parse data from the line of text
 	 * 
@@ -55,13 +137,24 @@ public class ParseHeaderLineImpl implements IParseHeaderLine{
 
 		appendHeaderToHttpRequestResponseInfo(headerLine, rrInfo);
 
-		Matcher matcher;
-		String[] str;
+		int nameEnd = 0;
+		while (nameEnd < headerLine.length() && headerLine.charAt(nameEnd) != ':' && !isSpace(headerLine.charAt(nameEnd))) {
+			nameEnd++;
+		}
+		Header header = findHeader(headerLine, nameEnd);
+		if (header == null) {
+			return;
+		}
+		int colon = header.spaceBeforeColon ? skipSpace(headerLine, nameEnd) : nameEnd;
+		if (colon == headerLine.length() || headerLine.charAt(colon) != ':') {
+			return;
+		}
+		int valueStart = colon + 1;
 
-		// Get request host "[H|h]ost:"
-		matcher = HttpPattern.strReRequestHost.matcher(headerLine);
-		if (matcher.lookingAt()) {
-			String hostName = headerLine.substring(matcher.end()).trim();
+		String[] str;
+		switch (header) {
+		case HOST:
+			String hostName = headerLine.substring(valueStart).trim();
 
 			// Strip port info if included
 			int index = hostName.indexOf(':');
@@ -69,224 +162,307 @@ public class ParseHeaderLineImpl implements IParseHeaderLine{
 				hostName = hostName.substring(0, index);
 			}
 			rrInfo.setHostName(hostName);
-			return;
-		}
+			break;
 
-		// Get request content length "[C|c]ontent-[L|l]ength:"
-		matcher = HttpPattern.strReResponseContentLength.matcher(headerLine);
-		if (matcher.lookingAt() && rrInfo.getContentLength() == 0) {
-			try {
-				rrInfo.setContentLength(Integer.parseInt(headerLine.substring(matcher.end()).trim()));
-			} catch (NumberFormatException e) {
-				/*
-				 * The value exceeds the Interger.MAX_VALUE i.e
-				 * 2^31-1=2147483647
-				 */
-				LOGGER.info("Cannot parse the string to int for contentLength,because" + " The value to parse is :" + (headerLine.substring(matcher.end()).trim())
-						+ " which is greater than the Integer.MAX_VALUE (2^31-1=2147483647).");
+		case CONTENT_LENGTH:
+			if (rrInfo.getContentLength() == 0) {
+				try {
+					rrInfo.setContentLength(Integer.parseInt(headerLine.substring(valueStart).trim()));
+				} catch (NumberFormatException e) {
+					/*
+					 * The value exceeds the Interger.MAX_VALUE i.e
+					 * 2^31-1=2147483647
+					 */
+					LOGGER.info("Cannot parse the string to int for contentLength,because" + " The value to parse is :" + (headerLine.substring(valueStart).trim())
+							+ " which is greater than the Integer.MAX_VALUE (2^31-1=2147483647).");
+				}
 			}
+			break;
 
-			return;
-		}
+		case TRANSFER_ENCODING:
+			rrInfo.setChunked(CHUNKED.equals(headerLine.substring(valueStart).trim()));
+			break;
 
-		// Get request transfer encoding "[T|t]ransfer-[E|e]ncoding:"
-		matcher = HttpPattern.strReTransferEncoding.matcher(headerLine);
-		if (matcher.lookingAt()) {
-			rrInfo.setChunked(CHUNKED.equals(headerLine.substring(matcher.end()).trim()));
-			return;
-		}
-
-		// Get request transfer encoding
-		matcher = HttpPattern.strReResponseContentEncoding.matcher(headerLine);
-		if (matcher.lookingAt()) {
-			rrInfo.setContentEncoding(headerLine.substring(matcher.end()).trim().toLowerCase());
-			return;
-		}
+		case CONTENT_ENCODING:
+			rrInfo.setContentEncoding(headerLine.substring(valueStart).trim().toLowerCase());
+			break;
 
-		// Get content type
-		matcher = HttpPattern.strReResponseContentType.matcher(headerLine);
-		if (matcher.lookingAt()) {
-			str = headerLine.substring(matcher.end()).trim().split(";");
+		case CONTENT_TYPE:
+			str = headerLine.substring(valueStart).trim().split(";");
 			rrInfo.setContentType(str[0].trim().toLowerCase());
 			for (int i = 1; i < str.length; ++i) {
-				int index = str[i].indexOf('=');
-				if (index >= 0) {
-					String attr = str[i].substring(0, index).trim();
+				int equals = str[i].indexOf('=');
+				if (equals >= 0) {
+					String attr = str[i].substring(0, equals).trim();
 					if (CHARSET.equals(attr)) {
-						rrInfo.setCharset(str[i].substring(index+1).trim());
+						rrInfo.setCharset(str[i].substring(equals+1).trim());
 					}
 				}
 			}
-			return;
-		}
+			break;
 
-		// Date
-		matcher = HttpPattern.strReResponseDate.matcher(headerLine);
-		if (matcher.lookingAt()) {
-			rrInfo.setDate(Util.readHttpDate(matcher.group(1), false));
-			return;
-		}
+		case DATE:
+			rrInfo.setDate(Util.readHttpDate(restOfLine(headerLine, valueStart), false));
+			break;
 
-		// Pragma: no-cache
-		matcher = HttpPattern.strReResponsePragmaNoCache.matcher(headerLine);
-		if (matcher.lookingAt()) {
-			rrInfo.setHasCacheHeaders(true);
-			rrInfo.setPragmaNoCache(true);
-			return;
-		}
-
-		// Cache-Control
-		matcher = HttpPattern.strReResponseCacheControl.matcher(headerLine);
-		if (matcher.lookingAt()) {
-			str = matcher.group(1).split(",");
-			if (str.length > 0) {
+		case PRAGMA:
+			if (headerLine.startsWith(NOCACHE, skipSpace(headerLine, valueStart))) {
 				rrInfo.setHasCacheHeaders(true);
+				rrInfo.setPragmaNoCache(true);
 			}
-			for (int i = 0; i < str.length; ++i) {
-				String directive = str[i].trim();
-				if (NOCACHE.equals(directive)) {
-					rrInfo.setNoCache(true);
-					continue;
-				} else if (NOSTORE.equals(directive)) {
-					rrInfo.setNoStore(true);
-					continue;
-				}
+			break;
 
-				// max-age
-				matcher = HttpPattern.strReCacheMaxAge.matcher(directive);
-				if (matcher.lookingAt()) {
-					rrInfo.setMaxAge(Long.valueOf(matcher.group(1)));
-					continue;
-				}
+		case CACHE_CONTROL:
+			parseCacheControl(restOfLine(headerLine, valueStart), rrInfo);
+			break;
 
-				if (rrInfo.getDirection() == HttpDirection.REQUEST) {
-					if (ONLYIFCACHED.equals(directive)) { // only-if-cached
-						rrInfo.setOnlyIfCached(true);
-						continue;
+		case ETAG:
+			if (rrInfo.getDirection() == HttpDirection.RESPONSE) {
+				int quote = skipSpace(headerLine, valueStart);
+				if (headerLine.startsWith("W/", quote)) {
+					quote += 2;
+				}
+				if (quote < headerLine.length() && headerLine.charAt(quote) == '"') {
+					int closingQuote = headerLine.lastIndexOf('"', lineEnd(headerLine, quote + 1) - 1);
+					if (closingQuote > quote) {
+						rrInfo.setEtag(headerLine.substring(quote + 1, closingQuote));
 					}
+				}
+			}
+			break;
 
-					// min-fresh
-					matcher = HttpPattern.strReCacheMinFresh.matcher(directive);
-					if (matcher.lookingAt()) {
-						rrInfo.setMinFresh(Long.valueOf(matcher.group(1)));
-						continue;
-					}
+		case AGE:
+			if (rrInfo.getDirection() == HttpDirection.RESPONSE) {
+				int digits = skipSpace(headerLine, valueStart);
+				rrInfo.setAge(Long.valueOf(headerLine.substring(digits, skipDigits(headerLine, digits))));
+			}
+			break;
 
-					// max-stale
-					matcher = HttpPattern.strReCacheMaxStale.matcher(directive);
-					if (matcher.lookingAt()) {
-						rrInfo.setMaxStale(matcher.group(1) != null ? Long.valueOf(matcher.group(1)) : Long.MAX_VALUE);
-						continue;
-					}
+		case EXPIRES:
+			if (rrInfo.getDirection() == HttpDirection.RESPONSE) {
+				rrInfo.setExpires(Util.readHttpDate(restOfLine(headerLine, valueStart), true));
+			}
+			break;
 
-				} else if (rrInfo.getDirection() == HttpDirection.RESPONSE) {
-					if (PUBLIC.equals(directive)) {
-						rrInfo.setPublicCache(true);
-						continue;
-					} else if (PRIVATE.equals(directive)) {
-						rrInfo.setPrivateCache(true);
-						continue;
-					} else if (MUSTREVALIDATE.equals(directive)) {
-						rrInfo.setMustRevalidate(true);
-						continue;
-					} else if (PROXYREVALIDATE.equals(directive)) {
-						rrInfo.setProxyRevalidate(true);
-						continue;
-					}
+		case LAST_MODIFIED:
+			if (rrInfo.getDirection() == HttpDirection.RESPONSE) {
+				rrInfo.setLastModified(Util.readHttpDate(restOfLine(headerLine, valueStart), false));
+			}
+			break;
 
-					// s-maxage
-					matcher = HttpPattern.strReCacheSMaxAge.matcher(directive);
-					if (matcher.lookingAt()) {
-						rrInfo.setsMaxAge(Long.valueOf(matcher.group(1)));
-						continue;
-					}
+		case CONTENT_RANGE:
+			if (rrInfo.getDirection() == HttpDirection.RESPONSE) {
+				parseContentRange(headerLine, valueStart, rrInfo);
+			}
+			break;
 
+		case REFERER:
+			if (rrInfo.getDirection() == HttpDirection.REQUEST) {
+				String referrer = restOfLine(headerLine, valueStart);
+				try {
+					rrInfo.setReferrer(new URI(referrer.trim()));
+				} catch (URISyntaxException e) {
+					LOGGER.warn("Invalid referrer URI: " + referrer);
 				}
 			}
-			return;
-		}
+			break;
 
-		if (rrInfo.getDirection() == HttpDirection.RESPONSE) {
+		case IF_MODIFIED_SINCE:
+			if (rrInfo.getDirection() == HttpDirection.REQUEST) {
+				rrInfo.setIfModifiedSince(true);
+			}
+			break;
 
-			// ETag
-			matcher = HttpPattern.strReResponseEtag.matcher(headerLine);
-			if (matcher.lookingAt()) {
-				rrInfo.setEtag(matcher.group(2));
-				return;
+		case IF_NONE_MATCH:
+			if (rrInfo.getDirection() == HttpDirection.REQUEST) {
+				rrInfo.setIfNoneMatch(true);
 			}
+			break;
+
+		default:
+			break;
+		}
+	}
 
-			// Age
-			matcher = HttpPattern.strReResponseAge.matcher(headerLine);
-			if (matcher.lookingAt()) {
-				rrInfo.setAge(Long.valueOf(matcher.group(1)));
-				return;
+	private Header findHeader(String headerLine, int nameLength) {
+		if (nameLength < HEADERS_BY_LENGTH.length) {
+			for (Header header : HEADERS_BY_LENGTH[nameLength]) {
+				if (header.matches(headerLine)) {
+					return header;
+				}
 			}
+		}
+		return null;
+	}
 
-			// Expires
-			matcher = HttpPattern.strReResponseExpires.matcher(headerLine);
-			if (matcher.lookingAt()) {
-				rrInfo.setExpires(Util.readHttpDate(matcher.group(1), true));
-				return;
+	private void parseCacheControl(String value, HttpRequestResponseInfo rrInfo) {
+		String[] str = value.split(",");
+		if (str.length > 0) {
+			rrInfo.setHasCacheHeaders(true);
+		}
+		for (int i = 0; i < str.length; ++i) {
+			String directive = str[i].trim();
+			if (NOCACHE.equals(directive)) {
+				rrInfo.setNoCache(true);
+				continue;
+			} else if (NOSTORE.equals(directive)) {
+				rrInfo.setNoStore(true);
+				continue;
 			}
 
-			// Last modified
-			matcher = HttpPattern.strReResponseLastMod.matcher(headerLine);
-			if (matcher.lookingAt()) {
-				rrInfo.setLastModified(Util.readHttpDate(matcher.group(1), false));
-				return;
+			// max-age
+			String seconds = directiveValue(directive, MAXAGE);
+			if (seconds != null && !seconds.isEmpty()) {
+				rrInfo.setMaxAge(Long.valueOf(seconds));
+				continue;
 			}
 
-			// Content-Range
-			matcher = HttpPattern.strReContentRange.matcher(headerLine);
-			if (matcher.lookingAt()) {
-				rrInfo.setRangeResponse(true);
-				rrInfo.setRangeFirst(Integer.parseInt(matcher.group(1)));
-				try {
-					rrInfo.setRangeLast(Integer.parseInt(matcher.group(2)));
-				} catch (NumberFormatException e) {
-					/*
-					 * The value exceeds the Interger.MAX_VALUE i.e
-					 * 2^31-1=2147483647. Continue.
-					 */
-					LOGGER.info("Cannot parse the string to int for rangeLast,because" + " The value to parse is :" + matcher.group(2)
-							+ " which is greater than the Integer.MAX_VALUE (2^31-1=2147483647).");
+			if (rrInfo.getDirection() == HttpDirection.REQUEST) {
+				if (ONLYIFCACHED.equals(directive)) { // only-if-cached
+					rrInfo.setOnlyIfCached(true);
+					continue;
+				}
 
+				// min-fresh
+				seconds = directiveValue(directive, MINFRESH);
+				if (seconds != null && !seconds.isEmpty()) {
+					rrInfo.setMinFresh(Long.valueOf(seconds));
+					continue;
 				}
-				rrInfo.setRangeFull(Long.parseLong(matcher.group(3)));
 
-				if (rrInfo.getContentLength() == 0) {
-					rrInfo.setContentLength(rrInfo.getRangeLast() - rrInfo.getRangeFirst() + 1);
+				// max-stale, the value is optional
+				if (directive.startsWith(MAXSTALE)) {
+					seconds = directiveValue(directive, MAXSTALE);
+					rrInfo.setMaxStale(seconds != null ? Long.valueOf(seconds) : Long.MAX_VALUE);
+					continue;
 				}
-				return;
-			}
 
-		} else if (rrInfo.getDirection() == HttpDirection.REQUEST) {
+			} else if (rrInfo.getDirection() == HttpDirection.RESPONSE) {
+				if (PUBLIC.equals(directive)) {
+					rrInfo.setPublicCache(true);
+					continue;
+				} else if (PRIVATE.equals(directive)) {
+					rrInfo.setPrivateCache(true);
+					continue;
+				} else if (MUSTREVALIDATE.equals(directive)) {
+					rrInfo.setMustRevalidate(true);
+					continue;
+				} else if (PROXYREVALIDATE.equals(directive)) {
+					rrInfo.setProxyRevalidate(true);
+					continue;
+				}
 
-			// Referer
-			matcher = HttpPattern.strReResponseReferer.matcher(headerLine);
-			if (matcher.lookingAt()) {
-				try {
-					rrInfo.setReferrer(new URI(matcher.group(1).trim()));
-				} catch (URISyntaxException e) {
-					LOGGER.warn("Invalid referrer URI: " + matcher.group(1));
+				// s-maxage
+				seconds = directiveValue(directive, SMAXAGE);
+				if (seconds != null && !seconds.isEmpty()) {
+					rrInfo.setsMaxAge(Long.valueOf(seconds));
+					continue;
 				}
-				return;
-			}
 
-			// If-Modified-Since
-			matcher = HttpPattern.strReIfModifiedSince.matcher(headerLine);
-			if (matcher.lookingAt()) {
-				rrInfo.setIfModifiedSince(true);
-				return;
 			}
+		}
+	}
 
-			// If-None-Match
-			matcher = HttpPattern.strReIfNoneMatch.matcher(headerLine);
-			if (matcher.lookingAt()) {
-				rrInfo.setIfNoneMatch(true);
-				return;
+	/**
+	 * Returns the digits following "name =" at the start of directive, which
+	 * may be empty, or null if directive does not start with "name =".
+	 */
+	private String directiveValue(String directive, String name) {
+		if (!directive.startsWith(name)) {
+			return null;
+		}
+		int equals = skipSpace(directive, name.length());
+		if (equals == directive.length() || directive.charAt(equals) != '=') {
+			return null;
+		}
+		int digits = skipSpace(directive, equals + 1);
+		return directive.substring(digits, skipDigits(directive, digits));
+	}
+
+	/**
+	 * Parses "bytes first-last/full" of a Content-Range header.
+	 */
+	private void parseContentRange(String headerLine, int valueStart, HttpRequestResponseInfo rrInfo) {
+		int first = skipSpace(headerLine, valueStart);
+		if (!headerLine.startsWith(BYTES, first)) {
+			return;
+		}
+		first += BYTES.length();
+		int firstEnd = skipDigits(headerLine, first);
+		int dash = skipSpace(headerLine, firstEnd);
+		if (dash == headerLine.length() || headerLine.charAt(dash) != '-') {
+			return;
+		}
+		int last = skipSpace(headerLine, dash + 1);
+		int lastEnd = skipDigits(headerLine, last);
+		int slash = skipSpace(headerLine, lastEnd);
+		if (slash == headerLine.length() || headerLine.charAt(slash) != '/') {
+			return;
+		}
+		int full = skipSpace(headerLine, slash + 1);
+		int fullEnd = skipDigits(headerLine, full);
+
+		rrInfo.setRangeResponse(true);
+		rrInfo.setRangeFirst(Integer.parseInt(headerLine.substring(first, firstEnd)));
+		try {
+			rrInfo.setRangeLast(Integer.parseInt(headerLine.substring(last, lastEnd)));
+		} catch (NumberFormatException e) {
+			/*
+			 * The value exceeds the Interger.MAX_VALUE i.e
+			 * 2^31-1=2147483647. Continue.
+			 */
+			LOGGER.info("Cannot parse the string to int for rangeLast,because" + " The value to parse is :" + headerLine.substring(last, lastEnd)
+					+ " which is greater than the Integer.MAX_VALUE (2^31-1=2147483647).");
+
+		}
+		rrInfo.setRangeFull(Long.parseLong(headerLine.substring(full, fullEnd)));
+
+		if (rrInfo.getContentLength() == 0) {
+			rrInfo.setContentLength(rrInfo.getRangeLast() - rrInfo.getRangeFirst() + 1);
+		}
+	}
+
+	/**
+	 * Returns the text from start up to the end of the line, the same text
+	 * matched by the regular expression ".*".
+	 */
+	private String restOfLine(String line, int start) {
+		return line.substring(start, lineEnd(line, start));
+	}
+
+	private int lineEnd(String line, int start) {
+		int index = start;
+		while (index < line.length()) {
+			char chr = line.charAt(index);
+			if (chr == '\n' || chr == '\r' || chr == '\u0085' || chr == '\u2028' || chr == '\u2029') {
+				break;
 			}
+			index++;
 		}
+		return index;
+	}
+
+	private int skipSpace(String line, int start) {
+		int index = start;
+		while (index < line.length() && isSpace(line.charAt(index))) {
+			index++;
+		}
+		return index;
+	}
+
+	private int skipDigits(String line, int start) {
+		int index = start;
+		while (index < line.length() && line.charAt(index) >= '0' && line.charAt(index) <= '9') {
+			index++;
+		}
+		return index;
+	}
+
+	/**
+	 * Returns whether chr is white space as matched by the regular expression "\s".
+	 */
+	private static boolean isSpace(char chr) {
+		return chr == ' ' || chr == '\t' || chr == '\n' || chr == '\u000B' || chr == '\f' || chr == '\r';
 	}
 
 	private void appendHeaderToHttpRequestResponseInfo(String line, HttpRequestResponseInfo rrInfo) {
@@ -302,4 +478,4 @@ public class ParseHeaderLineImpl implements IParseHeaderLine{
 		}
 	}
 
-}
\ No newline at end of file
+}
@@ -30,6 +30,7 @@ import com.att.aro.core.packetanalysis.IRrcStateMachineFactory;
 import com.att.aro.core.packetanalysis.IRrcStateRangeFactory;
 import com.att.aro.core.packetanalysis.pojo.AbstractRrcStateMachine;
 import com.att.aro.core.packetanalysis.pojo.PacketInfo;
+import com.att.aro.core.packetanalysis.pojo.PacketTable;
 import com.att.aro.core.packetanalysis.pojo.RrcStateMachine3G;
 import com.att.aro.core.packetanalysis.pojo.RrcStateMachineLTE;
 import com.att.aro.core.packetanalysis.pojo.RrcStateMachineWiFi;
@@ -50,7 +51,17 @@ public class RrcStateMachineFactoryImpl implements IRrcStateMachineFactory {
 	public AbstractRrcStateMachine create(List<PacketInfo> packetlist,
 			Profile profile, double packetDuration, double traceDuration, double totalBytes,
 			TimeRange timerange) {
-		List<RrcStateRange> staterangelist = staterange.create(packetlist, profile, traceDuration);
+		return create(packetlist, profile, packetDuration, traceDuration, totalBytes, timerange, true);
+	}
+
+	@Override
+	public AbstractRrcStateMachine create(List<PacketInfo> packetlist,
+			Profile profile, double packetDuration, double traceDuration, double totalBytes,
+			TimeRange timerange, boolean markPackets) {
+		// the state ranges and the LTE energy both read the packets, build their table once
+		PacketTable packets = PacketTable.of(packetlist);
+		List<RrcStateRange> staterangelist = markPackets ? staterange.create(packets, profile, traceDuration)
+				: staterange.create(packets, profile, traceDuration, false);
 		if(timerange != null){
 			staterangelist = this.getRRCStatesForTheTimeRange(staterangelist, timerange.getBeginTime(), timerange.getEndTime());
 		}
@@ -58,7 +69,7 @@ public class RrcStateMachineFactoryImpl implements IRrcStateMachineFactory {
 		if(profile.getProfileType() == ProfileType.T3G){
 			data = run3GRRcStatistics(staterangelist, (Profile3G)profile, totalBytes, packetDuration, traceDuration);
 		}else if(profile.getProfileType() == ProfileType.LTE){
-			data = runLTERRcStatistics(staterangelist, (ProfileLTE)profile, packetlist, totalBytes, packetDuration, traceDuration);
+			data = runLTERRcStatistics(staterangelist, (ProfileLTE)profile, packets, totalBytes, packetDuration, traceDuration);
 		}else if(profile.getProfileType() == ProfileType.WIFI){
 			data = runWiFiRRcStatistics(staterangelist, (ProfileWiFi)profile, totalBytes, packetDuration, traceDuration);
 		}
@@ -29,6 +29,7 @@ import com.att.aro.core.packetanalysis.IRrcStateRangeFactory;
 import com.att.aro.core.packetanalysis.pojo.DchDemotionQueue;
 import com.att.aro.core.packetanalysis.pojo.FachQueue;
 import com.att.aro.core.packetanalysis.pojo.PacketInfo;
+import com.att.aro.core.packetanalysis.pojo.PacketTable;
 import com.att.aro.core.packetanalysis.pojo.RRCState;
 import com.att.aro.core.packetanalysis.pojo.RrcStateRange;
 import com.att.aro.core.packetreader.pojo.PacketDirection;
@@ -43,19 +44,39 @@ public class RrcStateRangeFactoryImpl implements IRrcStateRangeFactory {
 	@Override
 	public List<RrcStateRange> create(List<PacketInfo> packetlist,
 			Profile profile, double traceDuration) {
+		return create(packetlist, profile, traceDuration, true);
+	}
+
+	/**
+	 * The state of each packet is kept in an array while the ranges are
+	 * created and only copied to the packets when markPackets is true, so
+	 * ranges for several profiles can be created from the same packets at once.
+	 */
+	@Override
+	public List<RrcStateRange> create(List<PacketInfo> packetlist,
+			Profile profile, double traceDuration, boolean markPackets) {
+		PacketTable packets = PacketTable.of(packetlist);
+		RRCState[] states = new RRCState[packets.size()];
+		List<RrcStateRange> result;
 		if(profile.getProfileType() == ProfileType.T3G){
 			Profile3G prof = (Profile3G)profile;
-			return this.create3G(packetlist, prof, traceDuration);
+			result = this.create3G(packets, states, prof, traceDuration);
 		}else if(profile.getProfileType() == ProfileType.WIFI){
 			ProfileWiFi prof = (ProfileWiFi)profile;
-			return this.createWiFi(packetlist, prof, traceDuration);
+			result = this.createWiFi(packets, states, prof, traceDuration);
 		}else if(profile.getProfileType() == ProfileType.LTE){
 			ProfileLTE prof = (ProfileLTE)profile;
-			return this.createLTE(packetlist, prof, traceDuration);
+			result = this.createLTE(packets, states, prof, traceDuration);
 		}else{
 			throw new IllegalArgumentException("Invalid profile type for state machine: "
 					+ profile.getClass());
 		}
+		if (markPackets) {
+			for (int index = 0; index < states.length; index++) {
+				packets.get(index).setStateMachine(states[index]);
+			}
+		}
+		return result;
 	}
 	/**
 	 * This method contains the main algorithm for creating the List of
@@ -67,36 +88,27 @@ public class RrcStateRangeFactoryImpl implements IRrcStateRangeFactory {
 	 *            LTE profile
 	 * @return list of RRC State range values.
 	 */
-	private List<RrcStateRange> createLTE(List<PacketInfo> packetlist,
+	private List<RrcStateRange> createLTE(PacketTable packets, RRCState[] states,
 			ProfileLTE profile, double traceDuration) {
 
 		// Create results list
 		ArrayList<RrcStateRange> result = new ArrayList<RrcStateRange>();
 
 		// Iterate through packets in trace
-		if(packetlist == null) {
-			result.add(new RrcStateRange(0.0, traceDuration,
-				RRCState.LTE_IDLE));
-			return result;
-		}
-		Iterator<PacketInfo> iter = packetlist.iterator();
-		PacketInfo packet;
-		if (iter.hasNext()) {
+		if (packets.size() > 0) {
 
 			// Track time of state changes
 			double timer = 0.0;
 
 			// Keep timestamp of previous packet in iteration
-			packet = iter.next();
-			packet.setStateMachine(RRCState.LTE_CONTINUOUS);
-			double last = packet.getTimeStamp();
+			states[0] = RRCState.LTE_CONTINUOUS;
+			double last = packets.getTimestamp(0);
 
 			// First packet starts continuous reception
 			timer = promoteLTE(result, timer, last, profile);
-			while (iter.hasNext()) {
-				packet = iter.next();
-				packet.setStateMachine(RRCState.LTE_CONTINUOUS);
-				double curr = packet.getTimeStamp();
+			for (int index = 1; index < packets.size(); index++) {
+				states[index] = RRCState.LTE_CONTINUOUS;
+				double curr = packets.getTimestamp(index);
 
 				// Check to see if we dropped to CR tail
 				if (curr - last > profile.getInactivityTimer()) {
@@ -210,33 +222,29 @@ public class RrcStateRangeFactoryImpl implements IRrcStateRangeFactory {
 		return end;
 	}
 	
-	private List<RrcStateRange> createWiFi(List<PacketInfo> packetlist , ProfileWiFi profile, double traceDuration) {
+	private List<RrcStateRange> createWiFi(PacketTable packets, RRCState[] states, ProfileWiFi profile, double traceDuration) {
 		
 
 		// Create results list
 		ArrayList<RrcStateRange> result = new ArrayList<RrcStateRange>();
 
 		// Iterate through packets in trace
-		Iterator<PacketInfo> iter = packetlist.iterator();
-		PacketInfo packet;
-		if (iter.hasNext()) {
+		if (packets.size() > 0) {
 
 			// Track time of state changes
 			double timer = 0.0;
 
 			// Keep timestamp of previous packet in iteration
-			packet = iter.next();
-			packet.setStateMachine(RRCState.WIFI_ACTIVE);
-			double last = packet.getTimeStamp();
+			states[0] = RRCState.WIFI_ACTIVE;
+			double last = packets.getTimestamp(0);
  
 			// Idle state till first packet is received
 			result.add(new RrcStateRange(timer, last, RRCState.WIFI_IDLE));
 			timer = last;
 			 
-			while (iter.hasNext()) {
-				packet = iter.next();
-				packet.setStateMachine(RRCState.WIFI_ACTIVE);
-				double curr = packet.getTimeStamp();
+			for (int index = 1; index < packets.size(); index++) {
+				states[index] = RRCState.WIFI_ACTIVE;
+				double curr = packets.getTimestamp(index);
 
 				// Check to see if we dropped to WiFi Active
 				if (curr - last > profile.getWifiTailTime()) {
@@ -297,12 +305,10 @@ public class RrcStateRangeFactoryImpl implements IRrcStateRangeFactory {
 	 *            3G profile
 	 * @return list of RRC State range values.
 	 */
-	private List<RrcStateRange> create3G(List<PacketInfo> packetlist, Profile3G profile, double traceDuration) {
-
-		List<PacketInfo> packetInfos = packetlist;
+	private List<RrcStateRange> create3G(PacketTable packetInfos, RRCState[] states, Profile3G profile, double traceDuration) {
 
 		List<RrcStateRange> result = new ArrayList<RrcStateRange>();
-		if (packetInfos != null && !packetInfos.isEmpty()) {
+		if (!packetInfos.isEmpty()) {
 
 			// Get important profile info
 			double idleDchPromoAvg = profile.getIdleDchPromoAvg();
@@ -321,8 +327,9 @@ public class RrcStateRangeFactoryImpl implements IRrcStateRangeFactory {
 
 			// Set up initial packet
 			PacketInfo prevPacket = packetInfos.get(0);
-			double currTimeStamp = prevPacket.getTimeStamp();
-			prevPacket.setStateMachine(RRCState.PROMO_IDLE_DCH);
+			double prevPacketTimeStamp = packetInfos.getTimestamp(0);
+			double currTimeStamp = prevPacketTimeStamp;
+			states[0] = RRCState.PROMO_IDLE_DCH;
 
 			// Add initial idle state
 			addStateRangeEx(result, 0, Double.MAX_VALUE, RRCState.STATE_IDLE, currTimeStamp);
@@ -342,15 +349,15 @@ public class RrcStateRangeFactoryImpl implements IRrcStateRangeFactory {
 
 					// Iteration on a packet
 					packet = packetInfos.get(i);
-					dir = packet.getDir();
-					currTimeStamp = packet.getTimeStamp();
-					currLen = packet.getLen();
+					dir = packetInfos.getDirection(i);
+					currTimeStamp = packetInfos.getTimestamp(i);
+					currLen = packetInfos.getLength(i);
 				}
-				double prevTimeStamp = (prevPacket == null ? 0.0 : prevPacket.getTimeStamp());
+				double prevTimeStamp = (prevPacket == null ? 0.0 : prevPacketTimeStamp);
 				double deltaTime = currTimeStamp - prevTimeStamp;
 
 				RRCState state = null; // the next state to be determined
-				RRCState promoState = (prevPacket == null ? RRCState.STATE_IDLE : prevPacket.getStateMachine());
+				RRCState promoState = (prevPacket == null ? RRCState.STATE_IDLE : states[i - 1]);
 				
 				if(promoState == RRCState.PROMO_IDLE_DCH || promoState == RRCState.PROMO_FACH_DCH){
 					double promoAvg, promoMin, promoMax;
@@ -609,16 +616,15 @@ public class RrcStateRangeFactoryImpl implements IRrcStateRangeFactory {
 												// packet
 										boolean bFixed = false;
 										for (int ii = i - 1; ii > 0; ii--) {
-											PacketInfo earlierPacket = packetInfos.get(ii);
-											if (earlierPacket.getStateMachine() == RRCState.STATE_FACH) {
+											if (states[ii] == RRCState.STATE_FACH) {
 												// FACH-DCH promo: from
 												// packets[ii].ts to
 												// packets[ii].ts+y
 												// DCH: from packets[ii].ts+y to
 												// tMax
 
-												double piTimeStamp = packetInfos.get(ii).getTimeStamp();
-												if (earlierPacket.getDir() == PacketDirection.UPLINK
+												double piTimeStamp = packetInfos.getTimestamp(ii);
+												if (packetInfos.getDirection(ii) == PacketDirection.UPLINK
 														&& currTimeStamp >= piTimeStamp + fachDchPromoMin) {
 													int resultSize = result.size() - 1;
 													// boolean bDone = false;
@@ -713,9 +719,10 @@ public class RrcStateRangeFactoryImpl implements IRrcStateRangeFactory {
 				
 
 				if (packet != null) {
-					packet.setStateMachine(state);
+					states[i] = state;
 				}
 				prevPacket = packet;
+				prevPacketTimeStamp = currTimeStamp;
 			}
 		}
 
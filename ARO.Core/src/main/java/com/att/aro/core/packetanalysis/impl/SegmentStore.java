@@ -0,0 +1,261 @@
+/*
+ *  Copyright 2019 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.core.packetanalysis.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+import com.att.aro.core.packetanalysis.pojo.ContentDigest;
+
+/**
+ * Keeps the segments and manifests of the video analysis of a trace in a
+ * directory, each under the SHA-256 digest of its content.
+ * <p>
+ * Content already in the directory, from an earlier analysis of the trace,
+ * is not written again. The name a content would have had is mapped to its
+ * file in an index file, written by close() along with the removal of the
+ * files the analysis did not use. Thumbnails are kept next to the segments,
+ * under the digest of the segment they were taken from.
+ * <p>
+ * put, readThumbnail and saveThumbnail are safe to call from any thread.
+ */
+public class SegmentStore {
+
+	private static final Logger LOG = LogManager.getLogger(SegmentStore.class.getName());
+
+	/**
+	 * Name of the index file, one line per content with its name and its file
+	 * separated by a tab.
+	 */
+	public static final String INDEX_FILE = "segment_index.txt";
+
+	private static final String THUMBNAIL_SUFFIX = "_thumbnail.png";
+	private static final Pattern EXTENSION = Pattern.compile(".*(\\.[A-Za-z0-9]{1,5})");
+
+	private String directory;
+	private final Map<String, String> index = new TreeMap<>();
+	private final Set<String> used = new HashSet<>();
+
+	private long written;
+	private long reused;
+
+	/**
+	 * Starts an analysis storing into directory, an existing directory.
+	 */
+	public synchronized void open(String directory) {
+		this.directory = directory.endsWith(File.separator) ? directory : directory + File.separator;
+		index.clear();
+		used.clear();
+		written = 0;
+		reused = 0;
+	}
+
+	public synchronized boolean isOpen() {
+		return directory != null;
+	}
+
+	/**
+	 * Stores content and maps name to it.
+	 *
+	 * @param name the path the content would have been written to, the index
+	 *            keeps it relative to the directory
+	 * @param content
+	 * @param digest the hex digest of content, see ContentDigest.toHex, null to
+	 *            compute it
+	 * @return the path of the file holding content
+	 * @throws IOException if the content could not be written
+	 */
+	public String put(String name, byte[] content, String digest) throws IOException {
+		String storeDirectory = getDirectory();
+		String fileName = (digest != null ? digest : digest(content)) + extension(name);
+		store(storeDirectory, fileName, content);
+		synchronized (this) {
+			index.put(name.startsWith(storeDirectory) ? name.substring(storeDirectory.length()) : name, fileName);
+			used.add(fileName);
+		}
+		return storeDirectory + fileName;
+	}
+
+	/**
+	 * Returns the thumbnail saved for the segment with digest, null if there is
+	 * none or the store is not open.
+	 */
+	public byte[] readThumbnail(String digest) {
+		String storeDirectory;
+		synchronized (this) {
+			if (directory == null) {
+				return null;
+			}
+			storeDirectory = directory;
+		}
+		Path path = Paths.get(storeDirectory + digest + THUMBNAIL_SUFFIX);
+		if (!Files.isRegularFile(path)) {
+			return null;
+		}
+		try {
+			byte[] thumbnail = Files.readAllBytes(path);
+			synchronized (this) {
+				used.add(digest + THUMBNAIL_SUFFIX);
+				reused++;
+			}
+			return thumbnail;
+		} catch (IOException e) {
+			LOG.warn("Failed to read " + path + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Saves the thumbnail of the segment with digest, does nothing if the store
+	 * is not open.
+	 */
+	public void saveThumbnail(String digest, byte[] thumbnail) {
+		String storeDirectory;
+		synchronized (this) {
+			if (directory == null || thumbnail == null) {
+				return;
+			}
+			storeDirectory = directory;
+		}
+		try {
+			store(storeDirectory, digest + THUMBNAIL_SUFFIX, thumbnail);
+			synchronized (this) {
+				used.add(digest + THUMBNAIL_SUFFIX);
+			}
+		} catch (IOException e) {
+			LOG.warn("Failed to save thumbnail " + digest + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Writes the index, removes the files the analysis did not use and ends the
+	 * analysis.
+	 */
+	public synchronized void close() {
+		if (directory == null) {
+			return;
+		}
+		List<String> lines = new ArrayList<>(index.size());
+		for (Map.Entry<String, String> entry : index.entrySet()) {
+			lines.add(entry.getKey() + "\t" + entry.getValue());
+		}
+		try {
+			Files.write(Paths.get(directory + INDEX_FILE), lines, StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			LOG.error("Failed to write " + directory + INDEX_FILE, e);
+		}
+
+		int removed = 0;
+		File[] files = new File(directory).listFiles();
+		if (files != null) {
+			for (File file : files) {
+				if (file.isFile() && !INDEX_FILE.equals(file.getName()) && !used.contains(file.getName())) {
+					if (file.delete()) {
+						removed++;
+					} else {
+						LOG.debug("Failed to delete " + file);
+					}
+				}
+			}
+		}
+		LOG.info(String.format("Segment store %s: %d files written, %d reused, %d removed", directory, written, reused, removed));
+		directory = null;
+	}
+
+	/**
+	 * Returns the number of files written since open.
+	 */
+	public synchronized long getWritten() {
+		return written;
+	}
+
+	/**
+	 * Returns the number of contents and thumbnails found in the directory
+	 * since open.
+	 */
+	public synchronized long getReused() {
+		return reused;
+	}
+
+	/**
+	 * Returns the hex SHA-256 digest of content.
+	 */
+	public static String digest(byte[] content) {
+		return ContentDigest.of(content).toHex();
+	}
+
+	private synchronized String getDirectory() {
+		if (directory == null) {
+			throw new IllegalStateException("Segment store is not open");
+		}
+		return directory;
+	}
+
+	/**
+	 * Writes content to fileName unless a file of the same length is there,
+	 * through a temporary file so a file by its digest name is always
+	 * complete.
+	 */
+	private void store(String storeDirectory, String fileName, byte[] content) throws IOException {
+		Path path = Paths.get(storeDirectory + fileName);
+		if (Files.isRegularFile(path) && Files.size(path) == content.length) {
+			synchronized (this) {
+				reused++;
+			}
+			return;
+		}
+		Path temp = Paths.get(storeDirectory + fileName + "." + Thread.currentThread().getId() + ".tmp");
+		try {
+			Files.write(temp, content);
+			try {
+				Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+		synchronized (this) {
+			written++;
+		}
+	}
+
+	/**
+	 * Returns the extension of the last element of name, empty if it has none.
+	 */
+	private static String extension(String name) {
+		int pos = Math.max(name.lastIndexOf('/'), name.lastIndexOf('\\'));
+		Matcher matcher = EXTENSION.matcher(name.substring(pos + 1));
+		return matcher.matches() ? matcher.group(1).toLowerCase() : "";
+	}
+}
@@ -15,23 +15,30 @@
 */
 package com.att.aro.core.packetanalysis.impl;
 
-import java.io.BufferedOutputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.UnaryOperator;
 import java.util.regex.Matcher;
 
 import org.apache.commons.lang.StringUtils;
@@ -43,11 +50,13 @@ import com.att.aro.core.packetanalysis.IByteArrayLineReader;
 import com.att.aro.core.packetanalysis.IParseHeaderLine;
 import com.att.aro.core.packetanalysis.IRequestResponseBuilder;
 import com.att.aro.core.packetanalysis.ISessionManager;
+import com.att.aro.core.packetanalysis.pojo.FlowKey;
 import com.att.aro.core.packetanalysis.pojo.HttpDirection;
 import com.att.aro.core.packetanalysis.pojo.HttpPattern;
 import com.att.aro.core.packetanalysis.pojo.HttpRequestResponseInfo;
 import com.att.aro.core.packetanalysis.pojo.PacketInfo;
 import com.att.aro.core.packetanalysis.pojo.RequestResponseTimeline;
+import com.att.aro.core.packetanalysis.pojo.SequenceIndex;
 import com.att.aro.core.packetanalysis.pojo.Session;
 import com.att.aro.core.packetanalysis.pojo.TcpInfo;
 import com.att.aro.core.packetanalysis.pojo.Termination;
@@ -63,6 +72,15 @@ public class SessionManagerImpl implements ISessionManager {
 
 	private static final Logger LOGGER = LogManager.getLogger(SessionManagerImpl.class.getName());
 
+	private static final byte[][] REQUEST_PREFIXES = prefixes("GET", "POST", "HEAD", "PUT", "DELETE", "TRACE", "OPTIONS", "CONNECT", "PATCH");
+	private static final byte[][] RESPONSE_PREFIXES = prefixes("HTTP/1.", "RTSP/1.");
+	private static final int MESSAGE_PREFIX_LENGTH = 7;
+
+	/**
+	 * Minimum number of packets for which sessions are assembled in parallel.
+	 */
+	static final int PARALLEL_THRESHOLD = 20000;
+
 	@Autowired
 	IRequestResponseBuilder requestResponseBuilder;
 	
@@ -70,6 +88,10 @@ public class SessionManagerImpl implements ISessionManager {
 	private IParseHeaderLine parseHeaderLine;
 
 	private String tracePath = "";
+
+	private int parallelism = 1;
+
+	private int parallelThreshold = PARALLEL_THRESHOLD;
 	
 	private IByteArrayLineReader storageReader;
 	
@@ -90,457 +112,852 @@ public class SessionManagerImpl implements ISessionManager {
 		wellKnownPorts.put("RTSP", 554);
 	}
 	
+	/**
+	 * Sets the number of threads used to assemble sessions. Above 1, captures of
+	 * at least parallelThreshold packets are partitioned by connection and
+	 * assembled on a ForkJoinPool, the result is the same as the sequential pass.
+	 * 
+	 * @param parallelism
+	 */
+	public void setParallelism(int parallelism) {
+		this.parallelism = Math.max(1, parallelism);
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
 	public List<Session> processPacketsAndAssembleSessions(List<PacketInfo> packets) {
 		
-		List<Session> sessions = new ArrayList<>();
-		List<PacketInfo> udpPackets = new ArrayList<>();
-		Map<InetAddress, String> hostMap = new HashMap<>();
-		Map<String, Session> udpSessions = new LinkedHashMap<>();
-		Map<String, PacketInfo> dnsRequestDomains = new HashMap<>();
-		Map<String, List<Session>> tcpSessions = new LinkedHashMap<>();
-		Map<InetAddress, PacketInfo> dnsResponsePackets = new HashMap<>();
-		
+		if (packets != null && parallelism > 1 && packets.size() >= parallelThreshold) {
+			return assembleSessionsInParallel(packets);
+		}
+
+		SessionAssembler assembler = new SessionAssembler(collectDnsHistory(packets));
 		if (packets != null) {
+			int index = 0;
 			for (PacketInfo packetInfo : packets) {
-				Packet packet = packetInfo.getPacket();
-				
-				if (packet instanceof UDPPacket) {
-					udpPackets.add(packetInfo);
-					if (((UDPPacket)packet).isDNSPacket()) {
-						DomainNameSystem dns = ((UDPPacket)packet).getDns();
-						if (dns != null && dns.isResponse()) {
-							for (InetAddress inet : dns.getIpAddresses()) {
-								hostMap.put(inet, dns.getDomainName());
-								dnsResponsePackets.put(inet, packetInfo);
-							}
-						} else if (dns != null && !dns.isResponse()) {
-							dnsRequestDomains.put(dns.getDomainName(), packetInfo);
-						}	
-					}
-					associatePacketToUDPSessionAndPopulateCollections(sessions, udpSessions, packetInfo, (UDPPacket) packet);
+				assembler.add(index++, packetInfo);
+			}
+		}
+		
+		List<Session> sessions = assembler.getSessions();
+		Collections.sort(sessions);
+		for (Session session : sessions) {
+			analyzeRequestResponses(session, storageReader);
+		}
+		return sessions;
+	}
+
+	@Override
+	public List<Session> assembleFilteredSessions(List<PacketInfo> packets, List<Session> baseSessions, UnaryOperator<PacketInfo> packetCopies) {
+
+		List<PacketInfo> baseDnsPackets = new ArrayList<>();
+		Map<String, List<Session>> connections = new LinkedHashMap<>();
+		for (Session session : baseSessions) {
+			if (session.isUdpOnly()) {
+				baseDnsPackets.addAll(session.getUdpPackets());
+			}
+			connections.computeIfAbsent((session.isUdpOnly() ? "UDP " : "TCP ") + session.getSessionKey(), key -> new ArrayList<>()).add(session);
+		}
+		DnsHistory baseDnsHistory = collectDnsHistory(baseDnsPackets);
+
+		List<Session> sessions = new ArrayList<>(baseSessions.size());
+		Set<PacketInfo> partial = Collections.newSetFromMap(new IdentityHashMap<>());
+		for (List<Session> connection : connections.values()) {
+			if (isWholeInView(connection, packets, baseDnsHistory, packetCopies)) {
+				for (Session session : connection) {
+					sessions.add(session.copy(packetCopies));
 				}
-				
-				if (packet instanceof TCPPacket) {
-					TCPPacket tcpPacket = (TCPPacket) packet;
-					packetInfo.setTcpInfo(null);
-					Session session = associatePacketToTCPSessionAndPopulateCollections(sessions, tcpSessions, packetInfo, tcpPacket);
-					
-					populateTCPPacketInfo(packetInfo, tcpPacket);
-					
-					session.setSsl(session.isSsl() ? session.isSsl() : tcpPacket.isSsl());
-					if (tcpPacket.isDecrypted()) {
-						tcpPacket.setDataOffset(0);
-						session.setDecrypted(true);
-					}
-					if (session.getDnsResponsePacket() == null && dnsResponsePackets.containsKey(session.getRemoteIP())) {
-						session.setDnsResponsePacket(dnsResponsePackets.get(session.getRemoteIP()));
-						session.setDomainName((((UDPPacket)(session.getDnsResponsePacket()).getPacket()).getDns()).getDomainName());
-					}
-					if (session.getDnsRequestPacket() == null && StringUtils.isNotBlank(session.getDomainName()) && dnsRequestDomains.containsKey(session.getDomainName())) {
-						session.setRemoteHostName(session.getDomainName());
-						session.setDnsRequestPacket(dnsRequestDomains.get(session.getDomainName()));
-					} else {
-						session.setRemoteHostName(hostMap.get(session.getRemoteIP()));
+			} else {
+				for (Session session : connection) {
+					for (PacketInfo packetInfo : session.getAllPackets()) {
+						PacketInfo copy = packetCopies.apply(packetInfo);
+						if (isInView(packets, copy)) {
+							partial.add(copy);
+						}
 					}
-					if (tcpPacket.isSslHandshake()) {
-						session.setLastSslHandshakePacket(packetInfo);
+				}
+			}
+		}
+
+		if (!partial.isEmpty()) {
+			SessionAssembler assembler = new SessionAssembler(collectDnsHistory(packets));
+			for (int index = 0; index < packets.size(); index++) {
+				PacketInfo packetInfo = packets.get(index);
+				if (partial.contains(packetInfo)) {
+					// the copy carries the marks of the base assembly
+					packetInfo.clearAnalysis();
+					assembler.add(index, packetInfo);
+				}
+			}
+			for (Session session : assembler.getSessions()) {
+				analyzeRequestResponses(session, storageReader);
+			}
+			sessions.addAll(assembler.getSessions());
+			LOGGER.debug("Reused " + (sessions.size() - assembler.getSessions().size()) + " sessions, assembled " + assembler.getSessions().size() + " from " + partial.size() + " packets");
+		}
+
+		// start time first, then the order a single pass over the view creates them in
+		sessions.sort(Comparator.<Session>naturalOrder().thenComparingInt(SessionManagerImpl::firstPacketId));
+		return sessions;
+	}
+
+	/**
+	 * Returns true if the view holds every packet of the connection and every
+	 * DNS packet its TCP sessions could have taken their names from, so
+	 * assembling the view yields the same sessions.
+	 */
+	private boolean isWholeInView(List<Session> connection, List<PacketInfo> packets, DnsHistory baseDnsHistory, UnaryOperator<PacketInfo> packetCopies) {
+		for (Session session : connection) {
+			for (PacketInfo packetInfo : session.getAllPackets()) {
+				if (!isInView(packets, packetCopies.apply(packetInfo))) {
+					return false;
+				}
+			}
+			if (!session.isUdpOnly()) {
+				for (DnsEntry response : baseDnsHistory.getResponses(session.getRemoteIP())) {
+					if (!isInView(packets, packetCopies.apply(response.packetInfo))) {
+						return false;
 					}
-					if (packetInfo.getAppName() != null) {
-						session.getAppNames().add(packetInfo.getAppName());
+					for (DnsEntry request : baseDnsHistory.getRequests(response.domainName)) {
+						if (!isInView(packets, packetCopies.apply(request.packetInfo))) {
+							return false;
+						}
 					}
 				}
 			}
 		}
-		
-		Collections.sort(sessions);
-		analyzeRequestResponses(sessions);
-		return sessions;
+		return true;
 	}
 
-	private void populateTCPPacketInfo(PacketInfo packetInfo, TCPPacket tcpPacket) {
-		if (tcpPacket.isSYN()) {
-			packetInfo.setTcpInfo(TcpInfo.TCP_ESTABLISH);
-		} else if (tcpPacket.isFIN()) {
-			packetInfo.setTcpInfo(TcpInfo.TCP_CLOSE);
-		} else if (tcpPacket.isRST()) {
-			packetInfo.setTcpInfo(TcpInfo.TCP_RESET);
+	private static boolean isInView(List<PacketInfo> packets, PacketInfo packetInfo) {
+		int index = packetInfo.getPacketId() - 1;
+		return index >= 0 && index < packets.size() && packets.get(index) == packetInfo;
+	}
+
+	private static int firstPacketId(Session session) {
+		List<PacketInfo> sessionPackets = session.getPackets().isEmpty() ? session.getUdpPackets() : session.getPackets();
+		return sessionPackets.isEmpty() ? 0 : sessionPackets.get(0).getPacketId();
+	}
+
+	/**
+	 * Partitions the packets by connection so every session is assembled by a
+	 * single shard, then merges the shards back in capture order before the
+	 * sessions are sorted and their requests/responses analyzed.
+	 */
+	private List<Session> assembleSessionsInParallel(List<PacketInfo> packets) {
+
+		final PacketInfo[] packetArray = packets.toArray(new PacketInfo[packets.size()]);
+		final DnsHistory dnsHistory = collectDnsHistory(packets);
+		int[][] shards = partitionByConnection(packetArray, parallelism);
+
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			List<Callable<SessionAssembler>> tasks = new ArrayList<>(shards.length);
+			for (final int[] shard : shards) {
+				tasks.add(() -> {
+					SessionAssembler assembler = new SessionAssembler(dnsHistory);
+					for (int index : shard) {
+						assembler.add(index, packetArray[index]);
+					}
+					return assembler;
+				});
+			}
+
+			List<SessionAssembler> assemblers = new ArrayList<>(shards.length);
+			for (Future<SessionAssembler> future : pool.invokeAll(tasks)) {
+				assemblers.add(future.get());
+			}
+
+			List<Session> sessions = mergeInCaptureOrder(assemblers);
+			Collections.sort(sessions);
+			pool.invoke(new AnalyzeSessionsTask(sessions, 0, sessions.size()));
+			LOGGER.debug("Assembled " + sessions.size() + " sessions from " + packetArray.length + " packets on " + parallelism + " threads");
+			return sessions;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Session assembly was interrupted", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException("Session assembly failed", e.getCause());
+		} finally {
+			pool.shutdown();
 		}
-		if (packetInfo.getPayloadLen() > 0) {
-			packetInfo.setTcpInfo(TcpInfo.TCP_DATA);
+	}
+
+	/**
+	 * Returns the shard of every connection as arrays of packet indexes in
+	 * capture order. The hash is symmetric so both directions of a connection
+	 * land in the same shard.
+	 */
+	private int[][] partitionByConnection(PacketInfo[] packets, int shardCount) {
+
+		int[] packetShards = new int[packets.length];
+		int[] shardSizes = new int[shardCount];
+		for (int index = 0; index < packets.length; index++) {
+			Packet packet = packets[index].getPacket();
+			int shard = -1;
+			if (packet instanceof TCPPacket) {
+				TCPPacket tcpPacket = (TCPPacket) packet;
+				shard = connectionHash(tcpPacket.getSourceIPAddress(), tcpPacket.getSourcePort(), tcpPacket.getDestinationIPAddress(), tcpPacket.getDestinationPort()) % shardCount;
+			} else if (packet instanceof UDPPacket) {
+				UDPPacket udpPacket = (UDPPacket) packet;
+				shard = connectionHash(udpPacket.getSourceIPAddress(), udpPacket.getSourcePort(), udpPacket.getDestinationIPAddress(), udpPacket.getDestinationPort()) % shardCount;
+			}
+			packetShards[index] = shard;
+			if (shard >= 0) {
+				shardSizes[shard]++;
+			}
+		}
+
+		int[][] shards = new int[shardCount][];
+		for (int shard = 0; shard < shardCount; shard++) {
+			shards[shard] = new int[shardSizes[shard]];
+			shardSizes[shard] = 0;
 		}
+		for (int index = 0; index < packets.length; index++) {
+			int shard = packetShards[index];
+			if (shard >= 0) {
+				shards[shard][shardSizes[shard]++] = index;
+			}
+		}
+		return shards;
 	}
 
-	private Session associatePacketToUDPSessionAndPopulateCollections(List<Session> sessions, Map<String, Session> udpSessions, PacketInfo packetInfo, UDPPacket packet) {
+	private static int connectionHash(InetAddress sourceIP, int sourcePort, InetAddress destinationIP, int destinationPort) {
+		int hash = (31 * sourceIP.hashCode() + sourcePort) ^ (31 * destinationIP.hashCode() + destinationPort);
+		hash ^= hash >>> 16;
+		return hash & Integer.MAX_VALUE;
+	}
 
-		int localPort;
-		int remotePort;
-		Session session;
-		InetAddress localIP;
-		InetAddress remoteIP;
-		
-		switch (packetInfo.getDir()) {
-			case UPLINK:
-				localIP = packet.getSourceIPAddress();
-				localPort = packet.getSourcePort();
-				remoteIP = packet.getDestinationIPAddress();
-				remotePort = packet.getDestinationPort();
-				break;
-			case DOWNLINK:
-				localIP = packet.getDestinationIPAddress();
-				localPort = packet.getDestinationPort();
-				remoteIP = packet.getSourceIPAddress();
-				remotePort = packet.getSourcePort();
-				break;
-			default:
-				localIP = packet.getSourceIPAddress();
-				localPort = packet.getSourcePort();
-				remoteIP = packet.getDestinationIPAddress();
-				remotePort = packet.getDestinationPort();
-				LOGGER.warn("29 - Unable to determine packet direction");
-				break;
+	private static String sessionKey(InetAddress localIP, int localPort, int remotePort, InetAddress remoteIP) {
+		return localIP.getHostAddress() + " " + localPort + " " + remotePort + " " + remoteIP.getHostAddress();
+	}
+
+	/**
+	 * Merges the sessions of all shards in the order the sequential pass would
+	 * have created them, which keeps the stable sort on start time identical.
+	 */
+	private List<Session> mergeInCaptureOrder(List<SessionAssembler> assemblers) {
+
+		int total = 0;
+		for (SessionAssembler assembler : assemblers) {
+			total += assembler.getSessions().size();
 		}
-		
-		String sessionKey = localIP.getHostAddress() + " " + localPort + " " + remotePort + " " + remoteIP.getHostAddress();
-		if (!udpSessions.containsKey(sessionKey)) {
-			session = new Session(localIP, remoteIP, remotePort, localPort, sessionKey);
-			if (packet.isDNSPacket()) {
-				DomainNameSystem dns = packet.getDns();
-				if (dns != null) {
-					session.setRemoteHostName(dns.getDomainName());
-					session.setDomainName(dns.getDomainName());
+
+		List<Session> sessions = new ArrayList<>(total);
+		int[] positions = new int[assemblers.size()];
+		while (sessions.size() < total) {
+			int next = -1;
+			for (int shard = 0; shard < assemblers.size(); shard++) {
+				SessionAssembler assembler = assemblers.get(shard);
+				if (positions[shard] < assembler.getSessions().size()
+						&& (next < 0 || assembler.getCreatedAt(positions[shard]) < assemblers.get(next).getCreatedAt(positions[next]))) {
+					next = shard;
 				}
 			}
-			if (session.getRemoteHostName() == null) {
-				session.setRemoteHostName(session.getRemoteIP().getHostAddress());
+			sessions.add(assemblers.get(next).getSessions().get(positions[next]++));
+		}
+		return sessions;
+	}
+
+	/**
+	 * Records the DNS responses and requests of the capture, in capture order.
+	 */
+	private DnsHistory collectDnsHistory(List<PacketInfo> packets) {
+
+		DnsHistory dnsHistory = new DnsHistory();
+		if (packets != null) {
+			int index = 0;
+			for (PacketInfo packetInfo : packets) {
+				Packet packet = packetInfo.getPacket();
+				if (packet instanceof UDPPacket && ((UDPPacket) packet).isDNSPacket()) {
+					DomainNameSystem dns = ((UDPPacket) packet).getDns();
+					if (dns != null && dns.isResponse()) {
+						for (InetAddress inet : dns.getIpAddresses()) {
+							dnsHistory.addResponse(inet, index, packetInfo, dns.getDomainName());
+						}
+					} else if (dns != null && !dns.isResponse()) {
+						dnsHistory.addRequest(dns.getDomainName(), index, packetInfo);
+					}
+				}
+				index++;
 			}
-			session.setUdpOnly(true);
-			sessions.add(session);
-			udpSessions.put(sessionKey, session);
-		} else {
-			session = udpSessions.get(sessionKey);
 		}
-		session.setBytesTransferred(session.getBytesTransferred() + packetInfo.getPayloadLen());
-		session.addUdpPacket(packetInfo);
-		return session;
+		return dnsHistory;
 	}
 
-	private Session associatePacketToTCPSessionAndPopulateCollections(List<Session> sessions, Map<String, List<Session>> tcpSessions, PacketInfo packetInfo, TCPPacket tcpPacket) {
+	/**
+	 * Associates packets to sessions. The sequential pass feeds every packet to
+	 * one assembler, the parallel pass feeds each shard of connections to its
+	 * own assembler.
+	 */
+	private class SessionAssembler {
+
+		private final DnsHistory dnsHistory;
+		private final List<Session> sessions = new ArrayList<>();
+		private final List<Integer> createdAt = new ArrayList<>();
+		private final Map<FlowKey, Session> udpSessions = new HashMap<>();
+		private final Map<FlowKey, List<Session>> tcpSessions = new HashMap<>();
+		private final Map<InetAddress, Integer> addressIds = new HashMap<>();
 
-		int localPort;
-		int remotePort;
-		Session session;
-		InetAddress localIP;
-		InetAddress remoteIP;
+		SessionAssembler(DnsHistory dnsHistory) {
+			this.dnsHistory = dnsHistory;
+		}
 
-		switch (packetInfo.getDir()) {
-			case UPLINK:
-				localIP = tcpPacket.getSourceIPAddress();
-				localPort = tcpPacket.getSourcePort();
-				remoteIP = tcpPacket.getDestinationIPAddress();
-				remotePort = tcpPacket.getDestinationPort();
-				break;
+		List<Session> getSessions() {
+			return sessions;
+		}
+
+		/**
+		 * Returns the capture index of the packet that created the session at position.
+		 */
+		int getCreatedAt(int position) {
+			return createdAt.get(position);
+		}
+
+		private Session associatePacketToUDPSessionAndPopulateCollections(PacketInfo packetInfo, UDPPacket packet) {
+
+			int localPort;
+			int remotePort;
+			Session session;
+			InetAddress localIP;
+			InetAddress remoteIP;
+		
+			switch (packetInfo.getDir()) {
+				case UPLINK:
+					localIP = packet.getSourceIPAddress();
+					localPort = packet.getSourcePort();
+					remoteIP = packet.getDestinationIPAddress();
+					remotePort = packet.getDestinationPort();
+					break;
+				case DOWNLINK:
+					localIP = packet.getDestinationIPAddress();
+					localPort = packet.getDestinationPort();
+					remoteIP = packet.getSourceIPAddress();
+					remotePort = packet.getSourcePort();
+					break;
+				default:
+					localIP = packet.getSourceIPAddress();
+					localPort = packet.getSourcePort();
+					remoteIP = packet.getDestinationIPAddress();
+					remotePort = packet.getDestinationPort();
+					LOGGER.warn("29 - Unable to determine packet direction");
+					break;
+			}
+		
+			FlowKey flowKey = FlowKey.of(addressId(localIP), localPort, remotePort, addressId(remoteIP));
+			session = udpSessions.get(flowKey);
+			if (session == null) {
+				session = new Session(localIP, remoteIP, remotePort, localPort, sessionKey(localIP, localPort, remotePort, remoteIP));
+				if (packet.isDNSPacket()) {
+					DomainNameSystem dns = packet.getDns();
+					if (dns != null) {
+						session.setRemoteHostName(dns.getDomainName());
+						session.setDomainName(dns.getDomainName());
+					}
+				}
+				if (session.getRemoteHostName() == null) {
+					session.setRemoteHostName(session.getRemoteIP().getHostAddress());
+				}
+				session.setUdpOnly(true);
+				sessions.add(session);
+				udpSessions.put(flowKey, session);
+			}
+			session.setBytesTransferred(session.getBytesTransferred() + packetInfo.getPayloadLen());
+			session.addUdpPacket(packetInfo);
+			return session;
+		}
+
+		private Session associatePacketToTCPSessionAndPopulateCollections(PacketInfo packetInfo, TCPPacket tcpPacket) {
+
+			int localPort;
+			int remotePort;
+			Session session;
+			InetAddress localIP;
+			InetAddress remoteIP;
+
+			switch (packetInfo.getDir()) {
+				case UPLINK:
+					localIP = tcpPacket.getSourceIPAddress();
+					localPort = tcpPacket.getSourcePort();
+					remoteIP = tcpPacket.getDestinationIPAddress();
+					remotePort = tcpPacket.getDestinationPort();
+					break;
 	
-			case DOWNLINK:
-				localIP = tcpPacket.getDestinationIPAddress();
-				localPort = tcpPacket.getDestinationPort();
-				remoteIP = tcpPacket.getSourceIPAddress();
-				remotePort = tcpPacket.getSourcePort();
-				break;
+				case DOWNLINK:
+					localIP = tcpPacket.getDestinationIPAddress();
+					localPort = tcpPacket.getDestinationPort();
+					remoteIP = tcpPacket.getSourceIPAddress();
+					remotePort = tcpPacket.getSourcePort();
+					break;
 	
-			default:
-				localIP = tcpPacket.getSourceIPAddress();
-				localPort = tcpPacket.getSourcePort();
-				remoteIP = tcpPacket.getDestinationIPAddress();
-				remotePort = tcpPacket.getDestinationPort();
-				LOGGER.warn("29 - Unable to determine packet direction. Assuming Uplink");
-				break;
-		}
+				default:
+					localIP = tcpPacket.getSourceIPAddress();
+					localPort = tcpPacket.getSourcePort();
+					remoteIP = tcpPacket.getDestinationIPAddress();
+					remotePort = tcpPacket.getDestinationPort();
+					LOGGER.warn("29 - Unable to determine packet direction. Assuming Uplink");
+					break;
+			}
 		
 		
-		String sessionKey = localIP.getHostAddress() + " " + localPort + " " + remotePort + " " + remoteIP.getHostAddress();
+			FlowKey flowKey = FlowKey.of(addressId(localIP), localPort, remotePort, addressId(remoteIP));
+			List<Session> tcpSessionList = tcpSessions.get(flowKey);
 		
-		if (!tcpSessions.containsKey(sessionKey)) {
+			if (tcpSessionList == null) {
 			
-			session = new Session(localIP, remoteIP, remotePort, localPort, sessionKey);
-			sessions.add(session);
-			List<Session> tcpSessionList = new ArrayList<>();
-			tcpSessionList.add(session);
-			tcpSessions.put(sessionKey, tcpSessionList);
+				session = new Session(localIP, remoteIP, remotePort, localPort, sessionKey(localIP, localPort, remotePort, remoteIP));
+				sessions.add(session);
+				tcpSessionList = new ArrayList<>();
+				tcpSessionList.add(session);
+				tcpSessions.put(flowKey, tcpSessionList);
 			
-		} else {
+			} else {
 
-			session = (tcpSessions.get(sessionKey)).get(tcpSessions.get(sessionKey).size() - 1);
+				session = tcpSessionList.get(tcpSessionList.size() - 1);
 
-			if (tcpPacket.isSYN() && packetInfo.getDir().equals(PacketDirection.UPLINK)) {
+				if (tcpPacket.isSYN() && packetInfo.getDir().equals(PacketDirection.UPLINK)) {
 				
-				if (!session.getUplinkPackets().containsKey(tcpPacket.getSequenceNumber())) {
-					session = new Session(localIP, remoteIP, remotePort, localPort, sessionKey);
-					sessions.add(session);
-					tcpSessions.get(sessionKey).add(session);
+					if (!session.getUplinkPackets().containsKey(SequenceIndex.unwrap(tcpPacket.getSequenceNumber(), session.getBaseUplinkSequenceNumber()))) {
+						session = new Session(localIP, remoteIP, remotePort, localPort, session.getSessionKey());
+						sessions.add(session);
+						tcpSessionList.add(session);
 					
-				} else {
-					tcpPacket.setRetransmission(true);
+					} else {
+						tcpPacket.setRetransmission(true);
+					}
 				}
 			}
-		}
 		
-		if (session.getBaseUplinkSequenceNumber() == 0 && packetInfo.getDir().equals(PacketDirection.UPLINK)) {
-			session.setBaseUplinkSequenceNumber(tcpPacket.getSequenceNumber());
-		} 
+			if (session.getBaseUplinkSequenceNumber() == 0 && packetInfo.getDir().equals(PacketDirection.UPLINK)) {
+				session.setBaseUplinkSequenceNumber(tcpPacket.getSequenceNumber());
+			} 
 		
-		if (session.getBaseDownlinkSequenceNumber() == 0 && packetInfo.getDir().equals(PacketDirection.DOWNLINK)) {
-			session.setBaseDownlinkSequenceNumber(tcpPacket.getSequenceNumber());
-		}
+			if (session.getBaseDownlinkSequenceNumber() == 0 && packetInfo.getDir().equals(PacketDirection.DOWNLINK)) {
+				session.setBaseDownlinkSequenceNumber(tcpPacket.getSequenceNumber());
+			}
 		
-		if (!session.getPackets().isEmpty() && (tcpPacket.isFIN() || tcpPacket.isRST())) {
-			PacketInfo previousPacket = session.getPackets().get(session.getPackets().size() - 1);
-			double delay = packetInfo.getTimeStamp() - previousPacket.getTimeStamp();
-			session.setSessionTermination(new Termination(packetInfo, delay));
-		}
+			if (!session.getPackets().isEmpty() && (tcpPacket.isFIN() || tcpPacket.isRST())) {
+				PacketInfo previousPacket = session.getPackets().get(session.getPackets().size() - 1);
+				double delay = packetInfo.getTimeStamp() - previousPacket.getTimeStamp();
+				session.setSessionTermination(new Termination(packetInfo, delay));
+			}
 		
-		boolean packetAdditionComplete = session.addTcpPacket(packetInfo, tcpPacket.getSequenceNumber());
-		session.setBytesTransferred(session.getBytesTransferred() + packetInfo.getPayloadLen());
-		if (!packetAdditionComplete) {
-			packetInfo.setTcpInfo(TcpInfo.TCP_DATA_DUP);
-		}
+			boolean packetAdditionComplete = session.addTcpPacket(packetInfo, tcpPacket.getSequenceNumber());
+			session.setBytesTransferred(session.getBytesTransferred() + packetInfo.getPayloadLen());
+			if (!packetAdditionComplete) {
+				packetInfo.setTcpInfo(TcpInfo.TCP_DATA_DUP);
+			}
 		
-		return session;
+			return session;
+		}
+
+		private int addressId(InetAddress address) {
+			Integer id = addressIds.get(address);
+			if (id == null) {
+				id = addressIds.size();
+				addressIds.put(address, id);
+			}
+			return id;
+		}
+
+		void add(int index, PacketInfo packetInfo) {
+			Packet packet = packetInfo.getPacket();
+			int sessionCount = sessions.size();
+
+			if (packet instanceof UDPPacket) {
+				associatePacketToUDPSessionAndPopulateCollections(packetInfo, (UDPPacket) packet);
+			}
+			
+			if (packet instanceof TCPPacket) {
+				TCPPacket tcpPacket = (TCPPacket) packet;
+				packetInfo.setTcpInfo(null);
+				Session session = associatePacketToTCPSessionAndPopulateCollections(packetInfo, tcpPacket);
+				
+				populateTCPPacketInfo(packetInfo, tcpPacket);
+				
+				session.setSsl(session.isSsl() ? session.isSsl() : tcpPacket.isSsl());
+				if (tcpPacket.isDecrypted()) {
+					tcpPacket.setDataOffset(0);
+					session.setDecrypted(true);
+				}
+				// only DNS packets captured before this packet are visible, as in a single pass
+				DnsEntry dnsResponse = dnsHistory.getResponse(session.getRemoteIP(), index);
+				if (session.getDnsResponsePacket() == null && dnsResponse != null) {
+					session.setDnsResponsePacket(dnsResponse.packetInfo);
+					session.setDomainName(dnsResponse.domainName);
+				}
+				DnsEntry dnsRequest = null;
+				if (session.getDnsRequestPacket() == null && StringUtils.isNotBlank(session.getDomainName())) {
+					dnsRequest = dnsHistory.getRequest(session.getDomainName(), index);
+				}
+				if (dnsRequest != null) {
+					session.setRemoteHostName(session.getDomainName());
+					session.setDnsRequestPacket(dnsRequest.packetInfo);
+				} else {
+					session.setRemoteHostName(dnsResponse != null ? dnsResponse.domainName : null);
+				}
+				if (tcpPacket.isSslHandshake()) {
+					session.setLastSslHandshakePacket(packetInfo);
+				}
+				if (packetInfo.getAppName() != null) {
+					session.getAppNames().add(packetInfo.getAppName());
+				}
+			}
+
+			for (int created = sessionCount; created < sessions.size(); created++) {
+				createdAt.add(index);
+			}
+		}
+	}
+
+	/**
+	 * DNS responses by resolved address and DNS requests by domain name, each
+	 * in capture order so a lookup can be limited to earlier packets.
+	 */
+	private static class DnsHistory {
+
+		private final Map<InetAddress, List<DnsEntry>> responses = new HashMap<>();
+		private final Map<String, List<DnsEntry>> requests = new HashMap<>();
+
+		void addResponse(InetAddress inet, int index, PacketInfo packetInfo, String domainName) {
+			responses.computeIfAbsent(inet, key -> new ArrayList<>()).add(new DnsEntry(index, packetInfo, domainName));
+		}
+
+		void addRequest(String domainName, int index, PacketInfo packetInfo) {
+			requests.computeIfAbsent(domainName, key -> new ArrayList<>()).add(new DnsEntry(index, packetInfo, domainName));
+		}
+
+		DnsEntry getResponse(InetAddress inet, int index) {
+			return latestBefore(responses.get(inet), index);
+		}
+
+		DnsEntry getRequest(String domainName, int index) {
+			return latestBefore(requests.get(domainName), index);
+		}
+
+		List<DnsEntry> getResponses(InetAddress inet) {
+			return responses.getOrDefault(inet, Collections.emptyList());
+		}
+
+		List<DnsEntry> getRequests(String domainName) {
+			return requests.getOrDefault(domainName, Collections.emptyList());
+		}
+
+		private static DnsEntry latestBefore(List<DnsEntry> entries, int index) {
+			if (entries == null) {
+				return null;
+			}
+			int low = 0;
+			int high = entries.size() - 1;
+			DnsEntry latest = null;
+			while (low <= high) {
+				int middle = (low + high) >>> 1;
+				DnsEntry entry = entries.get(middle);
+				if (entry.index < index) {
+					latest = entry;
+					low = middle + 1;
+				} else {
+					high = middle - 1;
+				}
+			}
+			return latest;
+		}
+	}
+
+	private static class DnsEntry {
+
+		private final int index;
+		private final PacketInfo packetInfo;
+		private final String domainName;
+
+		DnsEntry(int index, PacketInfo packetInfo, String domainName) {
+			this.index = index;
+			this.packetInfo = packetInfo;
+			this.domainName = domainName;
+		}
+	}
+
+	/**
+	 * Analyzes the requests/responses of a range of sorted sessions, each leaf
+	 * task uses its own line reader.
+	 */
+	private class AnalyzeSessionsTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+		private static final int BATCH_SIZE = 16;
+
+		private final List<Session> sessions;
+		private final int from;
+		private final int to;
+
+		AnalyzeSessionsTask(List<Session> sessions, int from, int to) {
+			this.sessions = sessions;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= BATCH_SIZE) {
+				IByteArrayLineReader reader = new ByteArrayLineReaderImpl();
+				for (int position = from; position < to; position++) {
+					analyzeRequestResponses(sessions.get(position), reader);
+				}
+			} else {
+				int middle = (from + to) >>> 1;
+				invokeAll(new AnalyzeSessionsTask(sessions, from, middle), new AnalyzeSessionsTask(sessions, middle, to));
+			}
+		}
 	}
 
-	private void analyzeRequestResponses(List<Session> sessions) {
+	private void populateTCPPacketInfo(PacketInfo packetInfo, TCPPacket tcpPacket) {
+		if (tcpPacket.isSYN()) {
+			packetInfo.setTcpInfo(TcpInfo.TCP_ESTABLISH);
+		} else if (tcpPacket.isFIN()) {
+			packetInfo.setTcpInfo(TcpInfo.TCP_CLOSE);
+		} else if (tcpPacket.isRST()) {
+			packetInfo.setTcpInfo(TcpInfo.TCP_RESET);
+		}
+		if (packetInfo.getPayloadLen() > 0) {
+			packetInfo.setTcpInfo(TcpInfo.TCP_DATA);
+		}
+	}
+
+	private void analyzeRequestResponses(Session session, IByteArrayLineReader reader) {
 		
-		ArrayList<HttpRequestResponseInfo> results;
-		for (Session session : sessions) {
-			
-			results = new ArrayList<>();
-			
-			if (session.isUdpOnly()) {
-				HttpRequestResponseInfo rrInfo = null;
-				HttpRequestResponseInfo recentUpRRInfo = null;
-				HttpRequestResponseInfo recentDnRRInfo = null;
-				for (PacketInfo udpPacketInfo : session.getUdpPackets()) {
-					try {
-						switch (udpPacketInfo.getDir()) {
-						case UPLINK:
-							if (!session.isDataInaccessible()) {
-								rrInfo = extractHttpRequestResponseInfo(session, udpPacketInfo, udpPacketInfo.getDir());
-							}
-							if (rrInfo != null) {
+		ArrayList<HttpRequestResponseInfo> results = new ArrayList<>();
+		
+		if (session.isUdpOnly()) {
+			HttpRequestResponseInfo rrInfo = null;
+			HttpRequestResponseInfo recentUpRRInfo = null;
+			HttpRequestResponseInfo recentDnRRInfo = null;
+			for (PacketInfo udpPacketInfo : session.getUdpPackets()) {
+				try {
+					switch (udpPacketInfo.getDir()) {
+					case UPLINK:
+						if (!session.isDataInaccessible()) {
+							rrInfo = extractHttpRequestResponseInfo(session, udpPacketInfo, udpPacketInfo.getDir(), reader);
+						}
+						if (rrInfo != null) {
+							results.add(rrInfo);
+							rrInfo.setFirstDataPacket(udpPacketInfo);
+							rrInfo.setLastDataPacket(udpPacketInfo);
+							recentUpRRInfo = rrInfo;
+						} else {
+							if (recentUpRRInfo == null) {
+								// Creating a Request Objects when no actual requests were found.
+								session.setDataInaccessible(true);
+								rrInfo = new HttpRequestResponseInfo(session.getRemoteHostName(), udpPacketInfo.getDir());
+								rrInfo.setDirection(HttpDirection.REQUEST);
 								results.add(rrInfo);
 								rrInfo.setFirstDataPacket(udpPacketInfo);
 								rrInfo.setLastDataPacket(udpPacketInfo);
 								recentUpRRInfo = rrInfo;
-							} else {
-								if (recentUpRRInfo == null) {
-									// Creating a Request Objects when no actual requests were found.
-									session.setDataInaccessible(true);
-									rrInfo = new HttpRequestResponseInfo(session.getRemoteHostName(), udpPacketInfo.getDir());
-									rrInfo.setDirection(HttpDirection.REQUEST);
-									results.add(rrInfo);
-									rrInfo.setFirstDataPacket(udpPacketInfo);
-									rrInfo.setLastDataPacket(udpPacketInfo);
-									recentUpRRInfo = rrInfo;
-								}
-
-								if (recentUpRRInfo != null && udpPacketInfo.getPayloadLen() != 0) {
-									recentUpRRInfo.setLastDataPacket(udpPacketInfo);
-									recentUpRRInfo.setContentLength(recentUpRRInfo.getContentLength() + udpPacketInfo.getPayloadLen());
-									recentUpRRInfo.setRawSize(recentUpRRInfo.getRawSize() + udpPacketInfo.getLen());
-								}
 							}
-							rrInfo = null;
-							recentUpRRInfo.writePayload(udpPacketInfo, false, 0);
-							recentUpRRInfo.addUDPPacket(udpPacketInfo);
-							break;
 
-						case DOWNLINK:
-							if (!session.isDataInaccessible()) {
-								rrInfo = extractHttpRequestResponseInfo(session, udpPacketInfo, udpPacketInfo.getDir());
+							if (recentUpRRInfo != null && udpPacketInfo.getPayloadLen() != 0) {
+								recentUpRRInfo.setLastDataPacket(udpPacketInfo);
+								recentUpRRInfo.setContentLength(recentUpRRInfo.getContentLength() + udpPacketInfo.getPayloadLen());
+								recentUpRRInfo.setRawSize(recentUpRRInfo.getRawSize() + udpPacketInfo.getLen());
 							}
-							if (rrInfo != null) {
+						}
+						rrInfo = null;
+						recentUpRRInfo.writePayload(udpPacketInfo, false, 0);
+						recentUpRRInfo.addUDPPacket(udpPacketInfo);
+						break;
+
+					case DOWNLINK:
+						if (!session.isDataInaccessible()) {
+							rrInfo = extractHttpRequestResponseInfo(session, udpPacketInfo, udpPacketInfo.getDir(), reader);
+						}
+						if (rrInfo != null) {
+							results.add(rrInfo);
+							rrInfo.setFirstDataPacket(udpPacketInfo);
+							rrInfo.setLastDataPacket(udpPacketInfo);
+							recentDnRRInfo = rrInfo;
+						} else {
+
+							if (recentDnRRInfo == null) {
+								rrInfo = new HttpRequestResponseInfo(session.getRemoteHostName(), udpPacketInfo.getDir());
+								rrInfo.setDirection(HttpDirection.RESPONSE);
 								results.add(rrInfo);
 								rrInfo.setFirstDataPacket(udpPacketInfo);
 								rrInfo.setLastDataPacket(udpPacketInfo);
 								recentDnRRInfo = rrInfo;
-							} else {
-
-								if (recentDnRRInfo == null) {
-									rrInfo = new HttpRequestResponseInfo(session.getRemoteHostName(), udpPacketInfo.getDir());
-									rrInfo.setDirection(HttpDirection.RESPONSE);
-									results.add(rrInfo);
-									rrInfo.setFirstDataPacket(udpPacketInfo);
-									rrInfo.setLastDataPacket(udpPacketInfo);
-									recentDnRRInfo = rrInfo;
-								}
-
-								if (recentDnRRInfo != null && udpPacketInfo.getPayloadLen() != 0) {
-									recentDnRRInfo.setLastDataPacket(udpPacketInfo);
-									recentDnRRInfo.setContentLength(recentDnRRInfo.getContentLength() + udpPacketInfo.getPayloadLen());
-									recentDnRRInfo.setRawSize(recentDnRRInfo.getRawSize() + udpPacketInfo.getLen());
-								}
 							}
-							rrInfo = null;
-							recentDnRRInfo.writePayload(udpPacketInfo, false, 0);
-							recentDnRRInfo.addUDPPacket(udpPacketInfo);
-							break;
 
-						default:
-							LOGGER.warn("91 - No direction for packet");
-							continue;
+							if (recentDnRRInfo != null && udpPacketInfo.getPayloadLen() != 0) {
+								recentDnRRInfo.setLastDataPacket(udpPacketInfo);
+								recentDnRRInfo.setContentLength(recentDnRRInfo.getContentLength() + udpPacketInfo.getPayloadLen());
+								recentDnRRInfo.setRawSize(recentDnRRInfo.getRawSize() + udpPacketInfo.getLen());
+							}
 						}
-					} catch (IOException e) {
-						LOGGER.error("Error Storing data to UDP Request Response Obect. Session ID: " + session.getSessionKey());
+						rrInfo = null;
+						recentDnRRInfo.writePayload(udpPacketInfo, false, 0);
+						recentDnRRInfo.addUDPPacket(udpPacketInfo);
+						break;
+
+					default:
+						LOGGER.warn("91 - No direction for packet");
+						continue;
 					}
+				} catch (IOException e) {
+					LOGGER.error("Error Storing data to UDP Request Response Obect. Session ID: " + session.getSessionKey());
 				}
+			}
+			
+		} else {
+			
+			analyzeACK(session);
+			analyzeZeroWindow(session);
+			analyzeRecoverPkts(session);
+			PacketInfo packetInfo = null;
+			TCPPacket tcpPacket = null;
+			HttpRequestResponseInfo rrInfo = null;
+			HttpRequestResponseInfo tempRRInfo = null;
+			
+			try {
 				
-			} else {
-				
-				analyzeACK(session);
-				analyzeZeroWindow(session);
-				analyzeRecoverPkts(session);
-				PacketInfo packetInfo = null;
-				TCPPacket tcpPacket = null;
-				HttpRequestResponseInfo rrInfo = null;
-				HttpRequestResponseInfo tempRRInfo = null;
+				boolean isOSSecure = tryAndHandleIOSSescureSessions(session);
 				
-				try {
-					
-					boolean isOSSecure = tryAndHandleIOSSescureSessions(session);
-					
-					if (!isOSSecure) {
-						long expectedUploadSeqNo = 0;
-						for (long uploadSequenceNumber : session.getUplinkPackets().keySet()) {
-							packetInfo = session.getUplinkPackets().get(uploadSequenceNumber);
-							tcpPacket = (TCPPacket) packetInfo.getPacket();
-							if (packetInfo.getPayloadLen() > 0) {
-								if (!session.isDataInaccessible()) {
-									rrInfo = extractHttpRequestResponseInfo(session, packetInfo, packetInfo.getDir());
+				if (!isOSSecure) {
+					long expectedUploadSeqNo = 0;
+					SequenceIndex uplinkPackets = session.getUplinkPackets();
+					for (int index = 0; index < uplinkPackets.size(); index++) {
+						long uploadSequenceNumber = uplinkPackets.keyAt(index);
+						packetInfo = uplinkPackets.valueAt(index);
+						tcpPacket = (TCPPacket) packetInfo.getPacket();
+						if (packetInfo.getPayloadLen() > 0) {
+							if (!session.isDataInaccessible()) {
+								rrInfo = extractHttpRequestResponseInfo(session, packetInfo, packetInfo.getDir(), reader);
+							}
+							if (rrInfo != null) {
+								tempRRInfo = rrInfo;
+								results.add(rrInfo);
+								rrInfo.setFirstDataPacket(packetInfo);
+								rrInfo.setLastDataPacket(packetInfo);
+								rrInfo.writeHeader(packetInfo, rrInfo.getHeaderOffset());
+								rrInfo.writePayload(packetInfo, true, rrInfo.getHeaderOffset());
+								expectedUploadSeqNo = uploadSequenceNumber + tcpPacket.getPayloadLen();
+							} else if (tempRRInfo != null) {
+								int headerDelta = 0;
+								boolean flag = false;
+								if (!session.isDataInaccessible() && !tempRRInfo.isHeaderParseComplete()) {
+									flag = true;
+									headerDelta = setHeaderOffset(tempRRInfo, packetInfo, tcpPacket, reader);
+									tempRRInfo.writeHeader(packetInfo, headerDelta);
 								}
-								if (rrInfo != null) {
-									tempRRInfo = rrInfo;
-									results.add(rrInfo);
-									rrInfo.setFirstDataPacket(packetInfo);
-									rrInfo.setLastDataPacket(packetInfo);
-									rrInfo.writeHeader(packetInfo, rrInfo.getHeaderOffset());
-									rrInfo.writePayload(packetInfo, true, rrInfo.getHeaderOffset());
+
+								tempRRInfo.setLastDataPacket(packetInfo);
+								tempRRInfo.setRawSize(tempRRInfo.getRawSize() + packetInfo.getLen() - headerDelta);
+								if (uploadSequenceNumber == expectedUploadSeqNo) {
 									expectedUploadSeqNo = uploadSequenceNumber + tcpPacket.getPayloadLen();
-								} else if (tempRRInfo != null) {
-									int headerDelta = 0;
-									boolean flag = false;
-									if (!session.isDataInaccessible() && !tempRRInfo.isHeaderParseComplete()) {
-										flag = true;
-										headerDelta = setHeaderOffset(tempRRInfo, packetInfo, tcpPacket);
-										tempRRInfo.writeHeader(packetInfo, headerDelta);
-									}
-
-									tempRRInfo.setLastDataPacket(packetInfo);
-									tempRRInfo.setRawSize(tempRRInfo.getRawSize() + packetInfo.getLen() - headerDelta);
-									if (tcpPacket.getSequenceNumber() == expectedUploadSeqNo) {
-										expectedUploadSeqNo = tcpPacket.getSequenceNumber() + tcpPacket.getPayloadLen();
-										tempRRInfo.writePayload(packetInfo, flag, headerDelta);
-									} else if (tcpPacket.getSequenceNumber() < expectedUploadSeqNo) {
-										tcpPacket.setRetransmission(true);
-									} else {
-										LOGGER.warn("Identified the following Request is corrupt. Session: " + session.getSessionKey() + ". Request Age: " + tempRRInfo.getAge());
-										tempRRInfo.setCorrupt(true);
-										tempRRInfo.writePayload(packetInfo, false, 0);
-									}
+									tempRRInfo.writePayload(packetInfo, flag, headerDelta);
+								} else if (uploadSequenceNumber < expectedUploadSeqNo) {
+									tcpPacket.setRetransmission(true);
 								} else {
-									session.setDataInaccessible(true);
-									rrInfo = new HttpRequestResponseInfo(session.getRemoteHostName(), packetInfo.getDir());
-									expectedUploadSeqNo = uploadSequenceNumber + tcpPacket.getPayloadLen();
-									rrInfo.setTCP(true);
-									results.add(rrInfo);
-									rrInfo.setDirection(HttpDirection.REQUEST);
-									tempRRInfo = rrInfo;
-									rrInfo.setFirstDataPacket(packetInfo);
-									rrInfo.setLastDataPacket(packetInfo);
+									LOGGER.warn("Identified the following Request is corrupt. Session: " + session.getSessionKey() + ". Request Age: " + tempRRInfo.getAge());
+									tempRRInfo.setCorrupt(true);
+									tempRRInfo.writePayload(packetInfo, false, 0);
 								}
-								rrInfo = null;
-								tempRRInfo.addTCPPacket(uploadSequenceNumber, packetInfo);
+							} else {
+								session.setDataInaccessible(true);
+								rrInfo = new HttpRequestResponseInfo(session.getRemoteHostName(), packetInfo.getDir());
+								expectedUploadSeqNo = uploadSequenceNumber + tcpPacket.getPayloadLen();
+								rrInfo.setTCP(true);
+								results.add(rrInfo);
+								rrInfo.setDirection(HttpDirection.REQUEST);
+								tempRRInfo = rrInfo;
+								rrInfo.setFirstDataPacket(packetInfo);
+								rrInfo.setLastDataPacket(packetInfo);
 							}
+							rrInfo = null;
+							tempRRInfo.addTCPPacket(uploadSequenceNumber, packetInfo);
 						}
+					}
 
-						rrInfo = null;
-						tempRRInfo = null;
-
-						long expectedDownloadSeqNo = 0;
-						for (long downloadSequenceNumber : session.getDownlinkPackets().keySet()) {
-							packetInfo = session.getDownlinkPackets().get(downloadSequenceNumber);
-							tcpPacket = (TCPPacket) packetInfo.getPacket();
-							if (packetInfo.getPayloadLen() > 0) {
-								if (!session.isDataInaccessible()) {
-									rrInfo = extractHttpRequestResponseInfo(session, packetInfo, packetInfo.getDir());
+					rrInfo = null;
+					tempRRInfo = null;
+
+					long expectedDownloadSeqNo = 0;
+					SequenceIndex downlinkPackets = session.getDownlinkPackets();
+					for (int index = 0; index < downlinkPackets.size(); index++) {
+						long downloadSequenceNumber = downlinkPackets.keyAt(index);
+						packetInfo = downlinkPackets.valueAt(index);
+						tcpPacket = (TCPPacket) packetInfo.getPacket();
+						if (packetInfo.getPayloadLen() > 0) {
+							if (!session.isDataInaccessible()) {
+								rrInfo = extractHttpRequestResponseInfo(session, packetInfo, packetInfo.getDir(), reader);
+							}
+							if (rrInfo != null) {
+								tempRRInfo = rrInfo;
+								results.add(rrInfo);
+								rrInfo.setFirstDataPacket(packetInfo);
+								rrInfo.setLastDataPacket(packetInfo);
+								rrInfo.writeHeader(packetInfo, rrInfo.getHeaderOffset());
+								rrInfo.writePayload(packetInfo, true, rrInfo.getHeaderOffset());
+								expectedDownloadSeqNo = downloadSequenceNumber + tcpPacket.getPayloadLen();
+							} else if (tempRRInfo != null) {
+								boolean flag = false;
+								int headerDelta = 0;
+								if (!session.isDataInaccessible() && !tempRRInfo.isHeaderParseComplete()) {
+									headerDelta = setHeaderOffset(tempRRInfo, packetInfo, tcpPacket, reader);
+									tempRRInfo.writeHeader(packetInfo, headerDelta);
+									flag = true;
 								}
-								if (rrInfo != null) {
-									tempRRInfo = rrInfo;
-									results.add(rrInfo);
-									rrInfo.setFirstDataPacket(packetInfo);
-									rrInfo.setLastDataPacket(packetInfo);
-									rrInfo.writeHeader(packetInfo, rrInfo.getHeaderOffset());
-									rrInfo.writePayload(packetInfo, true, rrInfo.getHeaderOffset());
+
+								tempRRInfo.setLastDataPacket(packetInfo);
+								tempRRInfo.setRawSize(tempRRInfo.getRawSize() + packetInfo.getLen() - headerDelta);
+								if (downloadSequenceNumber == expectedDownloadSeqNo) {
 									expectedDownloadSeqNo = downloadSequenceNumber + tcpPacket.getPayloadLen();
-								} else if (tempRRInfo != null) {
-									boolean flag = false;
-									int headerDelta = 0;
-									if (!session.isDataInaccessible() && !tempRRInfo.isHeaderParseComplete()) {
-										headerDelta = setHeaderOffset(tempRRInfo, packetInfo, tcpPacket);
-										tempRRInfo.writeHeader(packetInfo, headerDelta);
-										flag = true;
-									}
-
-									tempRRInfo.setLastDataPacket(packetInfo);
-									tempRRInfo.setRawSize(tempRRInfo.getRawSize() + packetInfo.getLen() - headerDelta);
-									if (tcpPacket.getSequenceNumber() == expectedDownloadSeqNo) {
-										expectedDownloadSeqNo = tcpPacket.getSequenceNumber() + tcpPacket.getPayloadLen();
-										tempRRInfo.writePayload(packetInfo, flag, headerDelta);
-									} else if (tcpPacket.getSequenceNumber() < expectedDownloadSeqNo) {
-										tcpPacket.setRetransmission(true);
-									} else {
-										LOGGER.warn("Identified the following Response is corrupt. Session: " + session.getSessionKey() + ". Request Age: " + tempRRInfo.getAge());
-										tempRRInfo.setCorrupt(true);
-										tempRRInfo.writePayload(packetInfo, false, 0);
-									}
+									tempRRInfo.writePayload(packetInfo, flag, headerDelta);
+								} else if (downloadSequenceNumber < expectedDownloadSeqNo) {
+									tcpPacket.setRetransmission(true);
 								} else {
-									rrInfo = new HttpRequestResponseInfo(session.getRemoteHostName(), packetInfo.getDir());
-									expectedDownloadSeqNo = downloadSequenceNumber + tcpPacket.getPayloadLen();
-									rrInfo.setTCP(true);
-									rrInfo.setDirection(HttpDirection.RESPONSE);
-									results.add(rrInfo);
-									tempRRInfo = rrInfo;
-									rrInfo.setFirstDataPacket(packetInfo);
-									rrInfo.setLastDataPacket(packetInfo);
+									LOGGER.warn("Identified the following Response is corrupt. Session: " + session.getSessionKey() + ". Request Age: " + tempRRInfo.getAge());
+									tempRRInfo.setCorrupt(true);
+									tempRRInfo.writePayload(packetInfo, false, 0);
 								}
-								rrInfo = null;
-								tempRRInfo.addTCPPacket(downloadSequenceNumber, packetInfo);
+							} else {
+								rrInfo = new HttpRequestResponseInfo(session.getRemoteHostName(), packetInfo.getDir());
+								expectedDownloadSeqNo = downloadSequenceNumber + tcpPacket.getPayloadLen();
+								rrInfo.setTCP(true);
+								rrInfo.setDirection(HttpDirection.RESPONSE);
+								results.add(rrInfo);
+								tempRRInfo = rrInfo;
+								rrInfo.setFirstDataPacket(packetInfo);
+								rrInfo.setLastDataPacket(packetInfo);
 							}
+							rrInfo = null;
+							tempRRInfo.addTCPPacket(downloadSequenceNumber, packetInfo);
 						}
-
 					}
-				} catch (IOException e) {
-					LOGGER.error("Error Storing data to TCP Request Response Obect. Session ID: " + session.getSessionKey());
+
 				}
-			}
-			
-			Collections.sort(results);
-			session.setRequestResponseInfo(results);
-			populateDataForRequestResponses(session);
-			
-			if (session.getDomainName() == null) {
-				session.setDomainName(session.getRemoteHostName() != null ? session.getRemoteHostName() : session.getRemoteIP().getHostAddress());
+			} catch (IOException e) {
+				LOGGER.error("Error Storing data to TCP Request Response Obect. Session ID: " + session.getSessionKey());
 			}
 		}
+		
+		Collections.sort(results);
+		session.setRequestResponseInfo(results);
+		populateDataForRequestResponses(session);
+		
+		if (session.getDomainName() == null) {
+			session.setDomainName(session.getRemoteHostName() != null ? session.getRemoteHostName() : session.getRemoteIP().getHostAddress());
+		}
 	}
 
-	private int setHeaderOffset(HttpRequestResponseInfo rrInfo, PacketInfo packetInfo, TCPPacket tcpPacket) {
+	private int setHeaderOffset(HttpRequestResponseInfo rrInfo, PacketInfo packetInfo, TCPPacket tcpPacket, IByteArrayLineReader storageReader) {
 		String line;
-		ByteArrayOutputStream stream = new ByteArrayOutputStream();
-		BufferedOutputStream bufferedStream = new BufferedOutputStream(stream);
 
 		try {
-			bufferedStream.write(tcpPacket.getData(), tcpPacket.getDataOffset(), tcpPacket.getData().length - tcpPacket.getDataOffset());
-			bufferedStream.flush();
-			storageReader.init(stream.toByteArray());
+			storageReader.init(readPayload(tcpPacket));
 
 			while ((line = storageReader.readLine()) != null && line.length() != 0) {
 				parseHeaderLine.parseHeaderLine(line, rrInfo);
@@ -695,34 +1112,26 @@ public class SessionManagerImpl implements ISessionManager {
 		
 	}
 	
-	private HttpRequestResponseInfo extractHttpRequestResponseInfo(Session session, PacketInfo packetInfo, PacketDirection packetDirection) {
+	private HttpRequestResponseInfo extractHttpRequestResponseInfo(Session session, PacketInfo packetInfo, PacketDirection packetDirection, IByteArrayLineReader storageReader) {
 		
 		HttpRequestResponseInfo rrInfo = null;
 		
-		ByteArrayOutputStream stream = new ByteArrayOutputStream();
-		BufferedOutputStream bufferedStream = new BufferedOutputStream(stream);
-		
 		TCPPacket tcpPacket = null;
-		UDPPacket udpPacket = null;
+		byte[] payload = new byte[0];
 		if (packetInfo.getPacket() instanceof TCPPacket) {
 			tcpPacket = (TCPPacket) packetInfo.getPacket();
-			try {
-				bufferedStream.write(tcpPacket.getData(), tcpPacket.getDataOffset(), tcpPacket.getData().length-tcpPacket.getDataOffset());
-			} catch (Exception exception) {
-				LOGGER.error("Error Reading Data from TCP Packet: " + exception.getMessage());
-			}
-		} else {
-			udpPacket = (UDPPacket) packetInfo.getPacket();
-			try {
-				bufferedStream.write(udpPacket.getData(), udpPacket.getDataOffset(), udpPacket.getData().length-udpPacket.getDataOffset());
-			} catch (Exception exception) {
-				LOGGER.error("Error Reading Data from UDP Packet: " + exception.getMessage());
-			}
+		}
+		if (packetDirection != null && !startsMessage(packetInfo.getPacket(), packetDirection)) {
+			return null;
+		}
+		try {
+			payload = readPayload(packetInfo.getPacket());
+		} catch (Exception exception) {
+			LOGGER.error("Error Reading Data from " + (tcpPacket != null ? "TCP" : "UDP") + " Packet: " + exception.getMessage());
 		}
 		
 		try {
-			bufferedStream.flush();
-			storageReader.init(stream.toByteArray());
+			storageReader.init(payload);
 			String line = storageReader.readLine();
 			if (!(line == null || line.length() == 0)) {
 				if (packetDirection.equals(PacketDirection.UPLINK)) {
@@ -747,7 +1156,7 @@ public class SessionManagerImpl implements ISessionManager {
 						rrInfo.setPort(session.getRemotePort());
 						if (tcpPacket != null) {
 							rrInfo.setTCP(true);
-							rrInfo = populateRRInfo(session, tcpPacket, rrInfo);
+							rrInfo = populateRRInfo(session, tcpPacket, rrInfo, storageReader);
 						}
 					}
 				} else {
@@ -763,7 +1172,7 @@ public class SessionManagerImpl implements ISessionManager {
 						rrInfo.setPort(session.getLocalPort());
 						if (tcpPacket != null) {
 							rrInfo.setTCP(true);
-							rrInfo = populateRRInfo(session, tcpPacket, rrInfo);
+							rrInfo = populateRRInfo(session, tcpPacket, rrInfo, storageReader);
 						}
 					}
 				}
@@ -776,7 +1185,57 @@ public class SessionManagerImpl implements ISessionManager {
 	}
 	
 	
-	private HttpRequestResponseInfo populateRRInfo (Session session, TCPPacket tcpPacket, HttpRequestResponseInfo rrInfo) throws IOException {
+	/**
+	 * Returns the payload of packet in a new array.
+	 */
+	private byte[] readPayload(Packet packet) {
+		int offset = packet.getDataOffset();
+		byte[] payload = new byte[packet.getDataLength() - offset];
+		packet.readData(offset, payload, 0, payload.length);
+		return payload;
+	}
+
+	/**
+	 * Returns whether the payload of packet may start with a request line, for
+	 * uplink packets, or a status line. The request and status patterns only
+	 * match lines starting with a method or a protocol version, which lets most
+	 * body segments be skipped without copying them.
+	 */
+	private boolean startsMessage(Packet packet, PacketDirection packetDirection) {
+		byte[][] prefixes = packetDirection.equals(PacketDirection.UPLINK) ? REQUEST_PREFIXES : RESPONSE_PREFIXES;
+		int offset = packet.getDataOffset();
+		int length = packet.getDataLength() - offset;
+		if (length <= 0) {
+			return false;
+		}
+		byte[] start = new byte[Math.min(length, MESSAGE_PREFIX_LENGTH)];
+		packet.readData(offset, start, 0, start.length);
+		for (byte[] prefix : prefixes) {
+			if (start.length >= prefix.length && startsWith(start, prefix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean startsWith(byte[] data, byte[] prefix) {
+		for (int index = 0; index < prefix.length; index++) {
+			if (data[index] != prefix[index]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static byte[][] prefixes(String... values) {
+		byte[][] prefixes = new byte[values.length][];
+		for (int index = 0; index < values.length; index++) {
+			prefixes[index] = values[index].getBytes(StandardCharsets.US_ASCII);
+		}
+		return prefixes;
+	}
+
+	private HttpRequestResponseInfo populateRRInfo (Session session, TCPPacket tcpPacket, HttpRequestResponseInfo rrInfo, IByteArrayLineReader storageReader) throws IOException {
 		
 		String line;
 		
@@ -808,7 +1267,10 @@ public class SessionManagerImpl implements ISessionManager {
 			if (clearSessionRecFileUL.exists() && clearSessionRecFileDL.exists()) {
 				session.setStorageUl(Files.readAllBytes(clearSessionRecFileUL.toPath()));
 				session.setStorageDl(Files.readAllBytes(clearSessionRecFileDL.toPath()));
-				session.setRequestResponseInfo(requestResponseBuilder.createRequestResponseInfo(session));
+				// the builder keeps the session it is working on, sessions may be analyzed concurrently
+				synchronized (requestResponseBuilder) {
+					session.setRequestResponseInfo(requestResponseBuilder.createRequestResponseInfo(session));
+				}
 				session.setIOSSecureSession(true);
 				return true;
 			}
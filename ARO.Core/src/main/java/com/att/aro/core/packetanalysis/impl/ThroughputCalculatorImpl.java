@@ -21,6 +21,7 @@ import java.util.List;
 
 import com.att.aro.core.packetanalysis.IThroughputCalculator;
 import com.att.aro.core.packetanalysis.pojo.PacketInfo;
+import com.att.aro.core.packetanalysis.pojo.PacketTable;
 import com.att.aro.core.packetanalysis.pojo.Throughput;
 import com.att.aro.core.packetreader.pojo.PacketDirection;
 
@@ -29,53 +30,48 @@ public class ThroughputCalculatorImpl implements IThroughputCalculator {
 	public List<Throughput> calculateThroughput(double startTime, double endTime, double window,
 			List<PacketInfo> packets) {
 		List<Throughput> result = new ArrayList<Throughput>();
-		List<PacketInfo> split = new ArrayList<>();
 		if(window < 0.00001 || endTime-startTime < 0.00001) {
 			return Collections.emptyList();
 		}
+		PacketTable table = PacketTable.of(packets);
 		double splitStart = startTime;
 		double splitEnd = startTime + window;
-		for (PacketInfo packet : packets) {
-			double stamp = packet.getTimeStamp();
+		long up = 0;
+		long down = 0;
+		// packets before startTime are skipped, in a sorted table they can be skipped at once
+		for (int index = table.isSorted() ? table.indexAtOrAfter(startTime) : 0; index < table.size(); index++) {
+			double stamp = table.getTimestamp(index);
 			if (stamp < startTime) {
 				continue;
 			} else if (stamp >= endTime) {
-				result.add(getThroughput(splitStart, splitEnd, split));
+				result.add(new Throughput(splitStart, splitEnd, up, down));
 				break;
 			} else if (stamp >= splitEnd) {
 				while (stamp >= splitEnd) {
-					result.add(getThroughput(splitStart, splitEnd, split));
+					result.add(new Throughput(splitStart, splitEnd, up, down));
 					splitStart = splitEnd;
 					splitEnd = splitStart + window;
-					split = new ArrayList<>();
+					up = 0;
+					down = 0;
 				}
-				split.add(packet);
-			} else if (stamp >= splitStart) {
-				split.add(packet);
+			} else if (stamp < splitStart) {
+				continue;
+			}
+			PacketDirection dir = table.getDirection(index);
+			if (dir == PacketDirection.UPLINK) {
+				up += table.getLength(index);
+			} else if (dir != null && dir != PacketDirection.UNKNOWN) {
+				down += table.getLength(index);
 			}
 		}
 		do {
-			result.add(getThroughput(splitStart, splitEnd, split));
+			result.add(new Throughput(splitStart, splitEnd, up, down));
 			splitStart = splitEnd;
 			splitEnd = splitStart + window;
-			split = new ArrayList<>();
+			up = 0;
+			down = 0;
 		} while (endTime >= splitStart);
 		return result;
 	}
 
-	private Throughput getThroughput(double startTime, double endTime, List<PacketInfo> packets) {
-		long up = 0;
-		long down = 0;
-		for (PacketInfo packet : packets) {
-			if (packet.getDir() == null || packet.getDir() == PacketDirection.UNKNOWN) {
-				continue;
-			} else if (packet.getDir() == PacketDirection.UPLINK) {
-				up += packet.getLen();
-			} else {
-				down += packet.getLen();
-			}
-		}
-		return new Throughput(startTime, endTime, up, down);
-	}
-
 }
@@ -0,0 +1,370 @@
+/*
+ *  Copyright 2019 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.core.packetanalysis.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TimeZone;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.att.aro.core.packetanalysis.pojo.AbstractTraceResult;
+import com.att.aro.core.packetanalysis.pojo.Session;
+import com.att.aro.core.packetanalysis.pojo.TraceDataConst;
+import com.att.aro.core.packetreader.pojo.Packet;
+import com.att.aro.core.packetreader.pojo.PayloadArena;
+import com.att.aro.core.pojo.VersionInfo;
+import com.att.aro.core.util.Util;
+
+/**
+ * Keeps the trace read by the packet analyzer and the sessions assembled from
+ * all of its packets across runs of the tool, so opening an unchanged trace
+ * again skips reading the pcap and peripheral files and assembling the
+ * sessions.
+ * <p>
+ * The cache files are kept in a folder of the user library, never in the
+ * trace folder, one file per trace. A file starts with a header made of the
+ * format and tool versions, the time zone, the path of the trace and the name,
+ * size and last modified time of every file of the trace. A file whose header
+ * does not match the trace is deleted. The trace result and the sessions follow
+ * as serialized objects, only classes of the tool, the JDK collections and the
+ * JDK address types are accepted when they are read back. Once the folder
+ * holds more than the size limit, the least recently used files are deleted.
+ * <p>
+ * Traces with SSL keys are not cached, assembling the sessions of a filtered
+ * analysis needs the keys the trace reader loads.
+ */
+public class TraceAnalysisCache {
+
+	private static final Logger LOGGER = LogManager.getLogger(TraceAnalysisCache.class.getName());
+
+	private static final int MAGIC = 0x564F4143;
+
+	/**
+	 * Version of the cache layout, increment it when the layout or a cached
+	 * class changes incompatibly.
+	 */
+	private static final int FORMAT_VERSION = 3;
+
+	private static final String CACHE_EXT = ".cache";
+
+	public static final long DEFAULT_MAX_SIZE = 4L * 1024 * 1024 * 1024;
+
+	private File directory = new File(Util.getVideoOptimizerLibrary(), "AnalysisCache");
+	private long maxSize = DEFAULT_MAX_SIZE;
+	private boolean enabled = true;
+	private boolean offHeapPayload = false;
+	private String toolVersion = "";
+
+	/**
+	 * A trace result and the sessions assembled from all of its packets, as
+	 * loaded from the cache.
+	 */
+	public static final class Entry {
+		private final AbstractTraceResult result;
+		private final List<Session> sessions;
+
+		private Entry(AbstractTraceResult result, List<Session> sessions) {
+			this.result = result;
+			this.sessions = sessions;
+		}
+
+		public AbstractTraceResult getResult() {
+			return result;
+		}
+
+		public List<Session> getSessions() {
+			return sessions;
+		}
+	}
+
+	@Autowired
+	public void setVersionInfo(VersionInfo info) {
+		toolVersion = info.getVersion() + " " + info.getBuildTimestamp();
+	}
+
+	public void setToolVersion(String toolVersion) {
+		this.toolVersion = toolVersion;
+	}
+
+	public void setDirectory(File directory) {
+		this.directory = directory;
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Sets the size the cache folder is trimmed to after a store.
+	 */
+	public void setMaxSize(long maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Moves the data of the loaded packets into a PayloadArena, as
+	 * TraceDataReaderImpl does for the packets it reads.
+	 */
+	public void setOffHeapPayload(boolean offHeapPayload) {
+		this.offHeapPayload = offHeapPayload;
+	}
+
+	/**
+	 * Returns the trace read from tracePath and its sessions if they were
+	 * cached and none of the files of the trace changed since, otherwise null.
+	 * A cache file that does not match the trace or cannot be read is deleted.
+	 */
+	public Entry load(String tracePath) {
+		byte[] header = header(tracePath);
+		File file = cacheFile(tracePath);
+		if (header == null || !file.isFile()) {
+			return null;
+		}
+		long start = System.currentTimeMillis();
+		PayloadArena arena = offHeapPayload ? PayloadArena.create() : null;
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+			byte[] stored = new byte[header.length];
+			int length = input.readInt();
+			if (length == stored.length) {
+				input.readFully(stored);
+			}
+			if (!Arrays.equals(header, stored)) {
+				LOGGER.info("Trace changed, ignoring " + file);
+				input.close();
+				delete(file);
+				return null;
+			}
+			CacheInputStream objects = new CacheInputStream(input, arena);
+			AbstractTraceResult result = (AbstractTraceResult) objects.readObject();
+			List<Session> sessions = objects.readSessions();
+			if (arena != null) {
+				arena.seal();
+			}
+			file.setLastModified(System.currentTimeMillis());
+			LOGGER.info("Loaded " + result.getAllpackets().size() + " packets and " + sessions.size() + " sessions of " + tracePath + " from "
+					+ file + " in " + (System.currentTimeMillis() - start) + " ms");
+			return new Entry(result, sessions);
+		} catch (IOException | ClassNotFoundException | RuntimeException e) {
+			LOGGER.warn("Failed to read " + file + ": " + e);
+			delete(file);
+			return null;
+		}
+	}
+
+	/**
+	 * Writes result and sessions to the cache file of tracePath. Failures are
+	 * logged, the trace is then simply not cached.
+	 *
+	 * @param result
+	 *            The trace as read from tracePath.
+	 * @param sessions
+	 *            The sessions assembled from all packets of result.
+	 */
+	public void store(String tracePath, AbstractTraceResult result, List<Session> sessions) {
+		byte[] header = header(tracePath);
+		if (header == null || result.getAllpackets() == null || sessions == null) {
+			return;
+		}
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			LOGGER.warn("Failed to create " + directory);
+			return;
+		}
+		long start = System.currentTimeMillis();
+		File file = cacheFile(tracePath);
+		File temp = new File(file.getPath() + ".tmp");
+		try {
+			try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 1 << 16))) {
+				output.writeInt(header.length);
+				output.write(header);
+				ObjectOutputStream objects = new ObjectOutputStream(output);
+				objects.writeObject(result);
+				objects.writeObject(sessions);
+				objects.flush();
+			}
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			LOGGER.info("Stored " + tracePath + " to " + file + " in " + (System.currentTimeMillis() - start) + " ms");
+		} catch (IOException | RuntimeException e) {
+			LOGGER.warn("Failed to write " + file + ": " + e);
+			delete(temp);
+			return;
+		}
+		trim(file);
+	}
+
+	/**
+	 * Returns the header of the cache file of tracePath, null if caching is
+	 * disabled, the trace is neither a file nor a directory or holds SSL keys.
+	 */
+	private byte[] header(String tracePath) {
+		if (!enabled || tracePath == null) {
+			return null;
+		}
+		File trace = new File(tracePath);
+		File[] files;
+		if (trace.isFile()) {
+			files = new File[] { trace };
+		} else if (trace.isDirectory() && (files = trace.listFiles()) != null) {
+			Arrays.sort(files);
+		} else {
+			return null;
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream header = new DataOutputStream(bytes)) {
+			header.writeInt(MAGIC);
+			header.writeInt(FORMAT_VERSION);
+			header.writeUTF(toolVersion);
+			// packet timestamps are adjusted by the difference to the local time zone
+			header.writeInt(TimeZone.getDefault().getRawOffset());
+			header.writeUTF(trace.getAbsolutePath());
+			for (File file : files) {
+				if (!file.isFile()) {
+					continue;
+				}
+				if (file.getName().equals(TraceDataConst.FileName.SSLKEY_FILE) || file.getName().equals(TraceDataConst.FileName.SSLKEYLOG_FILE)) {
+					return null;
+				}
+				header.writeUTF(file.getName());
+				header.writeLong(file.length());
+				header.writeLong(file.lastModified());
+			}
+		} catch (IOException e) {
+			LOGGER.error("Failed to fingerprint " + tracePath, e);
+			return null;
+		}
+		return bytes.toByteArray();
+	}
+
+	private File cacheFile(String tracePath) {
+		return new File(directory, String.format("%08x", new File(tracePath).getAbsolutePath().hashCode()) + CACHE_EXT);
+	}
+
+	/**
+	 * Deletes the least recently used cache files other than kept until the
+	 * folder is no larger than the size limit.
+	 */
+	private void trim(File kept) {
+		File[] files = directory.listFiles((dir, name) -> name.endsWith(CACHE_EXT));
+		if (files == null) {
+			return;
+		}
+		long size = 0;
+		for (File file : files) {
+			size += file.length();
+		}
+		Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+		for (File file : files) {
+			if (size <= maxSize) {
+				break;
+			}
+			if (!file.equals(kept)) {
+				size -= file.length();
+				delete(file);
+			}
+		}
+	}
+
+	private void delete(File file) {
+		try {
+			Files.deleteIfExists(file.toPath());
+		} catch (IOException e) {
+			LOGGER.warn("Failed to delete " + file + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Reads the objects of a cache file, refusing any class that is not part
+	 * of the tool or a JDK collection, value or address type.
+	 */
+	private static class CacheInputStream extends ObjectInputStream {
+		private final PayloadArena arena;
+
+		CacheInputStream(InputStream input, PayloadArena arena) throws IOException {
+			super(input);
+			this.arena = arena;
+			enableResolveObject(arena != null);
+		}
+
+		@SuppressWarnings("unchecked")
+		List<Session> readSessions() throws IOException, ClassNotFoundException {
+			Object sessions = readObject();
+			if (!(sessions instanceof List)) {
+				throw new InvalidClassException("Expected the list of sessions");
+			}
+			return (List<Session>) sessions;
+		}
+
+		@Override
+		protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+			Class<?> type = super.resolveClass(desc);
+			Class<?> element = type;
+			while (element.isArray()) {
+				element = element.getComponentType();
+			}
+			if (!element.isPrimitive() && !isCached(element.getName())) {
+				throw new InvalidClassException(type.getName(), "Not a cached class");
+			}
+			return type;
+		}
+
+		@Override
+		protected Class<?> resolveProxyClass(String[] interfaces) throws IOException, ClassNotFoundException {
+			throw new InvalidClassException("Proxy classes are not cached");
+		}
+
+		@Override
+		protected Object resolveObject(Object object) throws IOException {
+			if (object instanceof Packet) {
+				((Packet) object).moveData(arena);
+			}
+			return object;
+		}
+
+		private static boolean isCached(String name) {
+			return name.startsWith("com.att.aro.")
+					|| name.startsWith("java.lang.") && !name.startsWith("java.lang.reflect.") && !name.startsWith("java.lang.invoke.")
+					|| name.startsWith("java.util.") && !name.startsWith("java.util.concurrent.") || name.startsWith("java.net.Inet")
+					|| name.equals("java.net.URI") || name.startsWith("java.time.");
+		}
+	}
+}
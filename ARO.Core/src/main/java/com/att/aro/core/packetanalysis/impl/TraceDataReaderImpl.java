@@ -19,7 +19,6 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Date;
@@ -49,6 +48,7 @@ import com.att.aro.core.packetreader.IPacketReader;
 import com.att.aro.core.packetreader.pojo.IPPacket;
 import com.att.aro.core.packetreader.pojo.Packet;
 import com.att.aro.core.packetreader.pojo.PacketDirection;
+import com.att.aro.core.packetreader.pojo.PayloadArena;
 import com.att.aro.core.packetreader.pojo.TCPPacket;
 import com.att.aro.core.packetreader.pojo.UDPPacket;
 import com.att.aro.core.peripheral.IAlarmAnalysisInfoParser;
@@ -102,6 +102,7 @@ import com.att.aro.core.peripheral.pojo.VideoTime;
 import com.att.aro.core.peripheral.pojo.WakelockInfo;
 import com.att.aro.core.peripheral.pojo.WifiInfo;
 import com.att.aro.core.securedpacketreader.ICrypto;
+import com.att.aro.core.securedpacketreader.ISSLKeyService;
 import com.att.aro.core.util.Util;
 public class TraceDataReaderImpl implements IPacketListener, ITraceDataReader {
 	private static final Logger LOGGER = LogManager.getLogger(TraceDataReaderImpl.class.getName());
@@ -174,6 +175,9 @@ public class TraceDataReaderImpl implements IPacketListener, ITraceDataReader {
 
 	private ICrypto crypto;
 
+	@Autowired
+	private ISSLKeyService sslKeyService;
+
 	@Autowired
 	private INetworkTypeReader networktypereader;
 
@@ -197,6 +201,8 @@ public class TraceDataReaderImpl implements IPacketListener, ITraceDataReader {
 	private List<PacketInfo> unknownPackets = null;
 	private Map<InetAddress, Integer> ipCountMap = null;
 	private boolean isSecurePcap = false;
+	private boolean offHeapPayload = false;
+	private PayloadArena payloadArena = null;
 
 	@Autowired
 	public void setFileReader(IFileManager filereader) {
@@ -208,7 +214,16 @@ public class TraceDataReaderImpl implements IPacketListener, ITraceDataReader {
 		this.crypto = crypto;
 	}
 
+	/**
+	 * Sets whether the data of the packets read is kept in a PayloadArena
+	 * outside the heap.
+	 */
+	public void setOffHeapPayload(boolean offHeapPayload) {
+		this.offHeapPayload = offHeapPayload;
+	}
+
 	private void init() {
+		payloadArena = offHeapPayload ? PayloadArena.create() : null;
 		localIPAddresses = new HashSet<String>();
 		remoteIPAddresses = new HashSet<String>();
 		localPortNumbers = new HashSet<Integer>();
@@ -279,16 +294,26 @@ public class TraceDataReaderImpl implements IPacketListener, ITraceDataReader {
 	}
 
 	/**
-	 * Read keys.ssl into an ICrypto object
+	 * Read keys.ssl and the SSLKEYLOGFILE key log into an ICrypto object
 	 * 
 	 * @param result
 	 *            - the traffic data
 	 */
 
 	private void readSSLKeys(TraceDirectoryResult result) {
-		String filepath = result.getTraceDirectory() + Util.FILE_SEPARATOR + TraceDataConst.FileName.SSLKEY_FILE;
-		if (filereader.fileExist(filepath) && !Util.isLinuxOS()) {
-			crypto.readSSLKeys(filepath);
+		if (sslKeyService != null) {
+			// the keys of the previous trace were matched
+			sslKeyService.reset();
+		}
+		crypto.setVpnKey(false);
+		boolean found = false;
+		for (String filename : new String[] { TraceDataConst.FileName.SSLKEY_FILE, TraceDataConst.FileName.SSLKEYLOG_FILE }) {
+			String filepath = result.getTraceDirectory() + Util.FILE_SEPARATOR + filename;
+			if (filereader.fileExist(filepath) && crypto.readSSLKeys(filepath) != -1) {
+				found = true;
+			}
+		}
+		if (found) {
 			result.setCrypto(crypto);
 			LOGGER.info("crypto read:" + crypto.getSSLKeyList().size() + " records");
 		} else {
@@ -319,6 +344,7 @@ public class TraceDataReaderImpl implements IPacketListener, ITraceDataReader {
 		this.init();
 		this.ipCountMap = result.getIpCountMap();
 		result = (TraceFileResult) this.readPcapTraceFile(traceFilePath, null, null, result);
+		sealPayload();
 		if (result == null) {
 			return null;
 		}
@@ -450,6 +476,7 @@ public class TraceDataReaderImpl implements IPacketListener, ITraceDataReader {
 		this.ipCountMap = result.getIpCountMap();
 		result = (TraceDirectoryResult) this.readPcapTraceFile(filepath, startTime, duration, result);
 		if (result == null) {
+			sealPayload();
 			return new TraceDirectoryResult();
 		}
 
@@ -474,6 +501,7 @@ public class TraceDataReaderImpl implements IPacketListener, ITraceDataReader {
 				}
 			}
 		}
+		sealPayload();
 		if (result == null) {
 			result = new TraceDirectoryResult();
 		}
@@ -914,10 +942,14 @@ public class TraceDataReaderImpl implements IPacketListener, ITraceDataReader {
 					if (ipPacket.getDestinationIPAddress().equals(tcpPacket.getDestinationIPAddress())
 							&& ipPacket.getSourceIPAddress().equals(tcpPacket.getSourceIPAddress())
 							&& ipPacket.getSequenceNumber() == tcpPacket.getSequenceNumber()
-							&& ipPacket.getAckNumber() == tcpPacket.getAckNumber() && packet.getData().length > 66) {
-						byte[] data = Arrays.copyOfRange(packet.getData(), 66, packet.getData().length);
+							&& ipPacket.getAckNumber() == tcpPacket.getAckNumber() && packet.getDataLength() > 66) {
+						byte[] data = new byte[packet.getDataLength() - 66];
+						packet.getDataBuffer(66, data.length).get(data);
 						tcpPacket.setDecrypted(true);
 						curPacket.setData(data);
+						if (payloadArena != null) {
+							curPacket.moveData(payloadArena);
+						}
 					}
 				}
 			}
@@ -933,9 +965,23 @@ public class TraceDataReaderImpl implements IPacketListener, ITraceDataReader {
 			addIpCount(ipack.getSourceIPAddress());
 			addIpCount(ipack.getDestinationIPAddress());
 		}
+		if (payloadArena != null) {
+			packet.moveData(payloadArena);
+		}
 		allPackets.add(new PacketInfo(appName, packet));
 	}
 
+	/**
+	 * Closes the spill file of the payload arena once all captures of a trace
+	 * are read.
+	 */
+	private void sealPayload() {
+		if (payloadArena != null) {
+			LOGGER.debug("Payload arena holds " + payloadArena.getSize() + " bytes of " + allPackets.size() + " packets");
+			payloadArena.seal();
+		}
+	}
+
 	/**
 	 * Adds the IP count in ipCountMap list.
 	 * 
@@ -22,6 +22,8 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.regex.Pattern;
 import java.util.zip.CRC32;
 
@@ -38,6 +40,7 @@ import com.att.aro.core.packetanalysis.pojo.HttpRequestResponseInfo;
 import com.att.aro.core.packetreader.pojo.Packet;
 import com.att.aro.core.util.IStringParse;
 import com.att.aro.core.util.StringParse;
+import com.att.aro.core.util.ThumbnailCache;
 import com.att.aro.core.util.Util;
 import com.att.aro.core.videoanalysis.IVideoAnalysisConfigHelper;
 import com.att.aro.core.videoanalysis.IVideoEventDataHelper;
@@ -45,6 +48,7 @@ import com.att.aro.core.videoanalysis.impl.ManifestBuilder;
 import com.att.aro.core.videoanalysis.impl.ManifestBuilderDASH;
 import com.att.aro.core.videoanalysis.impl.ManifestBuilderHLS;
 import com.att.aro.core.videoanalysis.impl.SegmentInfo;
+import com.att.aro.core.videoanalysis.parsers.SegmentMetadataParser;
 import com.att.aro.core.videoanalysis.pojo.ChildManifest;
 import com.att.aro.core.videoanalysis.pojo.Manifest;
 import com.att.aro.core.videoanalysis.pojo.ManifestCollection;
@@ -61,6 +65,8 @@ import lombok.NonNull;
 public class VideoStreamConstructor {
 
 	private static final Logger LOG = LogManager.getLogger(VideoStreamConstructor.class.getName());
+	// milliseconds ffmpeg gets to extract a thumbnail
+	private static final long THUMBNAIL_TIMEOUT = 30000;
 
 	@Autowired
 	private IFileManager filemanager;
@@ -99,6 +105,14 @@ public class VideoStreamConstructor {
 	private ChildManifest childManifest;
 	private byte[] defaultThumbnail = null;
 
+	private SegmentMetadataParser segmentMetadataParser = new SegmentMetadataParser();
+	// run ffprobe on segments the parser does not recognize
+	private boolean ffprobeFallback = false;
+	// paths returned by reservePathName, written by writePayload
+	private final Set<String> reservedPaths = new HashSet<>();
+	// segments, manifests and thumbnails by content, when open
+	private final SegmentStore segmentStore = new SegmentStore();
+
 	public VideoStreamConstructor() {
 		init();
 	}
@@ -138,12 +152,69 @@ public class VideoStreamConstructor {
 	}
 
 	public void extractVideo(StreamingVideoData streamingVideoData, HttpRequestResponseInfo request, Double timeStamp) {
-		CRC32 crc32 = new CRC32();
-		ChildManifest childManifest = null;
+		this.streamingVideoData = streamingVideoData;
+		SegmentJob job = prepareSegment(streamingVideoData, request, timeStamp, recordContent(request, decodeContent(request)));
+		if (job != null) {
+			processSegment(job);
+			String fullPathName = commitSegment(job);
+			if (fullPathName != null) {
+				writePayload(job.content, job.digest, fullPathName);
+			}
+		}
+	}
 
-		byte[] content = extractContent(request);
+	/**
+	 * A segment request on its way through extractVideo. Jobs are prepared and
+	 * committed in request order, processSegment runs on any thread.
+	 */
+	static class SegmentJob {
+		final HttpRequestResponseInfo request;
+		final byte[] content;
+		final Manifest manifest;
+		final ChildManifest childManifest;
+		final SegmentInfo segmentInfo;
+		final VideoStream videoStream;
+		final String name;
+		// the DASH initialization segment, kept in the child manifest
+		final boolean initialization;
+		final String tempClippingFullPath;
+		final byte[] movie;
+		final boolean moovContent;
+
+		long crc;
+		// hex SHA-256 of content, set when the segment store is open
+		String digest;
+		HashMap<String, Integer> atomData;
+		byte[] thumbnail;
+		HashMap<String, Double> metaData;
+
+		SegmentJob(HttpRequestResponseInfo request, byte[] content, Manifest manifest, ChildManifest childManifest, SegmentInfo segmentInfo,
+				VideoStream videoStream, String name, boolean initialization, String tempClippingFullPath, byte[] movie) {
+			this.request = request;
+			this.content = content;
+			this.manifest = manifest;
+			this.childManifest = childManifest;
+			this.segmentInfo = segmentInfo;
+			this.videoStream = videoStream;
+			this.name = name;
+			this.initialization = initialization;
+			this.tempClippingFullPath = tempClippingFullPath;
+			this.movie = movie;
+			this.moovContent = childManifest.getMoovContent() != null;
+		}
+	}
+
+	/**
+	 * Locates the manifests and the segment of a request and adds its VideoStream.
+	 * Must be called in request order, the DASH initialization segment is kept
+	 * for the segments that follow it.
+	 * 
+	 * @param content the content of the request, as returned by recordContent
+	 * @return the job to process, null if the segment is skipped
+	 */
+	SegmentJob prepareSegment(StreamingVideoData streamingVideoData, HttpRequestResponseInfo request, Double timeStamp, byte[] content) {
 		if (content == null) {
-			return;
+			return null;
 		}
 		LOG.info("Segment request:"+request.getAssocReqResp().getFirstDataPacket().getPacketId() + " : " + content.length + request.getFileName() + " : " + request.getTimeStamp() + " : " + request.getObjUri());
 		
@@ -152,14 +223,14 @@ public class VideoStreamConstructor {
 		ManifestCollection manifestCollection;
 		if (manifestBuilder == null || (manifestCollection = manifestBuilder.findManifest(request)) == null) {
 			LOG.error("manifestCollection is null :" + request.getObjUri());
-			return;
+			return null;
 		}
 
-		childManifest = locateChildManifestAndSegmentInfo(request, timeStamp, manifestCollection);
+		ChildManifest childManifest = locateChildManifestAndSegmentInfo(request, timeStamp, manifestCollection);
 
 		if (childManifest == null) {
 			LOG.error("ChildManifest wasn't found for segment request:" + request.getObjUri());
-			return;
+			return null;
 		}
 
 		Manifest manifest = manifestCollection.getManifest();
@@ -172,39 +243,69 @@ public class VideoStreamConstructor {
 
 		if (segmentInfo == null) {
 			LOG.debug("segmentInfo is null :" + request.getObjUri());
-			return;
+			return null;
 		}
 
 		if (segmentInfo.getQuality().equals("0") && manifest.isVideoTypeFamily(VideoType.DASH)) {
 			LOG.error("Wrong? determine what happened and if it is a problem :" + request.getObjNameWithoutParams());
-			return;
+			return null;
 		}
 
 		String name = manifestBuilder.buildSegmentName(request, extractExtensionFromRequest(request));
 
-		crc32.update(content);
-
 		manifest.setVideoName(manifestBuilder.formatKey(manifest.getVideoName()));
-		byte[] thumbnail = null;
-		
+
 		if (segmentInfo.getSegmentID() == 0 && childManifest.getManifest().isVideoTypeFamily(VideoType.DASH)) {
 			childManifest.setMoovContent(content);
 			segmentInfo.setDuration(0);
-		} else {
-			HashMap<String, Integer> atomData = null;
-			String tempClippingFullPath = buildSegmentFullPathName(streamingVideoData, request);
-			atomData = parsePayload(content);
-			thumbnail = extractThumbnail(childManifest, content, tempClippingFullPath);
-			if (thumbnail != null || (!segmentInfo.isVideo() && childManifest.getMoovContent() != null)) {
-				collectFromFFMPEG(tempClippingFullPath, childManifest, manifest);
-			} else if (childManifest.getManifest().isVideoTypeFamily(VideoType.DASH)) {
-				if (!CollectionUtils.isEmpty(atomData)) {
-					segmentInfo.setSize(atomData.get("mdatSize"));
+			return new SegmentJob(request, content, manifest, childManifest, segmentInfo, videoStream, name, true, null, null);
+		}
+		return new SegmentJob(request, content, manifest, childManifest, segmentInfo, videoStream, name, false,
+				buildSegmentFullPathName(streamingVideoData, request), buildMovie(childManifest, content));
+	}
+
+	/**
+	 * Computes the CRC, thumbnail and metadata of a segment. Safe to run for
+	 * several jobs at once, the results are applied by commitSegment.
+	 */
+	void processSegment(SegmentJob job) {
+		CRC32 crc32 = new CRC32();
+		crc32.update(job.content);
+		job.crc = crc32.getValue();
+		if (segmentStore.isOpen()) {
+			job.digest = SegmentStore.digest(job.content);
+		}
+		if (job.initialization) {
+			return;
+		}
+		job.atomData = parsePayload(job.content);
+		job.thumbnail = findThumbnail(job);
+		// the pixel height only changes from 0, if it is set now it is set when the job is committed
+		if ((job.thumbnail != null || (!job.segmentInfo.isVideo() && job.moovContent)) && job.childManifest.getPixelHeight() == 0) {
+			job.metaData = extractMetadata(job.tempClippingFullPath, job.movie);
+		}
+		if (!job.childManifest.getManifest().isVideoTypeFamily(VideoType.DASH)) {
+			filemanager.deleteFile(job.tempClippingFullPath);
+		}
+	}
+
+	/**
+	 * Applies the results of processSegment and adds the VideoEvent of the
+	 * segment to its VideoStream. Must be called in request order.
+	 * 
+	 * @return the reserved path the content of the segment is to be saved to
+	 */
+	String commitSegment(SegmentJob job) {
+		SegmentInfo segmentInfo = job.segmentInfo;
+		byte[] thumbnail = job.thumbnail;
+		if (!job.initialization) {
+			if (thumbnail != null || (!segmentInfo.isVideo() && job.moovContent)) {
+				applyMetadata(job.metaData, segmentInfo, job.childManifest, job.manifest);
+			} else if (job.childManifest.getManifest().isVideoTypeFamily(VideoType.DASH)) {
+				if (!CollectionUtils.isEmpty(job.atomData)) {
+					segmentInfo.setSize(job.atomData.get("mdatSize"));
 				}
 			}
-			if (!childManifest.getManifest().isVideoTypeFamily(VideoType.DASH)) {
-				filemanager.deleteFile(tempClippingFullPath);
-			}
 		}
 		LOG.info("segmentInfo.getStartTime() :" + segmentInfo.getStartTime());
 
@@ -213,24 +314,24 @@ public class VideoStreamConstructor {
 		}
 		
 		if (segmentInfo.getBitrate() == 0 && segmentInfo.getDuration() > 0) {
-			segmentInfo.setBitrate(content.length/segmentInfo.getDuration());
+			segmentInfo.setBitrate(job.content.length/segmentInfo.getDuration());
 		}
 
 		VideoEvent videoEvent = new VideoEvent(thumbnail // imageArray
-				, manifest								// aroManifest
+				, job.manifest							// aroManifest
 				, segmentInfo							// segmentID, quality, duration
-				, childManifest							// PixelHeight
-				, content.length						// segmentSize
-				, request.getAssocReqResp()				// response
-				, crc32.getValue());					// crc32Value
+				, job.childManifest						// PixelHeight
+				, job.content.length					// segmentSize
+				, job.request.getAssocReqResp()			// response
+				, job.crc);								// crc32Value
 
-		videoStream.addVideoEvent(videoEvent);
+		job.videoStream.addVideoEvent(videoEvent);
 
-		String fullPathName = buildPath(streamingVideoData, request, segmentInfo.getSegmentID(), segmentInfo.getQuality(), name);
+		String fullPathName = buildPath(streamingVideoData, job.request, segmentInfo.getSegmentID(), segmentInfo.getQuality(), job.name);
 		int pos1 = fullPathName.lastIndexOf(Util.FILE_SEPARATOR) + 1;
 		int pos2 = fullPathName.substring(pos1).indexOf('_');
 		fullPathName = String.format("%s%09.0f%s", fullPathName.substring(0, pos1), videoEvent.getEndTS() * 1000, fullPathName.substring(pos1 + pos2));
-		savePayload(content, fullPathName);
+		return job.content.length > 0 ? reservePathName(fullPathName) : null;
 	}
 
 	public String buildSegmentFullPathName(StreamingVideoData streamingVideoData, HttpRequestResponseInfo request) {
@@ -257,30 +358,82 @@ public class VideoStreamConstructor {
 		}
 	}
 
-	public void collectFromFFMPEG(String fullPath, ChildManifest childManifest, Manifest manifest) {
+	/**
+	 * Sets the start time of the segment and the pixel height of the child
+	 * manifest from the metadata of the segment.
+	 * 
+	 * @param fullPath the segment, with the initialization segment for DASH, saved by extractThumbnail
+	 * @param movie the bytes of the saved segment
+	 * @param childManifest
+	 * @param manifest
+	 */
+	public void collectMetadata(String fullPath, byte[] movie, ChildManifest childManifest, Manifest manifest) {
+		if (childManifest.getPixelHeight() > 0) {
+			return;
+		}
+		applyMetadata(extractMetadata(fullPath, movie), segmentInfo, childManifest, manifest);
+	}
+
+	private void applyMetadata(HashMap<String, Double> metaData, SegmentInfo segmentInfo, ChildManifest childManifest, Manifest manifest) {
 		if (childManifest.getPixelHeight() > 0) {
 			return;
 		}
 		Double val = 0D;
-		HashMap<String, Double> metaData = null;
-		metaData = extractMetadata(fullPath);
 		if (metaData != null) {
 			manifest.setVideoMetaDataExtracted(true);
 			if (segmentInfo.getStartTime() < 0) {
-				val = metaData.get("SegmentStart");
+				val = metaData.get(SegmentMetadataParser.START);
 				if (val != null && val > 0) {
 					segmentInfo.setStartTime(val);
 				}
 			}
 			if (childManifest.getPixelHeight() == 0) {
-				val = metaData.get("Resolution");
+				val = metaData.get(SegmentMetadataParser.RESOLUTION);
 				if (val != null && val > 0) {
-					childManifest.setPixelHeight(metaData.get("Resolution").intValue());
+					childManifest.setPixelHeight(val.intValue());
 				}
 			}
 		}
 	}
 
+	/**
+	 * Returns the metadata of a segment, parsed from movie. Segments the
+	 * parser does not recognize are passed to ffprobe, from fullPath, only if
+	 * ffprobeFallback is set.
+	 */
+	private HashMap<String, Double> extractMetadata(String fullPath, byte[] movie) {
+		HashMap<String, Double> metaData = segmentMetadataParser.parse(movie);
+		if (metaData == null && ffprobeFallback) {
+			// not written when the thumbnail came from the segment store
+			if (!filemanager.fileExist(fullPath)) {
+				try {
+					filemanager.saveFile(new ByteArrayInputStream(movie), fullPath);
+				} catch (IOException e) {
+					LOG.error("IOException:" + e.getMessage());
+				}
+			}
+			metaData = extractMetadata(fullPath);
+		}
+		return metaData;
+	}
+
+	/**
+	 * Returns the thumbnail of the segment of job, from the segment store when
+	 * an earlier analysis saved it there.
+	 */
+	private byte[] findThumbnail(SegmentJob job) {
+		if (job.digest == null || job.movie == null) {
+			return extractThumbnail(job.movie, job.tempClippingFullPath);
+		}
+		String movieDigest = job.movie == job.content ? job.digest : SegmentStore.digest(job.movie);
+		byte[] thumbnail = segmentStore.readThumbnail(movieDigest);
+		if (thumbnail == null) {
+			thumbnail = extractThumbnail(job.movie, job.tempClippingFullPath);
+			segmentStore.saveThumbnail(movieDigest, thumbnail);
+		}
+		return thumbnail;
+	}
+
 	/**
 	 * Locate ChildManifest using keys based on multiple storage strategies, depending on Manifest & Manifest usage
 	 * 
@@ -390,34 +543,25 @@ public class VideoStreamConstructor {
 	}
 
 	/**
-	 * Extract a Thumbnail image from the first frame of a video
+	 * Extract a Thumbnail image from the first frame of a video. The segment is
+	 * piped to ffmpeg and the frame read back from it, a segment ffmpeg cannot
+	 * read from a pipe (an MP4 with its moov after the media) is saved to
+	 * segName and read from there.
 	 *
-	 * @param manifest
-	 * @param content
-	 * @param request
-	 *
-	 * @param srcpath
-	 * @param segmentName
-	 * @param quality
-	 * @param videoData
-	 * @return
+	 * @param movie the segment, null if it cannot be played
+	 * @param segName where the segment is saved for ffmpeg
+	 * @return the frame as a PNG, null if none was extracted
 	 */
-	private byte[] extractThumbnail(ChildManifest childManifest, byte[] content, String segName) {
+	private byte[] extractThumbnail(byte[] movie, String segName) {
+		if (movie == null) {
+			return null;
+		}
+		byte[] data = extractVideoFramePipe(movie);
+		if (data != null) {
+			return data;
+		}
 
-		byte[] data = null;
 		filemanager.deleteFile(segName);
-		byte[] movie = null;
-		if (childManifest.getManifest().isVideoTypeFamily(VideoType.DASH)) {
-			byte[] mbox0 = childManifest.getMoovContent();
-			if (mbox0 == null) {
-				return null;
-			}
-			movie = new byte[mbox0.length + content.length];
-			System.arraycopy(mbox0, 0, movie, 0, mbox0.length);
-			System.arraycopy(content, 0, movie, mbox0.length, content.length);
-		} else {
-			movie = content;
-		}
 		try {
 			filemanager.saveFile(new ByteArrayInputStream(movie), segName);
 		} catch (IOException e1) {
@@ -427,10 +571,45 @@ public class VideoStreamConstructor {
 		return data;
 	}
 
+	private byte[] extractVideoFramePipe(byte[] movie) {
+		String ffmpeg = Util.getFFMPEG();
+		// quoted for a shell when configured on Windows
+		if (ffmpeg.length() > 1 && ffmpeg.startsWith("\"") && ffmpeg.endsWith("\"")) {
+			ffmpeg = ffmpeg.substring(1, ffmpeg.length() - 1);
+		}
+		String[] cmd = { ffmpeg, "-hide_banner", "-loglevel", "error", "-i", "pipe:0", "-vframes", "1", "-f", "image2pipe", "-vcodec", "png", "pipe:1" };
+		try {
+			byte[] data = extrunner.runWithInput(cmd, movie, THUMBNAIL_TIMEOUT);
+			return data != null && data.length > 0 ? data : null;
+		} catch (IOException e) {
+			LOG.debug("Failed to pipe segment to ffmpeg: " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the playable segment, content prefixed with the initialization
+	 * segment (moov) for DASH, null if the DASH initialization segment was not
+	 * seen.
+	 */
+	private byte[] buildMovie(ChildManifest childManifest, byte[] content) {
+		if (!childManifest.getManifest().isVideoTypeFamily(VideoType.DASH)) {
+			return content;
+		}
+		byte[] mbox0 = childManifest.getMoovContent();
+		if (mbox0 == null) {
+			return null;
+		}
+		byte[] movie = new byte[mbox0.length + content.length];
+		System.arraycopy(mbox0, 0, movie, 0, mbox0.length);
+		System.arraycopy(content, 0, movie, mbox0.length, content.length);
+		return movie;
+	}
+
 	/**
 	 * <PRE>
 	 * DASH-MP4 
-	 * Creates a HashMap with keys: 
+	 * Runs ffprobe on a segment, creates a HashMap with keys: 
 	 *   bitrate
 	 *   Duration
 	 *   SegmentStart
@@ -454,10 +633,10 @@ public class VideoStreamConstructor {
 			Double duration = StringParse.findLabeledDoubleFromString("streams_stream_0_duration=", "\"", lines);
 			Double resolution = StringParse.findLabeledDoubleFromString("streams_stream_0_height=", lines);
 			
-			results.put("bitrate", bitrate);
-			results.put("SegmentStart", start);
-			results.put("Duration", duration);
-			results.put("Resolution", resolution);
+			results.put(SegmentMetadataParser.BITRATE, bitrate);
+			results.put(SegmentMetadataParser.START, start);
+			results.put(SegmentMetadataParser.DURATION, duration);
+			results.put(SegmentMetadataParser.RESOLUTION, resolution);
 		}
 		return results;
 	}
@@ -555,7 +734,8 @@ public class VideoStreamConstructor {
 
 	private byte[] extractVideoFrameShell(String segmentName) {
 		byte[] data = null;
-		String thumbnail = streamingVideoData.getVideoPath() + "thumbnail.png";
+		// next to the segment, segments may be extracted at once
+		String thumbnail = segmentName + "_thumbnail.png";
 		filemanager.deleteFile(thumbnail);
 		String cmd = Util.getFFMPEG() + " -y -i " + "\"" + segmentName + "\"" + " -ss 00:00:00   -vframes 1 " + "\"" + thumbnail + "\"";
 		String ff_lines = extrunner.executeCmd(cmd);
@@ -595,11 +775,48 @@ public class VideoStreamConstructor {
 	}
 	
 	public boolean savePayload(byte[] content, String pathName) {
-		pathName = findPathNameTiebreaker(pathName);
+		if (content != null && content.length > 0) {
+			return writePayload(content, reservePathName(pathName));
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the path the content of pathName is to be written to, see
+	 * findPathNameTiebreaker, and keeps it from being returned again before
+	 * the content is written.
+	 */
+	String reservePathName(String pathName) {
+		synchronized (reservedPaths) {
+			String reserved = findPathNameTiebreaker(pathName);
+			reservedPaths.add(reserved);
+			return reserved;
+		}
+	}
+
+	/**
+	 * Writes content to pathName, a path returned by reservePathName. Safe to
+	 * call from any thread.
+	 */
+	boolean writePayload(byte[] content, String pathName) {
+		return writePayload(content, null, pathName);
+	}
+
+	/**
+	 * Writes content as writePayload(content, pathName) does, into the segment
+	 * store if it is open.
+	 * 
+	 * @param digest the hex digest of content, null to compute it
+	 */
+	boolean writePayload(byte[] content, String digest, String pathName) {
 		if (content != null && content.length > 0) {
 			try {
-				filemanager.saveFile(new ByteArrayInputStream(content), pathName);
-				LOG.info(">>>> SAVE payload :" + pathName);
+				if (segmentStore.isOpen()) {
+					LOG.info(">>>> SAVE payload :" + pathName + " as " + segmentStore.put(pathName, content, digest));
+				} else {
+					filemanager.saveFile(new ByteArrayInputStream(content), pathName);
+					LOG.info(">>>> SAVE payload :" + pathName);
+				}
 				return true;
 			} catch (IOException e) {
 				LOG.error("Failed to save " + pathName, e);
@@ -618,20 +835,20 @@ public class VideoStreamConstructor {
 	 * @return pathName with embedded tiebreaker or when all else fails, appends (duplicated) to the pathName
 	 */
 	public String findPathNameTiebreaker(String pathName) {
-		if (filemanager.fileExist(pathName)) {
+		if (isTaken(pathName)) {
 			String temp = pathName;
 			int pos = pathName.lastIndexOf(".");
 			if (pos > 0) {
 				for (int idx = 1; idx < 200; idx++) {
 					temp = String.format("%s(%d)%s", pathName.substring(0, pos), idx, pathName.substring(pos));
-					if (!filemanager.fileExist(temp)) {
+					if (!isTaken(temp)) {
 						return temp;
 					}
 				}
 			} else {
 				for (int idx = 1; idx < 200; idx++) {
 					temp = String.format("%s(%d)", pathName, idx);
-					if (!filemanager.fileExist(temp)) {
+					if (!isTaken(temp)) {
 						return temp;
 					}
 				}
@@ -644,7 +861,22 @@ public class VideoStreamConstructor {
 
 	}
 
+	private boolean isTaken(String pathName) {
+		synchronized (reservedPaths) {
+			// in the segment store the names are only kept in the index
+			return reservedPaths.contains(pathName) || (!segmentStore.isOpen() && filemanager.fileExist(pathName));
+		}
+	}
+
 	private byte[] extractContent(HttpRequestResponseInfo request) {
+		return recordContent(request, decodeContent(request));
+	}
+
+	/**
+	 * Returns the content of the response to request, null if there is none.
+	 * Safe to call from any thread.
+	 */
+	byte[] decodeContent(HttpRequestResponseInfo request) {
 		byte[] content = null;
 		try {
 			content = reqhelper.getContent(request.getAssocReqResp(), request.getSession());
@@ -655,7 +887,13 @@ public class VideoStreamConstructor {
 			LOG.debug("Download FAILED :" + request.getObjUri(), e);
 			content = null;
 		}
+		return content;
+	}
 
+	/**
+	 * Records request as succeeded or failed depending on its content.
+	 */
+	byte[] recordContent(HttpRequestResponseInfo request, byte[] content) {
 		if (content == null) {
 			addFailedRequest(request);
 		} else {
@@ -734,7 +972,28 @@ public class VideoStreamConstructor {
 		return manifestBuilder.getManifestCollection();
 	}
 
+	/**
+	 * Saves the segments and manifests of the analysis into directory by
+	 * content, see SegmentStore, instead of by name.
+	 */
+	public void openSegmentStore(String directory) {
+		segmentStore.open(directory);
+	}
+
+	/**
+	 * Writes the index of the segment store and removes the files the analysis
+	 * did not use.
+	 */
+	public void closeSegmentStore() {
+		segmentStore.close();
+	}
+
 	public void init() {
+		synchronized (reservedPaths) {
+			reservedPaths.clear();
+		}
+		// thumbnails of the previous trace
+		ThumbnailCache.getInstance().clear();
 		manifestBuilderHLS = new ManifestBuilderHLS();
 		manifestBuilderDASH = new ManifestBuilderDASH();
 		manifestBuilder = manifestBuilderDASH; 
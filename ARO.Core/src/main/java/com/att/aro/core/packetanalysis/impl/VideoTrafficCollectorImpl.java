@@ -16,11 +16,17 @@
 */
 package com.att.aro.core.packetanalysis.impl;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 
 import org.apache.log4j.LogManager;
@@ -34,6 +40,7 @@ import com.att.aro.core.packetanalysis.IHttpRequestResponseHelper;
 import com.att.aro.core.packetanalysis.IVideoTrafficCollector;
 import com.att.aro.core.packetanalysis.pojo.AbstractTraceResult;
 import com.att.aro.core.packetanalysis.pojo.HttpRequestResponseInfo;
+import com.att.aro.core.packetanalysis.impl.VideoStreamConstructor.SegmentJob;
 import com.att.aro.core.packetanalysis.pojo.Session;
 import com.att.aro.core.settings.Settings;
 import com.att.aro.core.util.GoogleAnalyticsUtil;
@@ -102,6 +109,17 @@ public class VideoTrafficCollectorImpl implements IVideoTrafficCollector {
 	private Manifest trackManifest;
 
 	private boolean audioEnabled = true;
+
+	private int parallelism = 1;
+
+	/**
+	 * Sets the number of segments processed at once.
+	 * 
+	 * @param parallelism
+	 */
+	public void setParallelism(int parallelism) {
+		this.parallelism = Math.max(1, parallelism);
+	}
 	
 	@Override
 	public StreamingVideoData collect(AbstractTraceResult result, List<Session> sessionlist, SortedMap<Double, HttpRequestResponseInfo> requestMap) {
@@ -116,16 +134,25 @@ public class VideoTrafficCollectorImpl implements IVideoTrafficCollector {
 		videoPath = tracePath + fileVideoSegments + Util.FILE_SEPARATOR;
 		if (!filemanager.directoryExist(videoPath)) {
 			filemanager.mkDir(videoPath);
-		} else {
-			filemanager.directoryDeleteInnerFiles(videoPath);
 		}
-		
-		streamingVideoData = new StreamingVideoData(result.getTraceDirectory());
-		videoStreamConstructor.setStreamingVideoData(streamingVideoData);
+		// segments already saved by an earlier analysis of the trace are kept,
+		// a result without a trace directory has no place to keep them
+		boolean segmentStore = result.getTraceDirectory() != null;
+		if (segmentStore) {
+			videoStreamConstructor.openSegmentStore(videoPath);
+		}
+		try {
+			streamingVideoData = new StreamingVideoData(result.getTraceDirectory());
+			videoStreamConstructor.setStreamingVideoData(streamingVideoData);
 
-		processRequests(requestMap);
-		
-		processSegments();
+			processRequests(requestMap);
+
+			processSegments();
+		} finally {
+			if (segmentStore) {
+				videoStreamConstructor.closeSegmentStore();
+			}
+		}
 
 		streamingVideoData.scanVideoStreams();
 		
@@ -266,10 +293,80 @@ public class VideoTrafficCollectorImpl implements IVideoTrafficCollector {
 	public void processSegments() {
 		Double trackManifestTimestamp = null;
 		LOG.info("\n>>>>>>>>>> segmentRequests: " + segmentRequests);
-		for (HttpRequestResponseInfo req : segmentRequests) {
-			LOG.info("\n>>>>>>>>>> Segment: " + req.getObjNameWithoutParams());
-			trackManifestTimestamp = manifestReqMap.get(req.getObjNameWithoutParams());
-			videoStreamConstructor.extractVideo(streamingVideoData, req, trackManifestTimestamp);
+		if (parallelism == 1 || segmentRequests.size() < 2) {
+			for (HttpRequestResponseInfo req : segmentRequests) {
+				LOG.info("\n>>>>>>>>>> Segment: " + req.getObjNameWithoutParams());
+				trackManifestTimestamp = manifestReqMap.get(req.getObjNameWithoutParams());
+				videoStreamConstructor.extractVideo(streamingVideoData, req, trackManifestTimestamp);
+			}
+			return;
+		}
+		processSegmentsConcurrently();
+	}
+
+	/**
+	 * Extracts the segments as extractVideo does, with the content decoding,
+	 * thumbnails, metadata, CRCs and file writes on a pool of parallelism
+	 * threads. Manifest and segment lookups and the VideoEvents are done in
+	 * request order on this thread, at most a window of segments is in
+	 * flight.
+	 */
+	private void processSegmentsConcurrently() {
+		int window = 2 * parallelism;
+		List<Future<byte[]>> contents = new ArrayList<>(segmentRequests.size());
+		Deque<Future<SegmentJob>> jobs = new ArrayDeque<>();
+		Deque<Future<Boolean>> writes = new ArrayDeque<>();
+		ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+		try {
+			for (int index = 0; index < segmentRequests.size(); index++) {
+				while (contents.size() < Math.min(segmentRequests.size(), index + window)) {
+					HttpRequestResponseInfo next = segmentRequests.get(contents.size());
+					contents.add(pool.submit(() -> videoStreamConstructor.decodeContent(next)));
+				}
+				HttpRequestResponseInfo req = segmentRequests.get(index);
+				LOG.info("\n>>>>>>>>>> Segment: " + req.getObjNameWithoutParams());
+				byte[] content = videoStreamConstructor.recordContent(req, contents.get(index).get());
+				contents.set(index, null);
+				SegmentJob job = videoStreamConstructor.prepareSegment(streamingVideoData, req,
+						manifestReqMap.get(req.getObjNameWithoutParams()), content);
+				if (job != null) {
+					jobs.add(pool.submit(() -> {
+						videoStreamConstructor.processSegment(job);
+						return job;
+					}));
+				}
+				while (jobs.size() > window) {
+					commitSegment(jobs.poll().get(), pool, writes);
+				}
+			}
+			while (!jobs.isEmpty()) {
+				commitSegment(jobs.poll().get(), pool, writes);
+			}
+			while (!writes.isEmpty()) {
+				writes.poll().get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Segment extraction was interrupted", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException("Segment extraction failed", e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private void commitSegment(SegmentJob job, ExecutorService pool, Deque<Future<Boolean>> writes) throws InterruptedException,
+			ExecutionException {
+		String fullPathName = videoStreamConstructor.commitSegment(job);
+		if (fullPathName != null) {
+			writes.add(pool.submit(() -> videoStreamConstructor.writePayload(job.content, job.digest, fullPathName)));
+		}
+		// drop the writes that are done, they hold the content of their segments
+		while (!writes.isEmpty() && (writes.peek().isDone() || writes.size() > 2 * parallelism)) {
+			writes.poll().get();
 		}
 	}
 	
@@ -15,6 +15,7 @@
  */
 package com.att.aro.core.packetanalysis.pojo;
 
+import java.io.Serializable;
 import java.net.InetAddress;
 import java.util.ArrayList;
 import java.util.Date;
@@ -40,7 +41,8 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
  * Common trace data returned from reading trace file
  * Date: November 7, 2014
  */
-public abstract class AbstractTraceResult {
+public abstract class AbstractTraceResult implements Cloneable, Serializable {
+	private static final long serialVersionUID = 1L;
 	
 	/**
 	 *   a list of all packets
@@ -195,10 +197,10 @@ public abstract class AbstractTraceResult {
 	protected boolean nativeVideo;
 
 	@JsonIgnore
-	private ICrypto crypto;
+	private transient ICrypto crypto;
 
 	@JsonIgnore
-	private List<VideoEvent> videoEvents;
+	private transient List<VideoEvent> videoEvents;
 	protected TraceResultType traceResultType;
 
 	/**
@@ -674,5 +676,17 @@ public abstract class AbstractTraceResult {
 	public double getPcapTimeOffset() {
 		return pcapTimeOffset;
 	}
+
+	/**
+	 * Returns a shallow copy of the result. The copy shares the lists and data
+	 * of this result, but setting them on one does not change the other.
+	 */
+	public AbstractTraceResult copy() {
+		try {
+			return (AbstractTraceResult) clone();
+		} catch (CloneNotSupportedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
 	
 }
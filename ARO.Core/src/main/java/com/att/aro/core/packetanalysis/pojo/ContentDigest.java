@@ -0,0 +1,120 @@
+/*
+ *  Copyright 2019 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.core.packetanalysis.pojo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * SHA-256 digest and length of the content of a request or response, used to
+ * find duplicate content without keeping the content itself.
+ */
+public final class ContentDigest {
+
+	private static final String ALGORITHM = "SHA-256";
+
+	private final byte[] digest;
+	private final long length;
+	private final int hash;
+
+	private ContentDigest(byte[] digest, long length) {
+		this.digest = digest;
+		this.length = length;
+		this.hash = 31 * Arrays.hashCode(digest) + Long.hashCode(length);
+	}
+
+	/**
+	 * Returns the digest of content, content may be null.
+	 */
+	public static ContentDigest of(byte[] content) {
+		if (content == null) {
+			return new ContentDigest(new byte[0], -1);
+		}
+		return new ContentDigest(newMessageDigest().digest(content), content.length);
+	}
+
+	/**
+	 * Returns the digest of the content read from stream, stream may be null.
+	 * The stream is read to its end but not closed.
+	 */
+	public static ContentDigest of(InputStream content) throws IOException {
+		if (content == null) {
+			return new ContentDigest(new byte[0], -1);
+		}
+		MessageDigest messageDigest = newMessageDigest();
+		byte[] buffer = new byte[8192];
+		long length = 0;
+		int read;
+		while ((read = content.read(buffer)) >= 0) {
+			messageDigest.update(buffer, 0, read);
+			length += read;
+		}
+		return new ContentDigest(messageDigest.digest(), length);
+	}
+
+	private static MessageDigest newMessageDigest() {
+		try {
+			return MessageDigest.getInstance(ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform is required to support SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Returns the length of the content, -1 when there was none.
+	 */
+	public long getLength() {
+		return length;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof ContentDigest)) {
+			return false;
+		}
+		ContentDigest other = (ContentDigest) obj;
+		return length == other.length && Arrays.equals(digest, other.digest);
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	/**
+	 * Returns the SHA-256 digest as 64 lower case hex digits, empty when there
+	 * was no content.
+	 */
+	public String toHex() {
+		StringBuilder hex = new StringBuilder(2 * digest.length);
+		for (byte value : digest) {
+			hex.append(Character.forDigit((value >> 4) & 0xf, 16)).append(Character.forDigit(value & 0xf, 16));
+		}
+		return hex.toString();
+	}
+
+	@Override
+	public String toString() {
+		return "ContentDigest [length=" + length + ", sha256=" + toHex() + "]";
+	}
+}
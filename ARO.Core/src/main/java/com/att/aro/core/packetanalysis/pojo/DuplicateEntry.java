@@ -31,7 +31,7 @@ public class DuplicateEntry {
 	private Double timeStamp;
 	private HttpRequestResponseInfo httpRequestResponse;
 	private String httpObjectName;
-	private byte[] content;
+	private ContentDigest contentDigest;
 	private int count;
 	@JsonIgnore
 	private Session session;
@@ -42,7 +42,7 @@ public class DuplicateEntry {
 	}
 
 	public DuplicateEntry(HttpRequestResponseInfo assocRequest, HttpRequestResponseInfo assocResponse,
-			Diagnosis diagnosis, PacketInfo sessionFirstPacket, Session session, byte[] content) {
+			Diagnosis diagnosis, PacketInfo sessionFirstPacket, Session session, ContentDigest contentDigest) {
 		if (assocRequest != null) {
 			this.assocRequest = assocRequest;
 		}
@@ -61,11 +61,11 @@ public class DuplicateEntry {
 		this.contentLength = assocResponse.getContentLength();
 		this.diagnosis = diagnosis;
 		this.sessionFirstPacket = sessionFirstPacket;
-		this.content = content;
+		this.contentDigest = contentDigest;
 	}
 
-	public byte[] getContent() {
-		return content;
+	public ContentDigest getContentDigest() {
+		return contentDigest;
 	}
 
 	public HttpRequestResponseInfo getRequest() {
@@ -0,0 +1,74 @@
+/*
+ *  Copyright 2019 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.core.packetanalysis.pojo;
+
+/**
+ * Identifies the connection of a packet as a 128 bit value, used to look up
+ * sessions without building a String per packet.
+ * <p>
+ * The addresses are represented by ids handed out by the caller, so keys are
+ * only comparable when created with the same ids.
+ */
+public final class FlowKey {
+
+	private final long high;
+	private final long low;
+
+	public FlowKey(long high, long low) {
+		this.high = high;
+		this.low = low;
+	}
+
+	/**
+	 * Packs a connection, localAddressId and remoteAddressId identify the
+	 * addresses of the connection.
+	 */
+	public static FlowKey of(int localAddressId, int localPort, int remotePort, int remoteAddressId) {
+		long high = ((long) localAddressId << 32) | ((long) (localPort & 0xFFFF) << 16) | (remotePort & 0xFFFF);
+		return new FlowKey(high, remoteAddressId & 0xFFFFFFFFL);
+	}
+
+	public long getHigh() {
+		return high;
+	}
+
+	public long getLow() {
+		return low;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof FlowKey)) {
+			return false;
+		}
+		FlowKey other = (FlowKey) obj;
+		return high == other.high && low == other.low;
+	}
+
+	@Override
+	public int hashCode() {
+		long hash = high * 0x9E3779B97F4A7C15L + low;
+		return (int) (hash ^ (hash >>> 32));
+	}
+
+	@Override
+	public String toString() {
+		return "FlowKey [high=" + Long.toHexString(high) + ", low=" + Long.toHexString(low) + "]";
+	}
+}
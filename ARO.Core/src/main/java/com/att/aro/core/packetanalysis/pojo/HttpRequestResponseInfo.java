@@ -15,14 +15,14 @@
  */
 package com.att.aro.core.packetanalysis.pojo;
 
-import java.io.BufferedOutputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.Serializable;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.function.UnaryOperator;
 
 import com.att.aro.core.packetreader.pojo.PacketDirection;
 import com.att.aro.core.packetreader.pojo.TCPPacket;
@@ -37,7 +37,9 @@ import lombok.Setter;
  * Encapsulates information about an HTTP request or response. This class was converted from struct HTTP_REQUEST_RESPONSE
  * Date: April 24, 2014
  */
-public class HttpRequestResponseInfo implements Comparable<HttpRequestResponseInfo> {
+public class HttpRequestResponseInfo implements Comparable<HttpRequestResponseInfo>, Cloneable, Serializable {
+	private static final long serialVersionUID = 1L;
+
 	/**
 	 * Returns HTTP version 1.0.
 	 */
@@ -148,7 +150,7 @@ public class HttpRequestResponseInfo implements Comparable<HttpRequestResponseIn
 	 * List of Upload Packets ordered by Sequence Numbers for TCP Session.
 	 */
 	@Getter @Setter
-	private TreeMap<Long, PacketInfo> tcpPackets = new TreeMap<>();
+	private SequenceIndex tcpPackets = new SequenceIndex();
 	@Getter @Setter
 	private ArrayList<PacketInfo> udpPackets = new ArrayList<>();
 	@Getter @Setter
@@ -156,11 +158,9 @@ public class HttpRequestResponseInfo implements Comparable<HttpRequestResponseIn
 	@Getter @Setter
 	private boolean headerParseComplete;
 	@Getter @Setter
-	private ByteArrayOutputStream payloadData = new ByteArrayOutputStream();
-	@Getter @Setter
-	private ByteArrayOutputStream headerData = new ByteArrayOutputStream();
+	private PayloadRope payloadData = new PayloadRope();
 	@Getter @Setter
-	private BufferedOutputStream dataStream;
+	private PayloadRope headerData = new PayloadRope();
 	
 
 	@Override
@@ -188,6 +188,33 @@ public class HttpRequestResponseInfo implements Comparable<HttpRequestResponseIn
 		this.packetDirection = direction;
 	}
 
+	/**
+	 * Returns a copy in session, holding the packets packetCopies returns for
+	 * the packets of this one. The copy shares the header and payload data, its
+	 * associated request or response is left for the caller to set.
+	 */
+	public HttpRequestResponseInfo copy(Session session, UnaryOperator<PacketInfo> packetCopies) {
+		HttpRequestResponseInfo copy;
+		try {
+			copy = (HttpRequestResponseInfo) clone();
+		} catch (CloneNotSupportedException e) {
+			throw new IllegalStateException(e);
+		}
+		copy.session = session;
+		copy.assocReqResp = null;
+		copy.firstDataPacket = firstDataPacket != null ? packetCopies.apply(firstDataPacket) : null;
+		copy.lastDataPacket = lastDataPacket != null ? packetCopies.apply(lastDataPacket) : null;
+		copy.tcpPackets = tcpPackets.copy(packetCopies);
+		copy.udpPackets = new ArrayList<>(udpPackets.size());
+		for (PacketInfo packetInfo : udpPackets) {
+			copy.udpPackets.add(packetCopies.apply(packetInfo));
+		}
+		if (contentOffsetLength != null) {
+			copy.contentOffsetLength = new TreeMap<>(contentOffsetLength);
+		}
+		return copy;
+	}
+
 
 
 	public PacketDirection getPacketDirection() {
@@ -976,26 +1003,20 @@ public class HttpRequestResponseInfo implements Comparable<HttpRequestResponseIn
 	
 	public void writeHeader(PacketInfo packetInfo, int headerDelta) throws IOException {
 		TCPPacket tcpPacket = (TCPPacket) packetInfo.getPacket();
-		dataStream = new BufferedOutputStream(headerData);
-		dataStream.write(tcpPacket.getData(), tcpPacket.getDataOffset(), headerDelta);
-		dataStream.flush();
+		headerData.append(tcpPacket, tcpPacket.getDataOffset(), headerDelta);
 	}
 	
 	public void writePayload(PacketInfo packetInfo, boolean containsHeader, int headerDelta) throws IOException {
 		if (packetInfo.getPacket() instanceof TCPPacket) {
 			TCPPacket tcpPacket = (TCPPacket) packetInfo.getPacket();
-			dataStream = new BufferedOutputStream(payloadData);
 			if (containsHeader) {
-				dataStream.write(tcpPacket.getData(), tcpPacket.getDataOffset() + headerDelta , tcpPacket.getData().length - (tcpPacket.getDataOffset() + headerDelta));
+				payloadData.append(tcpPacket, tcpPacket.getDataOffset() + headerDelta, tcpPacket.getDataLength() - (tcpPacket.getDataOffset() + headerDelta));
 			} else {
-				dataStream.write(tcpPacket.getData(), tcpPacket.getDataOffset(), tcpPacket.getData().length - tcpPacket.getDataOffset());
+				payloadData.append(tcpPacket, tcpPacket.getDataOffset(), tcpPacket.getDataLength() - tcpPacket.getDataOffset());
 			}
-			dataStream.flush();
 		} else {
 			UDPPacket udpPacket = (UDPPacket) packetInfo.getPacket();
-			dataStream = new BufferedOutputStream(payloadData);
-			dataStream.write(udpPacket.getData(), udpPacket.getDataOffset(), udpPacket.getData().length - udpPacket.getDataOffset());
-			dataStream.flush();
+			payloadData.append(udpPacket, udpPacket.getDataOffset(), udpPacket.getDataLength() - udpPacket.getDataOffset());
 		}
 	}
 }
@@ -15,9 +15,12 @@
  */
 package com.att.aro.core.packetanalysis.pojo;
 
+import java.io.Serializable;
+
 import com.att.aro.core.peripheral.pojo.NetworkType;
 
-public class NetworkBearerTypeInfo {
+public class NetworkBearerTypeInfo implements Serializable {
+	private static final long serialVersionUID = 1L;
 
 	private NetworkType networkType;
 	private double beginTimestamp;
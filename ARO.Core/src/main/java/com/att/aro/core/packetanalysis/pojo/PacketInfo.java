@@ -113,11 +113,32 @@ public class PacketInfo implements Comparable<PacketInfo>, Serializable {
 		}
 	}
 
+	/**
+	 * Returns a copy of the packet info with a copy of its packet that shares
+	 * the packet data. The copy keeps the state set on this one, see
+	 * clearAnalysis.
+	 */
+	public PacketInfo copy() {
+		PacketInfo copy = new PacketInfo(appName, packet.copy());
+		copy.packetId = packetId;
+		copy.timestamp = timestamp;
+		copy.dir = dir;
+		copy.tcpInfo = tcpInfo;
+		copy.stateMachine = stateMachine;
+		return copy;
+	}
+
+	/**
+	 * Clears the state session assembly and the analysis set on the packet.
+	 */
 	public void clearAnalysis() {
 		setStateMachine(null);
 		setTcpInfo(null);
+		if (packet instanceof TCPPacket) {
+			((TCPPacket) packet).setRetransmission(false);
+		}
 	}
-	
+
 	/**
 	 * Sets the packet id. The first Packet of a trace would be 1.
 	 * 
@@ -0,0 +1,298 @@
+/*
+ *  Copyright 2019 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.core.packetanalysis.pojo;
+
+import java.net.InetAddress;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import com.att.aro.core.packetreader.pojo.IPPacket;
+import com.att.aro.core.packetreader.pojo.Packet;
+import com.att.aro.core.packetreader.pojo.PacketDirection;
+import com.att.aro.core.packetreader.pojo.TCPPacket;
+import com.att.aro.core.packetreader.pojo.UDPPacket;
+
+/**
+ * A read-only list of packets that also keeps the values the analysis passes
+ * read most, timestamps, lengths, directions, applications, remote addresses
+ * and sessions, in one array per value.
+ * <p>
+ * A table is built once per analysis with of() and handed to the analyzers as
+ * their packet list; of() returns a list that already is a table as is, so an
+ * analyzer can ask for the table of the list it got without copying it again.
+ * The values are taken when the table is built, later changes to the packets
+ * are not reflected.
+ */
+public final class PacketTable extends AbstractList<PacketInfo> implements RandomAccess {
+
+	private static final int IP = 1;
+	private static final int TCP = 2;
+	private static final int UDP = 4;
+	private static final int HTTPS = 8;
+
+	private static final PacketDirection[] DIRECTIONS = PacketDirection.values();
+	private static final int HTTPS_PORT = 443;
+
+	private final PacketInfo[] packets;
+	private final double[] timestamps;
+	private final int[] lengths;
+	private final int[] payloadLengths;
+	private final byte[] directions;
+	private final byte[] flags;
+	private final int[] appIds;
+	private final int[] remoteAddressIds;
+	private final int[] sessionIds;
+	private final List<String> appNames = new ArrayList<>();
+	private final List<InetAddress> remoteAddresses = new ArrayList<>();
+	private final List<Session> sessions;
+	private final boolean sorted;
+
+	private PacketTable(List<PacketInfo> packetlist, List<Session> sessionlist) {
+		int size = packetlist.size();
+		packets = packetlist.toArray(new PacketInfo[size]);
+		timestamps = new double[size];
+		lengths = new int[size];
+		payloadLengths = new int[size];
+		directions = new byte[size];
+		flags = new byte[size];
+		appIds = new int[size];
+		remoteAddressIds = new int[size];
+		sessionIds = new int[size];
+
+		Map<String, Integer> appIndex = new HashMap<>();
+		Map<InetAddress, Integer> addressIndex = new HashMap<>();
+		boolean ascending = true;
+		for (int index = 0; index < size; index++) {
+			PacketInfo packetInfo = packets[index];
+			timestamps[index] = packetInfo.getTimeStamp();
+			ascending &= index == 0 || timestamps[index - 1] <= timestamps[index];
+			lengths[index] = packetInfo.getLen();
+			payloadLengths[index] = packetInfo.getPayloadLen();
+			PacketDirection dir = packetInfo.getDir();
+			directions[index] = (byte) (dir != null ? dir.ordinal() : -1);
+			appIds[index] = id(appIndex, appNames, packetInfo.getAppName());
+
+			Packet packet = packetInfo.getPacket();
+			int packetFlags = 0;
+			if (packet instanceof IPPacket) {
+				packetFlags |= IP;
+				remoteAddressIds[index] = id(addressIndex, remoteAddresses, packetInfo.getRemoteIPAddress());
+			} else {
+				remoteAddressIds[index] = -1;
+			}
+			if (packet instanceof TCPPacket) {
+				TCPPacket tcp = (TCPPacket) packet;
+				packetFlags |= TCP;
+				if (tcp.isSsl() || tcp.getDestinationPort() == HTTPS_PORT || tcp.getSourcePort() == HTTPS_PORT) {
+					packetFlags |= HTTPS;
+				}
+			} else if (packet instanceof UDPPacket) {
+				packetFlags |= UDP;
+			}
+			flags[index] = (byte) packetFlags;
+		}
+		sorted = ascending;
+
+		Arrays.fill(sessionIds, -1);
+		if (sessionlist == null) {
+			sessions = Collections.emptyList();
+		} else {
+			sessions = sessionlist;
+			for (int sessionId = 0; sessionId < sessionlist.size(); sessionId++) {
+				for (PacketInfo packetInfo : sessionlist.get(sessionId).getPackets()) {
+					int index = indexOf(packetInfo);
+					if (index >= 0) {
+						sessionIds[index] = sessionId;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the table of packets, packets itself if it is a table.
+	 */
+	public static PacketTable of(List<PacketInfo> packets) {
+		if (packets instanceof PacketTable) {
+			return (PacketTable) packets;
+		}
+		return new PacketTable(packets != null ? packets : Collections.<PacketInfo>emptyList(), null);
+	}
+
+	/**
+	 * Returns the table of packets with the ids of the sessions in sessions.
+	 */
+	public static PacketTable of(List<PacketInfo> packets, List<Session> sessions) {
+		return new PacketTable(packets != null ? packets : Collections.<PacketInfo>emptyList(), sessions);
+	}
+
+	private static <T> int id(Map<T, Integer> index, List<T> values, T value) {
+		Integer id = index.get(value);
+		if (id == null) {
+			id = values.size();
+			index.put(value, id);
+			values.add(value);
+		}
+		return id;
+	}
+
+	/**
+	 * Returns the position of packetInfo, found by its packet id, -1 if it is
+	 * not in the table.
+	 */
+	private int indexOf(PacketInfo packetInfo) {
+		int index = packetInfo.getPacketId() - 1;
+		if (index >= 0 && index < packets.length && packets[index] == packetInfo) {
+			return index;
+		}
+		return -1;
+	}
+
+	@Override
+	public PacketInfo get(int index) {
+		return packets[index];
+	}
+
+	@Override
+	public int size() {
+		return packets.length;
+	}
+
+	public double getTimestamp(int index) {
+		return timestamps[index];
+	}
+
+	/**
+	 * Returns the length of the packet without the datalink header.
+	 */
+	public int getLength(int index) {
+		return lengths[index];
+	}
+
+	public int getPayloadLength(int index) {
+		return payloadLengths[index];
+	}
+
+	/**
+	 * Returns the direction of the packet, null if it was not determined.
+	 */
+	public PacketDirection getDirection(int index) {
+		byte dir = directions[index];
+		return dir >= 0 ? DIRECTIONS[dir] : null;
+	}
+
+	public boolean isIP(int index) {
+		return (flags[index] & IP) != 0;
+	}
+
+	public boolean isTCP(int index) {
+		return (flags[index] & TCP) != 0;
+	}
+
+	public boolean isUDP(int index) {
+		return (flags[index] & UDP) != 0;
+	}
+
+	/**
+	 * Returns whether the packet is a TCP packet carrying SSL or sent to or
+	 * from port 443.
+	 */
+	public boolean isHttps(int index) {
+		return (flags[index] & HTTPS) != 0;
+	}
+
+	/**
+	 * Returns the id of the application of the packet, ids are numbered from 0
+	 * in the order the applications first appear.
+	 */
+	public int getAppId(int index) {
+		return appIds[index];
+	}
+
+	public String getAppName(int appId) {
+		return appNames.get(appId);
+	}
+
+	public int getAppCount() {
+		return appNames.size();
+	}
+
+	/**
+	 * Returns the id of the remote address of an IP packet, -1 for other
+	 * packets. Ids are numbered from 0 in the order the addresses first appear.
+	 */
+	public int getRemoteAddressId(int index) {
+		return remoteAddressIds[index];
+	}
+
+	/**
+	 * Returns a remote address, null for IP packets whose direction is unknown.
+	 */
+	public InetAddress getRemoteAddress(int remoteAddressId) {
+		return remoteAddresses.get(remoteAddressId);
+	}
+
+	public int getRemoteAddressCount() {
+		return remoteAddresses.size();
+	}
+
+	/**
+	 * Returns the position of the session of the packet in the session list
+	 * the table was built with, -1 if the packet belongs to none.
+	 */
+	public int getSessionId(int index) {
+		return sessionIds[index];
+	}
+
+	public Session getSession(int sessionId) {
+		return sessions.get(sessionId);
+	}
+
+	public int getSessionCount() {
+		return sessions.size();
+	}
+
+	/**
+	 * Returns whether the timestamps never decrease.
+	 */
+	public boolean isSorted() {
+		return sorted;
+	}
+
+	/**
+	 * Returns the position of the first packet whose timestamp is at least
+	 * time, size() if there is none. Only meaningful if the table is sorted.
+	 */
+	public int indexAtOrAfter(double time) {
+		int low = 0;
+		int high = packets.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (timestamps[middle] < time) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+}
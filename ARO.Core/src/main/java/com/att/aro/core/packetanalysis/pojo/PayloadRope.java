@@ -0,0 +1,283 @@
+/*
+ *  Copyright 2019 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.core.packetanalysis.pojo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import com.att.aro.core.packetreader.pojo.Packet;
+
+/**
+ * The bytes of a reassembled request/response header or body, kept as a list
+ * of slices of the packets they were sent in rather than copied into one
+ * array.
+ * <p>
+ * A contiguous array is only built when toByteArray is called, readers that
+ * can consume the bytes in pieces use openStream or writeTo. Slices refer to
+ * the packet data, which must not change once appended.
+ */
+public class PayloadRope implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private static final int INITIAL_CAPACITY = 4;
+
+	// a slice of a Packet or of a byte[]
+	private Object[] sources = new Object[INITIAL_CAPACITY];
+	private int[] offsets = new int[INITIAL_CAPACITY];
+	private int[] lengths = new int[INITIAL_CAPACITY];
+	private int count;
+	private int size;
+
+	/**
+	 * Appends length bytes of the data of packet, starting at offset.
+	 */
+	public void append(Packet packet, int offset, int length) {
+		if (offset < 0 || length < 0 || offset + length > packet.getDataLength()) {
+			throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", data length " + packet.getDataLength());
+		}
+		add(packet, offset, length);
+	}
+
+	/**
+	 * Appends length bytes of data, starting at offset. The array is
+	 * referenced, not copied.
+	 */
+	public void append(byte[] data, int offset, int length) {
+		if (offset < 0 || length < 0 || offset + length > data.length) {
+			throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", data length " + data.length);
+		}
+		add(data, offset, length);
+	}
+
+	/**
+	 * Returns the number of bytes.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of slices the bytes are kept in.
+	 */
+	public int segmentCount() {
+		return count;
+	}
+
+	/**
+	 * Returns the bytes in a new array.
+	 */
+	public byte[] toByteArray() {
+		byte[] bytes = new byte[size];
+		int position = 0;
+		for (int index = 0; index < count; index++) {
+			read(index, 0, bytes, position, lengths[index]);
+			position += lengths[index];
+		}
+		return bytes;
+	}
+
+	/**
+	 * Returns a read-only buffer over the bytes, a view of the packet data if
+	 * they are kept in a single slice and a copy otherwise.
+	 */
+	public ByteBuffer asByteBuffer() {
+		if (count == 1) {
+			ByteBuffer buffer;
+			if (sources[0] instanceof Packet) {
+				buffer = ((Packet) sources[0]).getDataBuffer();
+			} else {
+				buffer = ByteBuffer.wrap((byte[]) sources[0]).asReadOnlyBuffer();
+			}
+			buffer.limit(offsets[0] + lengths[0]).position(offsets[0]);
+			return buffer.slice();
+		}
+		return ByteBuffer.wrap(toByteArray()).asReadOnlyBuffer();
+	}
+
+	/**
+	 * Writes the bytes to out.
+	 */
+	public void writeTo(OutputStream out) throws IOException {
+		for (int index = 0; index < count; index++) {
+			if (sources[index] instanceof Packet) {
+				((Packet) sources[index]).writeData(out, offsets[index], lengths[index]);
+			} else {
+				out.write((byte[]) sources[index], offsets[index], lengths[index]);
+			}
+		}
+	}
+
+	/**
+	 * Returns true if the length bytes starting at offset are the same as the
+	 * length bytes of other starting at otherOffset. The slices are compared
+	 * in place, one overlapping pair of slices at a time.
+	 */
+	public boolean rangeEquals(int offset, PayloadRope other, int otherOffset, int length) {
+		if (offset < 0 || length < 0 || offset + length > size) {
+			throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", size " + size);
+		}
+		if (otherOffset < 0 || otherOffset + length > other.size) {
+			throw new IndexOutOfBoundsException("offset " + otherOffset + ", length " + length + ", size " + other.size);
+		}
+		int index = 0;
+		int position = offset;
+		int otherIndex = 0;
+		int otherPosition = otherOffset;
+		int remaining = length;
+		while (remaining > 0) {
+			while (position >= lengths[index]) {
+				position -= lengths[index++];
+			}
+			while (otherPosition >= other.lengths[otherIndex]) {
+				otherPosition -= other.lengths[otherIndex++];
+			}
+			int chunk = Math.min(remaining, Math.min(lengths[index] - position, other.lengths[otherIndex] - otherPosition));
+			if (!slice(index, position, chunk).equals(other.slice(otherIndex, otherPosition, chunk))) {
+				return false;
+			}
+			position += chunk;
+			otherPosition += chunk;
+			remaining -= chunk;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns a stream reading the bytes from the slices.
+	 */
+	public InputStream openStream() {
+		return new RopeInputStream();
+	}
+
+	private void add(Object source, int offset, int length) {
+		if (length == 0) {
+			return;
+		}
+		if (count == sources.length) {
+			int capacity = count * 2;
+			sources = Arrays.copyOf(sources, capacity);
+			offsets = Arrays.copyOf(offsets, capacity);
+			lengths = Arrays.copyOf(lengths, capacity);
+		}
+		sources[count] = source;
+		offsets[count] = offset;
+		lengths[count] = length;
+		count++;
+		size += length;
+	}
+
+	/**
+	 * Copies length bytes of slice index, starting position bytes into it.
+	 */
+	private void read(int index, int position, byte[] dst, int dstOffset, int length) {
+		if (sources[index] instanceof Packet) {
+			((Packet) sources[index]).readData(offsets[index] + position, dst, dstOffset, length);
+		} else {
+			System.arraycopy((byte[]) sources[index], offsets[index] + position, dst, dstOffset, length);
+		}
+	}
+
+	/**
+	 * Returns a buffer over length bytes of slice index, starting position
+	 * bytes into it.
+	 */
+	private ByteBuffer slice(int index, int position, int length) {
+		ByteBuffer buffer;
+		if (sources[index] instanceof Packet) {
+			buffer = ((Packet) sources[index]).getDataBuffer();
+		} else {
+			buffer = ByteBuffer.wrap((byte[]) sources[index]);
+		}
+		buffer.limit(offsets[index] + position + length).position(offsets[index] + position);
+		return buffer;
+	}
+
+	private class RopeInputStream extends InputStream {
+
+		private int index;
+		private int position;
+		// the slice at index, set when a single byte is first read from it
+		private ByteBuffer current;
+		private int currentIndex = -1;
+
+		@Override
+		public int read() throws IOException {
+			if (index >= count) {
+				return -1;
+			}
+			if (currentIndex != index) {
+				current = slice(index, 0, lengths[index]);
+				currentIndex = index;
+			}
+			int value = current.get(current.position() + position) & 0xFF;
+			if (++position == lengths[index]) {
+				index++;
+				position = 0;
+			}
+			return value;
+		}
+
+		@Override
+		public int read(byte[] dst, int dstOffset, int length) throws IOException {
+			if (length == 0) {
+				return 0;
+			}
+			if (index >= count) {
+				return -1;
+			}
+			int total = 0;
+			while (total < length && index < count) {
+				int chunk = Math.min(length - total, lengths[index] - position);
+				PayloadRope.this.read(index, position, dst, dstOffset + total, chunk);
+				total += chunk;
+				position += chunk;
+				if (position == lengths[index]) {
+					index++;
+					position = 0;
+				}
+			}
+			return total;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = 0;
+			while (skipped < n && index < count) {
+				int chunk = (int) Math.min(n - skipped, lengths[index] - position);
+				skipped += chunk;
+				position += chunk;
+				if (position == lengths[index]) {
+					index++;
+					position = 0;
+				}
+			}
+			return skipped;
+		}
+
+		@Override
+		public int available() {
+			int remaining = -position;
+			for (int slice = index; slice < count; slice++) {
+				remaining += lengths[slice];
+			}
+			return remaining;
+		}
+	}
+}
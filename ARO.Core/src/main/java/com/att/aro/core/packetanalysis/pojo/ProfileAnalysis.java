@@ -0,0 +1,61 @@
+/*
+ *  Copyright 2019 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.core.packetanalysis.pojo;
+
+import com.att.aro.core.configuration.pojo.Profile;
+
+/**
+ * The profile dependent part of the analysis of a trace for one device
+ * profile, used to compare the energy of a trace on several profiles.
+ * 
+ * <pre>
+ *   profile                      // the device profile
+ *   statemachine                 // RRC state machine
+ *   energyModel                  // energy of the peripherals and the RRC states
+ *   burstCollectionAnalysisData  // bursts and their statistics
+ * </pre>
+ */
+public class ProfileAnalysis {
+
+	private final Profile profile;
+	private final AbstractRrcStateMachine statemachine;
+	private final EnergyModel energyModel;
+	private final BurstCollectionAnalysisData burstCollectionAnalysisData;
+
+	public ProfileAnalysis(Profile profile, AbstractRrcStateMachine statemachine, EnergyModel energyModel,
+			BurstCollectionAnalysisData burstCollectionAnalysisData) {
+		this.profile = profile;
+		this.statemachine = statemachine;
+		this.energyModel = energyModel;
+		this.burstCollectionAnalysisData = burstCollectionAnalysisData;
+	}
+
+	public Profile getProfile() {
+		return profile;
+	}
+
+	public AbstractRrcStateMachine getStatemachine() {
+		return statemachine;
+	}
+
+	public EnergyModel getEnergyModel() {
+		return energyModel;
+	}
+
+	public BurstCollectionAnalysisData getBurstCollectionAnalysisData() {
+		return burstCollectionAnalysisData;
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ *  Copyright 2019 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.core.packetanalysis.pojo;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.function.UnaryOperator;
+
+/**
+ * The packets of one direction of a TCP session ordered by sequence number.
+ * <p>
+ * Keys are kept unboxed in a sorted array next to the packets. Packets mostly
+ * arrive in sequence order, so a key above the last one is appended and looked
+ * up without a search, other keys are found by binary search and inserted by
+ * shifting the few entries after them. Keys are 32 bit sequence numbers that
+ * have been moved past the wrap-around with unwrap.
+ */
+public class SequenceIndex implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private static final int INITIAL_CAPACITY = 16;
+	private static final long SEQUENCE_SPACE = 0x100000000L;
+
+	private long[] keys = new long[INITIAL_CAPACITY];
+	private PacketInfo[] values = new PacketInfo[INITIAL_CAPACITY];
+	private int size;
+
+	/**
+	 * Returns the key of sequenceNumber in a session whose first sequence
+	 * number is base. A sequence number more than half the sequence space
+	 * below base has wrapped around and is moved after the largest 32 bit
+	 * sequence number, one slightly below base belongs to a packet reordered
+	 * before the first one and is kept.
+	 */
+	public static long unwrap(long sequenceNumber, long base) {
+		return base - sequenceNumber > SEQUENCE_SPACE / 2 ? sequenceNumber + SEQUENCE_SPACE : sequenceNumber;
+	}
+
+	/**
+	 * Returns the packet stored for key, null if there is none.
+	 */
+	public PacketInfo get(long key) {
+		int index = indexOf(key);
+		return index >= 0 ? values[index] : null;
+	}
+
+	public boolean containsKey(long key) {
+		return indexOf(key) >= 0;
+	}
+
+	/**
+	 * Stores packetInfo for key, replacing the packet stored for it.
+	 *
+	 * @return The packet replaced, null if there was none.
+	 */
+	public PacketInfo put(long key, PacketInfo packetInfo) {
+		int index = indexOf(key);
+		if (index >= 0) {
+			PacketInfo previous = values[index];
+			values[index] = packetInfo;
+			return previous;
+		}
+		index = -index - 1;
+		if (size == keys.length) {
+			keys = Arrays.copyOf(keys, size * 2);
+			values = Arrays.copyOf(values, size * 2);
+		}
+		if (index < size) {
+			System.arraycopy(keys, index, keys, index + 1, size - index);
+			System.arraycopy(values, index, values, index + 1, size - index);
+		}
+		keys[index] = key;
+		values[index] = packetInfo;
+		size++;
+		return null;
+	}
+
+	/**
+	 * Returns an index with the same keys, each mapped to the packet
+	 * packetCopies returns for the packet stored for it here.
+	 */
+	public SequenceIndex copy(UnaryOperator<PacketInfo> packetCopies) {
+		SequenceIndex copy = new SequenceIndex();
+		copy.keys = Arrays.copyOf(keys, keys.length);
+		copy.values = new PacketInfo[values.length];
+		for (int index = 0; index < size; index++) {
+			copy.values[index] = packetCopies.apply(values[index]);
+		}
+		copy.size = size;
+		return copy;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns the key at index in ascending key order.
+	 */
+	public long keyAt(int index) {
+		checkIndex(index);
+		return keys[index];
+	}
+
+	/**
+	 * Returns the packet at index in ascending key order.
+	 */
+	public PacketInfo valueAt(int index) {
+		checkIndex(index);
+		return values[index];
+	}
+
+	/**
+	 * Returns the position of key, (-(insertion point) - 1) if it is not
+	 * stored.
+	 */
+	private int indexOf(long key) {
+		if (size == 0 || key > keys[size - 1]) {
+			return -size - 1;
+		}
+		if (key == keys[size - 1]) {
+			return size - 1;
+		}
+		return Arrays.binarySearch(keys, 0, size - 1, key);
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+		}
+	}
+}
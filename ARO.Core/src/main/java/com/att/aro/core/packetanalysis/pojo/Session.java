@@ -18,14 +18,18 @@ package com.att.aro.core.packetanalysis.pojo;
 import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.net.InetAddress;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Set;
+import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.function.UnaryOperator;
 
 import com.att.aro.core.packetreader.pojo.PacketDirection;
 import com.att.aro.core.util.Util;
@@ -38,7 +42,7 @@ import lombok.Data;
  * Date: April 24, 2014
  */
 @Data 
-public class Session implements Serializable, Comparable<Session> {
+public class Session implements Serializable, Comparable<Session>, Cloneable {
 
 	private static final long serialVersionUID = 1L;
 
@@ -116,12 +120,12 @@ public class Session implements Serializable, Comparable<Session> {
 	/**
 	 * List of Upload Packets ordered by Sequence Numbers for TCP Session.
 	 */
-	private TreeMap<Long, PacketInfo> uplinkPackets = new TreeMap<>();
+	private SequenceIndex uplinkPackets = new SequenceIndex();
 	
 	/**
 	 * List of Download Packets ordered by Sequence Numbers for TCP Session.
 	 */
-	private TreeMap<Long, PacketInfo> downlinkPackets = new TreeMap<>();
+	private SequenceIndex downlinkPackets = new SequenceIndex();
 
 	/**
 	 * A Set of strings containing the application names.
@@ -188,20 +192,20 @@ public class Session implements Serializable, Comparable<Session> {
 	 * May be replaced by storageUl (Already defined above) after testing.<br>
 	 * unused, has been refactored out of this class
 	 */
-	private ByteArrayOutputStream pStorageULDCPT = new ByteArrayOutputStream(); //May be replaced by storageUl (Already defined above) after testing.
+	private transient ByteArrayOutputStream pStorageULDCPT = new ByteArrayOutputStream(); //May be replaced by storageUl (Already defined above) after testing.
 
 	/**
 	 * A ByteArrayOutputStream<br>
 	 * May be replaced by storageDl (Already defined above) after testing.<br>
 	 * unused, has been refactored out of this class
 	 */
-	private ByteArrayOutputStream pStorageDLDCPT = new ByteArrayOutputStream(); //May be replaced by storageDl (Already defined above) after testing.
+	private transient ByteArrayOutputStream pStorageDLDCPT = new ByteArrayOutputStream(); //May be replaced by storageDl (Already defined above) after testing.
 
 	/**
 	 * A ByteArrayOutputStream<br>
 	 * unused, has been refactored out of this class
 	 */
-	private ByteArrayOutputStream pStorageBothDCPT = new ByteArrayOutputStream();
+	private transient ByteArrayOutputStream pStorageBothDCPT = new ByteArrayOutputStream();
 	
 	/**
 	 * Initializes an instance of the TCPSession class, using the specified
@@ -228,6 +232,71 @@ public class Session implements Serializable, Comparable<Session> {
 		
 	}
 
+	/**
+	 * Returns a copy of the session holding the packets packetCopies returns
+	 * for its packets, with copies of its requests and responses. The copy
+	 * shares the payload data of this session, analysis setting state on the
+	 * copy or its packets leaves this session as it is.
+	 */
+	public Session copy(UnaryOperator<PacketInfo> packetCopies) {
+		Session copy;
+		try {
+			copy = (Session) clone();
+		} catch (CloneNotSupportedException e) {
+			throw new IllegalStateException(e);
+		}
+		copy.dnsRequestPacket = copyOf(dnsRequestPacket, packetCopies);
+		copy.dnsResponsePacket = copyOf(dnsResponsePacket, packetCopies);
+		copy.lastSslHandshakePacket = copyOf(lastSslHandshakePacket, packetCopies);
+		copy.packets = copyOf(packets, packetCopies);
+		copy.udpPackets = copyOf(udpPackets, packetCopies);
+		copy.uplinkPackets = uplinkPackets.copy(packetCopies);
+		copy.downlinkPackets = downlinkPackets.copy(packetCopies);
+		copy.appNames = new HashSet<>(appNames);
+		if (sessionTermination != null) {
+			copy.sessionTermination = new Termination(copyOf(sessionTermination.getPacket(), packetCopies), sessionTermination.getSessionTerminationDelay());
+		}
+		copy.packetOffsetsUl = copyOf(packetOffsetsUl, packetCopies);
+		copy.packetOffsetsDl = copyOf(packetOffsetsDl, packetCopies);
+
+		Map<HttpRequestResponseInfo, HttpRequestResponseInfo> copies = new IdentityHashMap<>();
+		copy.requestResponseInfo = new ArrayList<>(requestResponseInfo.size());
+		for (HttpRequestResponseInfo rrInfo : requestResponseInfo) {
+			HttpRequestResponseInfo rrCopy = rrInfo.copy(copy, packetCopies);
+			copies.put(rrInfo, rrCopy);
+			copy.requestResponseInfo.add(rrCopy);
+		}
+		for (HttpRequestResponseInfo rrInfo : requestResponseInfo) {
+			if (rrInfo.getAssocReqResp() != null) {
+				copies.get(rrInfo).setAssocReqResp(copies.getOrDefault(rrInfo.getAssocReqResp(), rrInfo.getAssocReqResp()));
+			}
+		}
+		return copy;
+	}
+
+	private static PacketInfo copyOf(PacketInfo packetInfo, UnaryOperator<PacketInfo> packetCopies) {
+		return packetInfo != null ? packetCopies.apply(packetInfo) : null;
+	}
+
+	private static List<PacketInfo> copyOf(List<PacketInfo> packetInfos, UnaryOperator<PacketInfo> packetCopies) {
+		List<PacketInfo> copy = new ArrayList<>(packetInfos.size());
+		for (PacketInfo packetInfo : packetInfos) {
+			copy.add(packetCopies.apply(packetInfo));
+		}
+		return copy;
+	}
+
+	private static SortedMap<Integer, PacketInfo> copyOf(SortedMap<Integer, PacketInfo> packetOffsets, UnaryOperator<PacketInfo> packetCopies) {
+		if (packetOffsets == null) {
+			return null;
+		}
+		SortedMap<Integer, PacketInfo> copy = new TreeMap<>();
+		for (Map.Entry<Integer, PacketInfo> entry : packetOffsets.entrySet()) {
+			copy.put(entry.getKey(), packetCopies.apply(entry.getValue()));
+		}
+		return copy;
+	}
+
 	/**
 	 * Compares Session start times
 	 * 
@@ -351,11 +420,11 @@ public class Session implements Serializable, Comparable<Session> {
 				if (totalBytesWritten < 20000) {
 					totalBytesWritten+=rrInfo.getContentLength();
 					if (rrInfo.getDirection().equals(HttpDirection.REQUEST)) {
-						uplinkWrapper.write(rrInfo.getHeaderData().toByteArray());
-						uplinkWrapper.write(rrInfo.getPayloadData().toByteArray());
+						rrInfo.getHeaderData().writeTo(uplinkWrapper);
+						rrInfo.getPayloadData().writeTo(uplinkWrapper);
 	 				} else {
-	 					downlinkWrapper.write(rrInfo.getHeaderData().toByteArray());
-	 					downlinkWrapper.write(rrInfo.getPayloadData().toByteArray());
+	 					rrInfo.getHeaderData().writeTo(downlinkWrapper);
+	 					rrInfo.getPayloadData().writeTo(downlinkWrapper);
 	 				}
 				} else {
 					break;
@@ -416,36 +485,30 @@ public class Session implements Serializable, Comparable<Session> {
 	public boolean addTcpPacket(PacketInfo packetInfo, long sequnceNumber) {
 		packets.add(packetInfo);
 		if (packetInfo.getDir().equals(PacketDirection.UPLINK)) {
-			// Done to handle TCP Sequence Number Wrap Around
-			if (sequnceNumber < getBaseUplinkSequenceNumber()) {
-				sequnceNumber += 0xFFFFFFFF;
-				sequnceNumber++;
-			}
-			if (uplinkPackets.containsKey(sequnceNumber)) {
-				PacketInfo tempPacket = uplinkPackets.get(sequnceNumber);
-				if (packetInfo.getPayloadLen() == 0 || packetInfo.getPayloadLen() == tempPacket.getPayloadLen()) {
-					return false;
-				}
-			}
-			uplinkPackets.put(sequnceNumber, packetInfo);
+			return addTcpPacket(uplinkPackets, packetInfo, SequenceIndex.unwrap(sequnceNumber, getBaseUplinkSequenceNumber()));
 		} else if (packetInfo.getDir().equals(PacketDirection.DOWNLINK)) {
-			// Done to handle TCP Sequence Number Wrap Around
-			if (sequnceNumber < getBaseDownlinkSequenceNumber()) {
-				sequnceNumber += 0xFFFFFFFF;
-				sequnceNumber++;
-			}
-			if (downlinkPackets.containsKey(sequnceNumber)) {
-				PacketInfo tempPacket = downlinkPackets.get(sequnceNumber);
-				if (packetInfo.getPayloadLen() == 0 || packetInfo.getPayloadLen() == tempPacket.getPayloadLen()) {
-					return false;
-				}
-			}
-			downlinkPackets.put(sequnceNumber, packetInfo);
+			return addTcpPacket(downlinkPackets, packetInfo, SequenceIndex.unwrap(sequnceNumber, getBaseDownlinkSequenceNumber()));
+		}
+		return true;
+	}
+
+	private boolean addTcpPacket(SequenceIndex index, PacketInfo packetInfo, long key) {
+		PacketInfo tempPacket = index.get(key);
+		if (tempPacket != null && (packetInfo.getPayloadLen() == 0 || packetInfo.getPayloadLen() == tempPacket.getPayloadLen())) {
+			return false;
 		}
+		index.put(key, packetInfo);
 		return true;
 	}
 	
 	public void addUdpPacket(PacketInfo packetInfo) {
 		udpPackets.add(packetInfo);
 	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		pStorageULDCPT = new ByteArrayOutputStream();
+		pStorageDLDCPT = new ByteArrayOutputStream();
+		pStorageBothDCPT = new ByteArrayOutputStream();
+	}
 }
@@ -179,6 +179,11 @@ public class TraceDataConst {
 		 */
 		public static final String SSLKEY_FILE = "keys.ssl";
 		
+		/**
+		 * The name of the NSS format key log, as written with SSLKEYLOGFILE
+		 */
+		public static final String SSLKEYLOG_FILE = "sslkeylog.txt";
+		
 		/**
 		 * The name of the network_details file
 		 */
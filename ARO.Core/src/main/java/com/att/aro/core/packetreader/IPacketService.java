@@ -15,9 +15,58 @@
 */
 package com.att.aro.core.packetreader;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import com.att.aro.core.packetreader.pojo.InetAddressTable;
+import com.att.aro.core.packetreader.pojo.LinkLayerDescriptor;
 import com.att.aro.core.packetreader.pojo.Packet;
 
 public interface IPacketService {
+	/**
+	 * Resolves the link layer of a capture, the header of the capture file is
+	 * examined at most once here instead of for every packet.
+	 * 
+	 * @param datalink The datalink of the capture.
+	 * @param byteOrder The byte order of the capture file.
+	 * @param pcapfile The capture file, may be null.
+	 * 
+	 * @return The descriptor to pass to createPacketFromPcap for each packet.
+	 */
+	LinkLayerDescriptor getLinkLayerDescriptor(int datalink, ByteOrder byteOrder, String pcapfile);
+
+	/**
+	 * Returns a new instance of the Packet class for a packet read from a
+	 * capture whose link layer has already been resolved.
+	 * 
+	 * @param linkLayer The link layer of the capture.
+	 * @param addressTable The addresses of the trace being loaded, null to not intern addresses.
+	 * @param seconds The number of seconds for the packet.
+	 * @param microSeconds The number of microseconds for the packet.
+	 * @param len The length of the packet (in bytes) including both the header and the data.
+	 * @param data An array of bytes that is the data portion of the packet.
+	 * 
+	 * @return The newly created packet.
+	 */
+	Packet createPacketFromPcap(LinkLayerDescriptor linkLayer, InetAddressTable addressTable, long seconds, long microSeconds, int len, byte[] data);
+
+	/**
+	 * Returns a new instance of the Packet class for a packet read from a
+	 * capture whose link layer has already been resolved. The packet refers to
+	 * the bytes of data from its position to its limit instead of copying
+	 * them, so they must not change while the packet is in use.
+	 * 
+	 * @param linkLayer The link layer of the capture.
+	 * @param addressTable The addresses of the trace being loaded, null to not intern addresses.
+	 * @param seconds The number of seconds for the packet.
+	 * @param microSeconds The number of microseconds for the packet.
+	 * @param len The length of the packet (in bytes) including both the header and the data.
+	 * @param data A buffer over the data portion of the packet.
+	 * 
+	 * @return The newly created packet.
+	 */
+	Packet createPacketFromPcap(LinkLayerDescriptor linkLayer, InetAddressTable addressTable, long seconds, long microSeconds, int len, ByteBuffer data);
+
 	Packet createPacketFromPcap(int datalink, long seconds, long microSeconds, int len,
 			byte[] data, String pcapfile);
 	/**
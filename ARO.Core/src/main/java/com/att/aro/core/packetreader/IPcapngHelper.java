@@ -32,4 +32,8 @@ public interface IPcapngHelper {
 	String getHardware();
 	String getOs();
 	boolean isNoLinkLayer(String pcapfile) throws FileNotFoundException;
+	/**
+	 * Forgets the file checked last, the next check reads the file again.
+	 */
+	void reset();
 }
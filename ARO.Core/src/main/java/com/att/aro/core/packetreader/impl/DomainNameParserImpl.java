@@ -39,7 +39,6 @@ public class DomainNameParserImpl implements IDomainNameParser {
 	private static final short TYPE_CNAME = 5;
 	private static final short TYPE_AAAA = 28;
 	
-	private byte[] data;
 	private int start;
 	private ByteBuffer bytes;
 	private static final Logger LOGGER = LogManager.getLogger(DomainNameParserImpl.class.getName());
@@ -50,10 +49,9 @@ public class DomainNameParserImpl implements IDomainNameParser {
 		domain.setPacket(packet);
 		
 		start = packet.getDataOffset();
-		data = packet.getData();
 		
-		// Craete a byte buffer with curr position at start of UDP data
-		bytes = ByteBuffer.wrap(data);
+		// Create a byte buffer over the packet data with curr position at start of UDP data
+		bytes = packet.getDataBuffer();
 		bytes.position(start);
 
 		// Read the transaction ID
@@ -164,16 +162,17 @@ public class DomainNameParserImpl implements IDomainNameParser {
 
 	/**
 	 * Utility that reads a domain name (compressed or uncompressed) from
-	 * the specified position in the data array
+	 * the specified position in the packet data
 	 * @param sb buffer where results are appended
-	 * @param startindex Index in the data array from which to read
-	 * @return The index of the data array where the domain name read
+	 * @param startindex Index in the packet data from which to read
+	 * @return The index of the packet data where the domain name read
 	 * completed
 	 */
 	private int readDomainSegment(StringBuffer sbuffer, int startindex) {
 		int index = startindex;
-		while (data[index] != 0) {
-			boolean compressed = (data[index] & 0xc0) == 0xc0;
+		byte length;
+		while ((length = bytes.get(index)) != 0) {
+			boolean compressed = (length & 0xc0) == 0xc0;
 			if (compressed) {
 				readDomainSegment(sbuffer, start + (bytes.getShort(index) & 0x3fff));
 				++index;
@@ -182,8 +181,12 @@ public class DomainNameParserImpl implements IDomainNameParser {
 				if (sbuffer.length() > 0) {
 					sbuffer.append('.');
 				}
-				sbuffer.append(new String(data, index + 1, data[index]));
-				index += (data[index] + 1);
+				byte[] label = new byte[length];
+				ByteBuffer labelBytes = bytes.duplicate();
+				labelBytes.position(index + 1);
+				labelBytes.get(label);
+				sbuffer.append(new String(label));
+				index += (length + 1);
 			}
 		}
 
@@ -0,0 +1,122 @@
+/*
+ *  Copyright 2019 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.core.packetreader.impl;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * Read-only view of a capture file through a sliding memory mapped window.
+ * <p>
+ * A single mapping is limited to 2GB, so large traces are mapped one window at
+ * a time. The window is moved forward whenever a request falls outside of it,
+ * which suits the sequential record-by-record access of pcap and pcapng.
+ */
+class MappedCaptureFile implements Closeable {
+
+	static final long DEFAULT_WINDOW_SIZE = 64L * 1024 * 1024;
+
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final long size;
+	private final long windowSize;
+
+	private MappedByteBuffer window;
+	private long windowStart;
+	private ByteOrder order = ByteOrder.BIG_ENDIAN;
+
+	MappedCaptureFile(String path) throws IOException {
+		this(path, DEFAULT_WINDOW_SIZE);
+	}
+
+	MappedCaptureFile(String path, long windowSize) throws IOException {
+		this.file = new RandomAccessFile(path, "r");
+		this.channel = file.getChannel();
+		this.size = channel.size();
+		this.windowSize = windowSize;
+	}
+
+	long size() {
+		return size;
+	}
+
+	ByteOrder getOrder() {
+		return order;
+	}
+
+	/**
+	 * Sets the byte order used by the numeric getters and by slices.
+	 */
+	void setOrder(ByteOrder order) {
+		this.order = order;
+		if (window != null) {
+			window.order(order);
+		}
+	}
+
+	int getInt(long offset) throws IOException {
+		return window(offset, 4).getInt(index(offset));
+	}
+
+	short getShort(long offset) throws IOException {
+		return window(offset, 2).getShort(index(offset));
+	}
+
+	byte get(long offset) throws IOException {
+		return window(offset, 1).get(index(offset));
+	}
+
+	/**
+	 * Returns a read-only buffer over the mapped bytes, no data is copied.
+	 */
+	ByteBuffer slice(long offset, int length) throws IOException {
+		ByteBuffer view = window(offset, length).duplicate();
+		int start = index(offset);
+		view.limit(start + length);
+		view.position(start);
+		return view.slice().order(order);
+	}
+
+	private int index(long offset) {
+		return (int) (offset - windowStart);
+	}
+
+	private MappedByteBuffer window(long offset, int length) throws IOException {
+		if (offset < 0 || length < 0 || offset + length > size) {
+			throw new EOFException("Read of " + length + " bytes at offset " + offset + " is beyond end of file (" + size + ")");
+		}
+		if (window == null || offset < windowStart || offset + length > windowStart + window.capacity()) {
+			long mapLength = Math.min(Math.max(windowSize, length), size - offset);
+			window = channel.map(MapMode.READ_ONLY, offset, mapLength);
+			window.order(order);
+			windowStart = offset;
+		}
+		return window;
+	}
+
+	@Override
+	public void close() throws IOException {
+		window = null;
+		file.close();
+	}
+}
@@ -0,0 +1,309 @@
+/*
+ *  Copyright 2019 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.core.packetreader.impl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.att.aro.core.packetreader.IPacketListener;
+import com.att.aro.core.packetreader.IPacketReader;
+import com.att.aro.core.packetreader.IPacketService;
+import com.att.aro.core.packetreader.IPcapngHelper;
+import com.att.aro.core.packetreader.pojo.InetAddressTable;
+import com.att.aro.core.packetreader.pojo.LinkLayerDescriptor;
+import com.att.aro.core.packetreader.pojo.Packet;
+
+/**
+ * Pure java reader for pcap and pcapng trace files.
+ * <p>
+ * The capture file is memory mapped and walked record by record, so neither the
+ * native jpcap library nor an editcap conversion of pcapng files is needed.
+ * Both byte orders and both microsecond and nanosecond pcap files are handled,
+ * for pcapng the Section Header, Interface Description, Enhanced Packet, Simple
+ * Packet and (obsolete) Packet blocks are read, all other blocks are skipped.
+ * Timestamps are delivered in seconds and microseconds, as with libpcap.
+ * <p>
+ * Packets are created over slices of the mapping rather than copies of their
+ * frames. A mapping stays valid after the file is closed, until the packets
+ * referring to it are no longer reachable, so the capture file must not be
+ * modified while its trace is open.
+ */
+public class MappedPacketReaderImpl implements IPacketReader {
+
+	private static final Logger LOGGER = LogManager.getLogger(MappedPacketReaderImpl.class.getName());
+
+	private static final int PCAP_MAGIC_MICROSECONDS = 0xA1B2C3D4;
+	private static final int PCAP_MAGIC_NANOSECONDS = 0xA1B23C4D;
+	private static final int PCAP_FILE_HEADER_LENGTH = 24;
+	private static final int PCAP_RECORD_HEADER_LENGTH = 16;
+
+	private static final int PCAPNG_SECTION_HEADER_BLOCK = 0x0A0D0D0A;
+	private static final int PCAPNG_BYTE_ORDER_MAGIC = 0x1A2B3C4D;
+	private static final int PCAPNG_INTERFACE_DESCRIPTION_BLOCK = 0x00000001;
+	private static final int PCAPNG_PACKET_BLOCK = 0x00000002;
+	private static final int PCAPNG_SIMPLE_PACKET_BLOCK = 0x00000003;
+	private static final int PCAPNG_ENHANCED_PACKET_BLOCK = 0x00000006;
+	private static final int PCAPNG_MIN_BLOCK_LENGTH = 12;
+
+	private static final int OPTION_END = 0;
+	private static final int OPTION_IF_TSRESOL = 9;
+
+	private static final long MICROSECONDS_PER_SECOND = 1000000L;
+
+	@Autowired
+	private IPacketService packetservice;
+
+	@Autowired
+	private IPcapngHelper pcapngHelper;
+
+	/**
+	 * Interface properties from a pcapng Interface Description Block.
+	 */
+	private static class CaptureInterface {
+		private final LinkLayerDescriptor linkLayer;
+		private final int snapLength;
+		private final long unitsPerSecond;
+		private final boolean decimal;
+
+		CaptureInterface(LinkLayerDescriptor linkLayer, int snapLength, long unitsPerSecond, boolean decimal) {
+			this.linkLayer = linkLayer;
+			this.snapLength = snapLength;
+			this.unitsPerSecond = unitsPerSecond;
+			this.decimal = decimal;
+		}
+
+		long toSeconds(long timestamp) {
+			return Long.divideUnsigned(timestamp, unitsPerSecond);
+		}
+
+		long toMicroSeconds(long timestamp) {
+			long remainder = Long.remainderUnsigned(timestamp, unitsPerSecond);
+			if (!decimal) {
+				return (long) (remainder * (MICROSECONDS_PER_SECOND / (double) unitsPerSecond));
+			}
+			return unitsPerSecond >= MICROSECONDS_PER_SECOND ? remainder / (unitsPerSecond / MICROSECONDS_PER_SECOND)
+					: remainder * (MICROSECONDS_PER_SECOND / unitsPerSecond);
+		}
+	}
+
+	public void setPacketService(IPacketService packetservice) {
+		this.packetservice = packetservice;
+	}
+
+	public void setPcapngHelper(IPcapngHelper pcapngHelper) {
+		this.pcapngHelper = pcapngHelper;
+	}
+
+	@Override
+	public void readPacket(String packetfile, IPacketListener listener) throws IOException {
+		if (listener == null) {
+			LOGGER.error("PacketListener cannot be null");
+			throw new IllegalArgumentException("PacketListener cannot be null");
+		}
+		if (packetservice == null) {
+			packetservice = new PacketServiceImpl();
+		}
+		// the Apple pcapng check of the previous trace does not apply to this one
+		if (pcapngHelper != null) {
+			pcapngHelper.reset();
+		}
+
+		// one address table for the whole capture, packets share their InetAddress instances
+		InetAddressTable addressTable = new InetAddressTable();
+		try (MappedCaptureFile capture = new MappedCaptureFile(packetfile)) {
+			if (capture.size() < 4) {
+				throw new IOException("Not a pcap or pcapng file: " + packetfile);
+			}
+			int magic = capture.getInt(0);
+			if (magic == PCAPNG_SECTION_HEADER_BLOCK) {
+				readPcapng(capture, packetfile, listener, addressTable);
+			} else {
+				readPcap(capture, magic, packetfile, listener, addressTable);
+			}
+		}
+	}
+
+	/**
+	 * Reads a classic libpcap file, the record headers follow the byte order
+	 * of the magic number in the file header.
+	 */
+	private void readPcap(MappedCaptureFile capture, int magic, String packetfile, IPacketListener listener, InetAddressTable addressTable) throws IOException {
+		boolean nanoSeconds;
+		if (magic == PCAP_MAGIC_MICROSECONDS || magic == PCAP_MAGIC_NANOSECONDS) {
+			capture.setOrder(ByteOrder.BIG_ENDIAN);
+			nanoSeconds = magic == PCAP_MAGIC_NANOSECONDS;
+		} else if (Integer.reverseBytes(magic) == PCAP_MAGIC_MICROSECONDS || Integer.reverseBytes(magic) == PCAP_MAGIC_NANOSECONDS) {
+			capture.setOrder(ByteOrder.LITTLE_ENDIAN);
+			nanoSeconds = Integer.reverseBytes(magic) == PCAP_MAGIC_NANOSECONDS;
+		} else {
+			throw new IOException("Not a pcap or pcapng file: " + packetfile);
+		}
+		if (capture.size() < PCAP_FILE_HEADER_LENGTH) {
+			throw new IOException("Truncated pcap file header: " + packetfile);
+		}
+
+		// resolved once for the whole file rather than for every packet
+		LinkLayerDescriptor linkLayer = packetservice.getLinkLayerDescriptor(capture.getInt(20) & 0xFFFF, capture.getOrder(), packetfile);
+		long size = capture.size();
+		long offset = PCAP_FILE_HEADER_LENGTH;
+		while (offset + PCAP_RECORD_HEADER_LENGTH <= size) {
+			long seconds = capture.getInt(offset) & 0xFFFFFFFFL;
+			long fraction = capture.getInt(offset + 4) & 0xFFFFFFFFL;
+			int capturedLength = capture.getInt(offset + 8);
+			int originalLength = capture.getInt(offset + 12);
+			offset += PCAP_RECORD_HEADER_LENGTH;
+			if (capturedLength < 0 || offset + capturedLength > size) {
+				LOGGER.warn("Truncated packet record at offset " + offset + " in " + packetfile);
+				break;
+			}
+			long microSeconds = nanoSeconds ? fraction / 1000 : fraction;
+			deliver(listener, linkLayer, addressTable, seconds, microSeconds, originalLength, capture.slice(offset, capturedLength));
+			offset += capturedLength;
+		}
+	}
+
+	/**
+	 * Reads a pcapng file block by block. A new Section Header Block resets the
+	 * byte order and the list of interfaces.
+	 */
+	private void readPcapng(MappedCaptureFile capture, String packetfile, IPacketListener listener, InetAddressTable addressTable) throws IOException {
+		List<CaptureInterface> interfaces = new ArrayList<>();
+		long size = capture.size();
+		long offset = 0;
+		long lastSeconds = 0;
+		long lastMicroSeconds = 0;
+
+		while (offset + PCAPNG_MIN_BLOCK_LENGTH <= size) {
+			int blockType = capture.getInt(offset);
+			if (blockType == PCAPNG_SECTION_HEADER_BLOCK) {
+				capture.setOrder(ByteOrder.BIG_ENDIAN);
+				int byteOrderMagic = capture.getInt(offset + 8);
+				if (byteOrderMagic == PCAPNG_BYTE_ORDER_MAGIC) {
+					capture.setOrder(ByteOrder.BIG_ENDIAN);
+				} else if (Integer.reverseBytes(byteOrderMagic) == PCAPNG_BYTE_ORDER_MAGIC) {
+					capture.setOrder(ByteOrder.LITTLE_ENDIAN);
+				} else {
+					throw new IOException("Invalid pcapng section header at offset " + offset + " in " + packetfile);
+				}
+				interfaces.clear();
+			}
+
+			int blockLength = capture.getInt(offset + 4);
+			if (blockLength < PCAPNG_MIN_BLOCK_LENGTH || offset + blockLength > size) {
+				LOGGER.warn("Truncated pcapng block at offset " + offset + " in " + packetfile);
+				break;
+			}
+			long blockEnd = offset + blockLength - 4;
+
+			switch (blockType) {
+			case PCAPNG_INTERFACE_DESCRIPTION_BLOCK:
+				interfaces.add(readInterface(capture, offset, blockEnd, packetfile));
+				break;
+			case PCAPNG_ENHANCED_PACKET_BLOCK:
+			case PCAPNG_PACKET_BLOCK: {
+				int interfaceId = blockType == PCAPNG_ENHANCED_PACKET_BLOCK ? capture.getInt(offset + 8)
+						: capture.getShort(offset + 8) & 0xFFFF;
+				long timestamp = ((long) capture.getInt(offset + 12) << 32) | (capture.getInt(offset + 16) & 0xFFFFFFFFL);
+				int capturedLength = capture.getInt(offset + 20);
+				int originalLength = capture.getInt(offset + 24);
+				long dataOffset = offset + 28;
+				if (interfaceId < 0 || interfaceId >= interfaces.size()) {
+					LOGGER.warn("Packet block at offset " + offset + " refers to unknown interface " + interfaceId);
+					break;
+				}
+				if (capturedLength < 0 || dataOffset + capturedLength > blockEnd) {
+					LOGGER.warn("Invalid captured length in packet block at offset " + offset + " in " + packetfile);
+					break;
+				}
+				CaptureInterface captureInterface = interfaces.get(interfaceId);
+				lastSeconds = captureInterface.toSeconds(timestamp);
+				lastMicroSeconds = captureInterface.toMicroSeconds(timestamp);
+				deliver(listener, captureInterface.linkLayer, addressTable, lastSeconds, lastMicroSeconds, originalLength,
+						capture.slice(dataOffset, capturedLength));
+				break;
+			}
+			case PCAPNG_SIMPLE_PACKET_BLOCK: {
+				// no timestamp in a simple packet block, reuse the one of the previous packet
+				if (interfaces.isEmpty()) {
+					LOGGER.warn("Simple packet block at offset " + offset + " without an interface");
+					break;
+				}
+				CaptureInterface captureInterface = interfaces.get(0);
+				int originalLength = capture.getInt(offset + 8);
+				long dataOffset = offset + 12;
+				int capturedLength = (int) Math.min(originalLength & 0xFFFFFFFFL, blockEnd - dataOffset);
+				if (captureInterface.snapLength > 0) {
+					capturedLength = Math.min(capturedLength, captureInterface.snapLength);
+				}
+				deliver(listener, captureInterface.linkLayer, addressTable, lastSeconds, lastMicroSeconds, originalLength,
+						capture.slice(dataOffset, capturedLength));
+				break;
+			}
+			default:
+				break;
+			}
+			offset += blockLength;
+		}
+	}
+
+	private CaptureInterface readInterface(MappedCaptureFile capture, long offset, long blockEnd, String packetfile) throws IOException {
+		int linkType = capture.getShort(offset + 8) & 0xFFFF;
+		int snapLength = capture.getInt(offset + 12);
+		long unitsPerSecond = MICROSECONDS_PER_SECOND;
+		boolean decimal = true;
+
+		long option = offset + 16;
+		while (option + 4 <= blockEnd) {
+			int code = capture.getShort(option) & 0xFFFF;
+			int length = capture.getShort(option + 2) & 0xFFFF;
+			if (code == OPTION_END) {
+				break;
+			}
+			if (code == OPTION_IF_TSRESOL && length >= 1 && option + 5 <= blockEnd) {
+				int resolution = capture.get(option + 4);
+				int exponent = resolution & 0x7F;
+				decimal = (resolution & 0x80) == 0;
+				if (decimal) {
+					unitsPerSecond = 1;
+					for (int i = 0; i < Math.min(exponent, 18); i++) {
+						unitsPerSecond *= 10;
+					}
+				} else {
+					unitsPerSecond = 1L << Math.min(exponent, 62);
+				}
+			}
+			option += 4 + ((length + 3) & ~3);
+		}
+		LinkLayerDescriptor linkLayer = packetservice.getLinkLayerDescriptor(linkType, capture.getOrder(), packetfile);
+		return new CaptureInterface(linkLayer, snapLength, unitsPerSecond, decimal);
+	}
+
+	private void deliver(IPacketListener listener, LinkLayerDescriptor linkLayer, InetAddressTable addressTable, long seconds, long microSeconds, int len, ByteBuffer data) {
+		try {
+			Packet packet = packetservice.createPacketFromPcap(linkLayer, addressTable, seconds, microSeconds, len, data);
+			listener.packetArrived(null, packet);
+		} catch (RuntimeException e) {
+			LOGGER.error("Unexpected exception parsing packet", e);
+		}
+	}
+}
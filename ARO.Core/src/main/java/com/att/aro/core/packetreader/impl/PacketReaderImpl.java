@@ -17,6 +17,7 @@ package com.att.aro.core.packetreader.impl;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteOrder;
 
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
@@ -29,6 +30,8 @@ import com.att.aro.core.packetreader.IPacketListener;
 import com.att.aro.core.packetreader.IPacketReader;
 import com.att.aro.core.packetreader.IPacketService;
 import com.att.aro.core.packetreader.IPcapngHelper;
+import com.att.aro.core.packetreader.pojo.InetAddressTable;
+import com.att.aro.core.packetreader.pojo.LinkLayerDescriptor;
 import com.att.aro.core.packetreader.pojo.Packet;
 import com.att.aro.core.util.Util;
 import com.att.aro.pcap.PCapAdapter;
@@ -58,6 +61,10 @@ public class PacketReaderImpl implements IPacketReader, INativePacketSubscriber
 
 	private String currentPacketfile = null;
 
+	private LinkLayerDescriptor linkLayer = null;
+
+	private InetAddressTable addressTable = null;
+
 	PCapAdapter adapter = null;
 
 	String backupCapFileName = "backup.cap";
@@ -82,6 +89,8 @@ public class PacketReaderImpl implements IPacketReader, INativePacketSubscriber
 		}
 		
 		currentPacketfile = packetfile;
+		linkLayer = null;
+		addressTable = new InetAddressTable();
 		provisionalPcapConversion(packetfile);
 		
 		if (listener == null) {
@@ -200,7 +209,10 @@ public class PacketReaderImpl implements IPacketReader, INativePacketSubscriber
 			if (packetservice == null) {
 				packetservice = new PacketServiceImpl();
 			}
-			Packet tempPacket = packetservice.createPacketFromPcap(datalink, seconds, microSeconds, len, data, currentPacketfile);
+			if (linkLayer == null || linkLayer.getDatalink() != datalink) {
+				linkLayer = packetservice.getLinkLayerDescriptor(datalink, ByteOrder.nativeOrder(), currentPacketfile);
+			}
+			Packet tempPacket = packetservice.createPacketFromPcap(linkLayer, addressTable, seconds, microSeconds, len, data);
 			packetlistener.packetArrived(null, tempPacket);
 		} catch (Throwable t) {
 			LOGGER.error("Unexpected exception parsing packet", t);
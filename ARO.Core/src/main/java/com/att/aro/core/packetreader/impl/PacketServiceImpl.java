@@ -17,6 +17,7 @@ package com.att.aro.core.packetreader.impl;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 import org.apache.log4j.Logger;
 import org.apache.log4j.LogManager;
@@ -27,6 +28,8 @@ import com.att.aro.core.packetreader.IPacketService;
 import com.att.aro.core.packetreader.IPcapngHelper;
 import com.att.aro.core.packetreader.pojo.DomainNameSystem;
 import com.att.aro.core.packetreader.pojo.IPPacket;
+import com.att.aro.core.packetreader.pojo.InetAddressTable;
+import com.att.aro.core.packetreader.pojo.LinkLayerDescriptor;
 import com.att.aro.core.packetreader.pojo.Packet;
 import com.att.aro.core.packetreader.pojo.TCPPacket;
 import com.att.aro.core.packetreader.pojo.UDPPacket;
@@ -53,9 +56,100 @@ public class PacketServiceImpl implements IPacketService {
 	@Autowired
 	private IDomainNameParser domainparser;
 
+	@Override
+	public LinkLayerDescriptor getLinkLayerDescriptor(int datalink, ByteOrder byteOrder, String pcapfile) {
+		switch (datalink) {
+		case DLT_RAW: // Raw IP
+			return new LinkLayerDescriptor(datalink, 0, IPV4, LinkLayerDescriptor.FIXED_NETWORK, byteOrder);
+		case DLT_EN10MB: // Ethernet (WiFi)
+			return new LinkLayerDescriptor(datalink, 14, (short) 0, 12, byteOrder);
+		case DLT_LINUX_SLL: // Linux cooked capture (Android)
+			return new LinkLayerDescriptor(datalink, 16, (short) 0, 14, byteOrder);
+		default:
+			if (pcapfile != null) {
+				try {
+					if (pcapngHelper.isApplePcapng(pcapfile) || pcapngHelper.isNoLinkLayer(pcapfile)) {
+						return new LinkLayerDescriptor(datalink, 4, IPV4, LinkLayerDescriptor.FIXED_NETWORK, byteOrder);
+					}
+				} catch (IOException e) {
+					LOGGER.error(e.getMessage());
+				}
+			}
+			return new LinkLayerDescriptor(datalink, 0, (short) 0, LinkLayerDescriptor.FIXED_NETWORK, byteOrder);
+		}
+	}
+
+	/**
+	 * Returns a new instance of the Packet class, using the link layer of the
+	 * capture and the specified parameters to initialize the class members.
+	 * 
+	 * @param linkLayer
+	 *            The link layer of the capture, see getLinkLayerDescriptor.
+	 * @param addressTable
+	 *            The addresses of the trace being loaded, may be null.
+	 * @param seconds
+	 *            The number of seconds for the packet.
+	 * @param microSeconds
+	 *            The number of microseconds for the packet.
+	 * @param len
+	 *            The length of the packet (in bytes) including both the header
+	 *            and the data.
+	 * @param data
+	 *            An array of bytes that is the data portion of the packet.
+	 * 
+	 * @return The newly created packet.
+	 */
+	@Override
+	public Packet createPacketFromPcap(LinkLayerDescriptor linkLayer, InetAddressTable addressTable, long seconds, long microSeconds, int len, byte[] data) {
+		return createPacketFromPcap(linkLayer, addressTable, seconds, microSeconds, len, ByteBuffer.wrap(data));
+	}
+
+	/**
+	 * Returns a new instance of the Packet class over a buffer of the packet
+	 * data, using the link layer of the capture. The packet refers to the
+	 * bytes of data from its position to its limit instead of copying them.
+	 * 
+	 * @param linkLayer
+	 *            The link layer of the capture, see getLinkLayerDescriptor.
+	 * @param addressTable
+	 *            The addresses of the trace being loaded, may be null.
+	 * @param seconds
+	 *            The number of seconds for the packet.
+	 * @param microSeconds
+	 *            The number of microseconds for the packet.
+	 * @param len
+	 *            The length of the packet (in bytes) including both the header
+	 *            and the data.
+	 * @param data
+	 *            A buffer over the data portion of the packet.
+	 * 
+	 * @return The newly created packet.
+	 */
+	@Override
+	public Packet createPacketFromPcap(LinkLayerDescriptor linkLayer, InetAddressTable addressTable, long seconds, long microSeconds, int len, ByteBuffer data) {
+		data = data.slice();
+		// Determine network protocol
+		short network = linkLayer.getNetwork();
+		int hdrLen = linkLayer.getHeaderLength();
+		int networkTypeOffset = linkLayer.getNetworkTypeOffset();
+		if (networkTypeOffset != LinkLayerDescriptor.FIXED_NETWORK) {
+			if (data.limit() >= networkTypeOffset + 2) {
+				network = (short) (((data.get(networkTypeOffset) & 0xff) << 8) | (data.get(networkTypeOffset + 1) & 0xff));
+			} else {
+				LOGGER.error("Frame too short for link layer header: " + data.limit());
+				hdrLen = 0;
+			}
+		}
+
+		return createPacket(network, seconds, microSeconds, len, hdrLen, data, addressTable);
+	}
+
 	/**
 	 * Returns a new instance of the Packet class, using a datalink to a Pcap
 	 * file and the specified parameters to initialize the class members.
+	 * <p>
+	 * The link layer is resolved on every call, readers should resolve it once
+	 * with getLinkLayerDescriptor and use the descriptor based method instead.
 	 * 
 	 * @param datalink
 	 *            The datalink to a Pcap file.
@@ -73,41 +167,7 @@ public class PacketServiceImpl implements IPacketService {
 	 */
 	@Override
 	public Packet createPacketFromPcap(int datalink, long seconds, long microSeconds, int len, byte[] data, String pcapfile) {
-		// Determine network protocol
-		short network = 0;
-		int hdrLen = 0;
-		ByteBuffer bytes = ByteBuffer.wrap(data);
-		try {
-			switch (datalink) {
-			case DLT_RAW: // Raw IP
-				network = IPV4;
-				break;
-			case DLT_EN10MB: // Ethernet (WiFi)
-				network = bytes.getShort(12);
-				hdrLen = 14;
-				break;
-			case DLT_LINUX_SLL: // Linux cooked capture (Android)
-				network = bytes.getShort(14);
-				hdrLen = 16;
-				break;
-			default:
-				if (pcapfile != null) {
-					try {
-						if (pcapngHelper.isApplePcapng(pcapfile) || pcapngHelper.isNoLinkLayer(pcapfile)) {
-							network = IPV4;
-							hdrLen = 4;
-						}
-					} catch (IOException e) {
-						LOGGER.error(e.getMessage());
-					}
-				}
-				break;
-			}
-		} catch (IndexOutOfBoundsException e) {
-			LOGGER.error(e.getMessage());
-		}
-
-		return createPacket(network, seconds, microSeconds, len, hdrLen, data);
+		return createPacketFromPcap(getLinkLayerDescriptor(datalink, ByteOrder.nativeOrder(), pcapfile), null, seconds, microSeconds, len, data);
 	}
 
 	/**
@@ -205,59 +265,64 @@ public class PacketServiceImpl implements IPacketService {
 	 */
 	@Override
 	public Packet createPacket(short network, long seconds, long microSeconds, int len, int datalinkHdrLen, byte[] data) {
+		return createPacket(network, seconds, microSeconds, len, datalinkHdrLen, ByteBuffer.wrap(data), null);
+	}
+
+	private Packet createPacket(short network, long seconds, long microSeconds, int len, int datalinkHdrLen, ByteBuffer data, InetAddressTable addressTable) {
 		Packet packet = null;
 		// Minimum IP header length is 20 bytes
-		ByteBuffer bytes = ByteBuffer.wrap(data);
-		if (network == IPV6 && data.length >= datalinkHdrLen + 40) {
+		ByteBuffer bytes = data.duplicate().order(ByteOrder.BIG_ENDIAN);
+		int length = data.limit();
+		if (network == IPV6 && length >= datalinkHdrLen + 40) {
 			// Determine IPV6 protocol
 			byte protocol = bytes.get(datalinkHdrLen + 6);
 			switch (protocol) {
 			case 6: // TCP
-				packet = new TCPPacket(seconds, microSeconds, len, datalinkHdrLen, data);
+				packet = new TCPPacket(seconds, microSeconds, len, datalinkHdrLen, data, addressTable);
 				break;
 			case 17: // UDP
-				packet = createUDPPacket(seconds, microSeconds, len, datalinkHdrLen, data);
+				packet = createUDPPacket(seconds, microSeconds, len, datalinkHdrLen, data, addressTable);
 				break;
 			default:
-				packet = new IPPacket(seconds, microSeconds, len, datalinkHdrLen, data);
+				packet = new IPPacket(seconds, microSeconds, len, datalinkHdrLen, data, addressTable);
 				break;
 			}
-		} else if (network == IPV4 && data.length >= datalinkHdrLen + 20) {
+		} else if (network == IPV4 && length >= datalinkHdrLen + 20) {
 
 			byte iphlen = (byte) ((bytes.get(datalinkHdrLen) & 0x0f) << 2);
-			if (data.length < datalinkHdrLen + iphlen) {
+			if (length < datalinkHdrLen + iphlen) {
 				// Truncated packet
-				packet = new Packet(seconds, microSeconds, len, datalinkHdrLen, data);
+				packet = Packet.over(seconds, microSeconds, len, datalinkHdrLen, data);
 			} else {
 				// Determine IP protocol
 				byte protocol = bytes.get(datalinkHdrLen + 9);
 				switch (protocol) {
 				case 6: // TCP
-					if (data.length >= datalinkHdrLen + iphlen + 20) {
-						packet = new TCPPacket(seconds, microSeconds, len, datalinkHdrLen, data);
+					if (length >= datalinkHdrLen + iphlen + 20) {
+						packet = new TCPPacket(seconds, microSeconds, len, datalinkHdrLen, data, addressTable);
 					} else {
-						packet = new Packet(seconds, microSeconds, len, datalinkHdrLen, data);
+						packet = Packet.over(seconds, microSeconds, len, datalinkHdrLen, data);
 					}
 					break;
 				case 17: // UDP
-					if (data.length >= datalinkHdrLen + iphlen + 6) {
-						packet = createUDPPacket(seconds, microSeconds, len, datalinkHdrLen, data);
+					if (length >= datalinkHdrLen + iphlen + 6) {
+						packet = createUDPPacket(seconds, microSeconds, len, datalinkHdrLen, data, addressTable);
 					} else {
-						packet = new Packet(seconds, microSeconds, len, datalinkHdrLen, data);
+						packet = Packet.over(seconds, microSeconds, len, datalinkHdrLen, data);
 					}
 					break;
 				default:
-					packet = new IPPacket(seconds, microSeconds, len, datalinkHdrLen, data);
+					packet = new IPPacket(seconds, microSeconds, len, datalinkHdrLen, data, addressTable);
 				}
 			}
 		} else {
-			packet = new Packet(seconds, microSeconds, len, datalinkHdrLen, data);
+			packet = Packet.over(seconds, microSeconds, len, datalinkHdrLen, data);
 		}
 		return packet;
 	}
 
-	private Packet createUDPPacket(long seconds, long microSeconds, int len, int datalinkHdrLen, byte[] data) {
-		UDPPacket packet = new UDPPacket(seconds, microSeconds, len, datalinkHdrLen, data);
+	private Packet createUDPPacket(long seconds, long microSeconds, int len, int datalinkHdrLen, ByteBuffer data, InetAddressTable addressTable) {
+		UDPPacket packet = new UDPPacket(seconds, microSeconds, len, datalinkHdrLen, data, addressTable);
 		if (packet.isDNSPacket()) {
 			DomainNameSystem dns = domainparser.parseDomainName(packet);
 			packet.setDns(dns);
@@ -163,4 +163,11 @@ public class PcapngHelperImpl implements IPcapngHelper {
 		this.applePcapNG = applePcapNG;
 	}
 
+	@Override
+	public void reset() {
+		applePcapNG = false;
+		prevFilePath = null;
+		prevLastModifyTime = 0;
+	}
+
 }
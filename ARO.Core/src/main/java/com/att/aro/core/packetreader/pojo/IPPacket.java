@@ -20,6 +20,7 @@ import java.io.Serializable;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 import org.apache.log4j.Logger;
 import org.apache.log4j.LogManager;
@@ -51,10 +52,33 @@ public class IPPacket extends Packet implements Serializable {
 	 */
 	public IPPacket(long seconds, long microSeconds, int len, int datalinkHdrLen,
 			byte[] data) {
+		this(seconds, microSeconds, len, datalinkHdrLen, data, null);
+	}
+
+	/**
+	 * Creates a new instance of the IPPacket class, taking the source and
+	 * destination addresses from addressTable.
+	 * 
+	 * @param addressTable The addresses of the trace being loaded, may be null.
+	 */
+	public IPPacket(long seconds, long microSeconds, int len, int datalinkHdrLen,
+			byte[] data, InetAddressTable addressTable) {
+		this(seconds, microSeconds, len, datalinkHdrLen, ByteBuffer.wrap(data), addressTable);
+	}
+
+	/**
+	 * Creates a new instance of the IPPacket class over a buffer of the
+	 * packet data, taking the source and destination addresses from
+	 * addressTable.
+	 * 
+	 * @param addressTable The addresses of the trace being loaded, may be null.
+	 */
+	public IPPacket(long seconds, long microSeconds, int len, int datalinkHdrLen,
+			ByteBuffer data, InetAddressTable addressTable) {
 		super(seconds, microSeconds, len, datalinkHdrLen, data);
 
 		// Parse data
-		ByteBuffer bytes = ByteBuffer.wrap(data);
+		ByteBuffer bytes = getDataBuffer().order(ByteOrder.BIG_ENDIAN);
 		int headerOffset = super.getDataOffset();
 
 		// check for IPv4 or IPv6
@@ -113,19 +137,32 @@ public class IPPacket extends Packet implements Serializable {
 			addrOffset = 12;
 		}
 
-		buffer = new byte[addrLgth];
-		bytes.position(headerOffset + addrOffset);
-		bytes.get(buffer, 0, addrLgth);
-		try {
-			sourceIPAddress = InetAddress.getByAddress(buffer);
-		} catch (UnknownHostException e) {
-			LOGGER.warn("Unable to determine source IP - " + e.getMessage());
-		}
-		try {
+		if (addressTable != null) {
+			try {
+				sourceIPAddress = addressTable.get(bytes, headerOffset + addrOffset, addrLgth);
+			} catch (UnknownHostException e) {
+				LOGGER.warn("Unable to determine source IP - " + e.getMessage());
+			}
+			try {
+				destinationIPAddress = addressTable.get(bytes, headerOffset + addrOffset + addrLgth, addrLgth);
+			} catch (UnknownHostException e) {
+				LOGGER.warn("Unable to determine destination IP - " + e.getMessage());
+			}
+		} else {
+			buffer = new byte[addrLgth];
+			bytes.position(headerOffset + addrOffset);
 			bytes.get(buffer, 0, addrLgth);
-			destinationIPAddress = InetAddress.getByAddress(buffer);
-		} catch (UnknownHostException e) {
-			LOGGER.warn("Unable to determine destination IP - " + e.getMessage());
+			try {
+				sourceIPAddress = InetAddress.getByAddress(buffer);
+			} catch (UnknownHostException e) {
+				LOGGER.warn("Unable to determine source IP - " + e.getMessage());
+			}
+			try {
+				bytes.get(buffer, 0, addrLgth);
+				destinationIPAddress = InetAddress.getByAddress(buffer);
+			} catch (UnknownHostException e) {
+				LOGGER.warn("Unable to determine destination IP - " + e.getMessage());
+			}
 		}
 	}
 
@@ -0,0 +1,187 @@
+/*
+ *  Copyright 2019 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.core.packetreader.pojo;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Interns the IP addresses of a trace load so every packet from or to the same
+ * host shares one InetAddress instance.
+ * <p>
+ * Addresses are looked up directly from the packet bytes, IPv4 keyed by an int
+ * and IPv6 by two longs, so a hit allocates nothing. Not thread safe, a table
+ * is meant to be used by the thread reading a capture.
+ */
+public class InetAddressTable {
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private int[] ipv4Keys = new int[INITIAL_CAPACITY];
+	private InetAddress[] ipv4Addresses = new InetAddress[INITIAL_CAPACITY];
+	private int ipv4Count;
+
+	private long[] ipv6Keys = new long[INITIAL_CAPACITY * 2];
+	private InetAddress[] ipv6Addresses = new InetAddress[INITIAL_CAPACITY];
+	private int ipv6Count;
+
+	/**
+	 * Returns the address stored in data at offset.
+	 *
+	 * @param data The packet data.
+	 * @param offset Offset of the address in data.
+	 * @param length 4 for IPv4, 16 for IPv6.
+	 * @return The interned address.
+	 * @throws UnknownHostException if length is not a valid address length
+	 */
+	public InetAddress get(byte[] data, int offset, int length) throws UnknownHostException {
+		return get(ByteBuffer.wrap(data), offset, length);
+	}
+
+	/**
+	 * Returns the address stored in data at offset, the position, limit and
+	 * byte order of data are ignored.
+	 *
+	 * @param data A buffer over the packet data.
+	 * @param offset Offset of the address in data.
+	 * @param length 4 for IPv4, 16 for IPv6.
+	 * @return The interned address.
+	 * @throws UnknownHostException if length is not a valid address length
+	 */
+	public InetAddress get(ByteBuffer data, int offset, int length) throws UnknownHostException {
+		if (offset < 0 || length < 0 || offset + length > data.limit()) {
+			throw new BufferUnderflowException();
+		}
+		if (length == 4) {
+			return getIPv4(readInt(data, offset), data, offset);
+		} else if (length == 16) {
+			return getIPv6(readLong(data, offset), readLong(data, offset + 8), data, offset);
+		}
+		return InetAddress.getByAddress(copy(data, offset, length));
+	}
+
+	/**
+	 * Returns the number of distinct addresses in the table.
+	 */
+	public int size() {
+		return ipv4Count + ipv6Count;
+	}
+
+	private InetAddress getIPv4(int key, ByteBuffer data, int offset) throws UnknownHostException {
+		int mask = ipv4Addresses.length - 1;
+		int slot = mix(key) & mask;
+		while (ipv4Addresses[slot] != null) {
+			if (ipv4Keys[slot] == key) {
+				return ipv4Addresses[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		InetAddress address = InetAddress.getByAddress(copy(data, offset, 4));
+		ipv4Keys[slot] = key;
+		ipv4Addresses[slot] = address;
+		if (++ipv4Count * 2 > ipv4Addresses.length) {
+			resizeIPv4();
+		}
+		return address;
+	}
+
+	private InetAddress getIPv6(long high, long low, ByteBuffer data, int offset) throws UnknownHostException {
+		int mask = ipv6Addresses.length - 1;
+		int slot = mix(high, low) & mask;
+		while (ipv6Addresses[slot] != null) {
+			if (ipv6Keys[slot * 2] == high && ipv6Keys[slot * 2 + 1] == low) {
+				return ipv6Addresses[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		InetAddress address = InetAddress.getByAddress(copy(data, offset, 16));
+		ipv6Keys[slot * 2] = high;
+		ipv6Keys[slot * 2 + 1] = low;
+		ipv6Addresses[slot] = address;
+		if (++ipv6Count * 2 > ipv6Addresses.length) {
+			resizeIPv6();
+		}
+		return address;
+	}
+
+	private void resizeIPv4() {
+		int[] keys = ipv4Keys;
+		InetAddress[] addresses = ipv4Addresses;
+		ipv4Keys = new int[keys.length * 2];
+		ipv4Addresses = new InetAddress[addresses.length * 2];
+		int mask = ipv4Addresses.length - 1;
+		for (int index = 0; index < addresses.length; index++) {
+			if (addresses[index] != null) {
+				int slot = mix(keys[index]) & mask;
+				while (ipv4Addresses[slot] != null) {
+					slot = (slot + 1) & mask;
+				}
+				ipv4Keys[slot] = keys[index];
+				ipv4Addresses[slot] = addresses[index];
+			}
+		}
+	}
+
+	private void resizeIPv6() {
+		long[] keys = ipv6Keys;
+		InetAddress[] addresses = ipv6Addresses;
+		ipv6Keys = new long[keys.length * 2];
+		ipv6Addresses = new InetAddress[addresses.length * 2];
+		int mask = ipv6Addresses.length - 1;
+		for (int index = 0; index < addresses.length; index++) {
+			if (addresses[index] != null) {
+				int slot = mix(keys[index * 2], keys[index * 2 + 1]) & mask;
+				while (ipv6Addresses[slot] != null) {
+					slot = (slot + 1) & mask;
+				}
+				ipv6Keys[slot * 2] = keys[index * 2];
+				ipv6Keys[slot * 2 + 1] = keys[index * 2 + 1];
+				ipv6Addresses[slot] = addresses[index];
+			}
+		}
+	}
+
+	private static int mix(int key) {
+		int hash = key * 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+
+	private static int mix(long high, long low) {
+		long hash = (high * 0x9E3779B97F4A7C15L) ^ low;
+		hash *= 0xC2B2AE3D27D4EB4FL;
+		return (int) (hash ^ (hash >>> 32));
+	}
+
+	private static int readInt(ByteBuffer data, int offset) {
+		return ((data.get(offset) & 0xFF) << 24) | ((data.get(offset + 1) & 0xFF) << 16) | ((data.get(offset + 2) & 0xFF) << 8) | (data.get(offset + 3) & 0xFF);
+	}
+
+	private static long readLong(ByteBuffer data, int offset) {
+		return ((long) readInt(data, offset) << 32) | (readInt(data, offset + 4) & 0xFFFFFFFFL);
+	}
+
+	private static byte[] copy(ByteBuffer data, int offset, int length) {
+		byte[] bytes = new byte[length];
+		for (int index = 0; index < length; index++) {
+			bytes[index] = data.get(offset + index);
+		}
+		return bytes;
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ *  Copyright 2019 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.core.packetreader.pojo;
+
+import java.nio.ByteOrder;
+
+/**
+ * Describes the link layer of a capture, resolved once when the capture is
+ * opened and then shared by every packet read from it.
+ */
+public class LinkLayerDescriptor {
+
+	/**
+	 * Value of networkTypeOffset when the network protocol is not carried in
+	 * the link layer header.
+	 */
+	public static final int FIXED_NETWORK = -1;
+
+	private final int datalink;
+	private final int headerLength;
+	private final short network;
+	private final int networkTypeOffset;
+	private final ByteOrder byteOrder;
+
+	/**
+	 * @param datalink The datalink type of the capture.
+	 * @param headerLength The length of the link layer header (in bytes).
+	 * @param network The network protocol, used when networkTypeOffset is FIXED_NETWORK.
+	 * @param networkTypeOffset Offset of the network protocol inside each frame or FIXED_NETWORK.
+	 * @param byteOrder The byte order of the capture file.
+	 */
+	public LinkLayerDescriptor(int datalink, int headerLength, short network, int networkTypeOffset, ByteOrder byteOrder) {
+		this.datalink = datalink;
+		this.headerLength = headerLength;
+		this.network = network;
+		this.networkTypeOffset = networkTypeOffset;
+		this.byteOrder = byteOrder;
+	}
+
+	public int getDatalink() {
+		return datalink;
+	}
+
+	public int getHeaderLength() {
+		return headerLength;
+	}
+
+	/**
+	 * Returns the network protocol of every frame when it is not read from the
+	 * frame itself.
+	 */
+	public short getNetwork() {
+		return network;
+	}
+
+	/**
+	 * Returns the offset of the network protocol in each frame, FIXED_NETWORK
+	 * when getNetwork() applies to all frames.
+	 */
+	public int getNetworkTypeOffset() {
+		return networkTypeOffset;
+	}
+
+	public ByteOrder getByteOrder() {
+		return byteOrder;
+	}
+
+	@Override
+	public String toString() {
+		return "LinkLayerDescriptor [datalink=" + datalink + ", headerLength=" + headerLength + ", network=" + network
+				+ ", networkTypeOffset=" + networkTypeOffset + ", byteOrder=" + byteOrder + "]";
+	}
+}
@@ -16,12 +16,20 @@
 
 package com.att.aro.core.packetreader.pojo;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 
 /**
  * generic packet data
+ * <p>
+ * The data is either held in a byte array, in a read-only buffer such as a
+ * slice of a memory mapped capture file or, once moved with moveData, in a
+ * PayloadArena outside the heap.
  */
-public class Packet implements Serializable {
+public class Packet implements Serializable, Cloneable {
 	private static final long serialVersionUID = 1L;
 
 	private byte[] data;
@@ -30,6 +38,10 @@ public class Packet implements Serializable {
 	private int len;
 	private int dataOffset;
 	private Packet nextPacketInSession;
+	private transient ByteBuffer buffer;
+	private transient PayloadArena arena;
+	private transient long dataHandle;
+	private transient int dataLength;
 
 	/**
 	 *  Initializes  a new instance of the Packet class, using the specified parameters.
@@ -48,14 +60,163 @@ public class Packet implements Serializable {
 	}
 
 	/**
-	 * Gets the data portion of the packet.
+	 * Initializes a new instance of the Packet class over the bytes of data
+	 * from its position to its limit, without copying them. A buffer wrapping
+	 * a whole array keeps the array, any other buffer is kept as a read-only
+	 * view, so the bytes must not change while the packet is in use.
+	 * @param datalinkHdrLen The datalink for the packet.
+	 * @param seconds The number of seconds for the packet.
+	 * @param microSeconds The number of microseconds for the packet.
+	 * @param len The length of the packet (in bytes) including both the header and the data.
+	 * @param data A buffer over the data portion of the packet.
+	 */
+	protected Packet(long seconds, long microSeconds, int len, int datalinkHdrLen, ByteBuffer data) {
+		this.dataOffset = datalinkHdrLen;
+		this.seconds = seconds;
+		this.microSeconds = microSeconds;
+		this.len = len;
+		if (data.hasArray() && data.arrayOffset() == 0 && data.position() == 0 && data.limit() == data.array().length) {
+			this.data = data.array();
+		} else {
+			this.buffer = data.slice().asReadOnlyBuffer();
+		}
+	}
+
+	/**
+	 * Returns a new packet over the bytes of data from its position to its
+	 * limit, see the buffer constructor.
+	 */
+	public static Packet over(long seconds, long microSeconds, int len, int datalinkHdrLen, ByteBuffer data) {
+		return new Packet(seconds, microSeconds, len, datalinkHdrLen, data);
+	}
+
+	/**
+	 * Gets the data portion of the packet. Data kept in a buffer or a
+	 * PayloadArena is copied into a new array on each call, use getDataLength,
+	 * writeData or getDataBuffer to read it without a copy.
 	 * 
 	 * @return The packet data.
 	 */
 	public byte[] getData() {
+		if (arena != null) {
+			byte[] copy = new byte[dataLength];
+			arena.read(dataHandle, 0, copy, 0, dataLength);
+			return copy;
+		}
+		if (buffer != null) {
+			byte[] copy = new byte[buffer.limit()];
+			buffer.duplicate().get(copy);
+			return copy;
+		}
 		return data;
 	}
 
+	/**
+	 * Returns the number of bytes of packet data, the length of getData().
+	 */
+	public int getDataLength() {
+		if (arena != null) {
+			return dataLength;
+		}
+		if (buffer != null) {
+			return buffer.limit();
+		}
+		return data != null ? data.length : 0;
+	}
+
+	/**
+	 * Copies length bytes of the packet data, starting at offset, to dst at
+	 * dstOffset.
+	 */
+	public void readData(int offset, byte[] dst, int dstOffset, int length) {
+		if (arena != null) {
+			checkRange(offset, length);
+			arena.read(dataHandle, offset, dst, dstOffset, length);
+		} else if (buffer != null) {
+			getDataBuffer(offset, length).get(dst, dstOffset, length);
+		} else {
+			System.arraycopy(data, offset, dst, dstOffset, length);
+		}
+	}
+
+	/**
+	 * Writes length bytes of the packet data, starting at offset, to out.
+	 */
+	public void writeData(OutputStream out, int offset, int length) throws IOException {
+		if (arena != null) {
+			checkRange(offset, length);
+			arena.write(dataHandle, offset, length, out);
+		} else if (buffer != null) {
+			ByteBuffer view = getDataBuffer(offset, length);
+			byte[] chunk = new byte[Math.min(length, 8192)];
+			while (view.hasRemaining()) {
+				int count = Math.min(chunk.length, view.remaining());
+				view.get(chunk, 0, count);
+				out.write(chunk, 0, count);
+			}
+		} else {
+			out.write(data, offset, length);
+		}
+	}
+
+	/**
+	 * Returns a read-only buffer over the packet data.
+	 */
+	public ByteBuffer getDataBuffer() {
+		if (arena != null) {
+			return arena.slice(dataHandle, 0, dataLength);
+		}
+		if (buffer != null) {
+			return buffer.duplicate();
+		}
+		return ByteBuffer.wrap(data).asReadOnlyBuffer();
+	}
+
+	/**
+	 * Returns a read-only buffer over length bytes of the packet data,
+	 * starting at offset, without copying them.
+	 */
+	public ByteBuffer getDataBuffer(int offset, int length) {
+		if (arena != null) {
+			checkRange(offset, length);
+			return arena.slice(dataHandle, offset, length);
+		}
+		if (buffer != null) {
+			checkRange(offset, length);
+			ByteBuffer view = buffer.duplicate();
+			view.limit(offset + length).position(offset);
+			return view.slice();
+		}
+		return ByteBuffer.wrap(data, offset, length).slice().asReadOnlyBuffer();
+	}
+
+	private void checkRange(int offset, int length) {
+		int available = getDataLength();
+		if (offset < 0 || length < 0 || offset + length > available) {
+			throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", data length " + available);
+		}
+	}
+
+	/**
+	 * Moves the packet data into arena, releasing the array or buffer.
+	 * Packets are parsed when created, the data is only read again for
+	 * payloads. Data already outside the heap, in a direct buffer such as a
+	 * slice of a mapped capture file, stays where it is.
+	 */
+	public void moveData(PayloadArena arena) {
+		if (this.arena == null && data != null) {
+			dataLength = data.length;
+			dataHandle = arena.append(data, 0, dataLength);
+			this.arena = arena;
+			data = null;
+		} else if (this.arena == null && buffer != null && !buffer.isDirect()) {
+			dataLength = buffer.limit();
+			dataHandle = arena.append(buffer.duplicate());
+			this.arena = arena;
+			buffer = null;
+		}
+	}
+
 	/**
 	 * Gets the number of seconds.
 	 * 
@@ -135,8 +296,38 @@ public class Packet implements Serializable {
 		this.nextPacketInSession = nextPacketInSession;
 	}
 
+	/**
+	 * Returns a copy of the packet that shares its data but not the session it
+	 * was put in.
+	 */
+	public Packet copy() {
+		try {
+			Packet copy = (Packet) clone();
+			copy.nextPacketInSession = null;
+			return copy;
+		} catch (CloneNotSupportedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
 	public void setData(byte[] data) {
 		this.data = data;
+		this.buffer = null;
+		this.arena = null;
+	}
+
+	/**
+	 * Writes the data as an array whether or not it is kept in an arena.
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		ObjectOutputStream.PutField fields = out.putFields();
+		fields.put("data", getData());
+		fields.put("seconds", seconds);
+		fields.put("microSeconds", microSeconds);
+		fields.put("len", len);
+		fields.put("dataOffset", dataOffset);
+		fields.put("nextPacketInSession", nextPacketInSession);
+		out.writeFields();
 	}
 	
 }
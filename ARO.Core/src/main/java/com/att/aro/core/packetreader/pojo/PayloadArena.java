@@ -0,0 +1,245 @@
+/*
+ *  Copyright 2019 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.core.packetreader.pojo;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+/**
+ * Holds the data of the packets of a trace load outside the Java heap, so the
+ * heap used by a trace grows with its number of packets rather than with its
+ * number of bytes.
+ * <p>
+ * Data is appended to chunks that are either mapped from a temporary spill
+ * file or, if no spill file can be created, allocated as direct buffers. An
+ * append returns a handle that locates the bytes, an entry never spans two
+ * chunks. The spill file is deleted as soon as it is opened where the
+ * platform allows it, otherwise the next arena created deletes it once its
+ * chunks are unmapped. The chunks are released once the arena and the
+ * packets referencing it are no longer reachable.
+ * <p>
+ * Appends are meant for the thread reading the capture, reads are thread safe.
+ */
+public class PayloadArena {
+
+	private static final Logger LOGGER = LogManager.getLogger(PayloadArena.class.getName());
+
+	/**
+	 * Default size of a chunk in bytes.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 64 * 1024 * 1024;
+
+	private static final ThreadLocal<byte[]> WRITE_BUFFER = ThreadLocal.withInitial(() -> new byte[8192]);
+
+	/**
+	 * Spill files that could not be deleted while open, as on Windows.
+	 */
+	private static final List<File> UNDELETED = new ArrayList<>();
+
+	private final int chunkSize;
+	private File spillFile;
+	private FileChannel channel;
+	private long spillSize;
+
+	// read by any thread, replaced when a chunk is added; the chunks themselves keep position 0
+	private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+	private ByteBuffer current;
+	private long size;
+
+	/**
+	 * Creates an arena backed by direct buffers.
+	 *
+	 * @param chunkSize The size of a chunk in bytes.
+	 */
+	public PayloadArena(int chunkSize) {
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Creates an arena backed by chunks mapped from spillFile, which is
+	 * replaced if it exists.
+	 *
+	 * @param spillFile The file holding the data.
+	 * @param chunkSize The size of a chunk in bytes.
+	 * @throws IOException if spillFile cannot be opened
+	 */
+	public PayloadArena(File spillFile, int chunkSize) throws IOException {
+		this.chunkSize = chunkSize;
+		this.spillFile = spillFile;
+		RandomAccessFile file = new RandomAccessFile(spillFile, "rw");
+		file.setLength(0);
+		channel = file.getChannel();
+		if (!spillFile.delete()) {
+			spillFile.deleteOnExit();
+			synchronized (UNDELETED) {
+				UNDELETED.add(spillFile);
+			}
+		}
+	}
+
+	/**
+	 * Creates an arena backed by a temporary spill file, or by direct buffers
+	 * if the file cannot be created.
+	 */
+	public static PayloadArena create() {
+		deleteUndeleted();
+		try {
+			return new PayloadArena(File.createTempFile("aro_payload", ".tmp"), DEFAULT_CHUNK_SIZE);
+		} catch (IOException e) {
+			LOGGER.warn("Failed to create payload spill file, keeping payload in direct buffers: " + e.getMessage());
+			return new PayloadArena(DEFAULT_CHUNK_SIZE);
+		}
+	}
+
+	/**
+	 * Stores length bytes of data starting at offset.
+	 *
+	 * @return The handle of the stored bytes.
+	 */
+	public synchronized long append(byte[] data, int offset, int length) {
+		if (current == null || current.remaining() < length) {
+			addChunk(Math.max(length, chunkSize));
+		}
+		int position = current.position();
+		current.put(data, offset, length);
+		size += length;
+		return ((long) (chunks.length - 1) << 32) | position;
+	}
+
+	/**
+	 * Stores the bytes of data from its position to its limit.
+	 *
+	 * @return The handle of the stored bytes.
+	 */
+	public synchronized long append(ByteBuffer data) {
+		int length = data.remaining();
+		if (current == null || current.remaining() < length) {
+			addChunk(Math.max(length, chunkSize));
+		}
+		int position = current.position();
+		current.put(data);
+		size += length;
+		return ((long) (chunks.length - 1) << 32) | position;
+	}
+
+	/**
+	 * Copies length bytes, starting position bytes into the entry of handle,
+	 * to dst at dstOffset.
+	 */
+	public void read(long handle, int position, byte[] dst, int dstOffset, int length) {
+		ByteBuffer view = view(handle, position, length);
+		view.get(dst, dstOffset, length);
+	}
+
+	/**
+	 * Writes length bytes, starting position bytes into the entry of handle,
+	 * to out.
+	 */
+	public void write(long handle, int position, int length, OutputStream out) throws IOException {
+		ByteBuffer view = view(handle, position, length);
+		byte[] buffer = WRITE_BUFFER.get();
+		while (view.hasRemaining()) {
+			int count = Math.min(buffer.length, view.remaining());
+			view.get(buffer, 0, count);
+			out.write(buffer, 0, count);
+		}
+	}
+
+	/**
+	 * Returns a read-only buffer over length bytes of the entry of handle,
+	 * starting position bytes into it.
+	 */
+	public ByteBuffer slice(long handle, int position, int length) {
+		return view(handle, position, length).slice().asReadOnlyBuffer();
+	}
+
+	/**
+	 * Closes the spill file once the trace is loaded, the mapped chunks stay
+	 * readable. Data appended later goes to direct buffers.
+	 */
+	public synchronized void seal() {
+		if (channel != null) {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				LOGGER.warn("Failed to close " + spillFile + ": " + e.getMessage());
+			}
+			channel = null;
+		}
+		current = null;
+	}
+
+	/**
+	 * Returns the number of bytes stored.
+	 */
+	public synchronized long getSize() {
+		return size;
+	}
+
+	/**
+	 * Deletes the spill files of earlier arenas that were still open when
+	 * they were created. A file stays mapped until the packets of its trace
+	 * are collected, the deletion is retried by each new arena.
+	 */
+	private static void deleteUndeleted() {
+		synchronized (UNDELETED) {
+			for (Iterator<File> files = UNDELETED.iterator(); files.hasNext();) {
+				File file = files.next();
+				if (!file.exists() || file.delete()) {
+					files.remove();
+				}
+			}
+		}
+	}
+
+	private ByteBuffer view(long handle, int position, int length) {
+		ByteBuffer view = chunks[(int) (handle >>> 32)].duplicate();
+		int start = (int) handle + position;
+		view.limit(start + length).position(start);
+		return view;
+	}
+
+	private void addChunk(int capacity) {
+		ByteBuffer chunk = null;
+		if (channel != null) {
+			try {
+				chunk = channel.map(FileChannel.MapMode.READ_WRITE, spillSize, capacity);
+				spillSize += capacity;
+			} catch (IOException e) {
+				LOGGER.warn("Failed to map payload spill file, keeping payload in direct buffers: " + e.getMessage());
+				seal();
+			}
+		}
+		if (chunk == null) {
+			chunk = ByteBuffer.allocateDirect(capacity);
+		}
+		ByteBuffer[] grown = Arrays.copyOf(chunks, chunks.length + 1);
+		grown[chunks.length] = chunk;
+		chunks = grown;
+		current = chunk.duplicate();
+	}
+}
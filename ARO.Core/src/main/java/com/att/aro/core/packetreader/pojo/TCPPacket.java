@@ -17,6 +17,7 @@ package com.att.aro.core.packetreader.pojo;
 
 import java.io.Serializable;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -75,11 +76,30 @@ public class TCPPacket extends IPPacket implements Serializable {
 	 */
 	public TCPPacket(long seconds, long microSeconds, int len, int datalinkHdrLen,
 			byte[] data) {
-		super(seconds, microSeconds, len, datalinkHdrLen, data);
+		this(seconds, microSeconds, len, datalinkHdrLen, data, null);
+	}
+
+	/**
+	 * Creates a new instance of the TCPPacket class, taking the IP addresses from addressTable.
+	 * @param addressTable The addresses of the trace being loaded, may be null.
+	 */
+	public TCPPacket(long seconds, long microSeconds, int len, int datalinkHdrLen,
+			byte[] data, InetAddressTable addressTable) {
+		this(seconds, microSeconds, len, datalinkHdrLen, ByteBuffer.wrap(data), addressTable);
+	}
+
+	/**
+	 * Creates a new instance of the TCPPacket class over a buffer of the packet data, taking the IP addresses from
+	 * addressTable.
+	 * @param addressTable The addresses of the trace being loaded, may be null.
+	 */
+	public TCPPacket(long seconds, long microSeconds, int len, int datalinkHdrLen,
+			ByteBuffer data, InetAddressTable addressTable) {
+		super(seconds, microSeconds, len, datalinkHdrLen, data, addressTable);
 
 		int headerOffset = super.getDataOffset();
 
-		ByteBuffer bytes = ByteBuffer.wrap(data);
+		ByteBuffer bytes = getDataBuffer().order(ByteOrder.BIG_ENDIAN);
 		sourcePort = bytes.getShort(headerOffset) & 0xFFFF;
 		destinationPort = bytes.getShort(headerOffset + 2) & 0xFFFF;
 		sequenceNumber = bytes.getInt(headerOffset + 4) & 0xFFFFFFFFL;
@@ -288,7 +308,7 @@ public class TCPPacket extends IPPacket implements Serializable {
 	 */
 	private int parseSecureSocketsLayer(ByteBuffer bytes, int offset) {
 
-		if (bytes.array().length >= offset + 5) {
+		if (bytes.limit() >= offset + 5) {
 			
 			// Check for TLS/SSL
 			bytes.position(offset);
@@ -312,7 +332,7 @@ public class TCPPacket extends IPPacket implements Serializable {
 					&& (contentType == TLS_CHANGE_CIPHER_SPEC
 							|| contentType == TLS_ALERT
 							|| contentType == TLS_HANDSHAKE || contentType == TLS_APPLICATION)
-					&& bytes.array().length >= result) {
+					&& bytes.limit() >= result) {
 				this.ssl = true;
 				if (contentType == TLS_HANDSHAKE) {
 					this.sslHandshake = true;
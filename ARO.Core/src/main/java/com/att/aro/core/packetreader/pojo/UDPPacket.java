@@ -17,6 +17,7 @@ package com.att.aro.core.packetreader.pojo;
 
 import java.io.Serializable;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
@@ -41,12 +42,28 @@ public class UDPPacket extends IPPacket implements Serializable {
 	 */
 	public UDPPacket(long seconds, long microSeconds, int len, int datalinkHdrLen,
 			byte[] data) {
-		super(seconds, microSeconds, len, datalinkHdrLen, data);
+		this(seconds, microSeconds, len, datalinkHdrLen, data, null);
+	}
+
+	/**
+	 * Constructor taking the IP addresses from addressTable, which may be null.
+	 */
+	public UDPPacket(long seconds, long microSeconds, int len, int datalinkHdrLen,
+			byte[] data, InetAddressTable addressTable) {
+		this(seconds, microSeconds, len, datalinkHdrLen, ByteBuffer.wrap(data), addressTable);
+	}
+
+	/**
+	 * Constructor over a buffer of the packet data, taking the IP addresses from addressTable, which may be null.
+	 */
+	public UDPPacket(long seconds, long microSeconds, int len, int datalinkHdrLen,
+			ByteBuffer data, InetAddressTable addressTable) {
+		super(seconds, microSeconds, len, datalinkHdrLen, data, addressTable);
 
 		int headerOffset = super.getDataOffset();
 		dataOffset = headerOffset + 8;
 
-		ByteBuffer bytes = ByteBuffer.wrap(data);
+		ByteBuffer bytes = getDataBuffer().order(ByteOrder.BIG_ENDIAN);
 		sourcePort = bytes.getShort(headerOffset) & 0xFFFF;
 		destinationPort = bytes.getShort(headerOffset + 2) & 0xFFFF;
 		packetLength = bytes.getShort(headerOffset + 4) & 0xFFFF;
@@ -15,10 +15,13 @@
  */
 package com.att.aro.core.peripheral.pojo;
 
+import java.io.Serializable;
+
 /**
  * Encapsulates information about the Alarm Info.
  */
-public class AlarmInfo implements Comparable<AlarmInfo> {
+public class AlarmInfo implements Comparable<AlarmInfo>, Serializable {
+	private static final long serialVersionUID = 1L;
 
 	/**
 	 * The AlarmInfo.AlarmType Enumeration specifies constant values that
@@ -15,11 +15,14 @@
  */
 package com.att.aro.core.peripheral.pojo;
 
+import java.io.Serializable;
+
 /*
  * POJO Class for Attenuation Event record
  */
 
-public class AttenuatorEvent {
+public class AttenuatorEvent implements Serializable {
+	private static final long serialVersionUID = 1L;
 
 	private int delayTime ;
 
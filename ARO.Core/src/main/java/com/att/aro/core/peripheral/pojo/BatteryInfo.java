@@ -15,11 +15,14 @@
  */
 package com.att.aro.core.peripheral.pojo;
 
+import java.io.Serializable;
+
 /**
  * Contains battery information for a device, and provides methods for retrieving the level, 
  * temperature, and state of the battery.
  */
-public class BatteryInfo {
+public class BatteryInfo implements Serializable {
+	private static final long serialVersionUID = 1L;
 
 	// Battery Time stamp when the battery level or temperature occur.
 	private double batteryTimeStamp;
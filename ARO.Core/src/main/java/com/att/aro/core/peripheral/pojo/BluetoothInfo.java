@@ -15,12 +15,15 @@
  */
 package com.att.aro.core.peripheral.pojo;
 
+import java.io.Serializable;
+
 /**
  * Contains  Bluetooth information for a device, and provides methods that indicate if and 
  * when Bluetooth was activated.
  * Date: October 1, 2014
  */
-public class BluetoothInfo {
+public class BluetoothInfo implements Serializable {
+	private static final long serialVersionUID = 1L;
 
 	// Bluetooth Time stamp
 	private double beginTimeStamp;
@@ -15,11 +15,14 @@
  */
 package com.att.aro.core.peripheral.pojo;
 
+import java.io.Serializable;
+
 /**
  * Encapsulates camera information.
  * Date: October 1, 2014
  */
-public class CameraInfo {
+public class CameraInfo implements Serializable {
+	private static final long serialVersionUID = 1L;
 
 	// Camera Time stamp
 	private double beginTimeStamp;
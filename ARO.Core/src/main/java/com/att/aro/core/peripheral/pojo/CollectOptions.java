@@ -2,11 +2,13 @@ package com.att.aro.core.peripheral.pojo;
 
 import static java.lang.Integer.parseInt;
 
+import java.io.Serializable;
 import java.util.Properties;
 
 import com.att.aro.core.video.pojo.Orientation;
 
-public class CollectOptions {
+public class CollectOptions implements Serializable {
+	private static final long serialVersionUID = 1L;
 	
 	private int dsDelay = 0;
 	private int usDelay = 0;
@@ -15,13 +15,15 @@
  */
 package com.att.aro.core.peripheral.pojo;
 
+import java.io.Serializable;
 import java.util.List;
 
 /**
  * Encapsulates information about CPU activity.
  * Date: October 1, 2014
  */
-public class CpuActivity {
+public class CpuActivity implements Serializable {
+	private static final long serialVersionUID = 1L;
 
 	public static final int PROCESS_INFO_IDX = 2;
 	public static final String SPLIT_LINE_REG_EXPR = "[ =]";
@@ -15,6 +15,7 @@
  */
 package com.att.aro.core.peripheral.pojo;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
@@ -27,7 +28,8 @@ import com.att.aro.core.packetanalysis.pojo.ProcessSelection;
  * Represents a collection of CPU utilization for each individual process.
  * Date: October 1, 2014
  */
-public class CpuActivityList {
+public class CpuActivityList implements Serializable {
+	private static final long serialVersionUID = 1L;
 
 	// all processes in the CPU file
 	private Set<String> allProcesses = new TreeSet<String>();
@@ -182,4 +184,27 @@ public class CpuActivityList {
 		this.filterByTime = true;
 	}
 
+	/**
+	 * Returns a copy of the list with its own time range.
+	 */
+	public CpuActivityList copy() {
+		CpuActivityList copy = new CpuActivityList();
+		copy.allProcesses.addAll(allProcesses);
+		copy.cpuActivities.addAll(cpuActivities);
+		copy.beginTraceTime = beginTraceTime;
+		copy.endTraceTime = endTraceTime;
+		copy.filterByTime = filterByTime;
+		copy.processSelection = processSelection;
+		return copy;
+	}
+
+	/**
+	 * Removes the time range set by updateTimeRange so all data is displayed.
+	 */
+	public void clearTimeRange() {
+		this.beginTraceTime = 0;
+		this.endTraceTime = 0;
+		this.filterByTime = false;
+	}
+
 }
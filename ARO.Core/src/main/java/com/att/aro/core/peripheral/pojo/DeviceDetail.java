@@ -15,6 +15,8 @@
  */
 package com.att.aro.core.peripheral.pojo;
 
+import java.io.Serializable;
+
 import lombok.Data;
 
 /**
@@ -25,7 +27,8 @@ import lombok.Data;
  * Date: October 7, 2014
  */
 @Data
-public class DeviceDetail {
+public class DeviceDetail implements Serializable {
+	private static final long serialVersionUID = 1L;
 	
 	private String collectorName = "";        // line #1
 	private String deviceModel = "";          // line #2
@@ -15,11 +15,14 @@
  */
 package com.att.aro.core.peripheral.pojo;
 
+import java.io.Serializable;
+
 /**
  * Encapsulates the GPS information.
  * Date: October 1, 2014
  */
-public class GpsInfo implements Comparable<GpsInfo> {
+public class GpsInfo implements Comparable<GpsInfo>, Serializable {
+	private static final long serialVersionUID = 1L;
 
 	// GPS Time stamp
 	private double beginTimeStamp;
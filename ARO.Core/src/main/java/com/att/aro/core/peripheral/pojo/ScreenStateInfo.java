@@ -16,12 +16,15 @@
 
 package com.att.aro.core.peripheral.pojo;
 
+import java.io.Serializable;
+
 
 /**
  * Encapsulates information about the Screen State of the device.
  * Date: October 1, 2014
  */
-public class ScreenStateInfo {
+public class ScreenStateInfo implements Serializable {
+	private static final long serialVersionUID = 1L;
 
 	// Screen Time stamp
 	private double beginTimeStamp;
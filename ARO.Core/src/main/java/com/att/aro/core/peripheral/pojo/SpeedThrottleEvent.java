@@ -15,11 +15,15 @@
  */
 package com.att.aro.core.peripheral.pojo;
 
+import java.io.Serializable;
+
 /**
  * POJO Class for speed throttle event
  */
 
-public class SpeedThrottleEvent {
+public class SpeedThrottleEvent implements Serializable {
+	private static final long serialVersionUID = 1L;
+
 	private long timeStamp;
 
 	private int throttleSpeed;
@@ -15,6 +15,8 @@
  */
 package com.att.aro.core.peripheral.pojo;
 
+import java.io.Serializable;
+
 import lombok.Data;
 
 /**
@@ -22,7 +24,9 @@ import lombok.Data;
  * Date: October 10, 2018
  */
 @Data
-public class VideoStreamStartup {
+public class VideoStreamStartup implements Serializable {
+	private static final long serialVersionUID = 1L;
+
 	private String manifestName;
 	private double manifestReqTime;
 	private double firstSegID;
@@ -15,11 +15,14 @@
  */
 package com.att.aro.core.peripheral.pojo;
 
+import java.io.Serializable;
+
 
 /**
  * Encapsulates information about the Battery Info.
  */
-public class WakelockInfo implements Comparable<WakelockInfo> {
+public class WakelockInfo implements Comparable<WakelockInfo>, Serializable {
+	private static final long serialVersionUID = 1L;
 
 	// wakelock time stamp
 	private double wakelockTimeStamp;
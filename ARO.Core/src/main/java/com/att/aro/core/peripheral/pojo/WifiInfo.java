@@ -15,11 +15,14 @@
  */
 package com.att.aro.core.peripheral.pojo;
 
+import java.io.Serializable;
+
 /**
  * Encapsulates information about the WiFi peripheral.
  * Date: October 1, 2014
  */
-public class WifiInfo implements Comparable<WifiInfo> {
+public class WifiInfo implements Comparable<WifiInfo>, Serializable {
+	private static final long serialVersionUID = 1L;
 
 	// GPS Time stamp
 	private double beginTimeStamp;
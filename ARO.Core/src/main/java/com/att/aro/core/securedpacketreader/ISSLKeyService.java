@@ -16,9 +16,27 @@
 package com.att.aro.core.securedpacketreader;
 
 import com.att.aro.core.packetanalysis.pojo.Session;
+import com.att.aro.core.securedpacketreader.pojo.SSLKey;
 
 public interface ISSLKeyService {
 	int getMasterFromSSLLog(double serverHelloTS, byte[] master, byte[] clientRandom, byte[] serverRandom);
 	int tlsprf(byte[] secret, int secretlen, String label, byte[] seed, int seedlen, byte[] out, int outlen);
 	int getMasterFromKeyList(Session session, byte[] master);
+	/**
+	 * Returns the key a key log recorded for the handshake with clientRandom,
+	 * with the TLS 1.3 traffic secrets, null if there is none.
+	 */
+	SSLKey getKeyByClientRandom(byte[] clientRandom);
+	/**
+	 * Returns how the keys of the trace were matched, by index or by PRF derivation.
+	 */
+	String getStatistics();
+	/**
+	 * Drops the key index and the statistics, called when a trace is read.
+	 */
+	void reset();
+	/**
+	 * Logs the statistics of the trace if any key was looked up.
+	 */
+	void logStatistics();
 }
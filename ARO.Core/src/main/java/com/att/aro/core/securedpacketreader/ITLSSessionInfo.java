@@ -79,4 +79,38 @@ public interface ITLSSessionInfo {
 
 	int setupCiphers(byte[] master, byte[] clientRandom, byte[] serverRandom, ITLSSessionInfo tsiPending);
 
+	/**
+	 * Sets up the ciphers of tsiPending from the TLS 1.3 traffic secrets of
+	 * the client and the server, as logged in a key log.
+	 * 
+	 * @return 1 on success, 0 if a cipher could not be created
+	 */
+	int setupTLS13Ciphers(byte[] clientSecret, byte[] serverSecret, ITLSSessionInfo tsiPending);
+
+	/**
+	 * Returns the negotiated protocol version, TLSRecordCipher.TLS_1_0 until
+	 * it is set.
+	 */
+	int getVersion();
+
+	void setVersion(int version);
+
+	/**
+	 * Returns the cipher of the records the client writes, null if there is none.
+	 */
+	TLSRecordCipher getUplinkCipher();
+
+	/**
+	 * Returns the cipher of the records the server writes, null if there is none.
+	 */
+	TLSRecordCipher getDownlinkCipher();
+
+	void setRecordCiphers(TLSRecordCipher uplinkCipher, TLSRecordCipher downlinkCipher);
+
+	/**
+	 * Returns the content type of the last record decrypted, for TLS 1.3 the
+	 * type hidden inside the encrypted record.
+	 */
+	int getRecordType();
+
 }
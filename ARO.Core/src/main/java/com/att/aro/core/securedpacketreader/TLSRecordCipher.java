@@ -0,0 +1,317 @@
+/*
+ *  Copyright 2019 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.core.securedpacketreader;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.att.aro.core.securedpacketreader.pojo.CryptoEnum.CryptoCipherAlg;
+import com.att.aro.core.securedpacketreader.pojo.CryptoEnum.TLSCipherType;
+import com.att.aro.core.securedpacketreader.pojo.TLSCipherData;
+
+/**
+ * Decrypts the records one side of a TLS connection writes, with the JCA
+ * providers of the running JVM.
+ * <p>
+ * A cipher keeps the state of its direction, the record sequence number and,
+ * for stream and TLS 1.0 CBC ciphers, the cipher state carried from one record
+ * to the next, so records have to be decrypted in the order they were sent.
+ * Ciphers are not shared between connections, each connection can be
+ * decrypted on its own thread.
+ */
+public class TLSRecordCipher {
+
+	public static final int TLS_1_0 = 0x0301;
+	public static final int TLS_1_1 = 0x0302;
+	public static final int TLS_1_2 = 0x0303;
+	public static final int TLS_1_3 = 0x0304;
+
+	private static final int AEAD_TAG_LEN = 16;
+	private static final int AEAD_NONCE_LEN = 12;
+	private static final int GCM_EXPLICIT_NONCE_LEN = 8;
+	private static final int TLS_SEQ_NUM_LEN = 8;
+
+	private final TLSCipherData cipherData;
+	private final int version;
+	private final Cipher cipher;
+	private final SecretKeySpec key;
+	private final byte[] iv;
+	private final Mac mac;
+	private long sequenceNumber;
+	private int recordType = -1;
+
+	private TLSRecordCipher(TLSCipherData cipherData, int version, Cipher cipher, SecretKeySpec key, byte[] iv, Mac mac) {
+		this.cipherData = cipherData;
+		this.version = version;
+		this.cipher = cipher;
+		this.key = key;
+		this.iv = iv;
+		this.mac = mac;
+	}
+
+	/**
+	 * Creates the cipher of one direction.
+	 * 
+	 * @param cipherData
+	 *            The cipher of the negotiated suite
+	 * @param version
+	 *            The negotiated protocol version, TLS_1_0 to TLS_1_3
+	 * @param macAlg
+	 *            The JCA name of the record MAC, null for AEAD ciphers
+	 * @param macKey
+	 *            The MAC key, null for AEAD ciphers
+	 * @param key
+	 *            The write key
+	 * @param iv
+	 *            The write IV, the implicit nonce for AEAD ciphers
+	 * @throws GeneralSecurityException
+	 *             if the JVM does not provide the cipher
+	 */
+	public static TLSRecordCipher create(TLSCipherData cipherData, int version, String macAlg, byte[] macKey, byte[] key, byte[] iv)
+			throws GeneralSecurityException {
+		Cipher cipher = null;
+		SecretKeySpec keySpec = null;
+		switch (cipherData.getAlg()) {
+		case CRYPTO_CIPHER_NULL:
+			break;
+		case CRYPTO_CIPHER_ALG_AES:
+			keySpec = new SecretKeySpec(key, "AES");
+			cipher = Cipher.getInstance("AES/CBC/NoPadding");
+			break;
+		case CRYPTO_CIPHER_ALG_3DES:
+			keySpec = new SecretKeySpec(key, "DESede");
+			cipher = Cipher.getInstance("DESede/CBC/NoPadding");
+			break;
+		case CRYPTO_CIPHER_ALG_DES:
+			keySpec = new SecretKeySpec(key, "DES");
+			cipher = Cipher.getInstance("DES/CBC/NoPadding");
+			break;
+		case CRYPTO_CIPHER_ALG_RC4:
+			keySpec = new SecretKeySpec(key, "ARCFOUR");
+			cipher = Cipher.getInstance("ARCFOUR");
+			break;
+		case CRYPTO_CIPHER_ALG_AES_GCM:
+			keySpec = new SecretKeySpec(key, "AES");
+			cipher = Cipher.getInstance("AES/GCM/NoPadding");
+			break;
+		case CRYPTO_CIPHER_ALG_CHACHA20_POLY1305:
+			// provided from Java 11 on
+			keySpec = new SecretKeySpec(key, "ChaCha20");
+			cipher = Cipher.getInstance("ChaCha20-Poly1305");
+			break;
+		default:
+			throw new GeneralSecurityException("Unsupported cipher " + cipherData.getAlg());
+		}
+
+		if (cipher != null && cipherData.getType() != TLSCipherType.TLS_CIPHER_AEAD) {
+			// stream and CBC ciphers keep their state from record to record
+			if (cipherData.getType() == TLSCipherType.TLS_CIPHER_BLOCK) {
+				cipher.init(Cipher.DECRYPT_MODE, keySpec, new IvParameterSpec(iv, 0, cipherData.getBlockSize()));
+			} else {
+				cipher.init(Cipher.DECRYPT_MODE, keySpec);
+			}
+		}
+
+		Mac mac = null;
+		if (macAlg != null) {
+			mac = Mac.getInstance(macAlg);
+			mac.init(new SecretKeySpec(macKey, macAlg));
+		}
+		return new TLSRecordCipher(cipherData, version, cipher, keySpec, iv != null ? iv.clone() : null, mac);
+	}
+
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * Returns the sequence number of the next record.
+	 */
+	public long getSequenceNumber() {
+		return sequenceNumber;
+	}
+
+	/**
+	 * Returns the content type of the last record decrypted, for TLS 1.3 the
+	 * type hidden inside the encrypted record.
+	 */
+	public int getRecordType() {
+		return recordType;
+	}
+
+	/**
+	 * Decrypts and authenticates the fragment of one record.
+	 * 
+	 * @param recType
+	 *            The content type in the record header
+	 * @param enc
+	 *            The buffer holding the fragment
+	 * @param offset
+	 *            The position of the fragment in enc
+	 * @param length
+	 *            The length of the fragment
+	 * @return The plain text, null if the record could not be decrypted or
+	 *         failed authentication
+	 */
+	public byte[] decrypt(int recType, byte[] enc, int offset, int length) {
+		long seq = sequenceNumber++;
+		try {
+			if (version >= TLS_1_3) {
+				return decryptTLS13(recType, seq, enc, offset, length);
+			}
+			recordType = recType;
+			if (cipherData.getType() == TLSCipherType.TLS_CIPHER_AEAD) {
+				return decryptAEAD(recType, seq, enc, offset, length);
+			}
+			return decryptMacThenEncrypt(recType, seq, enc, offset, length);
+		} catch (GeneralSecurityException e) {
+			return null;
+		}
+	}
+
+	private byte[] decryptMacThenEncrypt(int recType, long seq, byte[] enc, int offset, int length) throws GeneralSecurityException {
+		byte[] plain;
+		if (cipher == null) {
+			plain = Arrays.copyOfRange(enc, offset, offset + length);
+		} else {
+			plain = cipher.update(enc, offset, length);
+			if (plain == null) {
+				plain = new byte[0];
+			}
+		}
+
+		int start = 0;
+		int end = plain.length;
+		if (cipherData.getType() == TLSCipherType.TLS_CIPHER_BLOCK) {
+			int blockSize = cipherData.getBlockSize();
+			if (length == 0 || length % blockSize != 0) {
+				return null;
+			}
+			if (version >= TLS_1_1) {
+				// the first block carries the explicit IV, chaining through it leaves the rest intact
+				start = blockSize;
+			}
+			int padLen = plain[end - 1] & 0xFF;
+			end -= padLen + 1;
+			if (end < start) {
+				return null;
+			}
+		}
+
+		if (mac == null) {
+			return Arrays.copyOfRange(plain, start, end);
+		}
+		int macLen = mac.getMacLength();
+		end -= macLen;
+		if (end < start) {
+			return null;
+		}
+		mac.update(sequence(seq));
+		mac.update(header(recType, end - start));
+		mac.update(plain, start, end - start);
+		if (!MessageDigest.isEqual(mac.doFinal(), Arrays.copyOfRange(plain, end, end + macLen))) {
+			return null;
+		}
+		return start == 0 && end == plain.length ? plain : Arrays.copyOfRange(plain, start, end);
+	}
+
+	private byte[] decryptAEAD(int recType, long seq, byte[] enc, int offset, int length) throws GeneralSecurityException {
+		byte[] nonce;
+		int start = offset;
+		int cipherLen = length;
+		if (iv.length < AEAD_NONCE_LEN) {
+			// GCM, the fixed part of the nonce from the key block followed by the explicit part from the record
+			if (length < GCM_EXPLICIT_NONCE_LEN + AEAD_TAG_LEN) {
+				return null;
+			}
+			nonce = new byte[AEAD_NONCE_LEN];
+			System.arraycopy(iv, 0, nonce, 0, iv.length);
+			System.arraycopy(enc, offset, nonce, iv.length, GCM_EXPLICIT_NONCE_LEN);
+			start += GCM_EXPLICIT_NONCE_LEN;
+			cipherLen -= GCM_EXPLICIT_NONCE_LEN;
+		} else {
+			if (length < AEAD_TAG_LEN) {
+				return null;
+			}
+			nonce = nonce(seq);
+		}
+
+		initAEAD(nonce);
+		cipher.updateAAD(sequence(seq));
+		cipher.updateAAD(header(recType, cipherLen - AEAD_TAG_LEN));
+		return cipher.doFinal(enc, start, cipherLen);
+	}
+
+	private byte[] decryptTLS13(int recType, long seq, byte[] enc, int offset, int length) throws GeneralSecurityException {
+		if (length < AEAD_TAG_LEN) {
+			return null;
+		}
+		initAEAD(nonce(seq));
+		// the additional data is the record header as sent, always with the TLS 1.2 version
+		cipher.updateAAD(new byte[] { (byte) recType, (byte) (TLS_1_2 >> 8), (byte) TLS_1_2, (byte) (length >> 8), (byte) length });
+		byte[] plain = cipher.doFinal(enc, offset, length);
+
+		// TLSInnerPlaintext, the content, the real content type and zero padding
+		int end = plain.length - 1;
+		while (end >= 0 && plain[end] == 0) {
+			end--;
+		}
+		if (end < 0) {
+			return null;
+		}
+		recordType = plain[end] & 0xFF;
+		return Arrays.copyOf(plain, end);
+	}
+
+	private void initAEAD(byte[] nonce) throws GeneralSecurityException {
+		if (cipherData.getAlg() == CryptoCipherAlg.CRYPTO_CIPHER_ALG_AES_GCM) {
+			cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(AEAD_TAG_LEN * 8, nonce));
+		} else {
+			cipher.init(Cipher.DECRYPT_MODE, key, new IvParameterSpec(nonce));
+		}
+	}
+
+	/**
+	 * Returns the per-record nonce of RFC 7905 and RFC 8446, the IV xor-ed with
+	 * the padded sequence number.
+	 */
+	private byte[] nonce(long seq) {
+		byte[] nonce = iv.clone();
+		for (int index = 0; index < TLS_SEQ_NUM_LEN; index++) {
+			nonce[nonce.length - 1 - index] ^= (byte) (seq >>> (8 * index));
+		}
+		return nonce;
+	}
+
+	private static byte[] sequence(long seq) {
+		byte[] bytes = new byte[TLS_SEQ_NUM_LEN];
+		for (int index = 0; index < TLS_SEQ_NUM_LEN; index++) {
+			bytes[TLS_SEQ_NUM_LEN - 1 - index] = (byte) (seq >>> (8 * index));
+		}
+		return bytes;
+	}
+
+	private byte[] header(int recType, int length) {
+		return new byte[] { (byte) recType, (byte) (version >> 8), (byte) version, (byte) (length >> 8), (byte) length };
+	}
+}
@@ -38,6 +38,27 @@ public class CipherDataServiceImpl implements ICipherDataService {
 	private static final int  TLS_DH_ANON_WITH_AES_128_CBC_SHA	=0x0034; /* RFC 3268 */
 	private static final int  TLS_RSA_WITH_AES_256_CBC_SHA		=0x0035; /* RFC 3268 */
 	private static final int  TLS_DH_ANON_WITH_AES_256_CBC_SHA	=0x003A; /* RFC 3268 */
+	private static final int  TLS_RSA_WITH_AES_128_CBC_SHA256	=0x003C; /* RFC 5246 */
+	private static final int  TLS_RSA_WITH_AES_256_CBC_SHA256	=0x003D; /* RFC 5246 */
+	private static final int  TLS_RSA_WITH_AES_128_GCM_SHA256	=0x009C; /* RFC 5288 */
+	private static final int  TLS_RSA_WITH_AES_256_GCM_SHA384	=0x009D; /* RFC 5288 */
+	private static final int  TLS_AES_128_GCM_SHA256			=0x1301; /* RFC 8446 */
+	private static final int  TLS_AES_256_GCM_SHA384			=0x1302; /* RFC 8446 */
+	private static final int  TLS_CHACHA20_POLY1305_SHA256		=0x1303; /* RFC 8446 */
+	private static final int  TLS_ECDHE_ECDSA_WITH_AES_128_CBC_SHA	=0xC009; /* RFC 4492 */
+	private static final int  TLS_ECDHE_ECDSA_WITH_AES_256_CBC_SHA	=0xC00A; /* RFC 4492 */
+	private static final int  TLS_ECDHE_RSA_WITH_AES_128_CBC_SHA	=0xC013; /* RFC 4492 */
+	private static final int  TLS_ECDHE_RSA_WITH_AES_256_CBC_SHA	=0xC014; /* RFC 4492 */
+	private static final int  TLS_ECDHE_ECDSA_WITH_AES_128_CBC_SHA256	=0xC023; /* RFC 5289 */
+	private static final int  TLS_ECDHE_ECDSA_WITH_AES_256_CBC_SHA384	=0xC024; /* RFC 5289 */
+	private static final int  TLS_ECDHE_RSA_WITH_AES_128_CBC_SHA256	=0xC027; /* RFC 5289 */
+	private static final int  TLS_ECDHE_RSA_WITH_AES_256_CBC_SHA384	=0xC028; /* RFC 5289 */
+	private static final int  TLS_ECDHE_ECDSA_WITH_AES_128_GCM_SHA256	=0xC02B; /* RFC 5289 */
+	private static final int  TLS_ECDHE_ECDSA_WITH_AES_256_GCM_SHA384	=0xC02C; /* RFC 5289 */
+	private static final int  TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256	=0xC02F; /* RFC 5289 */
+	private static final int  TLS_ECDHE_RSA_WITH_AES_256_GCM_SHA384	=0xC030; /* RFC 5289 */
+	private static final int  TLS_ECDHE_RSA_WITH_CHACHA20_POLY1305_SHA256	=0xCCA8; /* RFC 7905 */
+	private static final int  TLS_ECDHE_ECDSA_WITH_CHACHA20_POLY1305_SHA256	=0xCCA9; /* RFC 7905 */
 
 	private TLSCipherSuite tlsCipherSuites[] = {
 			new TLSCipherSuite(TLS_NULL_WITH_NULL_NULL, TLSKeyExchange.TLS_KEY_X_NULL, TLSCipher.TLS_CIPHER_NULL, TLSHash.TLS_HASH_NULL),
@@ -51,7 +72,28 @@ public class CipherDataServiceImpl implements ICipherDataService {
 			new TLSCipherSuite(TLS_RSA_WITH_AES_128_CBC_SHA, TLSKeyExchange.TLS_KEY_X_RSA, TLSCipher.TLS_CIPHER_AES_128_CBC, TLSHash.TLS_HASH_SHA),
 			new TLSCipherSuite(TLS_DH_ANON_WITH_AES_128_CBC_SHA, TLSKeyExchange.TLS_KEY_X_DH_anon, TLSCipher.TLS_CIPHER_AES_128_CBC, TLSHash.TLS_HASH_SHA),
 			new TLSCipherSuite(TLS_RSA_WITH_AES_256_CBC_SHA, TLSKeyExchange.TLS_KEY_X_RSA, TLSCipher.TLS_CIPHER_AES_256_CBC, TLSHash.TLS_HASH_SHA),
-			new TLSCipherSuite(TLS_DH_ANON_WITH_AES_256_CBC_SHA, TLSKeyExchange.TLS_KEY_X_DH_anon, TLSCipher.TLS_CIPHER_AES_256_CBC, TLSHash.TLS_HASH_SHA) };
+			new TLSCipherSuite(TLS_DH_ANON_WITH_AES_256_CBC_SHA, TLSKeyExchange.TLS_KEY_X_DH_anon, TLSCipher.TLS_CIPHER_AES_256_CBC, TLSHash.TLS_HASH_SHA),
+			new TLSCipherSuite(TLS_RSA_WITH_AES_128_CBC_SHA256, TLSKeyExchange.TLS_KEY_X_RSA, TLSCipher.TLS_CIPHER_AES_128_CBC, TLSHash.TLS_HASH_SHA256),
+			new TLSCipherSuite(TLS_RSA_WITH_AES_256_CBC_SHA256, TLSKeyExchange.TLS_KEY_X_RSA, TLSCipher.TLS_CIPHER_AES_256_CBC, TLSHash.TLS_HASH_SHA256),
+			new TLSCipherSuite(TLS_RSA_WITH_AES_128_GCM_SHA256, TLSKeyExchange.TLS_KEY_X_RSA, TLSCipher.TLS_CIPHER_AES_128_GCM, TLSHash.TLS_HASH_SHA256),
+			new TLSCipherSuite(TLS_RSA_WITH_AES_256_GCM_SHA384, TLSKeyExchange.TLS_KEY_X_RSA, TLSCipher.TLS_CIPHER_AES_256_GCM, TLSHash.TLS_HASH_SHA384),
+			new TLSCipherSuite(TLS_AES_128_GCM_SHA256, TLSKeyExchange.TLS_KEY_X_TLS13, TLSCipher.TLS_CIPHER_AES_128_GCM, TLSHash.TLS_HASH_SHA256),
+			new TLSCipherSuite(TLS_AES_256_GCM_SHA384, TLSKeyExchange.TLS_KEY_X_TLS13, TLSCipher.TLS_CIPHER_AES_256_GCM, TLSHash.TLS_HASH_SHA384),
+			new TLSCipherSuite(TLS_CHACHA20_POLY1305_SHA256, TLSKeyExchange.TLS_KEY_X_TLS13, TLSCipher.TLS_CIPHER_CHACHA20_POLY1305, TLSHash.TLS_HASH_SHA256),
+			new TLSCipherSuite(TLS_ECDHE_ECDSA_WITH_AES_128_CBC_SHA, TLSKeyExchange.TLS_KEY_X_ECDHE_ECDSA, TLSCipher.TLS_CIPHER_AES_128_CBC, TLSHash.TLS_HASH_SHA),
+			new TLSCipherSuite(TLS_ECDHE_ECDSA_WITH_AES_256_CBC_SHA, TLSKeyExchange.TLS_KEY_X_ECDHE_ECDSA, TLSCipher.TLS_CIPHER_AES_256_CBC, TLSHash.TLS_HASH_SHA),
+			new TLSCipherSuite(TLS_ECDHE_RSA_WITH_AES_128_CBC_SHA, TLSKeyExchange.TLS_KEY_X_ECDHE_RSA, TLSCipher.TLS_CIPHER_AES_128_CBC, TLSHash.TLS_HASH_SHA),
+			new TLSCipherSuite(TLS_ECDHE_RSA_WITH_AES_256_CBC_SHA, TLSKeyExchange.TLS_KEY_X_ECDHE_RSA, TLSCipher.TLS_CIPHER_AES_256_CBC, TLSHash.TLS_HASH_SHA),
+			new TLSCipherSuite(TLS_ECDHE_ECDSA_WITH_AES_128_CBC_SHA256, TLSKeyExchange.TLS_KEY_X_ECDHE_ECDSA, TLSCipher.TLS_CIPHER_AES_128_CBC, TLSHash.TLS_HASH_SHA256),
+			new TLSCipherSuite(TLS_ECDHE_ECDSA_WITH_AES_256_CBC_SHA384, TLSKeyExchange.TLS_KEY_X_ECDHE_ECDSA, TLSCipher.TLS_CIPHER_AES_256_CBC, TLSHash.TLS_HASH_SHA384),
+			new TLSCipherSuite(TLS_ECDHE_RSA_WITH_AES_128_CBC_SHA256, TLSKeyExchange.TLS_KEY_X_ECDHE_RSA, TLSCipher.TLS_CIPHER_AES_128_CBC, TLSHash.TLS_HASH_SHA256),
+			new TLSCipherSuite(TLS_ECDHE_RSA_WITH_AES_256_CBC_SHA384, TLSKeyExchange.TLS_KEY_X_ECDHE_RSA, TLSCipher.TLS_CIPHER_AES_256_CBC, TLSHash.TLS_HASH_SHA384),
+			new TLSCipherSuite(TLS_ECDHE_ECDSA_WITH_AES_128_GCM_SHA256, TLSKeyExchange.TLS_KEY_X_ECDHE_ECDSA, TLSCipher.TLS_CIPHER_AES_128_GCM, TLSHash.TLS_HASH_SHA256),
+			new TLSCipherSuite(TLS_ECDHE_ECDSA_WITH_AES_256_GCM_SHA384, TLSKeyExchange.TLS_KEY_X_ECDHE_ECDSA, TLSCipher.TLS_CIPHER_AES_256_GCM, TLSHash.TLS_HASH_SHA384),
+			new TLSCipherSuite(TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256, TLSKeyExchange.TLS_KEY_X_ECDHE_RSA, TLSCipher.TLS_CIPHER_AES_128_GCM, TLSHash.TLS_HASH_SHA256),
+			new TLSCipherSuite(TLS_ECDHE_RSA_WITH_AES_256_GCM_SHA384, TLSKeyExchange.TLS_KEY_X_ECDHE_RSA, TLSCipher.TLS_CIPHER_AES_256_GCM, TLSHash.TLS_HASH_SHA384),
+			new TLSCipherSuite(TLS_ECDHE_RSA_WITH_CHACHA20_POLY1305_SHA256, TLSKeyExchange.TLS_KEY_X_ECDHE_RSA, TLSCipher.TLS_CIPHER_CHACHA20_POLY1305, TLSHash.TLS_HASH_SHA256),
+			new TLSCipherSuite(TLS_ECDHE_ECDSA_WITH_CHACHA20_POLY1305_SHA256, TLSKeyExchange.TLS_KEY_X_ECDHE_ECDSA, TLSCipher.TLS_CIPHER_CHACHA20_POLY1305, TLSHash.TLS_HASH_SHA256) };
 
 	private TLSCipherData tlsCiphers[] = {
 			new TLSCipherData(TLSCipher.TLS_CIPHER_NULL, TLSCipherType.TLS_CIPHER_STREAM, 0, 0, 0, CryptoCipherAlg.CRYPTO_CIPHER_NULL),
@@ -63,7 +105,10 @@ public class CipherDataServiceImpl implements ICipherDataService {
 			new TLSCipherData(TLSCipher.TLS_CIPHER_DES_CBC, TLSCipherType.TLS_CIPHER_BLOCK, 8, 8, 8, CryptoCipherAlg.CRYPTO_CIPHER_ALG_DES),
 			new TLSCipherData(TLSCipher.TLS_CIPHER_3DES_EDE_CBC, TLSCipherType.TLS_CIPHER_BLOCK, 24, 24, 8, CryptoCipherAlg.CRYPTO_CIPHER_ALG_3DES),
 			new TLSCipherData(TLSCipher.TLS_CIPHER_AES_128_CBC, TLSCipherType.TLS_CIPHER_BLOCK, 16, 16, 16, CryptoCipherAlg.CRYPTO_CIPHER_ALG_AES),
-			new TLSCipherData(TLSCipher.TLS_CIPHER_AES_256_CBC, TLSCipherType.TLS_CIPHER_BLOCK, 32, 32, 16, CryptoCipherAlg.CRYPTO_CIPHER_ALG_AES) };
+			new TLSCipherData(TLSCipher.TLS_CIPHER_AES_256_CBC, TLSCipherType.TLS_CIPHER_BLOCK, 32, 32, 16, CryptoCipherAlg.CRYPTO_CIPHER_ALG_AES),
+			new TLSCipherData(TLSCipher.TLS_CIPHER_AES_128_GCM, TLSCipherType.TLS_CIPHER_AEAD, 16, 16, 0, CryptoCipherAlg.CRYPTO_CIPHER_ALG_AES_GCM, 4),
+			new TLSCipherData(TLSCipher.TLS_CIPHER_AES_256_GCM, TLSCipherType.TLS_CIPHER_AEAD, 32, 32, 0, CryptoCipherAlg.CRYPTO_CIPHER_ALG_AES_GCM, 4),
+			new TLSCipherData(TLSCipher.TLS_CIPHER_CHACHA20_POLY1305, TLSCipherType.TLS_CIPHER_AEAD, 32, 32, 0, CryptoCipherAlg.CRYPTO_CIPHER_ALG_CHACHA20_POLY1305, 12) };
 
 	public CipherDataServiceImpl() {
 	}
@@ -83,8 +128,10 @@ public class CipherDataServiceImpl implements ICipherDataService {
 	@Override
 	public TLSCipherSuite getTLSCipherSuite(int suite) {
 		TLSCipherSuite cipherSuite = null;
+		// the handshake reads the suite as a signed short
+		int unsignedSuite = suite & 0xFFFF;
 		for (int i = 0; i < this.tlsCipherSuites.length; i++) {
-			if (tlsCipherSuites[i].getSuite() == suite) {
+			if (tlsCipherSuites[i].getSuite() == unsignedSuite) {
 				cipherSuite = tlsCipherSuites[i];
 				break;
 			}
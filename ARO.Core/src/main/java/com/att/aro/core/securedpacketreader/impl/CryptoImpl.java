@@ -15,6 +15,8 @@
 */
 package com.att.aro.core.securedpacketreader.impl;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -29,7 +31,7 @@ import com.att.aro.core.securedpacketreader.pojo.SSLKey;
 import com.att.aro.core.util.Util;
 
 /**
- * call native lib to read SSL key, and provide functions to decrypt data
+ * read SSL keys, and provide the native functions to decrypt data
  * 
  * Date: April 10, 2014
  */
@@ -68,19 +70,32 @@ public class CryptoImpl implements ICrypto, IReceiveSSLKey {
 		this.vpnKey = vpnKey;
 	}
 
+	/**
+	 * Reads keys.ssl or an NSS key log in Java, no native library is needed.
+	 * Keys are added to the keys already read, sorted by their timestamps.
+	 * Only keys.ssl records set isVpnKey, reading a key log leaves it as is.
+	 */
 	@Override
 	public int readSSLKeys(String filename) {
-		ensureAdapter();
-	    //_logger.info("adapter.readSSLKeys("+filename+");");
-		int keysResult = adapter.readSSLKeys(filename);
-		//hack to emulate the original 4.1.1, removing the duplicate at end
-		// fix AROCrypto.cpp for a correct fix
-		if (keysResult!=-1){
-			SSLKey key = sslkeys.remove(sslkeys.size()-1);
-			
+		List<SSLKey> keys;
+		try {
+			keys = new SSLKeyFileReader().read(new File(filename));
+		} catch (IOException e) {
+			LOGGER.warn("Failed to read SSL keys from " + filename + ": " + e.getMessage());
+			return -1;
+		}
+		SSLKey key = null;
+		for (SSLKey read : keys) {
+			// key log entries carry a client random, keys.ssl records do not
+			if (read.getClientRandom() == null) {
+				key = read;
+			}
+		}
+		if (key != null) {
+			// the VPN collector writes keys whose pre-master starts with 4 zero bytes
 			byte[] preMaster = key.getPreMaster();
 			vpnKey = true;
-			if(preMaster != null && preMaster.length > 0) {
+			if (preMaster != null) {
 				for (int i = 0; i < 4 && i < preMaster.length; i++) {
 					if (preMaster[i] != 0) {
 						vpnKey = false;
@@ -89,9 +104,9 @@ public class CryptoImpl implements ICrypto, IReceiveSSLKey {
 				}
 			}
 		}
-		
+		sslkeys.addAll(keys);
 		Collections.sort(sslkeys);
-		return keysResult;
+		return 0;
 	}
 
 	@Override
@@ -0,0 +1,190 @@
+/*
+ *  Copyright 2019 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.core.securedpacketreader.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+import com.att.aro.core.securedpacketreader.pojo.SSLKey;
+
+/**
+ * Reads SSL keys in Java, both the keys.ssl records the collector writes and
+ * the NSS key log format of SSLKEYLOGFILE.
+ * <p>
+ * A keys.ssl record is a little endian timestamp (double) and pre-master
+ * length (int) followed by the pre-master and the 48 byte master secret.
+ * A key log has one "label client_random secret" line per secret in hex; the
+ * lines of one handshake become one key.
+ */
+public class SSLKeyFileReader {
+
+	private static final Logger LOGGER = LogManager.getLogger(SSLKeyFileReader.class.getName());
+
+	public static final String CLIENT_RANDOM = "CLIENT_RANDOM";
+	public static final String CLIENT_HANDSHAKE_TRAFFIC_SECRET = "CLIENT_HANDSHAKE_TRAFFIC_SECRET";
+	public static final String SERVER_HANDSHAKE_TRAFFIC_SECRET = "SERVER_HANDSHAKE_TRAFFIC_SECRET";
+	public static final String CLIENT_TRAFFIC_SECRET_0 = "CLIENT_TRAFFIC_SECRET_0";
+	public static final String SERVER_TRAFFIC_SECRET_0 = "SERVER_TRAFFIC_SECRET_0";
+
+	private static final int MASTER_LEN = 48;
+	private static final int MAX_PRE_MASTER_LEN = 256;
+	private static final int PEEK_LEN = 16;
+
+	/**
+	 * Returns the keys of file, in file order.
+	 */
+	public List<SSLKey> read(File file) throws IOException {
+		try (InputStream input = new BufferedInputStream(new FileInputStream(file))) {
+			input.mark(PEEK_LEN);
+			byte[] head = new byte[PEEK_LEN];
+			int headLen = input.read(head);
+			input.reset();
+			if (headLen > 0 && isKeyLog(head, headLen)) {
+				return readKeyLog(input);
+			}
+			return readKeys(input);
+		}
+	}
+
+	/**
+	 * A key log is text, a keys.ssl record starts with a timestamp and a
+	 * length whose high bytes are zero.
+	 */
+	private boolean isKeyLog(byte[] head, int length) {
+		for (int index = 0; index < length; index++) {
+			int value = head[index] & 0xFF;
+			if ((value < 0x20 || value > 0x7E) && value != '\r' && value != '\n' && value != '\t') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Reads keys.ssl records up to the end of input, a truncated last record is
+	 * dropped.
+	 */
+	List<SSLKey> readKeys(InputStream input) throws IOException {
+		List<SSLKey> keys = new ArrayList<SSLKey>();
+		DataInputStream data = new DataInputStream(input);
+		byte[] header = new byte[12];
+		ByteBuffer headerBuffer = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+		while (true) {
+			try {
+				data.readFully(header);
+				double ts = headerBuffer.getDouble(0);
+				int preMasterLen = headerBuffer.getInt(8);
+				if (preMasterLen < 0 || preMasterLen > MAX_PRE_MASTER_LEN) {
+					LOGGER.warn("Invalid pre-master length " + preMasterLen + " in SSL keys, stopped reading");
+					break;
+				}
+				byte[] preMaster = new byte[preMasterLen];
+				data.readFully(preMaster);
+				byte[] master = new byte[MASTER_LEN];
+				data.readFully(master);
+
+				SSLKey key = new SSLKey();
+				key.setbUsed(0);
+				key.setTs(ts);
+				key.setPreMasterLen(preMasterLen);
+				key.setPreMaster(preMaster);
+				key.setMasterLen(MASTER_LEN);
+				key.setMaster(master);
+				keys.add(key);
+			} catch (EOFException e) {
+				break;
+			}
+		}
+		return keys;
+	}
+
+	/**
+	 * Reads an NSS key log. Unknown labels and malformed lines are skipped.
+	 */
+	List<SSLKey> readKeyLog(InputStream input) throws IOException {
+		Map<String, SSLKey> keys = new LinkedHashMap<String, SSLKey>();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.US_ASCII));
+		String line;
+		int lineNumber = 0;
+		while ((line = reader.readLine()) != null) {
+			lineNumber++;
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			String[] fields = line.split("\\s+");
+			if (fields.length != 3 || !fields[0].startsWith(CLIENT_RANDOM) && !fields[0].contains("_SECRET")) {
+				LOGGER.debug("Skipped key log line " + lineNumber);
+				continue;
+			}
+			byte[] clientRandom = parseHex(fields[1]);
+			byte[] secret = parseHex(fields[2]);
+			if (clientRandom == null || secret == null) {
+				LOGGER.debug("Skipped malformed key log line " + lineNumber);
+				continue;
+			}
+
+			String clientRandomHex = fields[1].toLowerCase();
+			SSLKey key = keys.get(clientRandomHex);
+			if (key == null) {
+				key = new SSLKey();
+				key.setbUsed(0);
+				key.setClientRandom(clientRandom);
+				keys.put(clientRandomHex, key);
+			}
+			if (CLIENT_RANDOM.equals(fields[0])) {
+				key.setMasterLen(secret.length);
+				key.setMaster(secret);
+			} else {
+				key.setSecret(fields[0], secret);
+			}
+		}
+		return new ArrayList<SSLKey>(keys.values());
+	}
+
+	private byte[] parseHex(String hex) {
+		if (hex.length() % 2 != 0) {
+			return null;
+		}
+		byte[] bytes = new byte[hex.length() / 2];
+		for (int index = 0; index < bytes.length; index++) {
+			int high = Character.digit(hex.charAt(2 * index), 16);
+			int low = Character.digit(hex.charAt(2 * index + 1), 16);
+			if (high < 0 || low < 0) {
+				return null;
+			}
+			bytes[index] = (byte) (high << 4 | low);
+		}
+		return bytes;
+	}
+}
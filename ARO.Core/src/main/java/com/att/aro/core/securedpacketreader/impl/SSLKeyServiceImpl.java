@@ -19,8 +19,11 @@ import java.net.Inet4Address;
 import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.log4j.Logger;
 import org.apache.log4j.LogManager;
@@ -44,53 +47,67 @@ public class SSLKeyServiceImpl implements ISSLKeyService {
 	public static final int SHA1_MAC_LEN = 20;
 	private static final String CALG_MD5 = "MD5";
 	private static final String CALG_SHA1 = "SHA-1";
-
+	private static final int VPN_KEY_LEN = 20;
+
+	// the key list indexed, keys by their client random, VPN keys by their connection and keys matched with the PRF by ts
+	private List<SSLKey> indexedKeys;
+	private int indexedSize;
+	private final Map<ByteBuffer, SSLKey> keysByClientRandom = new HashMap<ByteBuffer, SSLKey>();
+	private final Map<Long, List<SSLKey>> keysByAddress = new HashMap<Long, List<SSLKey>>();
+	private List<SSLKey> derivableKeys = new ArrayList<SSLKey>();
+	private double[] derivableTs = new double[0];
+
+	private long lookups;
+	private long clientRandomHits;
+	private long addressHits;
+	private long prfEvaluations;
+
+	/**
+	 * Returns the master secret of the handshake with clientRandom. A key log
+	 * entry of the handshake is found by its client random, other keys are
+	 * tried by deriving their master secret, nearest to serverHelloTS first.
+	 */
 	@Override
-	public int getMasterFromSSLLog(double serverHelloTS, byte[] master, byte[] clientRandom, byte[] serverRandom) {
-		List<SSLKey> keylist = crypto.getSSLKeyList();
-		if (!keylist.isEmpty()) {
-			int listsize = keylist.size();
-			byte[] random = new byte[64];
-
-			System.arraycopy(clientRandom, 0, random, 0, 32);
-
-			System.arraycopy(serverRandom, 0, random, 32, 32);
-
-			// Step 1: find the key whose ts is closest to serverHelloTS
-			int ivalue = search(0, listsize - 1, serverHelloTS);
-			int jvalue = ivalue + 1;
-			while (true) {
-				while (ivalue >= 0) {
-					if ((jvalue < listsize) && (Math.abs(keylist.get(jvalue).getTsvalue() - serverHelloTS) < Math
-							.abs(keylist.get(ivalue).getTsvalue() - serverHelloTS))) {
-						break;
-					}
-					if ((keylist.get(ivalue).getbUsed() == 0) && (match(keylist.get(ivalue), random, master) == 1)) {
-						return 1;
-					}
-					ivalue--;
-				}
+	public synchronized int getMasterFromSSLLog(double serverHelloTS, byte[] master, byte[] clientRandom, byte[] serverRandom) {
+		ensureIndex();
+		lookups++;
+		SSLKey logged = keysByClientRandom.get(ByteBuffer.wrap(clientRandom, 0, TLS_RANDOM_LEN));
+		if (logged != null && logged.getbUsed() == 0 && logged.getMaster() != null) {
+			clientRandomHits++;
+			System.arraycopy(logged.getMaster(), 0, master, 0, TLS_MASTER_SECRET_LEN);
+			logged.setbUsed(1);
+			return 1;
+		}
 
-				while (jvalue < listsize) {
-					if ((ivalue >= 0) && (Math.abs(keylist.get(ivalue).getTsvalue() - serverHelloTS) < Math
-							.abs(keylist.get(jvalue).getTsvalue() - serverHelloTS))) {
-						break;
-					}
-					if ((keylist.get(jvalue).getbUsed() == 0) && (match(keylist.get(jvalue), random, master) == 1)) {
-						return 1;
-					}
-					jvalue++;
-				}
+		int listsize = derivableKeys.size();
+		if (listsize == 0) {
+			return 0;
+		}
+		byte[] random = new byte[64];
 
-				if ((ivalue < 0) && (jvalue >= listsize)) {
-					break;
-				}
+		System.arraycopy(clientRandom, 0, random, 0, 32);
+
+		System.arraycopy(serverRandom, 0, random, 32, 32);
+
+		// walk outward from the key whose ts is closest to serverHelloTS
+		int jvalue = Arrays.binarySearch(derivableTs, serverHelloTS);
+		if (jvalue < 0) {
+			jvalue = -jvalue - 1;
+		}
+		int ivalue = jvalue - 1;
+		while (ivalue >= 0 || jvalue < listsize) {
+			boolean before = jvalue >= listsize
+					|| (ivalue >= 0 && serverHelloTS - derivableTs[ivalue] <= derivableTs[jvalue] - serverHelloTS);
+			SSLKey key = derivableKeys.get(before ? ivalue-- : jvalue++);
+			if (key.getbUsed() == 0 && match(key, random, master) == 1) {
+				return 1;
 			}
 		}
 		return 0;
 	}
 
 	private int match(SSLKey key, byte[] random, byte[] master) {
+		prfEvaluations++;
 		int ret = tlsprf(key.getPreMaster(), key.getPreMasterLen(), "master secret", random, TLS_RANDOM_LEN + TLS_RANDOM_LEN, master, TLS_MASTER_SECRET_LEN);
 		if (ret == -1) {
 			LOGGER.warn("Error in deriving new, cryptographically separate keys from a given key in TLS.");
@@ -111,6 +128,106 @@ public class SSLKeyServiceImpl implements ISSLKeyService {
 		}
 	}
 
+	/**
+	 * Indexes the keys of the crypto key list, again whenever the list was
+	 * replaced or has grown.
+	 */
+	private void ensureIndex() {
+		List<SSLKey> keylist = crypto.getSSLKeyList();
+		if (keylist == indexedKeys && keylist.size() == indexedSize) {
+			return;
+		}
+		keysByClientRandom.clear();
+		keysByAddress.clear();
+		derivableKeys = new ArrayList<SSLKey>();
+		for (SSLKey key : keylist) {
+			if (key.getClientRandom() != null) {
+				keysByClientRandom.put(ByteBuffer.wrap(key.getClientRandom()), key);
+				continue;
+			}
+			if (key.getPreMaster() == null || key.getMaster() == null) {
+				continue;
+			}
+			derivableKeys.add(key);
+			if (key.getPreMasterLen() >= VPN_KEY_LEN) {
+				// keys of the VPN collector carry the addresses of their connection
+				Long address = address(key.getPreMaster());
+				List<SSLKey> keys = keysByAddress.get(address);
+				if (keys == null) {
+					keys = new ArrayList<SSLKey>(1);
+					keysByAddress.put(address, keys);
+				}
+				keys.add(key);
+			}
+		}
+		// the crypto key list is sorted by ts
+		derivableTs = new double[derivableKeys.size()];
+		for (int index = 0; index < derivableTs.length; index++) {
+			derivableTs[index] = derivableKeys.get(index).getTsvalue();
+		}
+		indexedKeys = keylist;
+		indexedSize = keylist.size();
+	}
+
+	@Override
+	public synchronized void reset() {
+		indexedKeys = null;
+		indexedSize = 0;
+		keysByClientRandom.clear();
+		keysByAddress.clear();
+		derivableKeys = new ArrayList<SSLKey>();
+		derivableTs = new double[0];
+		lookups = 0;
+		clientRandomHits = 0;
+		addressHits = 0;
+		prfEvaluations = 0;
+	}
+
+	@Override
+	public synchronized void logStatistics() {
+		if (lookups > 0) {
+			LOGGER.info(getStatistics());
+		}
+	}
+
+	/**
+	 * Returns the remote address and the ports of a VPN key in one value,
+	 * the address in the high half, then the remote and the local port.
+	 */
+	private Long address(byte[] preMaster) {
+		byte[] srcIPBytes = Arrays.copyOfRange(preMaster, 12, 16);
+		int srcPort = bytestoInt(Arrays.copyOfRange(preMaster, 16, 20));
+		int destPort = bytestoInt(Arrays.copyOfRange(preMaster, 8, 12));
+		return address(srcIPBytes, srcPort, destPort);
+	}
+
+	private Long address(byte[] remoteIP, int remotePort, int localPort) {
+		long ip = ByteBuffer.wrap(remoteIP).getInt() & 0xFFFFFFFFL;
+		return ip << 32 | (remotePort & 0xFFFFL) << 16 | (localPort & 0xFFFFL);
+	}
+
+	/**
+	 * Returns the number of master secrets derived with the PRF to match keys
+	 * since the trace was read.
+	 */
+	public synchronized long getPrfEvaluations() {
+		return prfEvaluations;
+	}
+
+	/**
+	 * Returns the number of keys found by client random or by connection
+	 * address since the trace was read.
+	 */
+	public synchronized long getIndexHits() {
+		return clientRandomHits + addressHits;
+	}
+
+	@Override
+	public synchronized String getStatistics() {
+		return String.format("SSL keys: %d lookups, %d by client random, %d by address, %d PRF evaluations", lookups,
+				clientRandomHits, addressHits, prfEvaluations);
+	}
+
 	@Override
 	public int tlsprf(byte[] secret, int secretLen, String label, byte[] seed, int seedLen, byte[] out, int outlen) {
 		
@@ -483,98 +600,34 @@ public class SSLKeyServiceImpl implements ISSLKeyService {
 		return hmacSha1Vector(key, keylen, 1, data, datalen, mac);
 	}
 
-	private int search(int nBegin, int nEnd, double shTS) {
-		List<SSLKey> keylist = crypto.getSSLKeyList();
-		if (!keylist.isEmpty()) {
-			if (nEnd - nBegin <= 5) {
-				double best = Math.abs(keylist.get(nBegin).getTsvalue() - shTS);
-				int bestI = nBegin;
-				for (int i = nBegin + 1; i <= nEnd; i++) {
-					double tvalue = Math.abs(keylist.get(i).getTsvalue() - shTS);
-					if (tvalue < best) {
-						bestI = i;
-						best = tvalue;
-					}
-				}
-				return bestI;
-			}
-
-			double deltaBegin = keylist.get(nBegin).getTsvalue() - shTS;
-			double deltaEnd = keylist.get(nEnd).getTsvalue() - shTS;
-
-			if (sgn(deltaBegin) == sgn(deltaEnd)) {
-				if (Math.abs(deltaBegin) < Math.abs(deltaEnd)) {
-					return nBegin;
-				} else {
-					return nEnd;
+	@Override
+	public synchronized int getMasterFromKeyList(Session session, byte[] master) {
+		ensureIndex();
+		lookups++;
+		if (!(session.getRemoteIP() instanceof Inet4Address)) {
+			return 0;
+		}
+		byte[] addr = ((Inet4Address) session.getRemoteIP()).getAddress();
+		List<SSLKey> keys = keysByAddress.get(address(addr, session.getRemotePort(), session.getLocalPort()));
+		if (keys != null) {
+			for (SSLKey key : keys) {
+				if (key.getbUsed() != 1) {
+					addressHits++;
+					System.arraycopy(key.getMaster(), 0, master, 0, 48);
+					key.setbUsed(1);
+					return 1;
 				}
 			}
-
-			int nMid = (nBegin + nEnd) / 2;
-			double deltaMid = keylist.get(nMid).getTsvalue() - shTS;
-			if (sgn(deltaBegin) == sgn(deltaMid)) {
-				return search(nMid, nEnd, shTS);
-			} else {
-				return search(nBegin, nMid, shTS);
-			}
 		}
 		return 0;
 	}
 
-	int sgn(double xvalue) {
-		if (xvalue >= 0) {
-			return 1;
-		} else {
-			return -1;
-		}
-	}
-
 	@Override
-	public int getMasterFromKeyList(Session session, byte[] master) {
-		List<SSLKey> keylist = crypto.getSSLKeyList();
-		
-		if (!keylist.isEmpty()) {
-			for (SSLKey key : keylist) {
-				if(key.getbUsed()!= 1){
-					
-					byte[] modifiedPreMasterBytes = key.getPreMaster();
-					
-					byte[] dstIPBytes = new byte[4]; 
-					byte[] dstPortBytes = new byte[4];
-					byte[] srcIPBytes = new byte[4]; 
-					byte[] srcPortBytes = new byte[4];
-					
-					System.arraycopy(modifiedPreMasterBytes, 4, dstIPBytes, 0, 4);
-					System.arraycopy(modifiedPreMasterBytes, 8, dstPortBytes, 0, 4);
-					System.arraycopy(modifiedPreMasterBytes, 12, srcIPBytes, 0, 4);
-					System.arraycopy(modifiedPreMasterBytes, 16, srcPortBytes, 0, 4);
-					
-					
-					int destPort = bytestoInt(dstPortBytes);
-					int srcPort = bytestoInt(srcPortBytes);
-					
-					if (session.getRemotePort() == srcPort && session.getLocalPort()== destPort) {
-						
-						if(session.getRemoteIP() instanceof Inet4Address){
-							
-							byte[] addr = ((Inet4Address) session.getRemoteIP()).getAddress();
-							
-							if(Arrays.equals(addr, srcIPBytes)){
-								System.arraycopy(key.getMaster(), 0, master, 0, 48);
-								key.setbUsed(1);
-								return 1;
-							}
-						}
-					}
-					
-				} else {
-					continue;
-				}
-			}
-		}
-		return 0;
+	public synchronized SSLKey getKeyByClientRandom(byte[] clientRandom) {
+		ensureIndex();
+		return keysByClientRandom.get(ByteBuffer.wrap(clientRandom));
 	}
-	
+
 	public int bytestoInt(byte[] byteArray) {
 		return byteArray[3] << 24 | (byteArray[2] & 0xFF) << 16 | (byteArray[1] & 0xFF) << 8 | (byteArray[0] & 0xFF);      
     }
@@ -0,0 +1,115 @@
+/*
+ *  Copyright 2019 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.core.securedpacketreader.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.att.aro.core.securedpacketreader.pojo.CryptoEnum.TLSHash;
+
+/**
+ * The key derivation functions of TLS 1.2 and TLS 1.3 with the JCA MACs, the
+ * TLS 1.0 and 1.1 PRF is ISSLKeyService.tlsprf.
+ */
+public final class TLSKeyDerivation {
+
+	public static final String HMAC_MD5 = "HmacMD5";
+	public static final String HMAC_SHA1 = "HmacSHA1";
+	public static final String HMAC_SHA256 = "HmacSHA256";
+	public static final String HMAC_SHA384 = "HmacSHA384";
+
+	private static final String TLS13_LABEL_PREFIX = "tls13 ";
+
+	private TLSKeyDerivation() {
+	}
+
+	/**
+	 * Returns the JCA name of the HMAC the PRF of a TLS 1.2 or TLS 1.3 suite
+	 * is built on, SHA-256 unless the suite names SHA-384.
+	 */
+	public static String prfMac(TLSHash hash) {
+		return hash == TLSHash.TLS_HASH_SHA384 ? HMAC_SHA384 : HMAC_SHA256;
+	}
+
+	/**
+	 * The TLS 1.2 PRF, P_hash of RFC 5246 section 5.
+	 */
+	public static byte[] prf(String macAlg, byte[] secret, String label, byte[] seed, int length) throws GeneralSecurityException {
+		Mac mac = Mac.getInstance(macAlg);
+		mac.init(new SecretKeySpec(secret, macAlg));
+		byte[] labelBytes = label.getBytes(StandardCharsets.US_ASCII);
+
+		byte[] out = new byte[length];
+		// A(1) = HMAC(secret, label + seed)
+		mac.update(labelBytes);
+		mac.update(seed);
+		byte[] a = mac.doFinal();
+		int pos = 0;
+		while (pos < length) {
+			mac.update(a);
+			mac.update(labelBytes);
+			mac.update(seed);
+			byte[] block = mac.doFinal();
+			int count = Math.min(block.length, length - pos);
+			System.arraycopy(block, 0, out, pos, count);
+			pos += count;
+			a = mac.doFinal(a);
+		}
+		return out;
+	}
+
+	/**
+	 * HKDF-Expand-Label of RFC 8446 section 7.1.
+	 */
+	public static byte[] hkdfExpandLabel(String macAlg, byte[] secret, String label, byte[] context, int length)
+			throws GeneralSecurityException {
+		byte[] fullLabel = (TLS13_LABEL_PREFIX + label).getBytes(StandardCharsets.US_ASCII);
+		byte[] info = new byte[2 + 1 + fullLabel.length + 1 + context.length];
+		int pos = 0;
+		info[pos++] = (byte) (length >> 8);
+		info[pos++] = (byte) length;
+		info[pos++] = (byte) fullLabel.length;
+		System.arraycopy(fullLabel, 0, info, pos, fullLabel.length);
+		pos += fullLabel.length;
+		info[pos++] = (byte) context.length;
+		System.arraycopy(context, 0, info, pos, context.length);
+		return hkdfExpand(macAlg, secret, info, length);
+	}
+
+	/**
+	 * HKDF-Expand of RFC 5869.
+	 */
+	public static byte[] hkdfExpand(String macAlg, byte[] prk, byte[] info, int length) throws GeneralSecurityException {
+		Mac mac = Mac.getInstance(macAlg);
+		mac.init(new SecretKeySpec(prk, macAlg));
+		byte[] out = new byte[length];
+		byte[] block = new byte[0];
+		int pos = 0;
+		for (int counter = 1; pos < length; counter++) {
+			mac.update(block);
+			mac.update(info);
+			mac.update((byte) counter);
+			block = mac.doFinal();
+			int count = Math.min(block.length, length - pos);
+			System.arraycopy(block, 0, out, pos, count);
+			pos += count;
+		}
+		return out;
+	}
+}
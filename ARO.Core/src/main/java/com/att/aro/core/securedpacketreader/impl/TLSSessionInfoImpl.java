@@ -15,8 +15,9 @@
 */
 package com.att.aro.core.securedpacketreader.impl;
 
-import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.zip.Inflater;
 
@@ -25,10 +26,11 @@ import org.apache.log4j.LogManager;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import com.att.aro.core.packetreader.pojo.PacketDirection;
-import com.att.aro.core.securedpacketreader.ICrypto;
 import com.att.aro.core.securedpacketreader.ISSLKeyService;
 import com.att.aro.core.securedpacketreader.ITLSSessionInfo;
+import com.att.aro.core.securedpacketreader.TLSRecordCipher;
 import com.att.aro.core.securedpacketreader.pojo.CryptoEnum.CryptoHashAlg;
+import com.att.aro.core.securedpacketreader.pojo.CryptoEnum.TLSCipherType;
 import com.att.aro.core.securedpacketreader.pojo.SavedTLSSession;
 import com.att.aro.core.securedpacketreader.pojo.TLSCipherData;
 import com.att.aro.core.securedpacketreader.pojo.TLSCipherSuite;
@@ -37,18 +39,17 @@ public class TLSSessionInfoImpl implements ITLSSessionInfo {
 
 	private static final Logger LOGGER = LogManager.getLogger(TLSSessionInfoImpl.class.getName());
 
-	@Autowired
-	ICrypto crypto;
-
 	@Autowired
 	ISSLKeyService sslkeyservice;
 
 	static final int SHA1_MAC_LEN = 20;
 	static final int MD5_MAC_LEN = 16;
+	static final int SHA256_MAC_LEN = 32;
+	static final int SHA384_MAC_LEN = 48;
 
 	private static final int MAX_KEY_BLOCK_SIZE = 4096;
 	// private static final int INFLATION_BUF_SIZE = 65536;
-	private static final int TLS_SEQ_NUM_LEN = 8;
+	private static final int TLS13_IV_LEN = 12;
 	private static final int COMPRESS_DEFLATE = 1;
 	private static final int COMPRESS_NONE = 0;
 
@@ -61,7 +62,11 @@ public class TLSSessionInfoImpl implements ITLSSessionInfo {
 	int pCipherClient = -1;
 	int pCipherServer = -1;
 	int objectType = -1;
-	byte[] seqNum = new byte[TLS_SEQ_NUM_LEN];
+	int version = TLSRecordCipher.TLS_1_0;
+	int recordType = -1;
+	// the JCA ciphers of the records the client and the server write
+	TLSRecordCipher uplinkCipher = null;
+	TLSRecordCipher downlinkCipher = null;
 	byte[] keyBlock = new byte[MAX_KEY_BLOCK_SIZE];
 	int keyBlockLen;
 
@@ -81,14 +86,13 @@ public class TLSSessionInfoImpl implements ITLSSessionInfo {
 		this.pSuite = null;
 		this.pCipherData = null;
 		this.pCipherClient = -1;
-		crypto.setCryptoCipherNull(objectType, 1);
 		this.pCipherServer = -1;
-		crypto.setCryptoCipherNull(objectType, 0);
+		this.uplinkCipher = null;
+		this.downlinkCipher = null;
+		this.version = TLSRecordCipher.TLS_1_0;
+		this.recordType = -1;
 		this.compressionMethod = COMPRESS_NONE;
 		this.keyBlockLen = 0;
-		for (int i = 0; i < this.seqNum.length; i++) {
-			this.seqNum[i] = 0;
-		}
 		for (int i = 0; i < this.keyBlock.length; i++) {
 			this.keyBlock[i] = 0;
 		}
@@ -160,7 +164,9 @@ public class TLSSessionInfoImpl implements ITLSSessionInfo {
 		this.compressionMethod = tsi.getCompressionMethod();
 		this.pCipherClient = tsi.getCipherClient();
 		this.pCipherServer = tsi.getCipherServer();
-		crypto.copyCryptoCipher(tsi.getObjectType(), this.objectType);
+		this.uplinkCipher = tsi.getUplinkCipher();
+		this.downlinkCipher = tsi.getDownlinkCipher();
+		this.version = tsi.getVersion();
 		this.keyBlockLen = tsi.getKeyBlockLen();
 		byte[] ckeyBlock = tsi.getKeyBlock();
 		System.arraycopy(ckeyBlock, 0, this.keyBlock, 0, MAX_KEY_BLOCK_SIZE);
@@ -170,7 +176,10 @@ public class TLSSessionInfoImpl implements ITLSSessionInfo {
 	public void clean() {
 		this.pCipherClient = -1;
 		this.pCipherServer = -1;
-		crypto.cryptoCipherDeinit(this.objectType);
+		this.uplinkCipher = null;
+		this.downlinkCipher = null;
+		this.version = TLSRecordCipher.TLS_1_0;
+		this.recordType = -1;
 		if (this.decompresser != null) {
 			this.decompresser = null;
 		}
@@ -179,9 +188,6 @@ public class TLSSessionInfoImpl implements ITLSSessionInfo {
 		this.pCipherData = null;
 		this.compressionMethod = COMPRESS_NONE;
 		this.keyBlockLen = 0;
-		for (int i = 0; i < this.seqNum.length; i++) {
-			this.seqNum[i] = 0;
-		}
 		for (int i = 0; i < this.keyBlock.length; i++) {
 			this.keyBlock[i] = 0;
 		}
@@ -231,90 +237,39 @@ public class TLSSessionInfoImpl implements ITLSSessionInfo {
 	}
 
 	/**
-	 * Very confusing code here
+	 * Decrypts one record with the cipher of its direction, decrypting records
+	 * of a connection in the order they were sent. Records without a cipher
+	 * are only decompressed.
 	 */
 	@Override
 	public int decrypt(byte[] enc, byte[] dec, Integer[] recPayloadLen, PacketDirection dir, int recType) {
-	    //_System.out.println("decrypt dec:" + dec.length);
-		int pCipher = -1;
+		// uplink records are written with the client keys, downlink records with the server keys
+		TLSRecordCipher cipher = null;
 		if (dir == PacketDirection.UPLINK) {
-			// uplink traffic decrypted using the server cipher
-			pCipher = 0; // this.pCipherServer; Workaround as crypto_cipher* pCipher can not be passed through JNI.
+			cipher = this.uplinkCipher;
 		} else if (dir == PacketDirection.DOWNLINK) {
-			// downlink traffic decrypted using the client cipher
-			pCipher = 1; // this.pCipherClient; Workaround as crypto_cipher* pCipher can not be passed through JNI.
+			cipher = this.downlinkCipher;
 		}
-		if (this.pSuite == null || pCipher == -1) {
+		if (this.pSuite == null || cipher == null) {
+			this.recordType = recType;
 			return decompress(enc, enc.length, dec, recPayloadLen);
 		}
 
-		// Workaround as crypto_cipher* pCipher can not be passed through JNI.
-		if (dir == PacketDirection.UPLINK) {
-			pCipher = 0;
-		} else {
-			pCipher = 1;
-		}
-
-		Integer[] hashsize = new Integer[1];
-		CryptoHashAlg[] hashalg = new CryptoHashAlg[1];
-
-		getHashSizeAlg(this.pSuite, hashsize, hashalg);
-
-		byte[] plainArr = new byte[65536];
-	    //_System.out.println("cryptoCipherDecrypt enc:" + enc.length);
-	    //_System.out.println("cryptoCipherDecrypt plainArr:" + plainArr.length);
-		int rvalue = crypto.cryptoCipherDecrypt(pCipher, enc, plainArr, enc.length, this.objectType);
-//=		System.out.println(Util.byteArrayToHex(plainArr));
-//=		System.out.println(Util.byteArrayToString(plainArr));
-		if (rvalue != 0) {
+		byte[] plain = cipher.decrypt(recType, enc, 0, enc.length);
+		if (plain == null) {
 			LOGGER.warn("Error in decrypting data.");
 			return -1;
 		}
+		this.recordType = cipher.getRecordType();
 
-		byte[] plain = plainArr;
-		int payloadLen = enc.length;
-
-		if (pCipherData.getBlockSize() > 0) { // block cipher
-			// TODO: for TLS version 1.1, see tlsv1_record.c line 389
-
-			// Remove padding
-			int padLen = plain[payloadLen - 1];
-			payloadLen -= padLen + 1;
-		}
-		payloadLen -= hashsize[0];
-
-		// Check MAC
-		int ret = 0;
-		String osname = System.getProperty("os.name");
-		if (osname != null && osname.contains("Windows")) {
-			ret = crypto.cryptoHashInitUpdateFinish(dir.ordinal(), hashalg[0].ordinal(), this.keyBlock, hashsize[0], recType, payloadLen, plain, this.seqNum);
-		}
-		if (ret != 0) {
-			LOGGER.warn("Error in performing hash operation.");
-			return -1;
-		}
-
-		if (payloadLen > 0 && decompress(plain, payloadLen, dec, recPayloadLen) != 1) {
+		recPayloadLen[0] = 0;
+		if (plain.length > 0 && decompress(plain, plain.length, dec, recPayloadLen) != 1) {
 			LOGGER.warn("Error in decompressing data.");
 			return -1;
 		}
-
-		// Increase seqnum by 1 per record
-		incByteArray(this.seqNum, TLS_SEQ_NUM_LEN);
 		return 1;
 	}
 
-	void incByteArray(byte[] counter, int len) {
-		int pos = len - 1;
-		while (pos >= 0) {
-			counter[pos]++;
-			if (counter[pos] != 0) {
-				break;
-			}
-			pos--;
-		}
-	}
-
 	@Override
 	public int getObjectType() {
 		return this.objectType;
@@ -344,6 +299,16 @@ public class TLSSessionInfoImpl implements ITLSSessionInfo {
 			hashalg[0] = CryptoHashAlg.CRYPTO_HASH_ALG_HMAC_SHA1;
 			break;
 
+		case TLS_HASH_SHA256:
+			hashsize[0] = SHA256_MAC_LEN;
+			hashalg[0] = CryptoHashAlg.CRYPTO_HASH_ALG_HMAC_SHA256;
+			break;
+
+		case TLS_HASH_SHA384:
+			hashsize[0] = SHA384_MAC_LEN;
+			hashalg[0] = CryptoHashAlg.CRYPTO_HASH_ALG_HMAC_SHA384;
+			break;
+
 		default:
 			LOGGER.warn("30023 - Invalid hash type.");
 			break;
@@ -358,99 +323,121 @@ public class TLSSessionInfoImpl implements ITLSSessionInfo {
 
 		System.arraycopy(clientRandom, 0, random, 32, 32);
 
+		TLSCipherData cipherData = tsiPending.getCipherData();
+		int tlsVersion = tsiPending.getVersion();
 		Integer[] hashsize = new Integer[1];
 		CryptoHashAlg[] hashalg = new CryptoHashAlg[1];
 		getHashSizeAlg(tsiPending.getTLSCipherSuite(), hashsize, hashalg);
 
-		int blocklen = 2 * (hashsize[0] + // MAC secret length
-				tsiPending.getCipherData().getKeyMaterial() + // key length
-				tsiPending.getCipherData().getBlockSize() // IV length
-		);
+		// AEAD ciphers authenticate the records themselves, they have no MAC secret
+		int macLen = cipherData.getType() == TLSCipherType.TLS_CIPHER_AEAD || hashsize[0] == null ? 0 : hashsize[0];
+		int keyLen = cipherData.getKeyMaterial();
+		int ivLen = cipherData.getFixedIvLength();
+		int blocklen = 2 * (macLen + keyLen + ivLen);
 		tsiPending.setKeyBlockLen(blocklen);
 
 		// getting the key block
-		int rvalue = sslkeyservice.tlsprf(master
-				, TLS_MASTER_SECRET_LEN
-				, "key expansion"
-				, random
-				, TLS_RANDOM_LEN + TLS_RANDOM_LEN
-				, tsiPending.getKeyBlock()
-				, tsiPending.getKeyBlockLen()
-				);
-		if (rvalue != 0) {
-			LOGGER.error("Error in deriving new, cryptographically separate keys from a given key in TLS.");
-			return -1;
-		}
-
-		int nclient = initCipher(tsiPending.getCipherData(), tsiPending.getKeyBlock(), hashsize[0], 1);
-		tsiPending.setpCipherClient(nclient);
-		int nserver = initCipher(tsiPending.getCipherData(), tsiPending.getKeyBlock(), hashsize[0], 0);
-		tsiPending.setpCipherServer(nserver);
-
-		if ((tsiPending.getCipherClient() == -1) || (tsiPending.getCipherServer() == -1)) {
-			return 0;
+		byte[] keyBlock = tsiPending.getKeyBlock();
+		if (tlsVersion >= TLSRecordCipher.TLS_1_2) {
+			try {
+				byte[] derived = TLSKeyDerivation.prf(TLSKeyDerivation.prfMac(tsiPending.getTLSCipherSuite().getHash()),
+						Arrays.copyOf(master, TLS_MASTER_SECRET_LEN), "key expansion", random, blocklen);
+				System.arraycopy(derived, 0, keyBlock, 0, blocklen);
+			} catch (GeneralSecurityException e) {
+				LOGGER.error("Error in deriving the TLS 1.2 key block: " + e.getMessage());
+				return -1;
+			}
 		} else {
-			return 1;
+			int rvalue = sslkeyservice.tlsprf(master
+					, TLS_MASTER_SECRET_LEN
+					, "key expansion"
+					, random
+					, TLS_RANDOM_LEN + TLS_RANDOM_LEN
+					, keyBlock
+					, blocklen
+					);
+			if (rvalue != 0) {
+				LOGGER.error("Error in deriving new, cryptographically separate keys from a given key in TLS.");
+				return -1;
+			}
 		}
-	}
-
-	private int initCipher(TLSCipherData pCipherData, byte[] keyBlock, int hashsize, int bClient) {
-
-		// key negotiated, now start transferring data
 
 		// in keyBlock:
 		// client write MAC secret
 		// server write MAC secret
 		// client write key
 		// server write key
-		// client write IV (for block ciphers only)
-		// server write IV (for block ciphers only)
-		byte[] temp1 = null;
-		byte[] temp2 = null;
-		ByteBuffer keyBlockbuff = ByteBuffer.wrap(keyBlock);
-		
-		if (bClient == 1) {
-			// for decrypting data from server (DOWNLINK)
-			int offset = hashsize * 2 + pCipherData.getKeyMaterial() * 2 + pCipherData.getBlockSize();
-			for (int j = 0; j < offset; j++) {
-				keyBlockbuff.get();
-			}
-			temp1 = new byte[keyBlock.length - offset];
-			keyBlockbuff.get(temp1, 0, keyBlock.length - offset);
-			keyBlockbuff.position(0);
+		// client write IV
+		// server write IV
+		String macAlg = macLen > 0 ? macName(hashalg[0]) : null;
+		TLSRecordCipher uplink = createCipher(cipherData, tlsVersion, macAlg
+				, Arrays.copyOfRange(keyBlock, 0, macLen)
+				, Arrays.copyOfRange(keyBlock, 2 * macLen, 2 * macLen + keyLen)
+				, Arrays.copyOfRange(keyBlock, 2 * (macLen + keyLen), 2 * (macLen + keyLen) + ivLen));
+		TLSRecordCipher downlink = createCipher(cipherData, tlsVersion, macAlg
+				, Arrays.copyOfRange(keyBlock, macLen, 2 * macLen)
+				, Arrays.copyOfRange(keyBlock, 2 * macLen + keyLen, 2 * (macLen + keyLen))
+				, Arrays.copyOfRange(keyBlock, 2 * (macLen + keyLen) + ivLen, blocklen));
+		return setRecordCiphers(tsiPending, uplink, downlink);
+	}
 
-			offset = hashsize * 2 + pCipherData.getKeyMaterial();
-			for (int j = 0; j < offset; j++) {
-				keyBlockbuff.get();
-			}
-			temp2 = new byte[keyBlock.length - offset];
-			keyBlockbuff.get(temp2, 0, keyBlock.length - offset);
-			keyBlockbuff.position(0);
+	@Override
+	public int setupTLS13Ciphers(byte[] clientSecret, byte[] serverSecret, ITLSSessionInfo tsiPending) {
+		TLSCipherData cipherData = tsiPending.getCipherData();
+		String macAlg = TLSKeyDerivation.prfMac(tsiPending.getTLSCipherSuite().getHash());
+		tsiPending.setVersion(TLSRecordCipher.TLS_1_3);
+		TLSRecordCipher uplink = createTLS13Cipher(cipherData, macAlg, clientSecret);
+		TLSRecordCipher downlink = createTLS13Cipher(cipherData, macAlg, serverSecret);
+		return setRecordCiphers(tsiPending, uplink, downlink);
+	}
+
+	private int setRecordCiphers(ITLSSessionInfo tsiPending, TLSRecordCipher uplink, TLSRecordCipher downlink) {
+		tsiPending.setRecordCiphers(uplink, downlink);
+		// the client cipher decrypts what the server writes
+		tsiPending.setpCipherClient(downlink != null ? 0 : -1);
+		tsiPending.setpCipherServer(uplink != null ? 0 : -1);
+
+		if ((tsiPending.getCipherClient() == -1) || (tsiPending.getCipherServer() == -1)) {
+			return 0;
 		} else {
-			// for decrypting data to server (UPLINK)
-			int offset = hashsize * 2 + pCipherData.getKeyMaterial() * 2;
-			for (int j = 0; j < offset; j++) {
-				keyBlockbuff.get();
-			}
-			temp1 = new byte[keyBlock.length - offset];
-			keyBlockbuff.get(temp1, 0, keyBlock.length - offset);
-			keyBlockbuff.position(0);
+			return 1;
+		}
+	}
 
-			offset = hashsize * 2;
-			for (int j = 0; j < offset; j++) {
-				keyBlockbuff.get();
-			}
-			temp2 = new byte[keyBlock.length - offset];
-			keyBlockbuff.get(temp2, 0, keyBlock.length - offset);
-			keyBlockbuff.position(0);
+	private TLSRecordCipher createCipher(TLSCipherData cipherData, int tlsVersion, String macAlg, byte[] macKey, byte[] key, byte[] iv) {
+		try {
+			return TLSRecordCipher.create(cipherData, tlsVersion, macAlg, macKey, key, iv);
+		} catch (GeneralSecurityException e) {
+			LOGGER.error("Error in initializing " + cipherData.getCipher() + ": " + e.getMessage());
+			return null;
 		}
+	}
 
-		int ret = crypto.cryptoCipherInit(pCipherData.getAlg().ordinal(), temp1, temp2, pCipherData.getKeyMaterial(), bClient);
-		if (ret != 0) {
-			LOGGER.error("Error in initializing crypto APIs.");
-			return -1;
+	private TLSRecordCipher createTLS13Cipher(TLSCipherData cipherData, String macAlg, byte[] secret) {
+		if (secret == null) {
+			return null;
+		}
+		try {
+			byte[] key = TLSKeyDerivation.hkdfExpandLabel(macAlg, secret, "key", new byte[0], cipherData.getKeyMaterial());
+			byte[] iv = TLSKeyDerivation.hkdfExpandLabel(macAlg, secret, "iv", new byte[0], TLS13_IV_LEN);
+			return TLSRecordCipher.create(cipherData, TLSRecordCipher.TLS_1_3, null, null, key, iv);
+		} catch (GeneralSecurityException e) {
+			LOGGER.error("Error in initializing " + cipherData.getCipher() + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	private String macName(CryptoHashAlg hashAlg) {
+		switch (hashAlg) {
+		case CRYPTO_HASH_ALG_HMAC_MD5:
+			return TLSKeyDerivation.HMAC_MD5;
+		case CRYPTO_HASH_ALG_HMAC_SHA256:
+			return TLSKeyDerivation.HMAC_SHA256;
+		case CRYPTO_HASH_ALG_HMAC_SHA384:
+			return TLSKeyDerivation.HMAC_SHA384;
+		default:
+			return TLSKeyDerivation.HMAC_SHA1;
 		}
-		return ret;
 	}
 
 	@Override
@@ -548,4 +535,35 @@ public class TLSSessionInfoImpl implements ITLSSessionInfo {
 		this.keyBlockLen = len;
 	}
 
+	@Override
+	public int getVersion() {
+		return this.version;
+	}
+
+	@Override
+	public void setVersion(int version) {
+		this.version = version;
+	}
+
+	@Override
+	public TLSRecordCipher getUplinkCipher() {
+		return this.uplinkCipher;
+	}
+
+	@Override
+	public TLSRecordCipher getDownlinkCipher() {
+		return this.downlinkCipher;
+	}
+
+	@Override
+	public void setRecordCiphers(TLSRecordCipher uplinkCipher, TLSRecordCipher downlinkCipher) {
+		this.uplinkCipher = uplinkCipher;
+		this.downlinkCipher = downlinkCipher;
+	}
+
+	@Override
+	public int getRecordType() {
+		return this.recordType;
+	}
+
 }// end class
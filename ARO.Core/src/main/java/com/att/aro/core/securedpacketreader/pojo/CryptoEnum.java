@@ -20,7 +20,9 @@ public class CryptoEnum {
 		CRYPTO_HASH_ALG_MD5, 
 		CRYPTO_HASH_ALG_SHA1,
 		CRYPTO_HASH_ALG_HMAC_MD5, 
-		CRYPTO_HASH_ALG_HMAC_SHA1
+		CRYPTO_HASH_ALG_HMAC_SHA1,
+		CRYPTO_HASH_ALG_HMAC_SHA256,
+		CRYPTO_HASH_ALG_HMAC_SHA384
 	};
 	public enum CryptoCipherAlg {
 		CRYPTO_CIPHER_NULL, 
@@ -28,7 +30,9 @@ public class CryptoEnum {
 		CRYPTO_CIPHER_ALG_3DES,
 		CRYPTO_CIPHER_ALG_DES, 
 		CRYPTO_CIPHER_ALG_RC2, 
-		CRYPTO_CIPHER_ALG_RC4
+		CRYPTO_CIPHER_ALG_RC4,
+		CRYPTO_CIPHER_ALG_AES_GCM,
+		CRYPTO_CIPHER_ALG_CHACHA20_POLY1305
 	};
 	
 	public enum TLSKeyExchange {
@@ -44,7 +48,10 @@ public class CryptoEnum {
 		TLS_KEY_X_DHE_RSA_EXPORT,
 		TLS_KEY_X_DHE_RSA,
 		TLS_KEY_X_DH_anon_EXPORT,
-		TLS_KEY_X_DH_anon
+		TLS_KEY_X_DH_anon,
+		TLS_KEY_X_ECDHE_RSA,
+		TLS_KEY_X_ECDHE_ECDSA,
+		TLS_KEY_X_TLS13
 	};
 	
 	public enum TLSCipher {
@@ -57,17 +64,23 @@ public class CryptoEnum {
 		TLS_CIPHER_DES_CBC,
 		TLS_CIPHER_3DES_EDE_CBC,
 		TLS_CIPHER_AES_128_CBC,
-		TLS_CIPHER_AES_256_CBC
+		TLS_CIPHER_AES_256_CBC,
+		TLS_CIPHER_AES_128_GCM,
+		TLS_CIPHER_AES_256_GCM,
+		TLS_CIPHER_CHACHA20_POLY1305
 	};
 	
 	public enum TLSHash {
 		TLS_HASH_NULL,
 		TLS_HASH_MD5,
-		TLS_HASH_SHA
+		TLS_HASH_SHA,
+		TLS_HASH_SHA256,
+		TLS_HASH_SHA384
 	};
 	
 	public enum TLSCipherType {
 		TLS_CIPHER_STREAM,
-		TLS_CIPHER_BLOCK
+		TLS_CIPHER_BLOCK,
+		TLS_CIPHER_AEAD
 	};
 }
@@ -15,6 +15,9 @@
 */
 package com.att.aro.core.securedpacketreader.pojo;
 
+import java.util.HashMap;
+import java.util.Map;
+
 public class SSLKey implements Comparable<SSLKey> {
 	private int bUsed;
 	private double tsvalue;
@@ -22,6 +25,14 @@ public class SSLKey implements Comparable<SSLKey> {
 	private int masterLen;
 	private byte[] preMaster;
 	private byte[] master;
+	/**
+	 * The client random of the handshake, known for keys read from a key log
+	 */
+	private byte[] clientRandom;
+	/**
+	 * The TLS 1.3 secrets of a key log by their labels, like CLIENT_TRAFFIC_SECRET_0
+	 */
+	private Map<String, byte[]> secrets = new HashMap<String, byte[]>();
 
 	@Override
 	public int compareTo(SSLKey arg0) {
@@ -88,4 +99,23 @@ public class SSLKey implements Comparable<SSLKey> {
 		System.arraycopy(master, 0, this.master, 0, master.length);
 	}
 
+	public byte[] getClientRandom() {
+		return clientRandom;
+	}
+
+	public void setClientRandom(byte[] clientRandom) {
+		this.clientRandom = clientRandom;
+	}
+
+	/**
+	 * Returns the secret logged with label, null if there is none.
+	 */
+	public byte[] getSecret(String label) {
+		return secrets.get(label);
+	}
+
+	public void setSecret(String label, byte[] secret) {
+		secrets.put(label, secret);
+	}
+
 }
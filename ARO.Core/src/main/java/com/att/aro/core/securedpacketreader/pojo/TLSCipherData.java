@@ -27,13 +27,22 @@ public class TLSCipherData {
 	int keymaterial;
 	int expandedKeyMaterial;
 	int blocksize;
+	int fixedIvLength;
 	public TLSCipherData(TLSCipher cipher, TLSCipherType type, int keymaterial, int expandedkeymaterial, int blocksize, CryptoCipherAlg alg){
+		this(cipher, type, keymaterial, expandedkeymaterial, blocksize, alg, blocksize);
+	}
+	/**
+	 * @param fixedIvLength The length of the IV taken from the key block, the
+	 *            implicit part of the nonce for AEAD ciphers.
+	 */
+	public TLSCipherData(TLSCipher cipher, TLSCipherType type, int keymaterial, int expandedkeymaterial, int blocksize, CryptoCipherAlg alg, int fixedIvLength){
 		this.cipher = cipher;
 		this.type = type;
 		this.keymaterial = keymaterial;
 		this.expandedKeyMaterial = expandedkeymaterial;
 		this.blocksize = blocksize;
 		this.alg = alg;
+		this.fixedIvLength = fixedIvLength;
 	}
 	public TLSCipher getCipher() {
 		return cipher;
@@ -71,5 +80,11 @@ public class TLSCipherData {
 	public void setBlockSize(int blocksize) {
 		this.blocksize = blocksize;
 	}
+	public int getFixedIvLength() {
+		return fixedIvLength;
+	}
+	public void setFixedIvLength(int fixedIvLength) {
+		this.fixedIvLength = fixedIvLength;
+	}
 	
 }
@@ -1,5 +1,6 @@
 package com.att.aro.core.tracemetadata.pojo;
 
+import java.io.Serializable;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
@@ -26,7 +27,9 @@ import lombok.Getter;
 @Data
 @JsonIgnoreProperties(ignoreUnknown = true)				// allows for changes dropping items or using older versions
 @JsonInclude(Include.NON_NULL)
-public class MetaDataModel {
+public class MetaDataModel implements Serializable {
+	private static final long serialVersionUID = 1L;
+
 	@Nonnull private String description = "";            
 	@Nonnull private String traceType = "";               
 	@Nonnull private String targetedApp = "";                             
@@ -0,0 +1,169 @@
+/*
+ *  Copyright 2019 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.core.util;
+
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Decodes compressed images on demand and keeps the decoded images up to a
+ * byte budget, dropping the least recently used beyond it.
+ * <p>
+ * Images are keyed by the identity of their compressed bytes and the height
+ * they are scaled to, so the owner of the bytes, a VideoEvent for instance,
+ * holds only the compressed form. Callers share the returned images and must
+ * not modify them.
+ */
+public class ThumbnailCache {
+
+	/**
+	 * Default number of bytes of decoded images held in memory.
+	 */
+	public static final long DEFAULT_BUDGET = 32L * 1024 * 1024;
+
+	private static final ThumbnailCache INSTANCE = new ThumbnailCache(DEFAULT_BUDGET, ImageHelper::getImageFromByte);
+
+	private final long budget;
+	private final Function<byte[], BufferedImage> decoder;
+	private final LinkedHashMap<Key, BufferedImage> images = new LinkedHashMap<>(16, 0.75f, true);
+	private long size;
+
+	private long hits;
+	private long misses;
+
+	ThumbnailCache(long budget, Function<byte[], BufferedImage> decoder) {
+		this.budget = budget;
+		this.decoder = decoder;
+	}
+
+	/**
+	 * Returns the cache shared by the analysis and the views.
+	 */
+	public static ThumbnailCache getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Returns the image encoded in data, scaled to height keeping its aspect
+	 * ratio, or at its own size if height is 0.
+	 * 
+	 * @return the image, null if data cannot be decoded
+	 */
+	public BufferedImage get(byte[] data, int height) {
+		if (data == null) {
+			return null;
+		}
+		Key key = new Key(data, height);
+		BufferedImage original;
+		synchronized (this) {
+			BufferedImage image = images.get(key);
+			if (image != null) {
+				hits++;
+				return image;
+			}
+			misses++;
+			original = height > 0 ? images.get(new Key(data, 0)) : null;
+		}
+
+		// decoded outside the lock, a concurrent miss on the same key decodes again
+		if (original == null) {
+			original = decoder.apply(data);
+			if (original == null) {
+				return null;
+			}
+			if (height <= 0) {
+				put(key, original);
+				return original;
+			}
+		}
+		int width = Math.max(1, height * original.getWidth() / original.getHeight());
+		BufferedImage image = ImageHelper.resize(original, width, height);
+		put(key, image);
+		return image;
+	}
+
+	/**
+	 * Drops all images.
+	 */
+	public synchronized void clear() {
+		images.clear();
+		size = 0;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Returns the number of bytes of decoded images held in memory.
+	 */
+	public synchronized long getSize() {
+		return size;
+	}
+
+	private synchronized void put(Key key, BufferedImage image) {
+		long length = sizeOf(image);
+		if (length > budget) {
+			return;
+		}
+		BufferedImage previous = images.put(key, image);
+		if (previous != null) {
+			size -= sizeOf(previous);
+		}
+		size += length;
+		Iterator<Map.Entry<Key, BufferedImage>> iterator = images.entrySet().iterator();
+		while (size > budget && iterator.hasNext()) {
+			Map.Entry<Key, BufferedImage> eldest = iterator.next();
+			iterator.remove();
+			size -= sizeOf(eldest.getValue());
+		}
+	}
+
+	private static long sizeOf(BufferedImage image) {
+		return (long) image.getWidth() * image.getHeight() * 4;
+	}
+
+	private static final class Key {
+		private final byte[] data;
+		private final int height;
+
+		Key(byte[] data, int height) {
+			this.data = data;
+			this.height = height;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key key = (Key) obj;
+			return data == key.data && height == key.height;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * System.identityHashCode(data) + height;
+		}
+	}
+}
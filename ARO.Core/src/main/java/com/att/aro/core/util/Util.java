@@ -61,6 +61,7 @@ public final class Util {
 	public static final String RECENT_TRACES = "RECENT_TRACES";
 	private static final int RECENT_TRACES_MAXSIZE = 15;
 	public static final String FFPROBE = "ffprobe";
+	public static final String FFPROBE_FALLBACK = "ffprobeFallback";
 	public static final String IDEVICESCREENSHOT = "iDeviceScreenshot";
 	public static final String OS_NAME = System.getProperty("os.name");
 	public static final String OS_VERSION = System.getProperty("os.version");
@@ -74,6 +75,7 @@ public final class Util {
 	private static Comparator<String> floatValComparator;
 	private static Comparator<Integer> intComparator;
 	private static Logger logger = LogManager.getLogger(Util.class.getName());
+	private static boolean webPLibraryLoaded = false;
 	private static final IExternalProcessRunner extrunner = SpringContextUtil.getInstance().getContext()
 			.getBean(IExternalProcessRunner.class);
 
@@ -624,6 +626,46 @@ public final class Util {
 		}
 	}
 
+	/**
+	 * Load the WebP imageio JNI library once. It used to be loaded together
+	 * with jpcap, but packets are no longer read through the native library.
+	 */
+	public static synchronized boolean loadWebPLibrary() {
+		if (webPLibraryLoaded) {
+			return true;
+		}
+		String libName;
+		String libFileName;
+		if (isWindowsOS() && OS_ARCHITECTURE.contains("64")) {
+			libName = "webp-imageio";
+			libFileName = libName + ".dll";
+		} else if (isWindowsOS()) {
+			libName = "webp-imageio32";
+			libFileName = libName + ".dll";
+		} else if (isLinuxOS() && OS_ARCHITECTURE.contains("i386")) {
+			libName = "libwebp-imageio32";
+			libFileName = libName + ".so";
+		} else if (isLinuxOS()) {
+			libName = "libwebp-imageio";
+			libFileName = libName + ".so";
+		} else {
+			libName = "libwebp-imageio";
+			libFileName = libName + ".dylib";
+		}
+		try {
+			String libFolder = makeLibFilesFromJar(libFileName);
+			webPLibraryLoaded = libFolder != null && loadLibrary(libFileName, libFolder);
+			if (!webPLibraryLoaded) {
+				// from java.library.path, loadLibrary adds the lib prefix and the extension itself
+				System.loadLibrary(!isWindowsOS() && libName.startsWith("lib") ? libName.substring(3) : libName);
+				webPLibraryLoaded = true;
+			}
+		} catch (UnsatisfiedLinkError e) {
+			logger.error("Failed to load " + libFileName + " ," + e.getMessage());
+		}
+		return webPLibraryLoaded;
+	}
+
 	/**
 	 * Formats a number so that the number of digits in the fraction portion of
 	 * it is bound by a maximum value and a minimum value. <br>
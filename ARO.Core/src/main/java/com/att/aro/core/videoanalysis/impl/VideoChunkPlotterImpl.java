@@ -41,7 +41,8 @@ public class VideoChunkPlotterImpl extends PlotHelperAbstract {
 
 	private int key = 0;
 	Map<Integer, Double> seriesDataSets = new TreeMap<Integer, Double>();
-	private List<BufferedImage> imgSeries;
+	// the segments of the plot, their thumbnails are decoded when drawn
+	private List<VideoEvent> imgSeries;
 	private double firstChunkTimestamp;
 
 	private List<Double> chunkPlayStartTimesList = new ArrayList<>();
@@ -77,7 +78,7 @@ public class VideoChunkPlotterImpl extends PlotHelperAbstract {
 		if (streamingVideoData != null) {
 			this.streamingVideoData = streamingVideoData;
 			key = 0;
-			imgSeries = new ArrayList<BufferedImage>();
+			imgSeries = new ArrayList<VideoEvent>();
 			seriesDataSets.clear();
 			filterVideoSegment(streamingVideoData);
 			filterVideoSegmentUpdated(streamingVideoData);
@@ -93,6 +94,15 @@ public class VideoChunkPlotterImpl extends PlotHelperAbstract {
 		return seriesDataSets;
 	}
 
+	/**
+	 * Returns the thumbnail of a segment of the data set built by populateDataSet.
+	 * 
+	 * @param item the key of the segment in the data set
+	 */
+	public BufferedImage getThumbnail(int item) {
+		return imgSeries.get(item).getThumbnail();
+	}
+
 	public AbstractBestPracticeResult refreshStartUpDelayBP(AROTraceData analysis) {
 		return startUpDelayBPReference.runTest(analysis.getAnalyzerResult());
 	}
@@ -113,14 +123,12 @@ public class VideoChunkPlotterImpl extends PlotHelperAbstract {
 		}
 		for (VideoEvent ve : allSegments2) {
 
-			BufferedImage img = ve.getThumbnail();
-
 			if (count == 0) { // first chunk
 				firstChunkTimestamp = ve.getDLTimeStamp();
 				count++;
 			}
 
-			imgSeries.add(img);
+			imgSeries.add(ve);
 
 			seriesDataSets.put(key, ve.getDLTimeStamp());
 			key++;
@@ -0,0 +1,903 @@
+/*
+ *  Copyright 2019 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.core.videoanalysis.parsers;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+/**
+ * Reads the metadata of a video segment, start time, duration, bitrate and
+ * height, from its bytes, as ffprobe reported them.
+ * <p>
+ * Handles ISO-BMFF segments, mp4 files and fragments with or without their
+ * initialization segment in front, and MPEG-TS segments. The height is read
+ * from the sequence parameter set of H.264, H.265 and MPEG-2 video when
+ * present, otherwise from the sample entry or the track header.
+ */
+public class SegmentMetadataParser {
+
+	private static final Logger LOG = LogManager.getLogger(SegmentMetadataParser.class.getName());
+
+	public static final String START = "SegmentStart";
+	public static final String BITRATE = "bitrate";
+	public static final String DURATION = "Duration";
+	public static final String RESOLUTION = "Resolution";
+
+	private static final int TS_PACKET = 188;
+	private static final int TS_SYNC = 0x47;
+	private static final double TS_CLOCK = 90000.0;
+	// ES bytes searched for a sequence parameter set
+	private static final int SPS_SEARCH_LIMIT = 256 * 1024;
+	private static final int MAX_HEIGHT = 16384;
+	// container boxes nest a few levels deep (moov/trak/mdia/minf/stbl), deeper nesting is malformed
+	private static final int MAX_BOX_DEPTH = 16;
+
+	private static final int STREAM_MPEG1_VIDEO = 0x01;
+	private static final int STREAM_MPEG2_VIDEO = 0x02;
+	private static final int STREAM_H264 = 0x1B;
+	private static final int STREAM_HEVC = 0x24;
+
+	private static final String[] ISO_BOXES = { "ftyp", "styp", "moov", "moof", "sidx", "mdat", "free", "skip", "emsg", "prft", "wide" };
+
+	/**
+	 * Returns the metadata of a segment keyed by START, BITRATE, DURATION and
+	 * RESOLUTION, a value is left out if it could not be determined. Returns
+	 * null if content is neither an ISO-BMFF nor an MPEG-TS segment or none of
+	 * the values could be determined.
+	 */
+	public HashMap<String, Double> parse(byte[] content) {
+		if (content == null || content.length < 8) {
+			return null;
+		}
+		HashMap<String, Double> results = null;
+		try {
+			if (isIsoBmff(content)) {
+				results = parseIsoBmff(content);
+			} else {
+				int sync = findTsSync(content);
+				if (sync >= 0) {
+					results = parseTransportStream(content, sync);
+				}
+			}
+		} catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+			LOG.debug("Failed to parse segment: " + e.getMessage());
+		}
+		return results == null || results.isEmpty() ? null : results;
+	}
+
+	private static boolean isIsoBmff(byte[] content) {
+		String type = new String(content, 4, 4, StandardCharsets.ISO_8859_1);
+		for (String box : ISO_BOXES) {
+			if (box.equals(type)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the position of the first of three TS packets in a row, -1 if
+	 * there is none within the first packet.
+	 */
+	private static int findTsSync(byte[] content) {
+		for (int offset = 0; offset < TS_PACKET && offset < content.length; offset++) {
+			if ((content[offset] & 0xff) == TS_SYNC && isTsSync(content, offset + TS_PACKET)
+					&& isTsSync(content, offset + 2 * TS_PACKET)) {
+				return offset;
+			}
+		}
+		return -1;
+	}
+
+	private static boolean isTsSync(byte[] content, int offset) {
+		return offset >= content.length || (content[offset] & 0xff) == TS_SYNC;
+	}
+
+	private static void putResults(HashMap<String, Double> results, byte[] content, double start, double duration, int height) {
+		if (start >= 0) {
+			results.put(START, start);
+		}
+		if (duration > 0) {
+			results.put(DURATION, duration);
+			results.put(BITRATE, content.length * 8 / duration);
+		}
+		if (height > 0) {
+			results.put(RESOLUTION, (double) height);
+		}
+	}
+
+	/*
+	 * ISO-BMFF
+	 */
+
+	private static class Track {
+		long trackId;
+		long timescale;
+		long duration;
+		boolean video;
+		int headerHeight;
+		int entryHeight;
+		int spsHeight;
+		long defaultSampleDuration;
+		long fragmentStart = -1;
+		long fragmentDuration;
+
+		int getHeight() {
+			return spsHeight > 0 ? spsHeight : entryHeight > 0 ? entryHeight : headerHeight;
+		}
+	}
+
+	private static class Movie {
+		long timescale;
+		long duration;
+		boolean hasMoov;
+		List<Track> tracks = new ArrayList<>();
+		Track track;
+		long fragmentSampleDuration;
+		long sidxTimescale;
+		long sidxStart = -1;
+		long sidxDuration;
+
+		Track findTrack(long trackId) {
+			for (Track candidate : tracks) {
+				if (candidate.trackId == trackId) {
+					return candidate;
+				}
+			}
+			Track added = new Track();
+			added.trackId = trackId;
+			tracks.add(added);
+			return added;
+		}
+	}
+
+	private HashMap<String, Double> parseIsoBmff(byte[] content) {
+		Movie movie = new Movie();
+		parseBoxes(ByteBuffer.wrap(content), movie, 0);
+
+		Track primary = null;
+		double start = -1;
+		for (Track track : movie.tracks) {
+			if (primary == null || (track.video && !primary.video)) {
+				primary = track;
+			}
+			if (track.fragmentStart >= 0 && track.timescale > 0) {
+				double trackStart = (double) track.fragmentStart / track.timescale;
+				start = start < 0 ? trackStart : Math.min(start, trackStart);
+			}
+		}
+		if (start < 0) {
+			if (movie.sidxStart >= 0 && movie.sidxTimescale > 0) {
+				start = (double) movie.sidxStart / movie.sidxTimescale;
+			} else if (movie.hasMoov && !movie.tracks.isEmpty()) {
+				start = 0;
+			}
+		}
+
+		double duration = 0;
+		if (primary != null && primary.timescale > 0) {
+			if (primary.fragmentDuration > 0) {
+				duration = (double) primary.fragmentDuration / primary.timescale;
+			} else if (primary.fragmentStart < 0 && primary.duration > 0 && primary.duration != 0xFFFFFFFFL) {
+				duration = (double) primary.duration / primary.timescale;
+			}
+		}
+		if (duration == 0 && movie.sidxDuration > 0 && movie.sidxTimescale > 0) {
+			duration = (double) movie.sidxDuration / movie.sidxTimescale;
+		}
+		if (duration == 0 && movie.duration > 0 && movie.timescale > 0 && movie.duration != 0xFFFFFFFFL) {
+			duration = (double) movie.duration / movie.timescale;
+		}
+
+		HashMap<String, Double> results = new HashMap<>();
+		putResults(results, content, start, duration, primary != null ? primary.getHeight() : 0);
+		return results;
+	}
+
+	/**
+	 * Parses the boxes between the position and the limit of buffer, a box
+	 * running past the limit is parsed as far as it goes. Boxes nested deeper
+	 * than MAX_BOX_DEPTH are skipped.
+	 */
+	private void parseBoxes(ByteBuffer buffer, Movie movie, int depth) {
+		if (depth >= MAX_BOX_DEPTH) {
+			LOG.debug("Boxes nested deeper than " + MAX_BOX_DEPTH + " levels are skipped");
+			return;
+		}
+		while (buffer.remaining() >= 8) {
+			int offset = buffer.position();
+			long size = buffer.getInt() & 0xFFFFFFFFL;
+			byte[] name = new byte[4];
+			buffer.get(name);
+			String type = new String(name, StandardCharsets.ISO_8859_1);
+			if (size == 1) {
+				if (buffer.remaining() < 8) {
+					return;
+				}
+				size = buffer.getLong();
+			} else if (size == 0) {
+				size = buffer.limit() - offset;
+			}
+			int header = buffer.position() - offset;
+			if (size < header) {
+				return;
+			}
+			int end = (int) Math.min(buffer.limit(), offset + size);
+			ByteBuffer box = (ByteBuffer) buffer.duplicate().limit(end);
+			try {
+				parseBox(type, box, movie, depth);
+			} catch (BufferUnderflowException | IllegalArgumentException e) {
+				LOG.debug("Truncated " + type + " box");
+			}
+			buffer.position(end);
+		}
+	}
+
+	private void parseBox(String type, ByteBuffer box, Movie movie, int depth) {
+		switch (type) {
+		case "moov":
+			movie.hasMoov = true;
+			parseBoxes(box, movie, depth + 1);
+			break;
+		case "trak":
+			movie.track = new Track();
+			movie.tracks.add(movie.track);
+			parseBoxes(box, movie, depth + 1);
+			break;
+		case "mdia":
+		case "minf":
+		case "stbl":
+		case "mvex":
+		case "moof":
+			parseBoxes(box, movie, depth + 1);
+			break;
+		case "traf":
+			movie.track = null;
+			parseBoxes(box, movie, depth + 1);
+			break;
+		case "mvhd":
+			parseMvhd(box, movie);
+			break;
+		case "tkhd":
+			parseTkhd(box, movie.track);
+			break;
+		case "mdhd":
+			parseMdhd(box, movie.track);
+			break;
+		case "hdlr":
+			box.getInt();
+			box.getInt();
+			if (movie.track != null && "vide".equals(readType(box))) {
+				movie.track.video = true;
+			}
+			break;
+		case "stsd":
+			parseStsd(box, movie.track);
+			break;
+		case "trex":
+			box.getInt();
+			Track trexTrack = movie.findTrack(box.getInt() & 0xFFFFFFFFL);
+			box.getInt();
+			trexTrack.defaultSampleDuration = box.getInt() & 0xFFFFFFFFL;
+			break;
+		case "tfhd":
+			parseTfhd(box, movie);
+			break;
+		case "tfdt":
+			if (movie.track != null) {
+				int version = box.getInt() >>> 24;
+				long decodeTime = version == 1 ? box.getLong() : box.getInt() & 0xFFFFFFFFL;
+				if (movie.track.fragmentStart < 0) {
+					movie.track.fragmentStart = decodeTime;
+				}
+			}
+			break;
+		case "trun":
+			parseTrun(box, movie);
+			break;
+		case "sidx":
+			parseSidx(box, movie);
+			break;
+		default:
+			break;
+		}
+	}
+
+	private static String readType(ByteBuffer box) {
+		byte[] name = new byte[4];
+		box.get(name);
+		return new String(name, StandardCharsets.ISO_8859_1);
+	}
+
+	private static void parseMvhd(ByteBuffer box, Movie movie) {
+		int version = box.getInt() >>> 24;
+		if (version == 1) {
+			box.position(box.position() + 16);
+			movie.timescale = box.getInt() & 0xFFFFFFFFL;
+			movie.duration = box.getLong();
+		} else {
+			box.position(box.position() + 8);
+			movie.timescale = box.getInt() & 0xFFFFFFFFL;
+			movie.duration = box.getInt() & 0xFFFFFFFFL;
+		}
+	}
+
+	private static void parseTkhd(ByteBuffer box, Track track) {
+		if (track == null) {
+			return;
+		}
+		int version = box.getInt() >>> 24;
+		// creation and modification time
+		box.position(box.position() + (version == 1 ? 16 : 8));
+		track.trackId = box.getInt() & 0xFFFFFFFFL;
+		// reserved, duration, reserved, layer, alternate group, volume, reserved, matrix, width
+		box.position(box.position() + 4 + (version == 1 ? 8 : 4) + 8 + 8 + 36 + 4);
+		track.headerHeight = box.getInt() >>> 16;
+	}
+
+	private static void parseMdhd(ByteBuffer box, Track track) {
+		if (track == null) {
+			return;
+		}
+		int version = box.getInt() >>> 24;
+		if (version == 1) {
+			box.position(box.position() + 16);
+			track.timescale = box.getInt() & 0xFFFFFFFFL;
+			track.duration = box.getLong();
+		} else {
+			box.position(box.position() + 8);
+			track.timescale = box.getInt() & 0xFFFFFFFFL;
+			track.duration = box.getInt() & 0xFFFFFFFFL;
+		}
+	}
+
+	/**
+	 * Reads the height of the first visual sample entry and the sequence
+	 * parameter set of its avcC or hvcC box.
+	 */
+	private static void parseStsd(ByteBuffer box, Track track) {
+		if (track == null) {
+			return;
+		}
+		box.getInt();
+		if (box.getInt() == 0) {
+			return;
+		}
+		int offset = box.position();
+		long size = box.getInt() & 0xFFFFFFFFL;
+		String format = readType(box);
+		boolean visual = "avc1".equals(format) || "avc3".equals(format) || "hvc1".equals(format) || "hev1".equals(format)
+				|| "encv".equals(format) || "mp4v".equals(format);
+		if (!visual) {
+			return;
+		}
+		track.video = true;
+		// reserved, data reference index, pre defined, reserved, width
+		box.position(box.position() + 6 + 2 + 16 + 2);
+		track.entryHeight = box.getShort() & 0xFFFF;
+		// resolutions, reserved, frame count, compressor name, depth, pre defined
+		box.position(box.position() + 50);
+
+		int end = (int) Math.min(box.limit(), offset + size);
+		while (box.position() + 8 <= end) {
+			int childOffset = box.position();
+			int childSize = box.getInt();
+			String childType = readType(box);
+			if (childSize < 8) {
+				return;
+			}
+			int childEnd = Math.min(end, childOffset + childSize);
+			ByteBuffer child = (ByteBuffer) box.duplicate().limit(childEnd);
+			if ("avcC".equals(childType)) {
+				track.spsHeight = parseAvcC(child);
+			} else if ("hvcC".equals(childType)) {
+				track.spsHeight = parseHvcC(child);
+			}
+			box.position(childEnd);
+		}
+	}
+
+	private static int parseAvcC(ByteBuffer box) {
+		// version, profile, compatibility, level, length size
+		box.position(box.position() + 5);
+		int spsCount = box.get() & 0x1F;
+		if (spsCount == 0) {
+			return 0;
+		}
+		byte[] sps = new byte[box.getShort() & 0xFFFF];
+		box.get(sps);
+		return readAvcHeight(sps, 0, sps.length);
+	}
+
+	private static int parseHvcC(ByteBuffer box) {
+		box.position(box.position() + 22);
+		int arrays = box.get() & 0xFF;
+		for (int array = 0; array < arrays; array++) {
+			int nalType = box.get() & 0x3F;
+			int nalCount = box.getShort() & 0xFFFF;
+			for (int nal = 0; nal < nalCount; nal++) {
+				byte[] unit = new byte[box.getShort() & 0xFFFF];
+				box.get(unit);
+				if (nalType == 33) {
+					return readHevcHeight(unit, 0, unit.length);
+				}
+			}
+		}
+		return 0;
+	}
+
+	private static void parseTfhd(ByteBuffer box, Movie movie) {
+		int flags = box.getInt() & 0xFFFFFF;
+		movie.track = movie.findTrack(box.getInt() & 0xFFFFFFFFL);
+		if ((flags & 0x01) != 0) {
+			box.getLong();
+		}
+		if ((flags & 0x02) != 0) {
+			box.getInt();
+		}
+		movie.fragmentSampleDuration = (flags & 0x08) != 0 ? box.getInt() & 0xFFFFFFFFL : movie.track.defaultSampleDuration;
+	}
+
+	private static void parseTrun(ByteBuffer box, Movie movie) {
+		if (movie.track == null) {
+			return;
+		}
+		int flags = box.getInt() & 0xFFFFFF;
+		long samples = box.getInt() & 0xFFFFFFFFL;
+		if ((flags & 0x100) == 0) {
+			movie.track.fragmentDuration += samples * movie.fragmentSampleDuration;
+			return;
+		}
+		if ((flags & 0x01) != 0) {
+			box.getInt();
+		}
+		if ((flags & 0x04) != 0) {
+			box.getInt();
+		}
+		int skip = ((flags & 0x200) != 0 ? 4 : 0) + ((flags & 0x400) != 0 ? 4 : 0) + ((flags & 0x800) != 0 ? 4 : 0);
+		long duration = 0;
+		for (long sample = 0; sample < samples; sample++) {
+			duration += box.getInt() & 0xFFFFFFFFL;
+			box.position(box.position() + skip);
+		}
+		movie.track.fragmentDuration += duration;
+	}
+
+	private static void parseSidx(ByteBuffer box, Movie movie) {
+		if (movie.sidxStart >= 0) {
+			return;
+		}
+		int version = box.getInt() >>> 24;
+		box.getInt();
+		long timescale = box.getInt() & 0xFFFFFFFFL;
+		long start = version == 1 ? box.getLong() : box.getInt() & 0xFFFFFFFFL;
+		box.position(box.position() + (version == 1 ? 8 : 4) + 2);
+		int references = box.getShort() & 0xFFFF;
+		long duration = 0;
+		for (int reference = 0; reference < references; reference++) {
+			box.getInt();
+			duration += box.getInt() & 0xFFFFFFFFL;
+			box.getInt();
+		}
+		movie.sidxTimescale = timescale;
+		movie.sidxStart = start;
+		movie.sidxDuration = duration;
+	}
+
+	/*
+	 * MPEG-TS
+	 */
+
+	private static class PesStream {
+		final int streamType;
+		long firstPts = -1;
+		long lastPts = -1;
+		int count;
+		int height;
+		ByteArrayOutputStream elementary;
+
+		PesStream(int streamType) {
+			this.streamType = streamType;
+		}
+
+		boolean isVideo() {
+			return streamType == STREAM_H264 || streamType == STREAM_HEVC || streamType == STREAM_MPEG2_VIDEO
+					|| streamType == STREAM_MPEG1_VIDEO;
+		}
+
+		void addPts(long pts) {
+			firstPts = firstPts < 0 ? pts : Math.min(firstPts, pts);
+			lastPts = Math.max(lastPts, pts);
+			count++;
+		}
+
+		/**
+		 * Returns the PTS span plus one average PES interval.
+		 */
+		double getDuration() {
+			if (count < 2) {
+				return 0;
+			}
+			long span = lastPts - firstPts;
+			return (span + (double) span / (count - 1)) / TS_CLOCK;
+		}
+	}
+
+	private HashMap<String, Double> parseTransportStream(byte[] content, int sync) {
+		int pmtPid = -1;
+		Map<Integer, PesStream> streams = new LinkedHashMap<>();
+		for (int offset = sync; offset + TS_PACKET <= content.length; offset += TS_PACKET) {
+			if ((content[offset] & 0xFF) != TS_SYNC) {
+				continue;
+			}
+			boolean unitStart = (content[offset + 1] & 0x40) != 0;
+			int pid = ((content[offset + 1] & 0x1F) << 8) | (content[offset + 2] & 0xFF);
+			int adaptation = (content[offset + 3] >> 4) & 0x03;
+			if ((adaptation & 0x01) == 0) {
+				continue;
+			}
+			int payload = offset + 4;
+			if (adaptation == 3) {
+				payload += 1 + (content[payload] & 0xFF);
+			}
+			int end = offset + TS_PACKET;
+			if (payload >= end) {
+				continue;
+			}
+			if (pid == 0) {
+				if (unitStart && pmtPid < 0) {
+					pmtPid = readPat(content, payload, end);
+				}
+			} else if (pid == pmtPid) {
+				if (unitStart && streams.isEmpty()) {
+					readPmt(content, payload, end, streams);
+				}
+			} else {
+				PesStream stream = streams.get(pid);
+				if (stream != null) {
+					readPes(content, payload, end, unitStart, stream);
+				}
+			}
+		}
+
+		double start = -1;
+		PesStream primary = null;
+		for (PesStream stream : streams.values()) {
+			if (stream.firstPts >= 0) {
+				double streamStart = stream.firstPts / TS_CLOCK;
+				start = start < 0 ? streamStart : Math.min(start, streamStart);
+			}
+			if (primary == null || (stream.isVideo() && !primary.isVideo())) {
+				primary = stream;
+			}
+		}
+		if (primary != null && primary.isVideo() && primary.height == 0 && primary.elementary != null) {
+			byte[] elementary = primary.elementary.toByteArray();
+			primary.height = readElementaryHeight(elementary, primary.streamType);
+		}
+
+		HashMap<String, Double> results = new HashMap<>();
+		if (primary != null) {
+			putResults(results, content, start, primary.getDuration(), primary.height);
+		}
+		return results;
+	}
+
+	private static int readPat(byte[] content, int payload, int end) {
+		int section = payload + 1 + (content[payload] & 0xFF);
+		if (section + 8 > end) {
+			return -1;
+		}
+		int sectionEnd = Math.min(end, section + 3 + (((content[section + 1] & 0x0F) << 8) | (content[section + 2] & 0xFF)) - 4);
+		for (int program = section + 8; program + 4 <= sectionEnd; program += 4) {
+			int number = ((content[program] & 0xFF) << 8) | (content[program + 1] & 0xFF);
+			if (number != 0) {
+				return ((content[program + 2] & 0x1F) << 8) | (content[program + 3] & 0xFF);
+			}
+		}
+		return -1;
+	}
+
+	private static void readPmt(byte[] content, int payload, int end, Map<Integer, PesStream> streams) {
+		int section = payload + 1 + (content[payload] & 0xFF);
+		if (section + 12 > end) {
+			return;
+		}
+		int sectionEnd = Math.min(end, section + 3 + (((content[section + 1] & 0x0F) << 8) | (content[section + 2] & 0xFF)) - 4);
+		int entry = section + 12 + (((content[section + 10] & 0x0F) << 8) | (content[section + 11] & 0xFF));
+		while (entry + 5 <= sectionEnd) {
+			int streamType = content[entry] & 0xFF;
+			int pid = ((content[entry + 1] & 0x1F) << 8) | (content[entry + 2] & 0xFF);
+			streams.put(pid, new PesStream(streamType));
+			entry += 5 + (((content[entry + 3] & 0x0F) << 8) | (content[entry + 4] & 0xFF));
+		}
+	}
+
+	private static void readPes(byte[] content, int payload, int end, boolean unitStart, PesStream stream) {
+		int data = payload;
+		if (unitStart) {
+			if (payload + 9 > end || content[payload] != 0 || content[payload + 1] != 0 || content[payload + 2] != 1) {
+				return;
+			}
+			int ptsDts = (content[payload + 7] >> 6) & 0x03;
+			if ((ptsDts & 0x02) != 0 && payload + 14 <= end) {
+				stream.addPts(readTimestamp(content, payload + 9));
+			}
+			data = payload + 9 + (content[payload + 8] & 0xFF);
+		}
+		if (stream.isVideo() && stream.height == 0 && data < end) {
+			if (stream.elementary == null) {
+				if (!unitStart) {
+					return;
+				}
+				stream.elementary = new ByteArrayOutputStream();
+			}
+			stream.elementary.write(content, data, end - data);
+			if (stream.elementary.size() >= SPS_SEARCH_LIMIT) {
+				stream.height = readElementaryHeight(stream.elementary.toByteArray(), stream.streamType);
+				// give up on the stream if the limit was reached without a sequence parameter set
+				stream.height = stream.height == 0 ? -1 : stream.height;
+				stream.elementary = null;
+			}
+		}
+	}
+
+	private static long readTimestamp(byte[] content, int offset) {
+		return ((long) (content[offset] & 0x0E) << 29) | ((content[offset + 1] & 0xFF) << 22) | ((content[offset + 2] & 0xFE) << 14)
+				| ((content[offset + 3] & 0xFF) << 7) | ((content[offset + 4] & 0xFE) >> 1);
+	}
+
+	/**
+	 * Returns the height from the first sequence parameter set or sequence
+	 * header found in an elementary stream, 0 if there is none.
+	 */
+	private static int readElementaryHeight(byte[] elementary, int streamType) {
+		int unit = nextStartCode(elementary, 0);
+		while (unit >= 0) {
+			int next = nextStartCode(elementary, unit);
+			int end = next >= 0 ? next - 3 : elementary.length;
+			if (unit < elementary.length) {
+				int header = elementary[unit] & 0xFF;
+				if (streamType == STREAM_H264 && (header & 0x1F) == 7) {
+					return readAvcHeight(elementary, unit, end);
+				} else if (streamType == STREAM_HEVC && ((header >> 1) & 0x3F) == 33) {
+					return readHevcHeight(elementary, unit, end);
+				} else if ((streamType == STREAM_MPEG2_VIDEO || streamType == STREAM_MPEG1_VIDEO) && header == 0xB3 && unit + 4 <= end) {
+					return ((elementary[unit + 2] & 0x0F) << 8) | (elementary[unit + 3] & 0xFF);
+				}
+			}
+			unit = next;
+		}
+		return 0;
+	}
+
+	/**
+	 * Returns the position after the next 00 00 01 start code at or after
+	 * offset, -1 if there is none.
+	 */
+	private static int nextStartCode(byte[] data, int offset) {
+		for (int index = offset; index + 2 < data.length; index++) {
+			if (data[index] == 0 && data[index + 1] == 0 && data[index + 2] == 1) {
+				return index + 3;
+			}
+		}
+		return -1;
+	}
+
+	/*
+	 * Sequence parameter sets
+	 */
+
+	/**
+	 * Returns the cropped height of an H.264 sequence parameter set, 0 if it
+	 * cannot be read.
+	 */
+	static int readAvcHeight(byte[] data, int offset, int end) {
+		try {
+			BitReader bits = new BitReader(data, offset, end);
+			bits.skip(8);
+			int profile = bits.read(8);
+			bits.skip(16);
+			bits.readUe();
+			int chromaFormat = 1;
+			if (profile == 100 || profile == 110 || profile == 122 || profile == 244 || profile == 44 || profile == 83 || profile == 86
+					|| profile == 118 || profile == 128 || profile == 138 || profile == 139 || profile == 134 || profile == 135) {
+				chromaFormat = bits.readUe();
+				if (chromaFormat == 3) {
+					bits.skip(1);
+				}
+				bits.readUe();
+				bits.readUe();
+				bits.skip(1);
+				if (bits.read(1) == 1) {
+					for (int list = 0; list < (chromaFormat != 3 ? 8 : 12); list++) {
+						if (bits.read(1) == 1) {
+							skipScalingList(bits, list < 6 ? 16 : 64);
+						}
+					}
+				}
+			}
+			bits.readUe();
+			int pocType = bits.readUe();
+			if (pocType == 0) {
+				bits.readUe();
+			} else if (pocType == 1) {
+				bits.skip(1);
+				bits.readSe();
+				bits.readSe();
+				int cycle = bits.readUe();
+				for (int index = 0; index < cycle; index++) {
+					bits.readSe();
+				}
+			}
+			bits.readUe();
+			bits.skip(1);
+			bits.readUe();
+			int heightInMapUnits = bits.readUe() + 1;
+			int frameMbsOnly = bits.read(1);
+			if (frameMbsOnly == 0) {
+				bits.skip(1);
+			}
+			bits.skip(1);
+			int height = (2 - frameMbsOnly) * heightInMapUnits * 16;
+			if (bits.read(1) == 1) {
+				bits.readUe();
+				bits.readUe();
+				int cropTop = bits.readUe();
+				int cropBottom = bits.readUe();
+				int cropUnit = (chromaFormat == 1 ? 2 : 1) * (2 - frameMbsOnly);
+				height -= (cropTop + cropBottom) * cropUnit;
+			}
+			return validHeight(height);
+		} catch (IndexOutOfBoundsException e) {
+			return 0;
+		}
+	}
+
+	private static int validHeight(int height) {
+		return height > 0 && height <= MAX_HEIGHT ? height : 0;
+	}
+
+	private static void skipScalingList(BitReader bits, int size) {
+		int last = 8;
+		int next = 8;
+		for (int index = 0; index < size; index++) {
+			if (next != 0) {
+				next = (last + bits.readSe() + 256) % 256;
+			}
+			last = next == 0 ? last : next;
+		}
+	}
+
+	/**
+	 * Returns the cropped height of an H.265 sequence parameter set, 0 if it
+	 * cannot be read.
+	 */
+	static int readHevcHeight(byte[] data, int offset, int end) {
+		try {
+			BitReader bits = new BitReader(data, offset, end);
+			bits.skip(16);
+			bits.skip(4);
+			int subLayers = bits.read(3);
+			bits.skip(1);
+			// general profile, tier and level
+			bits.skip(96);
+			boolean[] profilePresent = new boolean[subLayers];
+			boolean[] levelPresent = new boolean[subLayers];
+			for (int layer = 0; layer < subLayers; layer++) {
+				profilePresent[layer] = bits.read(1) == 1;
+				levelPresent[layer] = bits.read(1) == 1;
+			}
+			if (subLayers > 0) {
+				bits.skip(2 * (8 - subLayers));
+			}
+			for (int layer = 0; layer < subLayers; layer++) {
+				bits.skip((profilePresent[layer] ? 88 : 0) + (levelPresent[layer] ? 8 : 0));
+			}
+			bits.readUe();
+			int chromaFormat = bits.readUe();
+			if (chromaFormat == 3) {
+				bits.skip(1);
+			}
+			bits.readUe();
+			int height = bits.readUe();
+			if (bits.read(1) == 1) {
+				bits.readUe();
+				bits.readUe();
+				int cropTop = bits.readUe();
+				int cropBottom = bits.readUe();
+				height -= (cropTop + cropBottom) * (chromaFormat == 1 ? 2 : 1);
+			}
+			return validHeight(height);
+		} catch (IndexOutOfBoundsException e) {
+			return 0;
+		}
+	}
+
+	/**
+	 * Reads the bits of a NAL unit, skipping its emulation prevention bytes.
+	 */
+	private static class BitReader {
+		private final byte[] data;
+		private final int end;
+		private int position;
+		private int bit;
+		private int zeros;
+
+		BitReader(byte[] data, int offset, int end) {
+			this.data = data;
+			this.position = offset;
+			this.end = end;
+		}
+
+		int read(int count) {
+			int value = 0;
+			for (int index = 0; index < count; index++) {
+				if (bit == 0) {
+					skipEmulationPrevention();
+				}
+				if (position >= end) {
+					throw new IndexOutOfBoundsException("end of NAL unit");
+				}
+				value = (value << 1) | ((data[position] >> (7 - bit)) & 1);
+				if (++bit == 8) {
+					zeros = data[position] == 0 ? zeros + 1 : 0;
+					bit = 0;
+					position++;
+				}
+			}
+			return value;
+		}
+
+		private void skipEmulationPrevention() {
+			if (zeros >= 2 && position < end && data[position] == 3) {
+				position++;
+				zeros = 0;
+			}
+		}
+
+		void skip(int count) {
+			for (int index = 0; index < count; index++) {
+				read(1);
+			}
+		}
+
+		int readUe() {
+			int leadingZeros = 0;
+			while (read(1) == 0) {
+				if (++leadingZeros > 30) {
+					throw new IndexOutOfBoundsException("invalid exp-Golomb code");
+				}
+			}
+			return leadingZeros == 0 ? 0 : (1 << leadingZeros) - 1 + read(leadingZeros);
+		}
+
+		int readSe() {
+			int value = readUe();
+			return (value & 1) == 1 ? (value + 1) / 2 : -(value / 2);
+		}
+	}
+}
@@ -30,11 +30,13 @@ import com.att.aro.core.packetanalysis.pojo.HttpDirection;
 import com.att.aro.core.packetanalysis.pojo.HttpRequestResponseInfo;
 import com.att.aro.core.packetanalysis.pojo.Session;
 import com.att.aro.core.packetreader.pojo.Packet;
-import com.att.aro.core.util.ImageHelper;
+import com.att.aro.core.util.ThumbnailCache;
 import com.att.aro.core.videoanalysis.impl.SegmentInfo;
 import com.att.aro.core.videoanalysis.pojo.Manifest.ContentType;
 
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Setter;
 
 /**
  * <pre>
@@ -44,7 +46,7 @@ import lombok.Data;
 public class VideoEvent implements Comparable<VideoEvent>{
 	
 	// 'broken' thumbnail portrait
-	private byte[] defaultImage = new byte[] { (byte) 0x89, (byte) 0x50, (byte) 0x4E, (byte) 0x47, (byte) 0x0D, (byte) 0x0A, (byte) 0x1A, (byte) 0x0A, (byte) 0x00, (byte) 0x00,
+	private static final byte[] DEFAULT_IMAGE = new byte[] { (byte) 0x89, (byte) 0x50, (byte) 0x4E, (byte) 0x47, (byte) 0x0D, (byte) 0x0A, (byte) 0x1A, (byte) 0x0A, (byte) 0x00, (byte) 0x00,
 			(byte) 0x00, (byte) 0x0D, (byte) 0x49, (byte) 0x48, (byte) 0x44, (byte) 0x52, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x0E, (byte) 0x00, (byte) 0x00, (byte) 0x00,
 			(byte) 0x11, (byte) 0x08, (byte) 0x06, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0xED, (byte) 0xC8, (byte) 0x9D, (byte) 0x9F, (byte) 0x00, (byte) 0x00, (byte) 0x00,
 			(byte) 0x01, (byte) 0x73, (byte) 0x52, (byte) 0x47, (byte) 0x42, (byte) 0x00, (byte) 0xAE, (byte) 0xCE, (byte) 0x1C, (byte) 0xE9, (byte) 0x00, (byte) 0x00, (byte) 0x00,
@@ -151,14 +153,15 @@ public class VideoEvent implements Comparable<VideoEvent>{
 			(byte) 0x42, (byte) 0x74, (byte) 0xE4, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x49, (byte) 0x45, (byte) 0x4E, (byte) 0x44, (byte) 0xAE, (byte) 0x42,
 			(byte) 0x60, (byte) 0x82 };
 
-	private BufferedImage thumbnail;
+	// the compressed image, decoded on demand by getThumbnail and getImageOriginal
+	@Setter(AccessLevel.NONE)
+	private byte[] thumbnailData;
 	private int maxW = 20;
 
 	private Manifest manifest;
 	private VideoType videoType;
 	private SegmentInfo segmentInfo;
 	private URI uri;
-	private BufferedImage imageOriginal;
 	private double bitrate;
 	private double packetCount ;
 	private HttpRequestResponseInfo response;
@@ -295,21 +298,21 @@ public class VideoEvent implements Comparable<VideoEvent>{
 	}
 	
 	public void setThumbnail(byte[] imgArray) {
-		byte[] imageArray = imgArray == null ? defaultImage : imgArray;
-
-		BufferedImage image = null;
-		image = ImageHelper.getImageFromByte(imageArray);
-		thumbnail = image;
-		 if (image != null) {
-		 int height = image.getHeight();
-		 int width = image.getWidth();
-		 imageOriginal = image;
-
-		 int targetHeight = maxW;
-		 int targetWidth = maxW * width / height;
-		 
-		 thumbnail = ImageHelper.resize(image, targetWidth, targetHeight);
-		 }
+		thumbnailData = imgArray == null ? DEFAULT_IMAGE : imgArray;
+	}
+
+	/**
+	 * @return the thumbnail scaled to a height of maxW, null if it cannot be decoded
+	 */
+	public BufferedImage getThumbnail() {
+		return ThumbnailCache.getInstance().get(thumbnailData, maxW);
+	}
+
+	/**
+	 * @return the thumbnail at its own size, null if it cannot be decoded
+	 */
+	public BufferedImage getImageOriginal() {
+		return ThumbnailCache.getInstance().get(thumbnailData, 0);
 	}
 	
 	/**
@@ -1,12 +1,17 @@
 package com.att.aro.core.bestpractice.impl;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
+import java.util.Random;
 
 import org.junit.After;
 import org.junit.Before;
@@ -15,6 +20,7 @@ import org.junit.Test;
 import com.att.aro.core.BaseTest;
 import com.att.aro.core.bestpractice.pojo.AbstractBestPracticeResult;
 import com.att.aro.core.bestpractice.pojo.BPResultType;
+import com.att.aro.core.bestpractice.pojo.IatInfo;
 import com.att.aro.core.configuration.pojo.Profile3G;
 import com.att.aro.core.configuration.pojo.ProfileLTE;
 import com.att.aro.core.packetanalysis.pojo.Burst;
@@ -314,4 +320,134 @@ public class PeriodicTransferImplTest extends BaseTest {
 		assertEquals(BPResultType.FAIL, result.getResultType());
 	}
 
+	@Test
+	public void isPeriodicalTraffic_periodicRequests() {
+		PeriodicTransferImpl impl = new PeriodicTransferImpl();
+		Random random = new Random(1);
+		double[] times = new double[200];
+		for (int i = 0; i < times.length; i++) {
+			times[i] = 5.0 + 30.0 * i + random.nextDouble() * 0.5;
+		}
+		assertTrue(impl.isPeriodicalTraffic(times, 10.0, 1.0, 3));
+
+		// a burst of requests, no cycle longer than the minimum
+		for (int i = 0; i < times.length; i++) {
+			times[i] = 5.0 + random.nextDouble() * 8.0;
+		}
+		assertFalse(impl.isPeriodicalTraffic(times, 10.0, 1.0, 3));
+
+		for (int i = 0; i < times.length; i++) {
+			times[i] = random.nextDouble() * 3000.0;
+		}
+		assertFalse(impl.isPeriodicalTraffic(times, 10.0, 0.001, 3));
+
+		// the cycle fits exactly minSamples times into the trace
+		assertTrue(impl.isPeriodicalTraffic(new double[] { 0.0, 10.5, 21.0, 31.5 }, 10.0, 1.0, 3));
+		assertFalse(impl.isPeriodicalTraffic(new double[] { 0.0, 10.5, 21.0, 31.5 }, 10.0, 1.0, 4));
+	}
+
+	@Test(timeout = 20000)
+	public void isPeriodicalTraffic_manyRequests() {
+		PeriodicTransferImpl impl = new PeriodicTransferImpl();
+		Random random = new Random(3);
+		// a host polled all day, far more pairs of requests than fit in memory
+		double[] times = new double[50000];
+		for (int i = 0; i < times.length; i++) {
+			times[i] = 60.0 * i + random.nextDouble() * 0.5;
+		}
+		assertTrue(impl.isPeriodicalTraffic(times, 10.0, 1.0, 3));
+
+		// a burst of requests, no cycle longer than the minimum
+		for (int i = 0; i < times.length; i++) {
+			times[i] = 5.0 + random.nextDouble() * 8.0;
+		}
+		assertFalse(impl.isPeriodicalTraffic(times, 10.0, 1.0, 3));
+	}
+
+	@Test
+	public void isPeriodicalTraffic_sameAsPairwiseClustering() {
+		PeriodicTransferImpl impl = new PeriodicTransferImpl();
+		Random random = new Random(7);
+		double[][] parameters = { { 10.0, 1.0, 3 }, { 10.0, 0.5, 4 }, { 0.0, 1.0, 5 }, { 2.0, 3.0, 6 } };
+		for (int trace = 0; trace < 300; trace++) {
+			int size = 4 + random.nextInt(40);
+			double[] times = new double[size];
+			double period = 1 + random.nextInt(40);
+			for (int i = 0; i < size; i++) {
+				switch (trace % 3) {
+				case 0:
+					// whole seconds, many equal IATs and events at the same time
+					times[i] = random.nextInt(size * 10);
+					break;
+				case 1:
+					times[i] = period * i + random.nextDouble() * 2;
+					break;
+				default:
+					times[i] = random.nextDouble() * 500;
+				}
+			}
+			if (trace % 2 == 0) {
+				// requests are not always collected in time order
+				for (int i = 0; i < size / 2; i++) {
+					double time = times[i];
+					times[i] = times[size - 1 - i];
+					times[size - 1 - i] = time;
+				}
+			}
+			for (double[] parameter : parameters) {
+				assertEquals("trace " + trace, isPeriodicalPairwise(times, parameter[0], parameter[1], (int) parameter[2]),
+						impl.isPeriodicalTraffic(times, parameter[0], parameter[1], (int) parameter[2]));
+			}
+		}
+	}
+
+	/**
+	 * Clusters all pairs of IATs, the way periodic transfers were detected before they were clustered on sorted
+	 * timestamps.
+	 */
+	private boolean isPeriodicalPairwise(double[] times, double minVariation, double maxVariation, int minSamples) {
+		List<IatInfo> iatInfoList = new ArrayList<IatInfo>();
+		for (int i = 0; i < times.length - 1; i++) {
+			for (int j = i + 1; j < times.length; j++) {
+				if (times[i] <= times[j]) {
+					iatInfoList.add(new IatInfo(times[j] - times[i], times[i], i, j));
+				} else {
+					iatInfoList.add(new IatInfo(times[i] - times[j], times[j], j, i));
+				}
+			}
+		}
+		Collections.sort(iatInfoList, Comparator.comparingDouble(IatInfo::getIat));
+
+		int bestNonOverlapSize = 0;
+		double cycle = 0;
+		for (int idx = 0; idx < iatInfoList.size(); idx++) {
+			List<IatInfo> iAtCluster = new ArrayList<IatInfo>();
+			double sumOfClusterIATs = 0;
+			for (int index = idx; index < iatInfoList.size()
+					&& iatInfoList.get(index).getIat() - iatInfoList.get(idx).getIat() < maxVariation; index++) {
+				iAtCluster.add(iatInfoList.get(index));
+				sumOfClusterIATs += iatInfoList.get(index).getIat();
+			}
+			double avgIatInCluster = sumOfClusterIATs / iAtCluster.size();
+			if (avgIatInCluster > minVariation) {
+				Collections.sort(iAtCluster, Comparator.comparingDouble(IatInfo::getBeginTime));
+				int[] opt = new int[iAtCluster.size()];
+				int best = -1;
+				for (int i = 0; i < iAtCluster.size(); i++) {
+					opt[i] = 1;
+					for (int j = 0; j < i; j++) {
+						if (opt[j] >= opt[i] && iAtCluster.get(j).getEndEvent() == iAtCluster.get(i).getBeginEvent()) {
+							opt[i] = opt[j] + 1;
+						}
+					}
+					best = Math.max(best, opt[i]);
+				}
+				if (best > bestNonOverlapSize) {
+					bestNonOverlapSize = best;
+					cycle = avgIatInCluster;
+				}
+			}
+		}
+		return bestNonOverlapSize >= minSamples && cycle > 0;
+	}
 }
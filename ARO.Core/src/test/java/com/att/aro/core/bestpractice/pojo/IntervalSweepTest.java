@@ -0,0 +1,72 @@
+package com.att.aro.core.bestpractice.pojo;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class IntervalSweepTest {
+
+	@Test
+	public void getMaxOverlap() {
+		double[] starts = { 0.0, 1.0, 2.0, 5.0, 5.0, 6.0 };
+		double[] ends = { 3.0, 5.0, 4.0, 7.0, 8.0, 9.0 };
+		IntervalSweep sweep = new IntervalSweep(starts, ends);
+		// the interval ending at 5.0 does not overlap those starting at 5.0
+		assertEquals(3, sweep.getMaxOverlap());
+		assertEquals(2.0, sweep.getMaxOverlapTime(), 0.0);
+		assertEquals(2, sweep.getMaxOverlapInterval());
+
+		sweep = new IntervalSweep(new double[] { 1.0, 4.0, 4.0 }, new double[] { 5.0, 6.0, 7.0 });
+		assertEquals(3, sweep.getMaxOverlap());
+		assertEquals(2, sweep.getMaxOverlapInterval());
+
+		sweep = new IntervalSweep(new double[0], new double[0]);
+		assertEquals(0, sweep.getMaxOverlap());
+		assertEquals(-1, sweep.getMaxOverlapInterval());
+	}
+
+	@Test
+	public void getMaxOverlapSameAsPairwise() {
+		Random random = new Random(3);
+		for (int trace = 0; trace < 200; trace++) {
+			int size = 1 + random.nextInt(50);
+			double[] starts = new double[size];
+			double[] ends = new double[size];
+			for (int i = 0; i < size; i++) {
+				starts[i] = random.nextInt(100);
+				ends[i] = starts[i] + 1 + random.nextInt(20);
+			}
+			IntervalSweep sweep = new IntervalSweep(starts, ends);
+
+			int maxOverlap = 0;
+			for (int i = 0; i < size; i++) {
+				int overlap = 0;
+				for (int j = 0; j < size; j++) {
+					if (starts[j] <= starts[i] && starts[i] < ends[j]) {
+						overlap++;
+					}
+				}
+				maxOverlap = Math.max(maxOverlap, overlap);
+			}
+			assertEquals(maxOverlap, sweep.getMaxOverlap());
+		}
+	}
+
+	@Test
+	public void firstEndingAfter() {
+		double[] starts = { 0.0, 10.0, 20.0, 30.0, 40.0 };
+		double[] ends = { 5.0, 15.0, 25.0, 35.0, 45.0 };
+		IntervalSweep sweep = new IntervalSweep(starts, ends);
+		assertEquals(3, sweep.firstEndingAfter(1, 30.0));
+		assertEquals(1, sweep.firstEndingAfter(1, 10.0));
+		assertEquals(5, sweep.firstEndingAfter(2, 60.0));
+		assertEquals(5, sweep.firstEndingAfter(5, 60.0));
+
+		// the long first interval ends after the later ones
+		sweep = new IntervalSweep(new double[] { 0.0, 1.0, 2.0, 3.0 }, new double[] { 100.0, 2.0, 50.0, 4.0 });
+		assertEquals(2, sweep.firstEndingAfter(1, 10.0));
+		assertEquals(0, sweep.firstEndingAfter(0, 10.0));
+	}
+}
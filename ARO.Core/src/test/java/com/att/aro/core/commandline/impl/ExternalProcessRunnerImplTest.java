@@ -15,13 +15,16 @@
  */
 package com.att.aro.core.commandline.impl;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
@@ -31,6 +34,7 @@ import com.att.aro.core.commandline.IExternalProcessRunner;
 import com.att.aro.core.commandline.IProcessFactory;
 import com.att.aro.core.commandline.pojo.ProcessWorker;
 import com.att.aro.core.concurrent.IThreadExecutor;
+import com.att.aro.core.util.Util;
 
 public class ExternalProcessRunnerImplTest extends BaseTest {
 
@@ -115,4 +119,32 @@ public class ExternalProcessRunnerImplTest extends BaseTest {
 		assertEquals(aMessage, res);
 	}
 
+	@Test
+	public void runWithInputTest() throws IOException {
+		Assume.assumeFalse(Util.isWindowsOS());
+		// larger than a pipe buffer, written while the output is read
+		byte[] input = new byte[1024 * 1024];
+		for (int index = 0; index < input.length; index++) {
+			input[index] = (byte) index;
+		}
+		byte[] output = externalProcessRunner.runWithInput(new String[] { "cat" }, input, 10000);
+		assertArrayEquals(input, output);
+	}
+
+	@Test
+	public void runWithInputTimeoutTest() throws IOException {
+		Assume.assumeFalse(Util.isWindowsOS());
+		long start = System.currentTimeMillis();
+		byte[] output = externalProcessRunner.runWithInput(new String[] { "sleep", "10" }, new byte[0], 200);
+		assertNull(output);
+		assertTrue(System.currentTimeMillis() - start < 5000);
+	}
+
+	@Test
+	public void runWithInputFailureTest() throws IOException {
+		Assume.assumeFalse(Util.isWindowsOS());
+		byte[] output = externalProcessRunner.runWithInput(new String[] { "sh", "-c", "printf partial; exit 3" }, new byte[0], 10000);
+		assertNull(output);
+	}
+
 }
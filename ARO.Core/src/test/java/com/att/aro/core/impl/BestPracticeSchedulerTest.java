@@ -0,0 +1,229 @@
+package com.att.aro.core.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.att.aro.core.BaseTest;
+import com.att.aro.core.bestpractice.IBestPractice;
+import com.att.aro.core.bestpractice.pojo.AbstractBestPracticeResult;
+import com.att.aro.core.bestpractice.pojo.BestPracticeType;
+import com.att.aro.core.packetanalysis.pojo.PacketAnalyzerResult;
+
+public class BestPracticeSchedulerTest extends BaseTest {
+
+	private final Map<BestPracticeType, IBestPractice> workers = new EnumMap<>(BestPracticeType.class);
+	private final AtomicInteger runs = new AtomicInteger();
+
+	@Test
+	public void runKeepsRequestOrder() {
+		List<BestPracticeType> requests = Arrays.asList(BestPracticeType.PERIODIC_TRANSFER, BestPracticeType.USING_CACHE,
+				BestPracticeType.SCREEN_ROTATION, BestPracticeType.CACHE_CONTROL, BestPracticeType.DUPLICATE_CONTENT,
+				BestPracticeType.HTTP_1_0_USAGE);
+		int delay = requests.size();
+		for (BestPracticeType type : requests) {
+			worker(type, 10 * delay--);
+		}
+		AtomicInteger stageRuns = new AtomicInteger();
+
+		BestPracticeScheduler scheduler = new BestPracticeScheduler(4, 10000, "");
+		scheduler.addStage(() -> {
+			sleep(50);
+			stageRuns.incrementAndGet();
+		}, BestPracticeType.USING_CACHE, BestPracticeType.CACHE_CONTROL, BestPracticeType.DUPLICATE_CONTENT);
+		List<AbstractBestPracticeResult> results = scheduler.run(new PacketAnalyzerResult(), requests, workers::get);
+
+		assertEquals(requests, types(results));
+		assertEquals(1, stageRuns.get());
+	}
+
+	@Test
+	public void runRunsIndependentWorkersConcurrently() {
+		CountDownLatch latch = new CountDownLatch(2);
+		IBestPractice worker = tracedata -> {
+			latch.countDown();
+			try {
+				// both workers have to be running for either to pass
+				if (!latch.await(5, TimeUnit.SECONDS)) {
+					throw new IllegalStateException("not run concurrently");
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return result(BestPracticeType.HTTP_3XX_CODE);
+		};
+		workers.put(BestPracticeType.HTTP_3XX_CODE, worker);
+		workers.put(BestPracticeType.HTTP_4XX_5XX, tracedata -> worker.runTest(tracedata));
+
+		List<AbstractBestPracticeResult> results = new BestPracticeScheduler(2, 10000, "").run(new PacketAnalyzerResult(),
+				Arrays.asList(BestPracticeType.HTTP_3XX_CODE, BestPracticeType.HTTP_4XX_5XX), workers::get);
+
+		assertEquals(2, results.size());
+	}
+
+	@Test
+	public void runIsolatesFailures() {
+		worker(BestPracticeType.PERIODIC_TRANSFER, 0);
+		workers.put(BestPracticeType.SCREEN_ROTATION, tracedata -> {
+			throw new IllegalStateException("broken best practice");
+		});
+		workers.put(BestPracticeType.HTTP_1_0_USAGE, tracedata -> {
+			throw new OutOfMemoryError("broken best practice");
+		});
+		worker(BestPracticeType.FILE_ORDER, 5000);
+		worker(BestPracticeType.MINIFICATION, 0);
+		List<BestPracticeType> requests = Arrays.asList(BestPracticeType.PERIODIC_TRANSFER, BestPracticeType.SCREEN_ROTATION,
+				BestPracticeType.HTTP_1_0_USAGE, BestPracticeType.FILE_ORDER, BestPracticeType.MINIFICATION);
+
+		long start = System.currentTimeMillis();
+		List<AbstractBestPracticeResult> results = new BestPracticeScheduler(4, 200, "").run(new PacketAnalyzerResult(), requests,
+				workers::get);
+
+		assertEquals(Arrays.asList(BestPracticeType.PERIODIC_TRANSFER, BestPracticeType.MINIFICATION), types(results));
+		assertEquals(true, System.currentTimeMillis() - start < 5000);
+	}
+
+	@Test
+	public void runWaitsForTimedOutWorkers() {
+		AtomicBoolean stopped = new AtomicBoolean();
+		worker(BestPracticeType.PERIODIC_TRANSFER, 0);
+		workers.put(BestPracticeType.FILE_ORDER, tracedata -> {
+			long end = System.currentTimeMillis() + 500;
+			long remaining;
+			while ((remaining = end - System.currentTimeMillis()) > 0) {
+				try {
+					Thread.sleep(remaining);
+				} catch (InterruptedException e) {
+					// keeps running like a worker that does not check for interrupts
+				}
+			}
+			stopped.set(true);
+			return result(BestPracticeType.FILE_ORDER);
+		});
+
+		List<AbstractBestPracticeResult> results = new BestPracticeScheduler(2, 100, "").run(new PacketAnalyzerResult(),
+				Arrays.asList(BestPracticeType.PERIODIC_TRANSFER, BestPracticeType.FILE_ORDER), workers::get);
+
+		assertEquals(Arrays.asList(BestPracticeType.PERIODIC_TRANSFER), types(results));
+		assertTrue(stopped.get());
+	}
+
+	@Test
+	public void runAbandonsWorkersThatIgnoreInterrupts() {
+		AtomicBoolean release = new AtomicBoolean();
+		IBestPractice stuck = tracedata -> {
+			while (!release.get()) {
+				try {
+					Thread.sleep(10);
+				} catch (InterruptedException e) {
+					// keeps running like a worker that does not check for interrupts
+				}
+			}
+			return result(BestPracticeType.FILE_ORDER);
+		};
+		workers.put(BestPracticeType.FILE_ORDER, stuck);
+		workers.put(BestPracticeType.MINIFICATION, tracedata -> stuck.runTest(tracedata));
+		worker(BestPracticeType.PERIODIC_TRANSFER, 0);
+
+		try {
+			long start = System.currentTimeMillis();
+			List<AbstractBestPracticeResult> results = new BestPracticeScheduler(2, 100, "").run(new PacketAnalyzerResult(),
+					Arrays.asList(BestPracticeType.FILE_ORDER, BestPracticeType.MINIFICATION, BestPracticeType.PERIODIC_TRANSFER),
+					workers::get);
+
+			// the queued worker gets a thread of its own
+			assertEquals(Arrays.asList(BestPracticeType.PERIODIC_TRANSFER), types(results));
+			assertTrue(System.currentTimeMillis() - start < 5000);
+		} finally {
+			release.set(true);
+		}
+	}
+
+	@Test
+	public void runSerialWorkersOneAfterAnother() {
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+		List<BestPracticeType> requests = Arrays.asList(BestPracticeType.VIDEO_STALL, BestPracticeType.PERIODIC_TRANSFER,
+				BestPracticeType.BUFFER_OCCUPANCY, BestPracticeType.VIDEO_REDUNDANCY);
+		for (BestPracticeType type : requests) {
+			workers.put(type, tracedata -> {
+				if (type != BestPracticeType.PERIODIC_TRANSFER) {
+					maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+					sleep(50);
+					running.decrementAndGet();
+				}
+				return result(type);
+			});
+		}
+
+		BestPracticeScheduler scheduler = new BestPracticeScheduler(4, 10000, "");
+		scheduler.addSerial(BestPracticeType.VIDEO_STALL, BestPracticeType.BUFFER_OCCUPANCY, BestPracticeType.VIDEO_REDUNDANCY);
+		List<AbstractBestPracticeResult> results = scheduler.run(new PacketAnalyzerResult(), requests, workers::get);
+
+		assertEquals(requests, types(results));
+		assertEquals(1, maxRunning.get());
+	}
+
+	@Test
+	public void runSequential() {
+		worker(BestPracticeType.PERIODIC_TRANSFER, 0);
+		worker(BestPracticeType.SCREEN_ROTATION, 0);
+		workers.put(BestPracticeType.FILE_ORDER, tracedata -> {
+			throw new IllegalStateException("broken best practice");
+		});
+		List<BestPracticeType> requests = Arrays.asList(BestPracticeType.SCREEN_ROTATION, BestPracticeType.FILE_ORDER,
+				BestPracticeType.CHUNK_SIZE, BestPracticeType.PERIODIC_TRANSFER, BestPracticeType.SCREEN_ROTATION);
+
+		List<AbstractBestPracticeResult> results = new BestPracticeScheduler(1, 0, "").run(new PacketAnalyzerResult(), requests,
+				workers::get);
+
+		assertEquals(Arrays.asList(BestPracticeType.SCREEN_ROTATION, BestPracticeType.PERIODIC_TRANSFER, BestPracticeType.SCREEN_ROTATION),
+				types(results));
+		// a worker requested twice runs once
+		assertEquals(2, runs.get());
+	}
+
+	private void worker(BestPracticeType type, int millis) {
+		workers.put(type, tracedata -> {
+			sleep(millis);
+			runs.incrementAndGet();
+			return result(type);
+		});
+	}
+
+	private AbstractBestPracticeResult result(BestPracticeType type) {
+		return new AbstractBestPracticeResult() {
+			@Override
+			public BestPracticeType getBestPracticeType() {
+				return type;
+			}
+		};
+	}
+
+	private List<BestPracticeType> types(List<AbstractBestPracticeResult> results) {
+		List<BestPracticeType> types = new ArrayList<>();
+		for (AbstractBestPracticeResult result : results) {
+			types.add(result.getBestPracticeType());
+		}
+		return types;
+	}
+
+	private void sleep(int millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
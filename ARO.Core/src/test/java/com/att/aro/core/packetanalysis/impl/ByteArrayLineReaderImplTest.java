@@ -1,6 +1,10 @@
 package com.att.aro.core.packetanalysis.impl;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -31,5 +35,17 @@ public class ByteArrayLineReaderImplTest extends BaseTest{
 		
 	}
 
+	@Test
+	public void readLine() throws IOException {
+		storageReader.init("GET / HTTP/1.1\r\nHost: a\rb\r\n\r\nbody".getBytes(StandardCharsets.UTF_8));
+		assertEquals("GET / HTTP/1.1", storageReader.readLine());
+		assertEquals(16, storageReader.getIndex());
+		assertEquals("Host: a\rb", storageReader.readLine());
+		assertEquals("", storageReader.readLine());
+		assertEquals("body", storageReader.readLine());
+		assertEquals(33, storageReader.getIndex());
+		assertNull(storageReader.readLine());
+	}
+
 	
 }
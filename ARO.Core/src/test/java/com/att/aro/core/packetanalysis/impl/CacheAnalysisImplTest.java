@@ -1,10 +1,15 @@
 package com.att.aro.core.packetanalysis.impl;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -20,6 +25,8 @@ import com.att.aro.core.BaseTest;
 import com.att.aro.core.packetanalysis.ICacheAnalysis;
 import com.att.aro.core.packetanalysis.IHttpRequestResponseHelper;
 import com.att.aro.core.packetanalysis.pojo.CacheAnalysis;
+import com.att.aro.core.packetanalysis.pojo.Diagnosis;
+import com.att.aro.core.packetanalysis.pojo.DuplicateEntry;
 import com.att.aro.core.packetanalysis.pojo.HttpDirection;
 import com.att.aro.core.packetanalysis.pojo.HttpRequestResponseInfo;
 import com.att.aro.core.packetanalysis.pojo.PacketInfo;
@@ -320,4 +327,54 @@ public class CacheAnalysisImplTest extends BaseTest {
 		assertEquals(0, testResult.getDuplicateContentBytesRatio(), 0.225);
 		assertEquals(18, testResult.getDuplicateContentWithOriginals().size());
 	}
+
+	@Test
+	public void isSameContent() throws Exception {
+		HttpRequestResponseInfo[] responses = new HttpRequestResponseInfo[3];
+		byte[][] contents = { { 1, 2, 3, 4 }, { 1, 2, 3, 4 }, { 1, 2, 3, 5 } };
+		for (int i = 0; i < responses.length; i++) {
+			responses[i] = mock(HttpRequestResponseInfo.class);
+			when(responses[i].getContentLength()).thenReturn(4);
+			byte[] content = contents[i];
+			when(rrhelper.openContent(responses[i], i == 0 ? session01 : session02))
+					.thenAnswer(invocation -> new ByteArrayInputStream(content));
+		}
+		CacheAnalysisImpl cacheAnalysisImpl = (CacheAnalysisImpl) cacheAnalysis;
+		DuplicateEntry[] entries = new DuplicateEntry[3];
+		for (int i = 0; i < entries.length; i++) {
+			Session session = i == 0 ? session01 : session02;
+			entries[i] = new DuplicateEntry(null, responses[i], Diagnosis.CACHING_DIAG_OBJ_NOT_CHANGED_DUP_CLIENT, null, session,
+					cacheAnalysisImpl.getContentDigest(responses[i], session));
+		}
+
+		assertEquals(4, entries[0].getContentDigest().getLength());
+		assertTrue(cacheAnalysisImpl.isSameContent(entries[0], entries[1]));
+		assertFalse(cacheAnalysisImpl.isSameContent(entries[0], entries[2]));
+		// by default the digests are trusted, the content is read once
+		Mockito.verify(rrhelper, Mockito.times(1)).openContent(responses[1], session02);
+		Mockito.verify(rrhelper, Mockito.times(1)).openContent(responses[2], session02);
+
+		DuplicateEntry collision = new DuplicateEntry(null, responses[2], Diagnosis.CACHING_DIAG_OBJ_NOT_CHANGED_DUP_CLIENT,
+				null, session02, entries[0].getContentDigest());
+		cacheAnalysisImpl.setVerifyContent(true);
+		try {
+			// a digest collision is caught by the comparison
+			assertTrue(cacheAnalysisImpl.isSameContent(entries[0], entries[1]));
+			assertFalse(cacheAnalysisImpl.isSameContent(entries[0], collision));
+			Mockito.verify(rrhelper, Mockito.times(2)).openContent(responses[1], session02);
+
+			// content that fails to decode is not the same
+			when(rrhelper.openContent(responses[1], session02)).thenThrow(new IOException("corrupt"));
+			assertFalse(cacheAnalysisImpl.isSameContent(entries[0], entries[1]));
+		} finally {
+			cacheAnalysisImpl.setVerifyContent(false);
+		}
+
+		// nor is content whose digest could not be taken
+		assertNull(cacheAnalysisImpl.getContentDigest(responses[1], session02));
+		DuplicateEntry unreadable = new DuplicateEntry(null, responses[1], Diagnosis.CACHING_DIAG_OBJ_NOT_CHANGED_DUP_CLIENT,
+				null, session02, null);
+		assertFalse(cacheAnalysisImpl.isSameContent(unreadable, unreadable));
+		assertFalse(cacheAnalysisImpl.isSameContent(entries[0], unreadable));
+	}
 }
@@ -0,0 +1,179 @@
+package com.att.aro.core.packetanalysis.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.att.aro.core.packetanalysis.pojo.HttpRequestResponseInfo;
+
+public class DecodedContentStoreTest {
+
+	private final AtomicInteger decodes = new AtomicInteger();
+
+	@Test
+	public void getDecodesOnce() throws Exception {
+		DecodedContentStore store = new DecodedContentStore(1024, false);
+		HttpRequestResponseInfo first = new HttpRequestResponseInfo();
+		HttpRequestResponseInfo second = new HttpRequestResponseInfo();
+
+		byte[] content = store.get(first, decoder(10));
+		assertSame(content, store.get(first, decoder(10)));
+		store.get(second, decoder(10));
+
+		assertEquals(2, decodes.get());
+		assertEquals(1, store.getHits());
+		assertEquals(2, store.getMisses());
+		assertEquals(20, store.getSize());
+
+		store.clear();
+		store.get(first, decoder(10));
+		assertEquals(3, decodes.get());
+	}
+
+	@Test
+	public void getKeysByIdentity() throws Exception {
+		DecodedContentStore store = new DecodedContentStore(1024, false);
+		HttpRequestResponseInfo first = new HttpRequestResponseInfo();
+		first.setHostName("example.com");
+		HttpRequestResponseInfo second = new HttpRequestResponseInfo();
+		second.setHostName("example.com");
+		assertEquals(first, second);
+
+		store.get(first, decoder(10));
+		store.get(second, decoder(10));
+		assertEquals(2, decodes.get());
+	}
+
+	@Test
+	public void getEvictsLeastRecentlyUsed() throws Exception {
+		DecodedContentStore store = new DecodedContentStore(250, false);
+		HttpRequestResponseInfo[] keys = { new HttpRequestResponseInfo(), new HttpRequestResponseInfo(), new HttpRequestResponseInfo() };
+		store.get(keys[0], decoder(100));
+		store.get(keys[1], decoder(100));
+		store.get(keys[0], decoder(100));
+		// evicts keys[1], the least recently used
+		store.get(keys[2], decoder(100));
+		assertEquals(1, store.getEvictions());
+		assertEquals(200, store.getSize());
+
+		store.get(keys[0], decoder(100));
+		assertEquals(3, decodes.get());
+		store.get(keys[1], decoder(100));
+		assertEquals(4, decodes.get());
+	}
+
+	@Test
+	public void getReadsSpilledContent() throws Exception {
+		DecodedContentStore store = new DecodedContentStore(250, true);
+		HttpRequestResponseInfo[] keys = { new HttpRequestResponseInfo(), new HttpRequestResponseInfo(), new HttpRequestResponseInfo() };
+		byte[] first = store.get(keys[0], decoder(100));
+		store.get(keys[1], decoder(100));
+		store.get(keys[2], decoder(100));
+		// larger than the budget, kept in the spill file only
+		HttpRequestResponseInfo large = new HttpRequestResponseInfo();
+		byte[] largeContent = store.get(large, decoder(1000));
+
+		assertArrayEquals(first, store.get(keys[0], decoder(100)));
+		assertArrayEquals(largeContent, store.get(large, decoder(1000)));
+		assertEquals(4, decodes.get());
+		store.clear();
+	}
+
+	@Test
+	public void getSpillsContentOnce() throws Exception {
+		DecodedContentStore store = new DecodedContentStore(250, true);
+		HttpRequestResponseInfo[] keys = { new HttpRequestResponseInfo(), new HttpRequestResponseInfo(), new HttpRequestResponseInfo() };
+		HttpRequestResponseInfo large = new HttpRequestResponseInfo();
+		for (int round = 0; round < 10; round++) {
+			for (HttpRequestResponseInfo key : keys) {
+				store.get(key, decoder(100));
+			}
+			assertEquals(1000, store.get(large, decoder(1000)).length);
+		}
+
+		assertEquals(4, decodes.get());
+		// every body is written once however often it is evicted or read back
+		assertEquals(1300, store.getSpilledBytes());
+		assertEquals(true, store.getSize() <= 250);
+		store.clear();
+	}
+
+	@Test
+	public void getDropsContentBeyondSpillLimit() throws Exception {
+		DecodedContentStore store = new DecodedContentStore(250, true, 500);
+		HttpRequestResponseInfo large = new HttpRequestResponseInfo();
+		store.get(large, decoder(1000));
+		store.get(large, decoder(1000));
+
+		assertEquals(2, decodes.get());
+		assertEquals(0, store.getSpilledBytes());
+		store.clear();
+	}
+
+	@Test
+	public void getFailureIsNotStored() throws Exception {
+		DecodedContentStore store = new DecodedContentStore(1024, false);
+		HttpRequestResponseInfo key = new HttpRequestResponseInfo();
+		try {
+			store.get(key, () -> {
+				throw new IOException("corrupted");
+			});
+			fail("expected IOException");
+		} catch (IOException e) {
+			assertEquals("corrupted", e.getMessage());
+		}
+		store.get(key, decoder(10));
+		assertEquals(1, decodes.get());
+	}
+
+	@Test
+	public void getConcurrentDecodesOnce() throws Exception {
+		DecodedContentStore store = new DecodedContentStore(1024, false);
+		HttpRequestResponseInfo key = new HttpRequestResponseInfo();
+		CountDownLatch decoding = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<byte[]>> futures = new ArrayList<>();
+			for (int index = 0; index < 4; index++) {
+				futures.add(pool.submit(() -> store.get(key, () -> {
+					decoding.countDown();
+					release.await(5, TimeUnit.SECONDS);
+					return decoder(10).decode();
+				})));
+			}
+			decoding.await(5, TimeUnit.SECONDS);
+			Thread.sleep(50);
+			release.countDown();
+			for (Future<byte[]> future : futures) {
+				assertEquals(10, future.get(5, TimeUnit.SECONDS).length);
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+		assertEquals(1, decodes.get());
+		assertEquals(1, store.getMisses());
+		assertEquals(3, store.getHits());
+	}
+
+	private DecodedContentStore.ContentDecoder decoder(int length) {
+		return () -> {
+			byte[] content = new byte[length];
+			content[0] = (byte) decodes.incrementAndGet();
+			return content;
+		};
+	}
+}
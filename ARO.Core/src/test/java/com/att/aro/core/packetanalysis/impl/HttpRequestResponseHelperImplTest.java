@@ -20,6 +20,7 @@ import org.mockito.Spy;
 
 import com.att.aro.core.BaseTest;
 import com.att.aro.core.packetanalysis.IHttpRequestResponseHelper;
+import com.att.aro.core.packetanalysis.pojo.HttpDirection;
 import com.att.aro.core.packetanalysis.pojo.HttpRequestResponseInfo;
 import com.att.aro.core.packetanalysis.pojo.Session;
 import com.att.aro.core.packetreader.pojo.PacketDirection;
@@ -104,6 +105,65 @@ public class HttpRequestResponseHelperImplTest extends BaseTest {
 		}
 	}
 
+	@Test
+	public void getContent_brotli() throws Exception {
+		byte[] data = "this was compressed with brotli".getBytes();
+		byte[] compressed = brotli(data);
+		HttpRequestResponseInfo req = new HttpRequestResponseInfo();
+		req.setDirection(HttpDirection.RESPONSE);
+		req.setContentEncoding("br");
+		req.getPayloadData().append(compressed, 0, compressed.length);
+
+		assertEquals(new String(data), new String(httpRequestResponseHelper.getContent(req, null)));
+	}
+
+	@Test
+	public void getContent_chunkedGzip() throws Exception {
+		byte[] data = "this was compressed and sent in chunks".getBytes();
+		ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzipOutput = new GZIPOutputStream(gzipped)) {
+			gzipOutput.write(data);
+		}
+		byte[] compressed = gzipped.toByteArray();
+		int half = compressed.length / 2;
+		ByteArrayOutputStream chunked = new ByteArrayOutputStream();
+		chunked.write(String.format("%x;name=value\r\n", half).getBytes());
+		chunked.write(compressed, 0, half);
+		chunked.write(String.format("\r\n%x\r\n", compressed.length - half).getBytes());
+		chunked.write(compressed, half, compressed.length - half);
+		chunked.write("\r\n0\r\n\r\n".getBytes());
+		byte[] body = chunked.toByteArray();
+
+		HttpRequestResponseInfo req = new HttpRequestResponseInfo();
+		req.setDirection(HttpDirection.RESPONSE);
+		req.setContentEncoding("gzip");
+		req.setChunked(true);
+		// split across slices the way packets would carry it
+		for (int offset = 0; offset < body.length; offset += 7) {
+			req.getPayloadData().append(body, offset, Math.min(7, body.length - offset));
+		}
+
+		assertEquals(new String(data), new String(httpRequestResponseHelper.getContent(req, null)));
+		assertTrue(req.isChunkModeFinished());
+	}
+
+	/**
+	 * Returns data in a brotli stream of one uncompressed meta-block followed
+	 * by an empty last one (RFC 7932).
+	 */
+	private byte[] brotli(byte[] data) {
+		// 16 bit window, not last, 4 nibble length, uncompressed
+		int header = ((data.length - 1) << 4) | (1 << 20);
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		output.write(header);
+		output.write(header >> 8);
+		output.write(header >> 16);
+		output.write(data, 0, data.length);
+		// last and empty
+		output.write(3);
+		return output.toByteArray();
+	}
+
 	@Test
 	public void isSameContent_resultIsTrue() {
 		HttpRequestResponseInfo reqLeft = new HttpRequestResponseInfo();
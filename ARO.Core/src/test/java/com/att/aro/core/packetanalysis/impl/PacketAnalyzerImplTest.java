@@ -1,26 +1,39 @@
 package com.att.aro.core.packetanalysis.impl;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.awt.Color;
+import java.io.File;
 import java.net.Inet4Address;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.UnaryOperator;
 
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import com.att.aro.core.BaseTest;
 import com.att.aro.core.configuration.IProfileFactory;
@@ -38,8 +51,10 @@ import com.att.aro.core.packetanalysis.pojo.BurstCollectionAnalysisData;
 import com.att.aro.core.packetanalysis.pojo.EnergyModel;
 import com.att.aro.core.packetanalysis.pojo.PacketAnalyzerResult;
 import com.att.aro.core.packetanalysis.pojo.PacketInfo;
+import com.att.aro.core.packetanalysis.pojo.ProfileAnalysis;
 import com.att.aro.core.packetanalysis.pojo.RrcStateMachineLTE;
 import com.att.aro.core.packetanalysis.pojo.RrcStateRange;
+import com.att.aro.core.packetanalysis.pojo.Session;
 import com.att.aro.core.packetanalysis.pojo.Statistic;
 import com.att.aro.core.packetanalysis.pojo.TcpInfo;
 import com.att.aro.core.packetanalysis.pojo.TimeRange;
@@ -58,6 +73,9 @@ import com.att.aro.core.tracemetadata.pojo.MetaDataModel;
 @SuppressWarnings("unchecked")
 public class PacketAnalyzerImplTest extends BaseTest {
 	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
 	@InjectMocks
 	PacketAnalyzerImpl iPacketAnalyzer;
 	@Mock
@@ -75,11 +93,15 @@ public class PacketAnalyzerImplTest extends BaseTest {
 	@Mock
 	private IPktAnazlyzerTimeRangeUtil pktTimeUtil;
 
+	private TraceAnalysisCache analysisCache;
+
 	@Before
-	public void setup() {
+	public void setup() throws Exception {
 		iPacketAnalyzer = (PacketAnalyzerImpl)context.getBean(IPacketAnalyzer.class);
 		MockitoAnnotations.initMocks(this);		
-
+		analysisCache = new TraceAnalysisCache();
+		analysisCache.setDirectory(folder.newFolder("cache"));
+		iPacketAnalyzer.setAnalysisCache(analysisCache);
 	}
 	
 	@After
@@ -241,6 +263,206 @@ public class PacketAnalyzerImplTest extends BaseTest {
 
 	}
 
+	@Test
+	public void analyzeTraceFile_filterChangeReusesTrace() throws Exception {
+		iPacketAnalyzer.setEnergyModelFactory(energymodelfactory);
+		iPacketAnalyzer.setBurstCollectionAnalayzer(burstcollectionanalyzer);
+		iPacketAnalyzer.setRrcStateMachineFactory(statemachinefactory);
+		RrcStateMachineLTE rrcstate = mock(RrcStateMachineLTE.class);
+		when(statemachinefactory.create(any(List.class), any(Profile.class), any(double.class), any(double.class), any(double.class),
+				any(TimeRange.class))).thenReturn(rrcstate);
+		when(rrcstate.getStaterangelist()).thenReturn(new ArrayList<RrcStateRange>());
+
+		File trace = folder.newFile("traffic.cap");
+		List<PacketInfo> packets = new ArrayList<PacketInfo>();
+		for (int index = 0; index < 4; index++) {
+			PacketInfo packetInfo = new PacketInfo("app", new TCPPacket(0, 0, 40, 0, tcpFrame()));
+			packetInfo.setTimestamp(index);
+			packetInfo.setPacketId(index + 1);
+			packets.add(packetInfo);
+		}
+		TraceFileResult traceResult = new TraceFileResult();
+		traceResult.setTraceDirectory(folder.getRoot().getAbsolutePath());
+		traceResult.setAllpackets(packets);
+		when(tracereader.readTraceFile(trace.getAbsolutePath())).thenReturn(traceResult);
+
+		AnalysisFilter filter = mock(AnalysisFilter.class);
+		when(filter.getPacketColor(any(PacketInfo.class))).thenReturn(Color.BLUE);
+		when(filter.getTimeRange()).thenReturn(new TimeRange(1.5, 10));
+
+		List<Session> baseSessions = new ArrayList<Session>();
+		when(sessionmanager.processPacketsAndAssembleSessions(packets)).thenReturn(baseSessions);
+
+		PacketAnalyzerResult first = iPacketAnalyzer.analyzeTraceFile(trace.getAbsolutePath(), new ProfileLTE(), filter);
+		assertEquals(2, first.getTraceresult().getAllpackets().size());
+		assertEquals(1, first.getTraceresult().getAllpackets().get(0).getPacketId());
+		assertNotSame(packets.get(2), first.getTraceresult().getAllpackets().get(0));
+		assertEquals(3, packets.get(2).getPacketId());
+		Mockito.verify(sessionmanager).assembleFilteredSessions(eq(first.getTraceresult().getAllpackets()), eq(baseSessions), any(UnaryOperator.class));
+
+		PacketAnalyzerResult result = iPacketAnalyzer.analyzeTraceFile(trace.getAbsolutePath(), new ProfileLTE(), null);
+		List<PacketInfo> reused = result.getTraceresult().getAllpackets();
+		assertEquals(4, reused.size());
+		assertNotSame(packets.get(2), reused.get(2));
+		assertEquals(3, reused.get(2).getPacketId());
+		Mockito.verify(tracereader, Mockito.times(1)).readTraceFile(trace.getAbsolutePath());
+
+		// the unfiltered sessions are assembled once, each analysis gets copies
+		assertNotSame(first.getTraceresult(), result.getTraceresult());
+		assertEquals(4, packets.size());
+		Mockito.verify(sessionmanager, Mockito.times(1)).processPacketsAndAssembleSessions(any(List.class));
+		Mockito.verify(sessionmanager).assembleFilteredSessions(eq(reused), eq(baseSessions), any(UnaryOperator.class));
+
+		// a modified capture is read again
+		trace.setLastModified(trace.lastModified() - 60000);
+		iPacketAnalyzer.analyzeTraceFile(trace.getAbsolutePath(), new ProfileLTE(), filter);
+		Mockito.verify(tracereader, Mockito.times(2)).readTraceFile(trace.getAbsolutePath());
+	}
+
+	@Test
+	public void analyzeTraceFile_filterChangeLeavesEarlierResult() throws Exception {
+		ReflectionTestUtils.setField(iPacketAnalyzer, "sessionmanager", context.getBean(ISessionManager.class));
+		iPacketAnalyzer.setEnergyModelFactory(energymodelfactory);
+		iPacketAnalyzer.setBurstCollectionAnalayzer(burstcollectionanalyzer);
+		iPacketAnalyzer.setRrcStateMachineFactory(statemachinefactory);
+		RrcStateMachineLTE rrcstate = mock(RrcStateMachineLTE.class);
+		when(statemachinefactory.create(any(List.class), any(Profile.class), any(double.class), any(double.class), any(double.class),
+				any(TimeRange.class))).thenReturn(rrcstate);
+		when(rrcstate.getStaterangelist()).thenReturn(new ArrayList<RrcStateRange>());
+
+		File trace = folder.newFile("traffic.cap");
+		List<PacketInfo> packets = new ArrayList<PacketInfo>();
+		for (int index = 0; index < 4; index++) {
+			PacketInfo packetInfo = new PacketInfo("app", new TCPPacket(index, 0, 40, 0, tcpFrame()));
+			packetInfo.setDir(PacketDirection.UPLINK);
+			packetInfo.setPacketId(index + 1);
+			packets.add(packetInfo);
+		}
+		TraceFileResult traceResult = new TraceFileResult();
+		traceResult.setTraceDirectory(folder.getRoot().getAbsolutePath());
+		traceResult.setAllpackets(packets);
+		when(tracereader.readTraceFile(trace.getAbsolutePath())).thenReturn(traceResult);
+
+		PacketAnalyzerResult first = iPacketAnalyzer.analyzeTraceFile(trace.getAbsolutePath(), new ProfileLTE(), null);
+		List<PacketInfo> firstPackets = new ArrayList<PacketInfo>(first.getTraceresult().getAllpackets());
+		List<Session> firstSessions = new ArrayList<Session>(first.getSessionlist());
+		assertEquals(4, firstPackets.size());
+		assertEquals(1, firstSessions.size());
+		List<PacketInfo> firstSessionPackets = new ArrayList<PacketInfo>(firstSessions.get(0).getPackets());
+		List<TcpInfo> firstTcpInfos = new ArrayList<TcpInfo>();
+		for (PacketInfo packetInfo : firstPackets) {
+			// the reused sessions hold copies marked by the assembly
+			assertNotNull(packetInfo.getTcpInfo());
+			firstTcpInfos.add(packetInfo.getTcpInfo());
+		}
+
+		AnalysisFilter filter = mock(AnalysisFilter.class);
+		when(filter.getPacketColor(any(PacketInfo.class))).thenReturn(Color.BLUE);
+		when(filter.getTimeRange()).thenReturn(new TimeRange(1.5, 10));
+		when(filter.isIpv4Sel()).thenReturn(true);
+		PacketAnalyzerResult second = iPacketAnalyzer.analyzeTraceFile(trace.getAbsolutePath(), new ProfileLTE(), filter);
+		assertEquals(2, second.getTraceresult().getAllpackets().size());
+		assertEquals(1, second.getSessionlist().size());
+		assertNotSame(firstSessions.get(0), second.getSessionlist().get(0));
+		Mockito.verify(tracereader, Mockito.times(1)).readTraceFile(trace.getAbsolutePath());
+
+		// the first result still holds its own packets and sessions as analyzed
+		assertEquals(firstPackets, first.getTraceresult().getAllpackets());
+		assertEquals(firstSessions, first.getSessionlist());
+		for (int index = 0; index < firstPackets.size(); index++) {
+			assertEquals(index + 1, firstPackets.get(index).getPacketId());
+			assertSame(firstTcpInfos.get(index), firstPackets.get(index).getTcpInfo());
+			assertSame(firstPackets.get(index), firstSessionPackets.get(index));
+			assertSame(firstPackets.get(index), firstSessions.get(0).getPackets().get(index));
+		}
+		for (PacketInfo packetInfo : second.getTraceresult().getAllpackets()) {
+			assertFalse(firstPackets.contains(packetInfo));
+		}
+	}
+
+	@Test
+	public void analyzeTraceFile_loadsCachedTrace() throws Exception {
+		ReflectionTestUtils.setField(iPacketAnalyzer, "sessionmanager", context.getBean(ISessionManager.class));
+		iPacketAnalyzer.setEnergyModelFactory(energymodelfactory);
+		iPacketAnalyzer.setBurstCollectionAnalayzer(burstcollectionanalyzer);
+		iPacketAnalyzer.setRrcStateMachineFactory(statemachinefactory);
+		RrcStateMachineLTE rrcstate = mock(RrcStateMachineLTE.class);
+		when(statemachinefactory.create(any(List.class), any(Profile.class), any(double.class), any(double.class), any(double.class),
+				any(TimeRange.class))).thenReturn(rrcstate);
+		when(rrcstate.getStaterangelist()).thenReturn(new ArrayList<RrcStateRange>());
+
+		File trace = folder.newFile("traffic.cap");
+		List<PacketInfo> packets = new ArrayList<PacketInfo>();
+		for (int index = 0; index < 4; index++) {
+			PacketInfo packetInfo = new PacketInfo("app", new TCPPacket(index, 0, 40, 0, tcpFrame()));
+			packetInfo.setDir(PacketDirection.UPLINK);
+			packets.add(packetInfo);
+		}
+		TraceFileResult traceResult = new TraceFileResult();
+		traceResult.setTraceDirectory(folder.getRoot().getAbsolutePath());
+		traceResult.setAllpackets(packets);
+		when(tracereader.readTraceFile(trace.getAbsolutePath())).thenReturn(traceResult);
+
+		PacketAnalyzerResult first = iPacketAnalyzer.analyzeTraceFile(trace.getAbsolutePath(), new ProfileLTE(), null);
+		assertEquals(1, analysisCache.getDirectory().list().length);
+
+		// a new run of the tool finds the trace and its sessions in the cache
+		ReflectionTestUtils.setField(iPacketAnalyzer, "traceBase", null);
+		PacketAnalyzerResult result = iPacketAnalyzer.analyzeTraceFile(trace.getAbsolutePath(), new ProfileLTE(), null);
+		Mockito.verify(tracereader, Mockito.times(1)).readTraceFile(trace.getAbsolutePath());
+		assertEquals(4, result.getTraceresult().getAllpackets().size());
+		assertEquals(1, result.getSessionlist().size());
+		assertEquals(first.getSessionlist().get(0).getSessionKey(), result.getSessionlist().get(0).getSessionKey());
+		for (int index = 0; index < 4; index++) {
+			PacketInfo packetInfo = result.getTraceresult().getAllpackets().get(index);
+			assertEquals(index + 1, packetInfo.getPacketId());
+			assertEquals(first.getTraceresult().getAllpackets().get(index).getTcpInfo(), packetInfo.getTcpInfo());
+			assertSame(packetInfo, result.getSessionlist().get(0).getPackets().get(index));
+		}
+
+		// a modified capture is read again
+		ReflectionTestUtils.setField(iPacketAnalyzer, "traceBase", null);
+		trace.setLastModified(trace.lastModified() - 60000);
+		iPacketAnalyzer.analyzeTraceFile(trace.getAbsolutePath(), new ProfileLTE(), null);
+		Mockito.verify(tracereader, Mockito.times(2)).readTraceFile(trace.getAbsolutePath());
+	}
+
+	@Test
+	public void analyzeProfiles_keepsProfileOrder() {
+		iPacketAnalyzer.setEnergyModelFactory(energymodelfactory);
+		iPacketAnalyzer.setBurstCollectionAnalayzer(burstcollectionanalyzer);
+		iPacketAnalyzer.setRrcStateMachineFactory(statemachinefactory);
+		iPacketAnalyzer.setParallelism(2);
+		List<Profile> profiles = new ArrayList<Profile>();
+		List<RrcStateMachineLTE> statemachines = new ArrayList<RrcStateMachineLTE>();
+		for (int index = 0; index < 3; index++) {
+			Profile profile = new ProfileLTE();
+			RrcStateMachineLTE rrcstate = mock(RrcStateMachineLTE.class);
+			when(rrcstate.getStaterangelist()).thenReturn(new ArrayList<RrcStateRange>());
+			when(statemachinefactory.create(any(List.class), eq(profile), any(double.class), any(double.class), any(double.class),
+					any(TimeRange.class), eq(false))).thenReturn(rrcstate);
+			profiles.add(profile);
+			statemachines.add(rrcstate);
+		}
+
+		TraceFileResult traceResult = new TraceFileResult();
+		traceResult.setAllpackets(new ArrayList<PacketInfo>());
+		PacketAnalyzerResult analyzerResult = new PacketAnalyzerResult();
+		analyzerResult.setTraceresult(traceResult);
+		analyzerResult.setStatistic(new Statistic());
+		analyzerResult.setSessionlist(new ArrayList<Session>());
+
+		List<ProfileAnalysis> analyses = iPacketAnalyzer.analyzeProfiles(analyzerResult, profiles);
+		assertEquals(3, analyses.size());
+		for (int index = 0; index < 3; index++) {
+			assertSame(profiles.get(index), analyses.get(index).getProfile());
+			assertSame(statemachines.get(index), analyses.get(index).getStatemachine());
+		}
+		Mockito.verify(statemachinefactory, Mockito.never()).create(any(List.class), any(Profile.class), any(double.class),
+				any(double.class), any(double.class), any(TimeRange.class), eq(true));
+		assertEquals(0, iPacketAnalyzer.analyzeProfiles(analyzerResult, Arrays.<Profile>asList()).size());
+	}
+
 	@Test
 	public void test_getStatisticResult() throws UnknownHostException{
 		
@@ -325,4 +547,12 @@ public class PacketAnalyzerImplTest extends BaseTest {
 		assertEquals(3,testResult.getTotalPackets());
 	}
 
+	private byte[] tcpFrame() {
+		ByteBuffer buffer = ByteBuffer.allocate(40);
+		buffer.put((byte) 0x45).put((byte) 0).putShort((short) 40).putInt(0).put((byte) 64).put((byte) 6).putShort((short) 0);
+		buffer.put(new byte[] { 10, 0, 0, 2 }).put(new byte[] { 93, (byte) 184, 0, 1 });
+		buffer.putShort((short) 40000).putShort((short) 443).putInt(1).putInt(0).put((byte) 0x50).put((byte) 0x10);
+		return buffer.array();
+	}
+
 }
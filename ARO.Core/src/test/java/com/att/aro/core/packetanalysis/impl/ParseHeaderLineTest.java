@@ -3,6 +3,8 @@
  */
 package com.att.aro.core.packetanalysis.impl;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
@@ -185,5 +187,53 @@ public class ParseHeaderLineTest extends BaseTest {
 		parser.parseHeaderLine("Content-Range: bytes 12-34/56\r\n", rrInfo);
 		assertTrue(rrInfo.isRangeResponse());
 	}
+
+	@Test
+	public void testNameRules() throws IOException {
+
+		rrInfo.setDirection(HttpDirection.RESPONSE);
+
+		// the first letter of each word may be lower case
+		parser.parseHeaderLine("content-length: 17\r\n", rrInfo);
+		assertEquals(17, rrInfo.getContentLength());
+		parser.parseHeaderLine("transfer-encoding: chunked\r\n", rrInfo);
+		assertTrue(rrInfo.isChunked());
+
+		// no white space before the colon
+		parser.parseHeaderLine("Host : test.site.com\r\n", rrInfo);
+		assertNull(rrInfo.getHostName());
+		parser.parseHeaderLine("HOST: test.site.com\r\n", rrInfo);
+		assertNull(rrInfo.getHostName());
+
+		// white space allowed before the colon, names are case sensitive
+		parser.parseHeaderLine("Age : 12\r\n", rrInfo);
+		assertEquals(Long.valueOf(12), rrInfo.getAge());
+		parser.parseHeaderLine("age: 13\r\n", rrInfo);
+		assertEquals(Long.valueOf(12), rrInfo.getAge());
+	}
+
+	@Test
+	public void testValues() throws IOException {
+
+		rrInfo.setDirection(HttpDirection.RESPONSE);
+
+		parser.parseHeaderLine("ETag: \"a\"b\"\r\n", rrInfo);
+		assertEquals("a\"b", rrInfo.getEtag());
+
+		parser.parseHeaderLine("Content-Range: bytes 0 - 99 / 1000\r\n", rrInfo);
+		assertEquals(0, rrInfo.getRangeFirst());
+		assertEquals(99, rrInfo.getRangeLast());
+		assertEquals(1000, rrInfo.getRangeFull());
+		assertEquals(100, rrInfo.getContentLength());
+
+		parser.parseHeaderLine("Pragma: no-cache, x\r\n", rrInfo);
+		assertTrue(rrInfo.isPragmaNoCache());
+
+		rrInfo = new HttpRequestResponseInfo();
+		rrInfo.setDirection(HttpDirection.REQUEST);
+		parser.parseHeaderLine("Cache-Control: max-age = 5, max-stale, max-agex=7\r\n", rrInfo);
+		assertEquals(Long.valueOf(5), rrInfo.getMaxAge());
+		assertEquals(Long.valueOf(Long.MAX_VALUE), rrInfo.getMaxStale());
+	}
 	
 }
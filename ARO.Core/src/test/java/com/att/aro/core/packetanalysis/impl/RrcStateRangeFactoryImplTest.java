@@ -1,6 +1,8 @@
 package com.att.aro.core.packetanalysis.impl;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -23,6 +25,7 @@ import com.att.aro.core.packetanalysis.IRrcStateRangeFactory;
 import com.att.aro.core.packetanalysis.pojo.PacketInfo;
 import com.att.aro.core.packetanalysis.pojo.RRCState;
 import com.att.aro.core.packetanalysis.pojo.RrcStateRange;
+import com.att.aro.core.packetreader.pojo.Packet;
 import com.att.aro.core.packetreader.pojo.PacketDirection;
 
 /*
@@ -899,4 +902,32 @@ public class RrcStateRangeFactoryImplTest extends BaseTest {
 		assertEquals(1, testList.size());
 	}
 
+	@Test
+	public void create_withoutMarkingPackets() {
+		Profile3G profile3g = new Profile3G();
+		double[] times = { 1.0, 1.2, 3.0, 10.0, 10.5, 30.0, 31.0, 31.1 };
+		List<PacketInfo> packetlist = new ArrayList<PacketInfo>();
+		for (int i = 0; i < times.length; i++) {
+			PacketInfo packetInfo = new PacketInfo(new Packet(0, 0, 0, 0, null));
+			packetInfo.setTimestamp(times[i]);
+			packetInfo.setDir(i % 2 == 0 ? PacketDirection.UPLINK : PacketDirection.DOWNLINK);
+			packetlist.add(packetInfo);
+		}
+
+		List<RrcStateRange> unmarked = rrcStateRangeFactory.create(packetlist, profile3g, 40.0, false);
+		for (PacketInfo packetInfo : packetlist) {
+			assertNull(packetInfo.getStateMachine());
+		}
+
+		List<RrcStateRange> marked = rrcStateRangeFactory.create(packetlist, profile3g, 40.0);
+		assertEquals(marked.size(), unmarked.size());
+		for (int i = 0; i < marked.size(); i++) {
+			assertEquals(marked.get(i).getState(), unmarked.get(i).getState());
+			assertEquals(marked.get(i).getBeginTime(), unmarked.get(i).getBeginTime(), 0.0);
+			assertEquals(marked.get(i).getEndTime(), unmarked.get(i).getEndTime(), 0.0);
+		}
+		for (PacketInfo packetInfo : packetlist) {
+			assertNotNull(packetInfo.getStateMachine());
+		}
+	}
 }
@@ -0,0 +1,90 @@
+package com.att.aro.core.packetanalysis.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SegmentStoreTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final byte[] content = "segment content".getBytes(StandardCharsets.UTF_8);
+
+	@Test
+	public void putStoresByContent() throws Exception {
+		File directory = folder.newFolder();
+		String path = directory + File.separator;
+		File stale = new File(directory, "000123456_00000001_1_video.mp4");
+		Files.write(stale.toPath(), content);
+
+		SegmentStore store = new SegmentStore();
+		store.open(path);
+		String first = store.put(path + "000100_00000001_1_video.mp4", content, null);
+		String second = store.put(path + "000200_00000001_1_video.mp4", content, SegmentStore.digest(content));
+		assertEquals(first, second);
+		assertEquals(path + SegmentStore.digest(content) + ".mp4", first);
+		assertArrayEquals(content, Files.readAllBytes(new File(first).toPath()));
+		assertEquals(1, store.getWritten());
+		store.close();
+
+		assertFalse(stale.exists());
+		String name = new File(first).getName();
+		assertEquals(Arrays.asList("000100_00000001_1_video.mp4\t" + name, "000200_00000001_1_video.mp4\t" + name),
+				Files.readAllLines(new File(directory, SegmentStore.INDEX_FILE).toPath(), StandardCharsets.UTF_8));
+		assertEquals(2, directory.list().length);
+	}
+
+	@Test
+	public void openReusesEarlierAnalysis() throws Exception {
+		String path = folder.newFolder() + File.separator;
+		SegmentStore store = new SegmentStore();
+		store.open(path);
+		String stored = store.put(path + "manifest.m3u8", content, null);
+		String digest = SegmentStore.digest(content);
+		store.saveThumbnail(digest, new byte[] { 1, 2, 3 });
+		store.close();
+		long modified = new File(stored).lastModified();
+
+		store.open(path);
+		assertArrayEquals(new byte[] { 1, 2, 3 }, store.readThumbnail(digest));
+		assertEquals(stored, store.put(path + "manifest.m3u8", content, null));
+		assertEquals(0, store.getWritten());
+		assertEquals(2, store.getReused());
+		store.close();
+		assertEquals(modified, new File(stored).lastModified());
+		assertTrue(new File(path + digest + "_thumbnail.png").exists());
+
+		// a thumbnail the analysis did not ask for is removed
+		store.open(path);
+		store.put(path + "manifest.m3u8", content, null);
+		store.close();
+		assertFalse(new File(path + digest + "_thumbnail.png").exists());
+		assertTrue(new File(stored).exists());
+	}
+
+	@Test
+	public void readThumbnailWhenClosed() throws Exception {
+		SegmentStore store = new SegmentStore();
+		assertFalse(store.isOpen());
+		assertNull(store.readThumbnail(SegmentStore.digest(content)));
+		store.saveThumbnail(SegmentStore.digest(content), content);
+		store.close();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void putWhenClosed() throws Exception {
+		new SegmentStore().put("segment.ts", content, null);
+	}
+}
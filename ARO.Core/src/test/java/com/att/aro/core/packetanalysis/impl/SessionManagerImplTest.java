@@ -4,14 +4,22 @@
 package com.att.aro.core.packetanalysis.impl;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
+import java.util.function.Predicate;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -19,10 +27,13 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import com.att.aro.core.BaseTest;
+import com.att.aro.core.packetanalysis.IParseHeaderLine;
 import com.att.aro.core.packetanalysis.IRequestResponseBuilder;
 import com.att.aro.core.packetanalysis.ISessionManager;
+import com.att.aro.core.packetanalysis.pojo.HttpRequestResponseInfo;
 import com.att.aro.core.packetanalysis.pojo.PacketInfo;
 import com.att.aro.core.packetanalysis.pojo.Session;
 import com.att.aro.core.packetanalysis.pojo.TcpInfo;
@@ -625,4 +636,212 @@ public class SessionManagerImplTest extends BaseTest{
 		SessionManagerImpl mgrImpl = (SessionManagerImpl)sessionMgr;
 		mgrImpl.parse(session, packetList, nPass);
 	}*/
+
+	@Test
+	public void parallelAssemblyMatchesSequential() throws UnknownHostException {
+		SessionManagerImpl sequential = createSessionManager(1);
+		SessionManagerImpl parallel = createSessionManager(4);
+		ReflectionTestUtils.setField(parallel, "parallelThreshold", 0);
+
+		List<String> expected = describe(sequential.processPacketsAndAssembleSessions(createTrace(7)));
+		List<String> actual = describe(parallel.processPacketsAndAssembleSessions(createTrace(7)));
+
+		// 60 TCP sessions, one of them per reused port, 5 DNS and 10 other UDP sessions
+		assertEquals(75, expected.stream().filter(line -> !line.startsWith(" ")).count());
+		assertTrue(expected.stream().anyMatch(line -> line.contains("dnsRequest=0.5 ")));
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	public void filteredAssemblyMatchesFullAssembly() throws UnknownHostException {
+		SessionManagerImpl sessionManager = createSessionManager(1);
+		List<PacketInfo> basePackets = view(createTrace(7), packetInfo -> true);
+		Set<Object> baseObjects = Collections.newSetFromMap(new IdentityHashMap<>());
+		baseObjects.addAll(basePackets);
+		List<Session> baseSessions = sessionManager.processPacketsAndAssembleSessions(basePackets);
+		for (Session session : baseSessions) {
+			baseObjects.add(session);
+			baseObjects.addAll(session.getRequestResponseInfo());
+		}
+		List<String> base = describe(baseSessions);
+
+		List<Predicate<PacketInfo>> filters = new ArrayList<>();
+		filters.add(packetInfo -> true);
+		filters.add(packetInfo -> packetInfo.getTimeStamp() >= 1.0 && packetInfo.getTimeStamp() <= 2.0);
+		filters.add(packetInfo -> !(packetInfo.getPacket() instanceof UDPPacket) || ((UDPPacket) packetInfo.getPacket()).getDns() == null);
+		filters.add(packetInfo -> packetInfo.getTimeStamp() >= 0.6);
+		for (Predicate<PacketInfo> filter : filters) {
+			List<String> expected = describe(createSessionManager(1).processPacketsAndAssembleSessions(view(createTrace(7), filter)));
+			List<PacketInfo> copies = new ArrayList<>();
+			for (PacketInfo packetInfo : basePackets) {
+				copies.add(packetInfo.copy());
+			}
+			List<Session> sessions = sessionManager.assembleFilteredSessions(view(copies, filter), baseSessions,
+					packetInfo -> copies.get(packetInfo.getPacketId() - 1));
+			assertEquals(expected, describe(sessions));
+			// the sessions are the analysis' own, down to their packets and requests
+			for (Session session : sessions) {
+				assertFalse(baseObjects.contains(session));
+				for (PacketInfo packetInfo : session.getAllPackets()) {
+					assertFalse(baseObjects.contains(packetInfo));
+				}
+				for (HttpRequestResponseInfo rrInfo : session.getRequestResponseInfo()) {
+					assertFalse(baseObjects.contains(rrInfo));
+					assertFalse(baseObjects.contains(rrInfo.getFirstDataPacket()));
+				}
+			}
+		}
+		// the base sessions and their packets are left as assembled
+		assertEquals(base, describe(baseSessions));
+	}
+
+	private List<PacketInfo> view(List<PacketInfo> packets, Predicate<PacketInfo> filter) {
+		List<PacketInfo> view = new ArrayList<>();
+		for (PacketInfo packetInfo : packets) {
+			if (filter.test(packetInfo)) {
+				packetInfo.setPacketId(view.size() + 1);
+				view.add(packetInfo);
+			}
+		}
+		return view;
+	}
+
+	private SessionManagerImpl createSessionManager(int parallelism) {
+		SessionManagerImpl sessionManager = new SessionManagerImpl();
+		ReflectionTestUtils.setField(sessionManager, "parseHeaderLine", context.getBean(IParseHeaderLine.class));
+		ReflectionTestUtils.setField(sessionManager, "requestResponseBuilder", context.getBean(IRequestResponseBuilder.class));
+		sessionManager.setByteArrayLineReader(new ByteArrayLineReaderImpl());
+		sessionManager.setParallelism(parallelism);
+		return sessionManager;
+	}
+
+	private List<String> describe(List<Session> sessions) {
+		List<String> lines = new ArrayList<>();
+		for (Session session : sessions) {
+			lines.add(session.getSessionKey() + " start=" + session.getSessionStartTime() + " udp=" + session.isUdpOnly()
+					+ " domain=" + session.getDomainName() + " host=" + session.getRemoteHostName()
+					+ " dnsRequest=" + timeOf(session.getDnsRequestPacket()) + " dnsResponse=" + timeOf(session.getDnsResponsePacket())
+					+ " bytes=" + session.getBytesTransferred());
+			for (PacketInfo packetInfo : session.getAllPackets()) {
+				boolean retransmission = packetInfo.getPacket() instanceof TCPPacket && ((TCPPacket) packetInfo.getPacket()).isRetransmission();
+				lines.add("  " + packetInfo.getTimeStamp() + " " + packetInfo.getTcpInfo() + " " + retransmission);
+			}
+			for (HttpRequestResponseInfo rrInfo : session.getRequestResponseInfo()) {
+				lines.add("  " + rrInfo.getDirection() + " " + rrInfo.getStatusLine() + " " + rrInfo.getHostName() + " " + rrInfo.getObjUri()
+						+ " " + rrInfo.getContentLength() + " " + timeOf(rrInfo.getFirstDataPacket()) + " " + timeOf(rrInfo.getLastDataPacket())
+						+ " " + (rrInfo.getAssocReqResp() != null));
+			}
+		}
+		return lines;
+	}
+
+	private String timeOf(PacketInfo packetInfo) {
+		return packetInfo != null ? String.valueOf(packetInfo.getTimeStamp()) : "none";
+	}
+
+	/**
+	 * Interleaved HTTP connections, DNS lookups that resolve some hosts only
+	 * after their first connection started, and plain UDP flows.
+	 */
+	private List<PacketInfo> createTrace(long seed) throws UnknownHostException {
+		Random random = new Random(seed);
+		List<PacketInfo> packets = new ArrayList<>();
+		byte[] local = { 10, 0, 0, 2 };
+		byte[] resolver = { 8, 8, 8, 8 };
+
+		for (int host = 0; host < 5; host++) {
+			byte[] remote = { 93, (byte) 184, 0, (byte) (host + 1) };
+			double time = host * 0.5;
+			int port = 5300 + host;
+			packets.add(udp(time, PacketDirection.UPLINK, local, port, resolver, 53, new byte[12], dns(false, host, remote)));
+			packets.add(udp(time + 0.001, PacketDirection.DOWNLINK, resolver, 53, local, port, new byte[12], dns(true, host, remote)));
+		}
+
+		for (int connection = 0; connection < 60; connection++) {
+			byte[] remote = { 93, (byte) 184, 0, (byte) (connection % 5 + 1) };
+			int port = 40000 + connection % 50;
+			double time = connection * 0.05;
+			long upSeq = 1000 + connection * 100000L;
+			long downSeq = 5000 + connection * 100000L;
+			byte[] request = ("GET /object" + connection + " HTTP/1.1\r\nHost: host" + connection % 5 + ".example.com\r\n\r\n").getBytes();
+			byte[] body = new byte[200 + random.nextInt(800)];
+			byte[] header = ("HTTP/1.1 200 OK\r\nContent-Type: text/plain\r\nContent-Length: " + body.length + "\r\n\r\n").getBytes();
+			byte[] response = ByteBuffer.allocate(header.length + body.length).put(header).put(body).array();
+			byte[] firstPart = Arrays.copyOf(response, response.length / 2);
+			byte[] secondPart = Arrays.copyOfRange(response, response.length / 2, response.length);
+
+			packets.add(tcp(time, PacketDirection.UPLINK, local, port, remote, 80, upSeq, 0, 0x02, new byte[0]));
+			packets.add(tcp(time + jitter(random), PacketDirection.DOWNLINK, remote, 80, local, port, downSeq, upSeq + 1, 0x12, new byte[0]));
+			packets.add(tcp(time + 0.02 + jitter(random), PacketDirection.UPLINK, local, port, remote, 80, upSeq + 1, downSeq + 1, 0x18, request));
+			if (connection % 5 == 0) {
+				packets.add(tcp(time + 0.03 + jitter(random), PacketDirection.UPLINK, local, port, remote, 80, upSeq + 1, downSeq + 1, 0x18, request));
+			}
+			packets.add(tcp(time + 0.04 + jitter(random), PacketDirection.DOWNLINK, remote, 80, local, port, downSeq + 1, upSeq + 1 + request.length, 0x18, firstPart));
+			packets.add(tcp(time + 0.05 + jitter(random), PacketDirection.DOWNLINK, remote, 80, local, port, downSeq + 1 + firstPart.length, upSeq + 1 + request.length, 0x18, secondPart));
+			packets.add(tcp(time + 0.06 + jitter(random), PacketDirection.UPLINK, local, port, remote, 80, upSeq + 1 + request.length, downSeq + 1 + response.length, 0x11, new byte[0]));
+			packets.add(tcp(time + 0.07 + jitter(random), PacketDirection.DOWNLINK, remote, 80, local, port, downSeq + 1 + response.length, upSeq + 2 + request.length, 0x11, new byte[0]));
+		}
+
+		for (int flow = 0; flow < 10; flow++) {
+			byte[] remote = { (byte) 192, 0, 2, 1 };
+			double time = flow * 0.3;
+			for (int packet = 0; packet < 4; packet++) {
+				byte[] payload = new byte[50 + random.nextInt(100)];
+				if (packet % 2 == 0) {
+					packets.add(udp(time + packet * 0.01 + jitter(random), PacketDirection.UPLINK, local, 6000 + flow, remote, 443, payload, null));
+				} else {
+					packets.add(udp(time + packet * 0.01 + jitter(random), PacketDirection.DOWNLINK, remote, 443, local, 6000 + flow, payload, null));
+				}
+			}
+		}
+
+		Collections.sort(packets, (first, second) -> Double.compare(first.getTimeStamp(), second.getTimeStamp()));
+		return packets;
+	}
+
+	private double jitter(Random random) {
+		return random.nextInt(5000) / 1000000.0;
+	}
+
+	private DomainNameSystem dns(boolean response, int host, byte[] address) throws UnknownHostException {
+		DomainNameSystem dns = new DomainNameSystem();
+		dns.setResponse(response);
+		dns.setDomainName("host" + host + ".example.com");
+		if (response) {
+			dns.setIpAddresses(new HashSet<>(Arrays.asList(InetAddress.getByAddress(address))));
+		}
+		return dns;
+	}
+
+	private PacketInfo tcp(double time, PacketDirection direction, byte[] source, int sourcePort, byte[] destination, int destinationPort,
+			long sequenceNumber, long ackNumber, int flags, byte[] payload) {
+		ByteBuffer segment = ByteBuffer.allocate(20 + payload.length);
+		segment.putShort((short) sourcePort).putShort((short) destinationPort).putInt((int) sequenceNumber).putInt((int) ackNumber);
+		segment.put((byte) 0x50).put((byte) flags).putShort((short) 65535).putInt(0).put(payload);
+		byte[] data = ipv4(source, destination, 6, segment.array());
+		long micros = Math.round(time * 1000000);
+		PacketInfo packetInfo = new PacketInfo(new TCPPacket(micros / 1000000, micros % 1000000, data.length, 0, data));
+		packetInfo.setDir(direction);
+		return packetInfo;
+	}
+
+	private PacketInfo udp(double time, PacketDirection direction, byte[] source, int sourcePort, byte[] destination, int destinationPort,
+			byte[] payload, DomainNameSystem dns) {
+		ByteBuffer datagram = ByteBuffer.allocate(8 + payload.length);
+		datagram.putShort((short) sourcePort).putShort((short) destinationPort).putShort((short) (8 + payload.length)).putShort((short) 0).put(payload);
+		byte[] data = ipv4(source, destination, 17, datagram.array());
+		long micros = Math.round(time * 1000000);
+		UDPPacket packet = new UDPPacket(micros / 1000000, micros % 1000000, data.length, 0, data);
+		packet.setDns(dns);
+		PacketInfo packetInfo = new PacketInfo(packet);
+		packetInfo.setDir(direction);
+		return packetInfo;
+	}
+
+	private byte[] ipv4(byte[] source, byte[] destination, int protocol, byte[] payload) {
+		ByteBuffer buffer = ByteBuffer.allocate(20 + payload.length);
+		buffer.put((byte) 0x45).put((byte) 0).putShort((short) (20 + payload.length)).putInt(0);
+		buffer.put((byte) 64).put((byte) protocol).putShort((short) 0).put(source).put(destination).put(payload);
+		return buffer.array();
+	}
 }
@@ -0,0 +1,215 @@
+package com.att.aro.core.packetanalysis.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.att.aro.core.BaseTest;
+import com.att.aro.core.packetanalysis.ISessionManager;
+import com.att.aro.core.packetanalysis.pojo.HttpRequestResponseInfo;
+import com.att.aro.core.packetanalysis.pojo.PacketInfo;
+import com.att.aro.core.packetanalysis.pojo.Session;
+import com.att.aro.core.packetanalysis.pojo.TraceDataConst;
+import com.att.aro.core.packetanalysis.pojo.TraceDirectoryResult;
+import com.att.aro.core.packetreader.pojo.PacketDirection;
+import com.att.aro.core.packetreader.pojo.TCPPacket;
+import com.att.aro.core.peripheral.pojo.CpuActivity;
+import com.att.aro.core.peripheral.pojo.CpuActivityList;
+import com.att.aro.core.peripheral.pojo.GpsInfo;
+import com.att.aro.core.peripheral.pojo.GpsInfo.GpsState;
+
+public class TraceAnalysisCacheTest extends BaseTest {
+
+	private static final String REQUEST = "GET /index.html HTTP/1.1\r\nHost: www.example.com\r\n\r\n";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private TraceAnalysisCache cache;
+	private File trace;
+
+	@Before
+	public void setup() throws Exception {
+		cache = new TraceAnalysisCache();
+		cache.setDirectory(new File(folder.getRoot(), "cache"));
+		cache.setToolVersion("1.0");
+		trace = folder.newFolder("trace");
+		new File(trace, TraceDataConst.FileName.PCAP_FILE).createNewFile();
+	}
+
+	@Test
+	public void storeAndLoad() throws Exception {
+		TraceDirectoryResult result = traceResult();
+		List<Session> sessions = context.getBean(ISessionManager.class).processPacketsAndAssembleSessions(result.getAllpackets());
+		assertEquals(1, sessions.size());
+		assertEquals(1, sessions.get(0).getRequestResponseInfo().size());
+		cache.store(trace.getPath(), result, sessions);
+		assertEquals(1, cache.getDirectory().list().length);
+
+		TraceAnalysisCache.Entry entry = cache.load(trace.getPath());
+		assertNotNull(entry);
+		List<PacketInfo> packets = entry.getResult().getAllpackets();
+		assertEquals(3, packets.size());
+		assertEquals(trace.getPath(), entry.getResult().getTraceDirectory());
+		for (int index = 0; index < packets.size(); index++) {
+			assertEquals(index + 1, packets.get(index).getPacketId());
+			assertEquals(result.getAllpackets().get(index).getTimeStamp(), packets.get(index).getTimeStamp(), 0);
+			assertEquals(result.getAllpackets().get(index).getTcpInfo(), packets.get(index).getTcpInfo());
+			assertArrayEquals(result.getAllpackets().get(index).getPacket().getData(), packets.get(index).getPacket().getData());
+		}
+		assertEquals(1, ((TraceDirectoryResult) entry.getResult()).getGpsInfos().size());
+		assertEquals(GpsState.GPS_ACTIVE, ((TraceDirectoryResult) entry.getResult()).getGpsInfos().get(0).getGpsState());
+		assertEquals(1, entry.getResult().getCpuActivityList().getCpuActivities().size());
+
+		// the sessions refer to the loaded packets
+		assertEquals(1, entry.getSessions().size());
+		Session session = entry.getSessions().get(0);
+		assertEquals(3, session.getPackets().size());
+		for (int index = 0; index < packets.size(); index++) {
+			assertSame(packets.get(index), session.getPackets().get(index));
+		}
+		HttpRequestResponseInfo request = session.getRequestResponseInfo().get(0);
+		assertEquals("www.example.com", request.getHostName());
+		assertEquals("/index.html", request.getObjName());
+		assertSame(packets.get(1), request.getFirstDataPacket());
+		assertNotNull(session.getPStorageBothDCPT());
+	}
+
+	@Test
+	public void load_offHeapPayload() throws Exception {
+		cache.setOffHeapPayload(true);
+		TraceDirectoryResult result = traceResult();
+		cache.store(trace.getPath(), result, new ArrayList<Session>());
+
+		List<PacketInfo> packets = cache.load(trace.getPath()).getResult().getAllpackets();
+		assertEquals(3, packets.size());
+		for (int index = 0; index < packets.size(); index++) {
+			assertTrue(packets.get(index).getPacket().getDataBuffer().isDirect());
+			assertArrayEquals(result.getAllpackets().get(index).getPacket().getData(), packets.get(index).getPacket().getData());
+		}
+	}
+
+	@Test
+	public void load_changedTrace() throws Exception {
+		TraceDirectoryResult result = traceResult();
+		cache.store(trace.getPath(), result, new ArrayList<Session>());
+		assertNotNull(cache.load(trace.getPath()));
+
+		File capture = new File(trace, TraceDataConst.FileName.PCAP_FILE);
+		capture.setLastModified(capture.lastModified() - 60000);
+		assertNull(cache.load(trace.getPath()));
+		// the outdated cache file is deleted
+		assertEquals(0, cache.getDirectory().list().length);
+
+		cache.store(trace.getPath(), result, new ArrayList<Session>());
+		new File(trace, "gps_events").createNewFile();
+		assertNull(cache.load(trace.getPath()));
+	}
+
+	@Test
+	public void load_otherToolVersion() throws Exception {
+		cache.store(trace.getPath(), traceResult(), new ArrayList<Session>());
+		cache.setToolVersion("1.1");
+		assertNull(cache.load(trace.getPath()));
+	}
+
+	@Test
+	public void load_rejectsForeignClasses() throws Exception {
+		cache.store(trace.getPath(), traceResult(), new ArrayList<Session>());
+		File file = cache.getDirectory().listFiles()[0];
+		byte[] header;
+		try (DataInputStream input = new DataInputStream(new FileInputStream(file))) {
+			header = new byte[input.readInt()];
+			input.readFully(header);
+		}
+		try (DataOutputStream output = new DataOutputStream(new FileOutputStream(file))) {
+			output.writeInt(header.length);
+			output.write(header);
+			ObjectOutputStream objects = new ObjectOutputStream(output);
+			objects.writeObject(new File("result"));
+			objects.flush();
+		}
+		assertNull(cache.load(trace.getPath()));
+		assertFalse(file.exists());
+	}
+
+	@Test
+	public void store_skipsTracesWithKeys() throws Exception {
+		new File(trace, TraceDataConst.FileName.SSLKEYLOG_FILE).createNewFile();
+		cache.store(trace.getPath(), traceResult(), new ArrayList<Session>());
+		assertFalse(cache.getDirectory().exists());
+		assertNull(cache.load(trace.getPath()));
+	}
+
+	@Test
+	public void store_disabled() throws Exception {
+		cache.setEnabled(false);
+		cache.store(trace.getPath(), traceResult(), new ArrayList<Session>());
+		assertFalse(cache.getDirectory().exists());
+	}
+
+	@Test
+	public void store_trimsLeastRecentlyUsed() throws Exception {
+		File other = folder.newFolder("other");
+		cache.store(trace.getPath(), traceResult(), new ArrayList<Session>());
+		File first = cache.getDirectory().listFiles()[0];
+		first.setLastModified(first.lastModified() - 60000);
+		cache.setMaxSize(first.length() + 1);
+
+		cache.store(other.getPath(), traceResult(), new ArrayList<Session>());
+		assertFalse(first.exists());
+		assertEquals(1, cache.getDirectory().list().length);
+		assertNotNull(cache.load(other.getPath()));
+	}
+
+	private TraceDirectoryResult traceResult() {
+		List<PacketInfo> packets = new ArrayList<PacketInfo>();
+		byte[] request = REQUEST.getBytes(StandardCharsets.US_ASCII);
+		packets.add(packet(1, 0.1, 1, (byte) 0x02, new byte[0]));
+		packets.add(packet(2, 0.2, 2, (byte) 0x18, request));
+		packets.add(packet(3, 0.3, 2 + request.length, (byte) 0x10, new byte[0]));
+		TraceDirectoryResult result = new TraceDirectoryResult();
+		result.setTraceDirectory(trace.getPath());
+		result.setAllpackets(packets);
+		List<GpsInfo> gpsInfos = new ArrayList<GpsInfo>();
+		gpsInfos.add(new GpsInfo(0, 1, GpsState.GPS_ACTIVE));
+		result.setGpsInfos(gpsInfos);
+		CpuActivityList cpuActivityList = new CpuActivityList();
+		cpuActivityList.add(new CpuActivity());
+		result.setCpuActivityList(cpuActivityList);
+		return result;
+	}
+
+	private PacketInfo packet(int packetId, double timestamp, int sequenceNumber, byte flags, byte[] payload) {
+		ByteBuffer buffer = ByteBuffer.allocate(40 + payload.length);
+		buffer.put((byte) 0x45).put((byte) 0).putShort((short) (40 + payload.length)).putInt(0).put((byte) 64).put((byte) 6).putShort((short) 0);
+		buffer.put(new byte[] { 10, 0, 0, 2 }).put(new byte[] { 93, (byte) 184, 0, 1 });
+		buffer.putShort((short) 40000).putShort((short) 80).putInt(sequenceNumber).putInt(0).put((byte) 0x50).put(flags);
+		buffer.putShort((short) 0xffff).putInt(0).put(payload);
+		PacketInfo packetInfo = new PacketInfo("app", new TCPPacket(0, 0, 40 + payload.length, 0, buffer.array()));
+		packetInfo.setTimestamp(timestamp);
+		packetInfo.setDir(PacketDirection.UPLINK);
+		packetInfo.setPacketId(packetId);
+		return packetInfo;
+	}
+}
@@ -68,5 +68,18 @@ public class VideoStreamConstructorTest {
 		assertThat(incrementedName).isEqualTo(tempFolder + "/file.xyz(duplicated)");
 	}
 
+	@Test
+	public void testReservePathName_before_write() throws Exception {
+		String pathName = tempFolder + "/segment.mp4";
+		String first = videoStreamConstructor.reservePathName(pathName);
+		String second = videoStreamConstructor.reservePathName(pathName);
+		assertThat(first).isEqualTo(pathName);
+		assertThat(second).isEqualTo(tempFolder + "/segment(1).mp4");
+
+		videoStreamConstructor.writePayload(content, second);
+		videoStreamConstructor.writePayload(content, first);
+		assertThat(videoStreamConstructor.findPathNameTiebreaker(pathName)).isEqualTo(tempFolder + "/segment(2).mp4");
+	}
+
 }
 
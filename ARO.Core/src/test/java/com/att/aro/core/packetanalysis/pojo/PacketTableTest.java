@@ -0,0 +1,135 @@
+package com.att.aro.core.packetanalysis.pojo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.att.aro.core.packetreader.pojo.Packet;
+import com.att.aro.core.packetreader.pojo.PacketDirection;
+import com.att.aro.core.packetreader.pojo.TCPPacket;
+import com.att.aro.core.packetreader.pojo.UDPPacket;
+
+public class PacketTableTest {
+
+	private int packetId = 1;
+
+	@Test
+	public void ofKeepsColumns() throws Exception {
+		PacketInfo https = packet(tcp(443, 100, 1), "app", 1.0, PacketDirection.UPLINK);
+		PacketInfo http = packet(tcp(80, 0, 2), "other", 2.0, PacketDirection.DOWNLINK);
+		PacketInfo udp = packet(udp(20, 1), "app", 2.0, PacketDirection.UPLINK);
+		PacketInfo raw = packet(new Packet(0, 0, 60, 0, new byte[60]), null, 3.5, null);
+		List<PacketInfo> packets = Arrays.asList(https, http, udp, raw);
+
+		PacketTable table = PacketTable.of(packets);
+		assertEquals(packets, table);
+		assertTrue(table.isSorted());
+
+		assertEquals(140, table.getLength(0));
+		assertEquals(100, table.getPayloadLength(0));
+		assertEquals(2.0, table.getTimestamp(1), 0);
+		assertEquals(PacketDirection.DOWNLINK, table.getDirection(1));
+		assertNull(table.getDirection(3));
+
+		assertTrue(table.isTCP(0) && table.isHttps(0) && table.isIP(0));
+		assertTrue(table.isTCP(1) && !table.isHttps(1));
+		assertTrue(table.isUDP(2) && !table.isTCP(2));
+		assertFalse(table.isIP(3));
+
+		assertEquals(3, table.getAppCount());
+		assertEquals(table.getAppId(0), table.getAppId(2));
+		assertEquals("other", table.getAppName(table.getAppId(1)));
+		assertNull(table.getAppName(table.getAppId(3)));
+
+		assertEquals(2, table.getRemoteAddressCount());
+		assertEquals(InetAddress.getByAddress(new byte[] { 93, (byte) 184, 0, 1 }), table.getRemoteAddress(table.getRemoteAddressId(0)));
+		assertEquals(table.getRemoteAddressId(0), table.getRemoteAddressId(2));
+		assertEquals(-1, table.getRemoteAddressId(3));
+		assertEquals(-1, table.getSessionId(0));
+	}
+
+	@Test
+	public void ofTableIsSame() {
+		PacketTable table = PacketTable.of(new ArrayList<PacketInfo>());
+		assertSame(table, PacketTable.of(table));
+		assertNotSame(table, PacketTable.of(table, new ArrayList<Session>()));
+		assertEquals(0, PacketTable.of(null).size());
+	}
+
+	@Test
+	public void ofMapsSessions() throws Exception {
+		List<PacketInfo> packets = new ArrayList<>();
+		for (int index = 0; index < 4; index++) {
+			packets.add(packet(tcp(443, 10, index), "app", index, PacketDirection.UPLINK));
+		}
+		Session first = new Session(null, null, 443, 40000, "first");
+		first.getPackets().add(packets.get(0));
+		first.getPackets().add(packets.get(2));
+		Session second = new Session(null, null, 443, 40001, "second");
+		second.getPackets().add(packets.get(3));
+		// a packet that is not in the table is ignored
+		second.getPackets().add(packet(tcp(443, 10, 5), "app", 5, PacketDirection.UPLINK));
+
+		PacketTable table = PacketTable.of(packets, Arrays.asList(first, second));
+		assertEquals(2, table.getSessionCount());
+		assertEquals(0, table.getSessionId(0));
+		assertEquals(-1, table.getSessionId(1));
+		assertEquals(0, table.getSessionId(2));
+		assertSame(second, table.getSession(table.getSessionId(3)));
+	}
+
+	@Test
+	public void indexAtOrAfter() {
+		List<PacketInfo> packets = new ArrayList<>();
+		for (double timestamp : new double[] { 1, 2, 2, 2, 5 }) {
+			packets.add(packet(udp(0, 1), "app", timestamp, PacketDirection.UPLINK));
+		}
+		PacketTable table = PacketTable.of(packets);
+		assertTrue(table.isSorted());
+		assertEquals(0, table.indexAtOrAfter(0));
+		assertEquals(1, table.indexAtOrAfter(2));
+		assertEquals(4, table.indexAtOrAfter(2.5));
+		assertEquals(5, table.indexAtOrAfter(6));
+
+		packets.add(packet(udp(0, 1), "app", 3, PacketDirection.UPLINK));
+		assertFalse(PacketTable.of(packets).isSorted());
+	}
+
+	private PacketInfo packet(Packet packet, String appName, double timestamp, PacketDirection dir) {
+		PacketInfo packetInfo = new PacketInfo(appName, packet);
+		packetInfo.setTimestamp(timestamp);
+		packetInfo.setDir(dir);
+		packetInfo.setPacketId(packetId++);
+		return packetInfo;
+	}
+
+	private TCPPacket tcp(int port, int payload, int remote) {
+		ByteBuffer buffer = ip(6, 40 + payload, remote);
+		buffer.putShort((short) 40000).putShort((short) port).putInt(1).putInt(0).put((byte) 0x50).put((byte) 0x10);
+		return new TCPPacket(0, 0, 40 + payload, 0, buffer.array());
+	}
+
+	private UDPPacket udp(int payload, int remote) {
+		ByteBuffer buffer = ip(17, 28 + payload, remote);
+		buffer.putShort((short) 40000).putShort((short) 5000).putShort((short) (8 + payload)).putShort((short) 0);
+		return new UDPPacket(0, 0, 28 + payload, 0, buffer.array());
+	}
+
+	private ByteBuffer ip(int protocol, int length, int remote) {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		buffer.put((byte) 0x45).put((byte) 0).putShort((short) length).putInt(0).put((byte) 64).put((byte) protocol).putShort((short) 0);
+		buffer.put(new byte[] { 10, 0, 0, 2 }).put(new byte[] { 93, (byte) 184, 0, (byte) remote });
+		return buffer;
+	}
+}
@@ -0,0 +1,149 @@
+package com.att.aro.core.packetanalysis.pojo;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.att.aro.core.packetreader.pojo.Packet;
+import com.att.aro.core.packetreader.pojo.PayloadArena;
+
+public class PayloadRopeTest {
+
+	private final Random random = new Random(1);
+
+	@Test
+	public void appendSlices() throws Exception {
+		byte[] first = bytes(100);
+		byte[] second = bytes(80);
+		byte[] third = bytes(30);
+		Packet heapPacket = new Packet(0, 0, first.length, 14, first.clone());
+		Packet arenaPacket = new Packet(0, 0, second.length, 14, second.clone());
+		arenaPacket.moveData(new PayloadArena(1024));
+
+		PayloadRope rope = new PayloadRope();
+		rope.append(heapPacket, 14, 86);
+		rope.append(arenaPacket, 20, 0);
+		rope.append(arenaPacket, 20, 60);
+		rope.append(third, 5, 25);
+
+		byte[] expected = concat(Arrays.copyOfRange(first, 14, 100), Arrays.copyOfRange(second, 20, 80), Arrays.copyOfRange(third, 5, 30));
+		assertEquals(expected.length, rope.size());
+		assertEquals(3, rope.segmentCount());
+		assertArrayEquals(expected, rope.toByteArray());
+		assertEquals(ByteBuffer.wrap(expected), rope.asByteBuffer());
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		rope.writeTo(out);
+		assertArrayEquals(expected, out.toByteArray());
+	}
+
+	@Test
+	public void openStream() throws Exception {
+		byte[] data = bytes(500);
+		PayloadRope rope = new PayloadRope();
+		for (int offset = 0; offset < data.length; offset += 50) {
+			byte[] frame = new byte[60];
+			System.arraycopy(data, offset, frame, 10, 50);
+			rope.append(new Packet(0, 0, frame.length, 10, frame), 10, 50);
+		}
+
+		InputStream stream = rope.openStream();
+		assertEquals(500, stream.available());
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.write(stream.read());
+		assertEquals(20, stream.skip(20));
+		byte[] buffer = new byte[33];
+		int count;
+		while ((count = stream.read(buffer, 0, buffer.length)) > 0) {
+			out.write(buffer, 0, count);
+		}
+		assertEquals(-1, stream.read());
+		assertEquals(0, stream.available());
+		assertArrayEquals(concat(Arrays.copyOfRange(data, 0, 1), Arrays.copyOfRange(data, 21, 500)), out.toByteArray());
+	}
+
+	@Test
+	public void readSingleBytes() throws Exception {
+		byte[] data = bytes(120);
+		Packet packet = new Packet(0, 0, data.length, 0, data.clone());
+		packet.moveData(new PayloadArena(1024));
+		PayloadRope rope = new PayloadRope();
+		rope.append(packet, 0, 70);
+		rope.append(data, 70, 50);
+
+		InputStream stream = rope.openStream();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		int value;
+		while ((value = stream.read()) >= 0) {
+			out.write(value);
+		}
+		assertArrayEquals(data, out.toByteArray());
+	}
+
+	@Test
+	public void rangeEquals() {
+		byte[] data = bytes(300);
+		Packet packet = new Packet(0, 0, data.length, 0, data.clone());
+		packet.moveData(new PayloadArena(1024));
+		PayloadRope left = new PayloadRope();
+		left.append(packet, 0, 100);
+		left.append(data, 100, 200);
+		PayloadRope right = new PayloadRope();
+		for (int offset = 0; offset < data.length; offset += 30) {
+			right.append(data, offset, 30);
+		}
+
+		assertTrue(left.rangeEquals(0, right, 0, 300));
+		assertTrue(left.rangeEquals(95, right, 95, 40));
+		assertTrue(left.rangeEquals(10, right, 10, 0));
+		assertFalse(left.rangeEquals(0, right, 1, 200));
+
+		byte[] changed = data.clone();
+		changed[150]++;
+		PayloadRope other = new PayloadRope();
+		other.append(changed, 0, changed.length);
+		assertTrue(left.rangeEquals(0, other, 0, 150));
+		assertFalse(left.rangeEquals(0, other, 0, 151));
+	}
+
+	@Test
+	public void asByteBufferSingleSlice() {
+		byte[] data = bytes(100);
+		Packet packet = new Packet(0, 0, data.length, 14, data);
+		packet.moveData(new PayloadArena(1024));
+		PayloadRope rope = new PayloadRope();
+		rope.append(packet, 14, 40);
+
+		ByteBuffer buffer = rope.asByteBuffer();
+		assertTrue(buffer.isReadOnly());
+		assertEquals(ByteBuffer.wrap(data, 14, 40), buffer);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void appendOutOfRange() {
+		new PayloadRope().append(new Packet(0, 0, 60, 14, new byte[60]), 14, 47);
+	}
+
+	private byte[] bytes(int length) {
+		byte[] bytes = new byte[length];
+		random.nextBytes(bytes);
+		return bytes;
+	}
+
+	private byte[] concat(byte[]... arrays) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for (byte[] array : arrays) {
+			out.write(array, 0, array.length);
+		}
+		return out.toByteArray();
+	}
+}
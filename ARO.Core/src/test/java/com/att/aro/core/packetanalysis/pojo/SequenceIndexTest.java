@@ -0,0 +1,93 @@
+package com.att.aro.core.packetanalysis.pojo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import com.att.aro.core.packetreader.pojo.Packet;
+
+public class SequenceIndexTest {
+
+	@Test
+	public void putKeepsKeyOrder() {
+		SequenceIndex index = new SequenceIndex();
+		PacketInfo first = packet();
+		PacketInfo second = packet();
+		PacketInfo third = packet();
+
+		assertTrue(index.isEmpty());
+		assertNull(index.put(100, first));
+		assertNull(index.put(300, third));
+		assertNull(index.put(200, second));
+		assertSame(third, index.put(300, first));
+
+		assertEquals(3, index.size());
+		assertEquals(100, index.keyAt(0));
+		assertEquals(200, index.keyAt(1));
+		assertSame(first, index.valueAt(2));
+		assertSame(second, index.get(200));
+		assertTrue(index.containsKey(100));
+		assertFalse(index.containsKey(150));
+		assertNull(index.get(400));
+	}
+
+	@Test
+	public void putMatchesTreeMap() {
+		Random random = new Random(1);
+		SequenceIndex index = new SequenceIndex();
+		TreeMap<Long, PacketInfo> expected = new TreeMap<>();
+		long sequenceNumber = 1000;
+		for (int count = 0; count < 5000; count++) {
+			// mostly in order, with reordered segments and retransmissions
+			long key = sequenceNumber;
+			int kind = random.nextInt(10);
+			if (kind == 0) {
+				key -= 1460L * random.nextInt(20);
+			} else if (kind == 1) {
+				key += 1460L * random.nextInt(3);
+			} else {
+				sequenceNumber += 1460;
+			}
+			PacketInfo packetInfo = packet();
+			assertSame(expected.put(key, packetInfo), index.put(key, packetInfo));
+		}
+
+		assertEquals(expected.size(), index.size());
+		int position = 0;
+		for (Map.Entry<Long, PacketInfo> entry : expected.entrySet()) {
+			assertEquals(entry.getKey().longValue(), index.keyAt(position));
+			assertSame(entry.getValue(), index.valueAt(position));
+			position++;
+		}
+	}
+
+	@Test
+	public void unwrap() {
+		long base = 0xFFFFF000L;
+		assertEquals(0xFFFFF800L, SequenceIndex.unwrap(0xFFFFF800L, base));
+		// wrapped around
+		assertEquals(0x100000200L, SequenceIndex.unwrap(0x200L, base));
+		// reordered before the first packet
+		assertEquals(0xFFFFE000L, SequenceIndex.unwrap(0xFFFFE000L, base));
+		assertEquals(0x200L, SequenceIndex.unwrap(0x200L, 0));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void keyAtOutOfRange() {
+		SequenceIndex index = new SequenceIndex();
+		index.put(1, packet());
+		index.keyAt(1);
+	}
+
+	private PacketInfo packet() {
+		return new PacketInfo(new Packet(0, 0, 0, 0, null));
+	}
+}
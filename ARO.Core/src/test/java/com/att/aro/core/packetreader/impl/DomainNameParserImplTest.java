@@ -1,10 +1,12 @@
 package com.att.aro.core.packetreader.impl;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import org.junit.Test;
 import com.att.aro.core.BaseTest;
 import com.att.aro.core.packetreader.IDomainNameParser;
 import com.att.aro.core.packetreader.pojo.DomainNameSystem;
+import com.att.aro.core.packetreader.pojo.PayloadArena;
 import com.att.aro.core.packetreader.pojo.UDPPacket;
 
 public class DomainNameParserImplTest extends BaseTest {
@@ -22,4 +24,15 @@ public class DomainNameParserImplTest extends BaseTest {
 		
 		
 	}
+
+	@Test
+	public void parseDomainFromArena(){
+		parser = (DomainNameParserImpl) context.getBean(IDomainNameParser.class);
+		UDPPacket packet = new UDPPacket(1393515429, 547730, 288, 16, dnsresponsedata.clone());
+		packet.moveData(new PayloadArena(1024));
+		DomainNameSystem dns = parser.parseDomainName(packet);
+		assertEquals("android.clients.google.com", dns.getDomainName());
+		assertEquals("android.l.google.com", dns.getCname());
+		assertEquals(11, dns.getIpAddresses().size());
+	}
 }
@@ -0,0 +1,200 @@
+package com.att.aro.core.packetreader.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.att.aro.core.BaseTest;
+import com.att.aro.core.fileio.impl.FileManagerImpl;
+import com.att.aro.core.packetreader.IDomainNameParser;
+import com.att.aro.core.packetreader.IPacketListener;
+import com.att.aro.core.packetreader.pojo.Packet;
+import com.att.aro.core.packetreader.pojo.PayloadArena;
+
+public class MappedPacketReaderImplTest extends BaseTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	MappedPacketReaderImpl reader;
+	List<Packet> packets;
+	IPacketListener listener;
+
+	@Before
+	public void setup() {
+		reader = (MappedPacketReaderImpl) context.getBean("packetReader");
+		packets = new ArrayList<>();
+		listener = new IPacketListener() {
+			@Override
+			public void packetArrived(String appName, Packet packet) {
+				packets.add(packet);
+			}
+		};
+	}
+
+	@Test
+	public void readPcapLittleEndian() throws IOException {
+		File file = writePcap(ByteOrder.LITTLE_ENDIAN, 0xA1B2C3D4, 1000);
+		reader.readPacket(file.getAbsolutePath(), listener);
+
+		assertEquals(3, packets.size());
+		assertEquals(1500000000L, packets.get(0).getSeconds());
+		assertEquals(1000L, packets.get(0).getMicroSeconds());
+		assertEquals(1002L, packets.get(2).getMicroSeconds());
+		assertEquals(80, packets.get(1).getLen());
+		assertEquals(60, packets.get(1).getData().length);
+	}
+
+	@Test
+	public void readPcapBigEndianNanoSeconds() throws IOException {
+		File file = writePcap(ByteOrder.BIG_ENDIAN, 0xA1B23C4D, 123456789);
+		reader.readPacket(file.getAbsolutePath(), listener);
+
+		assertEquals(3, packets.size());
+		assertEquals(123456L, packets.get(0).getMicroSeconds());
+		assertEquals(60, packets.get(2).getData().length);
+	}
+
+	@Test
+	public void readPcapng() throws IOException {
+		for (ByteOrder order : new ByteOrder[] { ByteOrder.LITTLE_ENDIAN, ByteOrder.BIG_ENDIAN }) {
+			packets.clear();
+			File file = writePcapng(order);
+			reader.readPacket(file.getAbsolutePath(), listener);
+
+			assertEquals(2, packets.size());
+			// enhanced packet block, nanosecond resolution
+			assertEquals(1500000000L, packets.get(0).getSeconds());
+			assertEquals(500000L, packets.get(0).getMicroSeconds());
+			assertEquals(100, packets.get(0).getLen());
+			assertEquals(60, packets.get(0).getData().length);
+			// simple packet block, timestamp of the previous packet
+			assertEquals(1500000000L, packets.get(1).getSeconds());
+			assertEquals(40, packets.get(1).getLen());
+			assertEquals(40, packets.get(1).getData().length);
+		}
+	}
+
+	@Test
+	public void readPacketSlicesMapping() throws IOException {
+		File file = writePcap(ByteOrder.LITTLE_ENDIAN, 0xA1B2C3D4, 1000);
+		reader.readPacket(file.getAbsolutePath(), listener);
+
+		// the packets refer to the mapped capture, moving them off the heap copies nothing
+		PayloadArena arena = new PayloadArena(1024);
+		for (Packet packet : packets) {
+			assertTrue(packet.getDataBuffer().isDirect());
+			packet.moveData(arena);
+			assertTrue(packet.getDataBuffer().isDirect());
+			assertEquals(60, packet.getDataLength());
+			assertEquals(60, packet.getData().length);
+		}
+		assertEquals(0, arena.getSize());
+	}
+
+	@Test
+	public void readPacketProbesCaptureFileOnce() throws IOException {
+		// the file is probed once however many packets need the link layer
+		for (int count : new int[] { 1, 500, 50000 }) {
+			packets.clear();
+			FileManagerImpl fileManager = Mockito.spy(new FileManagerImpl());
+			PcapngHelperImpl pcapngHelper = new PcapngHelperImpl();
+			ReflectionTestUtils.setField(pcapngHelper, "fileManager", fileManager);
+			PacketServiceImpl packetService = new PacketServiceImpl();
+			ReflectionTestUtils.setField(packetService, "pcapngHelper", pcapngHelper);
+			ReflectionTestUtils.setField(packetService, "domainparser", context.getBean(IDomainNameParser.class));
+			reader = new MappedPacketReaderImpl();
+			reader.setPacketService(packetService);
+			reader.setPcapngHelper(pcapngHelper);
+
+			// DLT_NULL has to be checked against the file header
+			File file = writePcap(ByteOrder.nativeOrder(), 0xA1B2C3D4, 0, 0, count);
+			reader.readPacket(file.getAbsolutePath(), listener);
+
+			assertEquals(count, packets.size());
+			assertEquals(4, packets.get(count - 1).getDatalinkHeaderSize());
+			Mockito.verify(fileManager, Mockito.atMost(1)).getFileInputStream(Mockito.any(File.class));
+			Mockito.verify(fileManager, Mockito.atMost(1)).getFileInputStream(Mockito.anyString());
+		}
+	}
+
+	@Test
+	public void readPacketResetsApplePcapng() throws IOException {
+		PcapngHelperImpl pcapngHelper = new PcapngHelperImpl();
+		// left over from an earlier trace
+		pcapngHelper.setApplePcapNG(true);
+		reader.setPcapngHelper(pcapngHelper);
+
+		File file = writePcap(ByteOrder.LITTLE_ENDIAN, 0xA1B2C3D4, 0);
+		reader.readPacket(file.getAbsolutePath(), listener);
+
+		assertEquals(3, packets.size());
+		assertFalse(pcapngHelper.isApplePcapNG());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void readPacketNoListener() throws IOException {
+		File file = writePcap(ByteOrder.LITTLE_ENDIAN, 0xA1B2C3D4, 0);
+		reader.readPacket(file.getAbsolutePath(), null);
+	}
+
+	@Test(expected = IOException.class)
+	public void readPacketUnknownFormat() throws IOException {
+		File file = write(ByteBuffer.allocate(64));
+		reader.readPacket(file.getAbsolutePath(), listener);
+	}
+
+	private File writePcap(ByteOrder order, int magic, int fraction) throws IOException {
+		return writePcap(order, magic, fraction, 1, 3);
+	}
+
+	private File writePcap(ByteOrder order, int magic, int fraction, int datalink, int count) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(24 + count * (16 + 60)).order(order);
+		buffer.putInt(magic).putShort((short) 2).putShort((short) 4).putInt(0).putInt(0).putInt(65535).putInt(datalink);
+		for (int i = 0; i < count; i++) {
+			buffer.putInt(1500000000).putInt(fraction + i).putInt(60).putInt(80);
+			buffer.put(new byte[60]);
+		}
+		return write(buffer);
+	}
+
+	private File writePcapng(ByteOrder order) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(28 + 32 + 92 + 56).order(order);
+		// section header block
+		buffer.putInt(0x0A0D0D0A).putInt(28).putInt(0x1A2B3C4D).putShort((short) 1).putShort((short) 0).putLong(-1L).putInt(28);
+		// interface description block with if_tsresol of 9 (nanoseconds)
+		buffer.putInt(1).putInt(32).putShort((short) 1).putShort((short) 0).putInt(0);
+		buffer.putShort((short) 9).putShort((short) 1).put((byte) 9).put(new byte[3]);
+		buffer.putShort((short) 0).putShort((short) 0).putInt(32);
+		// enhanced packet block
+		long timestamp = 1500000000L * 1000000000L + 500000000L;
+		buffer.putInt(6).putInt(92).putInt(0).putInt((int) (timestamp >>> 32)).putInt((int) timestamp).putInt(60).putInt(100);
+		buffer.put(new byte[60]).putInt(92);
+		// simple packet block
+		buffer.putInt(3).putInt(56).putInt(40).put(new byte[40]).putInt(56);
+		return write(buffer);
+	}
+
+	private File write(ByteBuffer buffer) throws IOException {
+		File file = folder.newFile();
+		try (FileOutputStream stream = new FileOutputStream(file)) {
+			stream.write(buffer.array());
+		}
+		return file;
+	}
+}
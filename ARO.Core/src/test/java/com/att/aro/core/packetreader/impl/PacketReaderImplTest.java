@@ -42,7 +42,7 @@ public class PacketReaderImplTest extends BaseTest {
 	@Before
 	public void setup() {
 		
-		reader = (PacketReaderImpl) context.getBean("packetReader");
+		reader = (PacketReaderImpl) context.getBean("jpcapPacketReader");
 		
 		adapter = Mockito.mock(PCapAdapter.class);
 		Mockito.doAnswer(new Answer<Void>() {
@@ -0,0 +1,89 @@
+package com.att.aro.core.packetreader.pojo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+public class InetAddressTableTest {
+
+	@Test
+	public void getIPv4() throws UnknownHostException {
+		InetAddressTable table = new InetAddressTable();
+		byte[] data = { 0, 10, 0, 0, 2, 10, 0, 0, 2, 10, 0, 0, 3 };
+
+		InetAddress first = table.get(data, 1, 4);
+		assertEquals(InetAddress.getByAddress(new byte[] { 10, 0, 0, 2 }), first);
+		assertSame(first, table.get(data, 5, 4));
+		assertNotSame(first, table.get(data, 9, 4));
+		assertEquals(2, table.size());
+	}
+
+	@Test
+	public void getIPv6() throws UnknownHostException {
+		InetAddressTable table = new InetAddressTable();
+		byte[] address = InetAddress.getByName("2001:db8::1").getAddress();
+		byte[] data = ByteBuffer.allocate(34).put(address).put(address).array();
+
+		InetAddress first = table.get(data, 0, 16);
+		assertEquals(InetAddress.getByAddress(address), first);
+		assertSame(first, table.get(data, 16, 16));
+		assertEquals(1, table.size());
+	}
+
+	@Test
+	public void getKeepsInstancesWhenGrowing() throws UnknownHostException {
+		InetAddressTable table = new InetAddressTable();
+		InetAddress[] ipv4 = new InetAddress[5000];
+		InetAddress[] ipv6 = new InetAddress[5000];
+		for (int index = 0; index < 5000; index++) {
+			ipv4[index] = table.get(ipv4(index), 0, 4);
+			ipv6[index] = table.get(ipv6(index), 0, 16);
+		}
+		assertEquals(10000, table.size());
+		for (int index = 0; index < 5000; index++) {
+			assertSame(ipv4[index], table.get(ipv4(index), 0, 4));
+			assertSame(ipv6[index], table.get(ipv6(index), 0, 16));
+		}
+	}
+
+	@Test(expected = BufferUnderflowException.class)
+	public void getTruncated() throws UnknownHostException {
+		new InetAddressTable().get(new byte[6], 4, 4);
+	}
+
+	@Test
+	public void packetsShareAddresses() {
+		InetAddressTable table = new InetAddressTable();
+		byte[] data = frame(1);
+		TCPPacket first = new TCPPacket(0, 0, data.length, 0, data, table);
+		TCPPacket second = new TCPPacket(0, 1, data.length, 0, frame(1), table);
+
+		assertSame(first.getSourceIPAddress(), second.getSourceIPAddress());
+		assertSame(first.getDestinationIPAddress(), second.getDestinationIPAddress());
+		assertNotSame(first.getDestinationIPAddress(), new TCPPacket(0, 2, data.length, 0, frame(2), table).getDestinationIPAddress());
+		assertEquals(3, table.size());
+	}
+
+	private byte[] frame(int host) {
+		ByteBuffer buffer = ByteBuffer.allocate(40);
+		buffer.put((byte) 0x45).put((byte) 0).putShort((short) 40).putInt(0).put((byte) 64).put((byte) 6).putShort((short) 0);
+		buffer.put(new byte[] { 10, 0, 0, 2 }).put(new byte[] { 93, (byte) 184, 0, (byte) host });
+		buffer.putShort((short) 40000).putShort((short) 443).putInt(1).putInt(0).put((byte) 0x50).put((byte) 0x10);
+		return buffer.array();
+	}
+
+	private byte[] ipv4(int index) {
+		return ByteBuffer.allocate(4).putInt(0x0A000000 + index).array();
+	}
+
+	private byte[] ipv6(int index) {
+		return ByteBuffer.allocate(16).putLong(0x20010DB800000000L).putLong(index).array();
+	}
+}
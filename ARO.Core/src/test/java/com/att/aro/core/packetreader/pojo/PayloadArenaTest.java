@@ -0,0 +1,136 @@
+package com.att.aro.core.packetreader.pojo;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PayloadArenaTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void appendDirect() {
+		verify(new PayloadArena(100));
+	}
+
+	@Test
+	public void appendMapped() throws Exception {
+		File spillFile = folder.newFile("payload.tmp");
+		PayloadArena arena = new PayloadArena(spillFile, 100);
+		verify(arena);
+		arena.seal();
+		// appends after seal go to direct buffers, earlier entries stay readable
+		verify(arena);
+	}
+
+	@Test
+	public void moveData() throws Exception {
+		byte[] data = new byte[60];
+		new Random(1).nextBytes(data);
+		Packet packet = new Packet(1, 2, 60, 14, data.clone());
+		packet.moveData(new PayloadArena(1024));
+
+		assertEquals(60, packet.getDataLength());
+		assertArrayEquals(data, packet.getData());
+		assertEquals(ByteBuffer.wrap(data), packet.getDataBuffer());
+		assertTrue(packet.getDataBuffer().isReadOnly());
+		assertEquals(ByteBuffer.wrap(data, 14, 46), packet.getDataBuffer(14, 46));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		packet.writeData(out, 14, 46);
+		assertArrayEquals(Arrays.copyOfRange(data, 14, 60), out.toByteArray());
+
+		ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+		try (ObjectOutputStream stream = new ObjectOutputStream(serialized)) {
+			stream.writeObject(packet);
+		}
+		try (ObjectInputStream stream = new ObjectInputStream(new ByteArrayInputStream(serialized.toByteArray()))) {
+			Packet copy = (Packet) stream.readObject();
+			assertArrayEquals(data, copy.getData());
+			assertEquals(14, copy.getDataOffset());
+			assertEquals(2, copy.getMicroSeconds());
+		}
+
+		packet.setData(new byte[] { 1, 2 });
+		assertEquals(2, packet.getDataLength());
+		assertEquals(ByteBuffer.wrap(new byte[] { 2 }), packet.getDataBuffer(1, 1));
+	}
+
+	@Test
+	public void bufferData() throws Exception {
+		byte[] data = new byte[60];
+		new Random(2).nextBytes(data);
+		ByteBuffer direct = ByteBuffer.allocateDirect(80);
+		direct.position(10);
+		direct.put(data);
+		direct.position(10).limit(70);
+		Packet packet = Packet.over(1, 2, 60, 14, direct);
+
+		// a direct buffer is already outside the heap
+		PayloadArena arena = new PayloadArena(1024);
+		packet.moveData(arena);
+		assertEquals(0, arena.getSize());
+		assertEquals(60, packet.getDataLength());
+		assertArrayEquals(data, packet.getData());
+		assertEquals(ByteBuffer.wrap(data, 14, 46), packet.getDataBuffer(14, 46));
+		assertTrue(packet.getDataBuffer().isReadOnly());
+		byte[] read = new byte[46];
+		packet.readData(14, read, 0, 46);
+		assertArrayEquals(Arrays.copyOfRange(data, 14, 60), read);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		packet.writeData(out, 14, 46);
+		assertArrayEquals(Arrays.copyOfRange(data, 14, 60), out.toByteArray());
+
+		ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+		try (ObjectOutputStream stream = new ObjectOutputStream(serialized)) {
+			stream.writeObject(packet);
+		}
+		try (ObjectInputStream stream = new ObjectInputStream(new ByteArrayInputStream(serialized.toByteArray()))) {
+			assertArrayEquals(data, ((Packet) stream.readObject()).getData());
+		}
+
+		// part of an array is moved
+		packet = Packet.over(1, 2, 50, 14, ByteBuffer.wrap(data, 10, 50));
+		packet.moveData(arena);
+		assertEquals(50, arena.getSize());
+		assertArrayEquals(Arrays.copyOfRange(data, 10, 60), packet.getData());
+	}
+
+	private void verify(PayloadArena arena) {
+		Random random = new Random(arena.getSize());
+		byte[][] entries = new byte[50][];
+		long[] handles = new long[entries.length];
+		long size = arena.getSize();
+		for (int index = 0; index < entries.length; index++) {
+			// every tenth entry is larger than a chunk
+			entries[index] = new byte[index % 10 == 9 ? 250 : random.nextInt(60)];
+			random.nextBytes(entries[index]);
+			handles[index] = arena.append(entries[index], 0, entries[index].length);
+			size += entries[index].length;
+		}
+		assertEquals(size, arena.getSize());
+
+		for (int index = 0; index < entries.length; index++) {
+			byte[] entry = entries[index];
+			byte[] copy = new byte[entry.length];
+			arena.read(handles[index], 0, copy, 0, entry.length);
+			assertArrayEquals(entry, copy);
+			if (entry.length > 2) {
+				assertEquals(ByteBuffer.wrap(entry, 1, entry.length - 2), arena.slice(handles[index], 1, entry.length - 2));
+			}
+		}
+	}
+}
@@ -0,0 +1,248 @@
+package com.att.aro.core.securedpacketreader;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import com.att.aro.core.packetreader.pojo.PacketDirection;
+import com.att.aro.core.securedpacketreader.impl.CipherDataServiceImpl;
+import com.att.aro.core.securedpacketreader.impl.TLSKeyDerivation;
+import com.att.aro.core.securedpacketreader.impl.TLSSessionInfoImpl;
+import com.att.aro.core.securedpacketreader.pojo.CryptoEnum.TLSCipher;
+import com.att.aro.core.securedpacketreader.pojo.TLSCipherSuite;
+
+public class TLSRecordCipherTest {
+
+	private static final int APPLICATION_DATA = 23;
+	private static final int HANDSHAKE = 22;
+
+	private final CipherDataServiceImpl cipherDataService = new CipherDataServiceImpl();
+	private final byte[] key = fill(16, 0x11);
+	private final byte[] macKey = fill(20, 0x22);
+
+	@Test
+	public void decryptGCM() throws Exception {
+		byte[] iv = fill(4, 0x33);
+		TLSRecordCipher cipher = TLSRecordCipher.create(cipherDataService.getTLSCipherData(TLSCipher.TLS_CIPHER_AES_128_GCM),
+				TLSRecordCipher.TLS_1_2, null, null, key, iv);
+
+		for (long seq = 0; seq < 3; seq++) {
+			byte[] plain = text("GET /index" + seq + ".html HTTP/1.1\r\n\r\n");
+			byte[] record = sealGCM(iv, seq, plain);
+			assertArrayEquals(plain, cipher.decrypt(APPLICATION_DATA, record, 0, record.length));
+		}
+		assertEquals(3, cipher.getSequenceNumber());
+		assertEquals(APPLICATION_DATA, cipher.getRecordType());
+	}
+
+	@Test
+	public void decryptRejectsTamperedRecord() throws Exception {
+		byte[] iv = fill(4, 0x33);
+		TLSRecordCipher cipher = TLSRecordCipher.create(cipherDataService.getTLSCipherData(TLSCipher.TLS_CIPHER_AES_128_GCM),
+				TLSRecordCipher.TLS_1_2, null, null, key, iv);
+		byte[] record = sealGCM(iv, 0, text("HTTP/1.1 200 OK\r\n\r\n"));
+		record[10] ^= 1;
+
+		assertNull(cipher.decrypt(APPLICATION_DATA, record, 0, record.length));
+		assertNull(cipher.decrypt(APPLICATION_DATA, record, 0, 5));
+	}
+
+	@Test
+	public void decryptCBCExplicitIV() throws Exception {
+		TLSRecordCipher cipher = TLSRecordCipher.create(cipherDataService.getTLSCipherData(TLSCipher.TLS_CIPHER_AES_128_CBC),
+				TLSRecordCipher.TLS_1_2, TLSKeyDerivation.HMAC_SHA1, macKey, key, fill(16, 0x44));
+		Cipher encryptor = Cipher.getInstance("AES/CBC/NoPadding");
+
+		for (long seq = 0; seq < 2; seq++) {
+			byte[] plain = text("HTTP/1.1 200 OK\r\nContent-Length: " + seq + "\r\n\r\n");
+			byte[] explicitIV = fill(16, (int) (0x50 + seq));
+			encryptor.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"), new IvParameterSpec(explicitIV));
+			byte[] record = concat(explicitIV, encryptor.doFinal(macAndPad(seq, APPLICATION_DATA, TLSRecordCipher.TLS_1_2, plain)));
+
+			assertArrayEquals(plain, cipher.decrypt(APPLICATION_DATA, record, 0, record.length));
+		}
+	}
+
+	@Test
+	public void decryptCBCChainedIV() throws Exception {
+		byte[] iv = fill(16, 0x44);
+		TLSRecordCipher cipher = TLSRecordCipher.create(cipherDataService.getTLSCipherData(TLSCipher.TLS_CIPHER_AES_128_CBC),
+				TLSRecordCipher.TLS_1_0, TLSKeyDerivation.HMAC_SHA1, macKey, key, iv);
+		// TLS 1.0 chains the records, the IV of a record is the last block of the one before
+		Cipher encryptor = Cipher.getInstance("AES/CBC/NoPadding");
+		encryptor.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"), new IvParameterSpec(iv));
+
+		for (long seq = 0; seq < 2; seq++) {
+			byte[] plain = text("record " + seq);
+			byte[] record = encryptor.update(macAndPad(seq, HANDSHAKE, TLSRecordCipher.TLS_1_0, plain));
+
+			assertArrayEquals(plain, cipher.decrypt(HANDSHAKE, record, 0, record.length));
+		}
+	}
+
+	@Test
+	public void decryptTLS13() throws Exception {
+		byte[] iv = fill(12, 0x66);
+		TLSRecordCipher cipher = TLSRecordCipher.create(cipherDataService.getTLSCipherData(TLSCipher.TLS_CIPHER_AES_128_GCM),
+				TLSRecordCipher.TLS_1_3, null, null, key, iv);
+
+		byte[] handshake = text("finished");
+		byte[] record = sealTLS13("AES/GCM/NoPadding", iv, 0, handshake, HANDSHAKE, 0);
+		assertArrayEquals(handshake, cipher.decrypt(APPLICATION_DATA, record, 0, record.length));
+		assertEquals(HANDSHAKE, cipher.getRecordType());
+
+		byte[] data = text("GET / HTTP/1.1\r\n\r\n");
+		record = sealTLS13("AES/GCM/NoPadding", iv, 1, data, APPLICATION_DATA, 7);
+		assertArrayEquals(data, cipher.decrypt(APPLICATION_DATA, record, 0, record.length));
+		assertEquals(APPLICATION_DATA, cipher.getRecordType());
+	}
+
+	@Test
+	public void decryptChaCha20Poly1305() throws Exception {
+		try {
+			Cipher.getInstance("ChaCha20-Poly1305");
+		} catch (NoSuchAlgorithmException e) {
+			Assume.assumeNoException(e);
+		}
+		byte[] chachaKey = fill(32, 0x77);
+		byte[] iv = fill(12, 0x66);
+		TLSRecordCipher cipher = TLSRecordCipher.create(cipherDataService.getTLSCipherData(TLSCipher.TLS_CIPHER_CHACHA20_POLY1305),
+				TLSRecordCipher.TLS_1_3, null, null, chachaKey, iv);
+
+		byte[] data = text("HTTP/1.1 204 No Content\r\n\r\n");
+		byte[] record = sealTLS13("ChaCha20-Poly1305", chachaKey, iv, 0, data, APPLICATION_DATA, 0);
+		assertArrayEquals(data, cipher.decrypt(APPLICATION_DATA, record, 0, record.length));
+	}
+
+	@Test
+	public void sessionInfoDecryptsTLS13() throws Exception {
+		TLSCipherSuite suite = cipherDataService.getTLSCipherSuite(0x1301);
+		TLSSessionInfoImpl pending = new TLSSessionInfoImpl();
+		pending.setTLSCipherSuite(suite);
+		pending.setCipherData(cipherDataService.getTLSCipherData(suite.getCipher()));
+		byte[] clientSecret = fill(32, 0x0c);
+		byte[] serverSecret = fill(32, 0x05);
+
+		assertEquals(1, pending.setupTLS13Ciphers(clientSecret, serverSecret, pending));
+
+		// the server writes downlink records with its own traffic keys
+		byte[] serverKey = TLSKeyDerivation.hkdfExpandLabel(TLSKeyDerivation.HMAC_SHA256, serverSecret, "key", new byte[0], 16);
+		byte[] serverIV = TLSKeyDerivation.hkdfExpandLabel(TLSKeyDerivation.HMAC_SHA256, serverSecret, "iv", new byte[0], 12);
+		byte[] data = text("HTTP/1.1 200 OK\r\n\r\nhello");
+		byte[] record = sealTLS13("AES/GCM/NoPadding", serverKey, serverIV, 0, data, APPLICATION_DATA, 3);
+
+		byte[] dec = new byte[65536];
+		Integer[] decLen = new Integer[1];
+		assertEquals(1, pending.decrypt(record, dec, decLen, PacketDirection.DOWNLINK, APPLICATION_DATA));
+		assertArrayEquals(data, Arrays.copyOf(dec, decLen[0]));
+		// the uplink cipher has other keys
+		assertEquals(-1, pending.decrypt(record, dec, decLen, PacketDirection.UPLINK, APPLICATION_DATA));
+	}
+
+	@Test
+	public void sessionInfoDecryptsTLS12GCM() throws Exception {
+		TLSCipherSuite suite = cipherDataService.getTLSCipherSuite((short) 0xC02F);
+		TLSSessionInfoImpl pending = new TLSSessionInfoImpl();
+		pending.setTLSCipherSuite(suite);
+		pending.setCipherData(cipherDataService.getTLSCipherData(suite.getCipher()));
+		pending.setVersion(TLSRecordCipher.TLS_1_2);
+		byte[] master = fill(48, 0x4d);
+		byte[] clientRandom = fill(32, 0x01);
+		byte[] serverRandom = fill(32, 0x02);
+
+		assertEquals(1, pending.setupCiphers(master, clientRandom, serverRandom, pending));
+
+		// client write key and IV of the key block
+		byte[] keyBlock = TLSKeyDerivation.prf(TLSKeyDerivation.HMAC_SHA256, master, "key expansion", concat(serverRandom, clientRandom), 40);
+		byte[] clientKey = Arrays.copyOfRange(keyBlock, 0, 16);
+		byte[] clientIV = Arrays.copyOfRange(keyBlock, 32, 36);
+		byte[] data = text("POST /upload HTTP/1.1\r\n\r\n");
+		byte[] record = sealGCM(clientKey, clientIV, 0, data);
+
+		byte[] dec = new byte[65536];
+		Integer[] decLen = new Integer[1];
+		assertEquals(1, pending.decrypt(record, dec, decLen, PacketDirection.UPLINK, APPLICATION_DATA));
+		assertArrayEquals(data, Arrays.copyOf(dec, decLen[0]));
+	}
+
+	private byte[] sealGCM(byte[] iv, long seq, byte[] plain) throws Exception {
+		return sealGCM(key, iv, seq, plain);
+	}
+
+	private byte[] sealGCM(byte[] key, byte[] iv, long seq, byte[] plain) throws Exception {
+		byte[] explicit = ByteBuffer.allocate(8).putLong(seq + 1000).array();
+		Cipher encryptor = Cipher.getInstance("AES/GCM/NoPadding");
+		encryptor.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"), new GCMParameterSpec(128, concat(iv, explicit)));
+		encryptor.updateAAD(additionalData(seq, APPLICATION_DATA, TLSRecordCipher.TLS_1_2, plain.length));
+		return concat(explicit, encryptor.doFinal(plain));
+	}
+
+	private byte[] sealTLS13(String transformation, byte[] iv, long seq, byte[] plain, int type, int padding) throws Exception {
+		return sealTLS13(transformation, key, iv, seq, plain, type, padding);
+	}
+
+	private byte[] sealTLS13(String transformation, byte[] key, byte[] iv, long seq, byte[] plain, int type, int padding)
+			throws Exception {
+		byte[] inner = Arrays.copyOf(plain, plain.length + 1 + padding);
+		inner[plain.length] = (byte) type;
+		byte[] nonce = iv.clone();
+		byte[] seqBytes = ByteBuffer.allocate(8).putLong(seq).array();
+		for (int index = 0; index < 8; index++) {
+			nonce[4 + index] ^= seqBytes[index];
+		}
+		int length = inner.length + 16;
+		Cipher encryptor = Cipher.getInstance(transformation);
+		if (transformation.startsWith("AES")) {
+			encryptor.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"), new GCMParameterSpec(128, nonce));
+		} else {
+			encryptor.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "ChaCha20"), new IvParameterSpec(nonce));
+		}
+		encryptor.updateAAD(new byte[] { APPLICATION_DATA, 3, 3, (byte) (length >> 8), (byte) length });
+		return encryptor.doFinal(inner);
+	}
+
+	private byte[] macAndPad(long seq, int type, int version, byte[] plain) throws Exception {
+		Mac mac = Mac.getInstance(TLSKeyDerivation.HMAC_SHA1);
+		mac.init(new SecretKeySpec(macKey, TLSKeyDerivation.HMAC_SHA1));
+		mac.update(additionalData(seq, type, version, plain.length));
+		byte[] data = concat(plain, mac.doFinal(plain));
+		int padLen = 15 - data.length % 16;
+		byte[] padded = Arrays.copyOf(data, data.length + padLen + 1);
+		Arrays.fill(padded, data.length, padded.length, (byte) padLen);
+		return padded;
+	}
+
+	private byte[] additionalData(long seq, int type, int version, int length) {
+		return ByteBuffer.allocate(13).putLong(seq).put((byte) type).putShort((short) version).putShort((short) length).array();
+	}
+
+	private static byte[] concat(byte[] first, byte[] second) {
+		byte[] result = Arrays.copyOf(first, first.length + second.length);
+		System.arraycopy(second, 0, result, first.length, second.length);
+		return result;
+	}
+
+	private static byte[] fill(int length, int value) {
+		byte[] bytes = new byte[length];
+		Arrays.fill(bytes, (byte) value);
+		return bytes;
+	}
+
+	private static byte[] text(String value) {
+		return value.getBytes(StandardCharsets.US_ASCII);
+	}
+}
@@ -0,0 +1,120 @@
+package com.att.aro.core.securedpacketreader.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.att.aro.core.securedpacketreader.pojo.SSLKey;
+
+public class SSLKeyFileReaderTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static final String CLIENT_RANDOM_1 = repeat("01", 32);
+	private static final String CLIENT_RANDOM_2 = repeat("a2", 32);
+
+	@Test
+	public void readKeyLog() throws Exception {
+		String log = "# SSL/TLS secrets log file\n"
+				+ "CLIENT_RANDOM " + CLIENT_RANDOM_1 + " " + repeat("0b", 48) + "\n"
+				+ "\n"
+				+ "CLIENT_HANDSHAKE_TRAFFIC_SECRET " + CLIENT_RANDOM_2 + " " + repeat("c1", 32) + "\n"
+				+ "CLIENT_TRAFFIC_SECRET_0 " + CLIENT_RANDOM_2.toUpperCase() + " " + repeat("c0", 32) + "\n"
+				+ "SERVER_TRAFFIC_SECRET_0 " + CLIENT_RANDOM_2 + " " + repeat("50", 32) + "\n"
+				+ "RSA 0011223344556677 " + repeat("99", 48) + "\n"
+				+ "CLIENT_RANDOM zz " + repeat("0b", 48) + "\n";
+
+		List<SSLKey> keys = new SSLKeyFileReader().read(write(log.getBytes(StandardCharsets.US_ASCII)));
+
+		assertEquals(2, keys.size());
+		assertArrayEquals(TLSKeyDerivationTest.hex(CLIENT_RANDOM_1), keys.get(0).getClientRandom());
+		assertArrayEquals(TLSKeyDerivationTest.hex(repeat("0b", 48)), keys.get(0).getMaster());
+		assertNull(keys.get(0).getPreMaster());
+
+		SSLKey tls13 = keys.get(1);
+		assertNull(tls13.getMaster());
+		assertArrayEquals(TLSKeyDerivationTest.hex(repeat("c0", 32)), tls13.getSecret(SSLKeyFileReader.CLIENT_TRAFFIC_SECRET_0));
+		assertArrayEquals(TLSKeyDerivationTest.hex(repeat("50", 32)), tls13.getSecret(SSLKeyFileReader.SERVER_TRAFFIC_SECRET_0));
+		assertArrayEquals(TLSKeyDerivationTest.hex(repeat("c1", 32)), tls13.getSecret(SSLKeyFileReader.CLIENT_HANDSHAKE_TRAFFIC_SECRET));
+	}
+
+	@Test
+	public void readKeys() throws Exception {
+		byte[] preMaster = new byte[48];
+		Arrays.fill(preMaster, (byte) 3);
+		byte[] master = new byte[48];
+		Arrays.fill(master, (byte) 7);
+		ByteBuffer buffer = ByteBuffer.allocate(2 * (12 + 48 + 48) + 20).order(ByteOrder.LITTLE_ENDIAN);
+		for (double ts : new double[] { 1550000000.25, 1550000001.5 }) {
+			buffer.putDouble(ts).putInt(preMaster.length).put(preMaster).put(master);
+		}
+		// a truncated record is dropped
+		buffer.putDouble(1550000002).putInt(48).put(new byte[8]);
+
+		List<SSLKey> keys = new SSLKeyFileReader().read(write(buffer.array()));
+
+		assertEquals(2, keys.size());
+		assertEquals(1550000001.5, keys.get(1).getTsvalue(), 0);
+		assertEquals(48, keys.get(1).getPreMasterLen());
+		assertArrayEquals(preMaster, keys.get(1).getPreMaster());
+		assertArrayEquals(master, keys.get(1).getMaster());
+		assertNull(keys.get(1).getClientRandom());
+	}
+
+	@Test
+	public void vpnKeyFromKeysFile() throws Exception {
+		// a VPN key, its pre-master starts with 4 zero bytes
+		ByteBuffer buffer = ByteBuffer.allocate(12 + 20 + 48).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putDouble(1550000000).putInt(20).put(new byte[20]).put(new byte[48]);
+		File keysFile = write(buffer.array());
+		File keyLog = write("sslkeylog.txt", ("CLIENT_RANDOM " + CLIENT_RANDOM_1 + " " + repeat("0b", 48) + "\n").getBytes(StandardCharsets.US_ASCII));
+
+		CryptoImpl crypto = new CryptoImpl();
+		assertEquals(0, crypto.readSSLKeys(keysFile.getPath()));
+		assertTrue(crypto.isVpnKey());
+		// the key log read after keys.ssl does not clear the flag
+		assertEquals(0, crypto.readSSLKeys(keyLog.getPath()));
+		assertTrue(crypto.isVpnKey());
+		assertEquals(2, crypto.getSSLKeyList().size());
+
+		crypto = new CryptoImpl();
+		assertEquals(0, crypto.readSSLKeys(keyLog.getPath()));
+		assertFalse(crypto.isVpnKey());
+	}
+
+	private File write(byte[] content) throws IOException {
+		return write("keys.ssl", content);
+	}
+
+	private File write(String name, byte[] content) throws IOException {
+		File file = folder.newFile(name);
+		try (FileOutputStream output = new FileOutputStream(file)) {
+			output.write(content);
+		}
+		return file;
+	}
+
+	private static String repeat(String value, int count) {
+		StringBuilder builder = new StringBuilder();
+		for (int index = 0; index < count; index++) {
+			builder.append(value);
+		}
+		return builder.toString();
+	}
+}
@@ -0,0 +1,150 @@
+package com.att.aro.core.securedpacketreader.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.att.aro.core.packetanalysis.pojo.Session;
+import com.att.aro.core.securedpacketreader.pojo.SSLKey;
+
+public class SSLKeyServiceImplTest {
+
+	private SSLKeyServiceImpl service;
+	private List<SSLKey> keys;
+
+	@Before
+	public void setUp() {
+		CryptoImpl crypto = new CryptoImpl();
+		keys = crypto.getSSLKeyList();
+		service = new SSLKeyServiceImpl();
+		service.crypto = crypto;
+	}
+
+	@Test
+	public void getMasterFromSSLLogByClientRandom() {
+		byte[] clientRandom = fill(32, 0x0c);
+		SSLKey logged = new SSLKey();
+		logged.setClientRandom(clientRandom);
+		logged.setMaster(fill(48, 0x4d));
+		keys.add(logged);
+		keys.add(derivable(10, fill(48, 1), fill(32, 0x01), fill(32, 0x02)));
+
+		byte[] master = new byte[48];
+		assertEquals(1, service.getMasterFromSSLLog(10, master, clientRandom, fill(32, 0x02)));
+		assertArrayEquals(fill(48, 0x4d), master);
+		assertEquals(0, service.getPrfEvaluations());
+		assertEquals(1, service.getIndexHits());
+	}
+
+	@Test
+	public void resetStartsNewTrace() {
+		byte[] clientRandom = fill(32, 0x0c);
+		keys.add(derivable(10, fill(48, 1), clientRandom, fill(32, 0x02)));
+		byte[] master = new byte[48];
+		assertEquals(1, service.getMasterFromSSLLog(10, master, clientRandom, fill(32, 0x02)));
+		assertEquals(1, service.getPrfEvaluations());
+
+		service.reset();
+		assertEquals(0, service.getPrfEvaluations());
+		assertEquals(0, service.getIndexHits());
+
+		// the keys of the next trace are indexed again
+		keys.clear();
+		SSLKey logged = new SSLKey();
+		logged.setClientRandom(clientRandom);
+		logged.setMaster(fill(48, 0x4d));
+		keys.add(logged);
+		assertEquals(1, service.getMasterFromSSLLog(10, master, clientRandom, fill(32, 0x02)));
+		assertArrayEquals(fill(48, 0x4d), master);
+		assertEquals(1, service.getIndexHits());
+	}
+
+	@Test
+	public void getMasterFromSSLLogNearestFirst() {
+		byte[] clientRandom = fill(32, 0x01);
+		byte[] serverRandom = fill(32, 0x02);
+		for (int ts = 0; ts < 50; ts++) {
+			keys.add(derivable(ts, fill(48, ts + 100), fill(32, 0x7f), serverRandom));
+		}
+		SSLKey key = derivable(30.2, fill(48, 3), clientRandom, serverRandom);
+		keys.add(key);
+		Collections.sort(keys);
+
+		byte[] master = new byte[48];
+		assertEquals(1, service.getMasterFromSSLLog(30.05, master, clientRandom, serverRandom));
+		assertArrayEquals(key.getMaster(), master);
+		// 30 is closer than 30.2
+		assertEquals(2, service.getPrfEvaluations());
+		assertEquals(1, key.getbUsed());
+
+		// a used key is not matched again
+		assertEquals(0, service.getMasterFromSSLLog(30.05, master, clientRandom, serverRandom));
+		assertEquals(2 + 50, service.getPrfEvaluations());
+	}
+
+	@Test
+	public void getMasterFromKeyList() throws Exception {
+		keys.add(vpnKey(new byte[] { 10, 0, 0, 1 }, 443, 50000, fill(48, 1)));
+		keys.add(vpnKey(new byte[] { 10, 0, 0, 2 }, 443, 50000, fill(48, 2)));
+		keys.add(vpnKey(new byte[] { 10, 0, 0, 2 }, 443, 50000, fill(48, 3)));
+		Session session = new Session(InetAddress.getByName("192.168.1.2"), InetAddress.getByName("10.0.0.2"), 443, 50000, "");
+
+		byte[] master = new byte[48];
+		assertEquals(1, service.getMasterFromKeyList(session, master));
+		assertArrayEquals(fill(48, 2), master);
+		assertEquals(1, service.getMasterFromKeyList(session, master));
+		assertArrayEquals(fill(48, 3), master);
+		assertEquals(0, service.getMasterFromKeyList(session, master));
+		assertEquals(0, service.getPrfEvaluations());
+
+		// keys read later are indexed too
+		keys.add(vpnKey(new byte[] { 10, 0, 0, 2 }, 443, 50000, fill(48, 4)));
+		assertEquals(1, service.getMasterFromKeyList(session, master));
+		assertArrayEquals(fill(48, 4), master);
+	}
+
+	private SSLKey derivable(double ts, byte[] preMaster, byte[] clientRandom, byte[] serverRandom) {
+		byte[] master = new byte[48];
+		service.tlsprf(preMaster, preMaster.length, "master secret", concat(clientRandom, serverRandom), 64, master, 48);
+		SSLKey key = new SSLKey();
+		key.setTs(ts);
+		key.setPreMasterLen(preMaster.length);
+		key.setPreMaster(preMaster);
+		key.setMasterLen(48);
+		key.setMaster(master);
+		return key;
+	}
+
+	private SSLKey vpnKey(byte[] remoteIP, int remotePort, int localPort, byte[] master) {
+		ByteBuffer preMaster = ByteBuffer.allocate(20).order(ByteOrder.LITTLE_ENDIAN);
+		preMaster.position(8);
+		preMaster.putInt(localPort).put(remoteIP).putInt(remotePort);
+		SSLKey key = new SSLKey();
+		key.setPreMasterLen(20);
+		key.setPreMaster(preMaster.array());
+		key.setMasterLen(48);
+		key.setMaster(master);
+		return key;
+	}
+
+	private static byte[] concat(byte[] first, byte[] second) {
+		byte[] result = Arrays.copyOf(first, first.length + second.length);
+		System.arraycopy(second, 0, result, first.length, second.length);
+		return result;
+	}
+
+	private static byte[] fill(int length, int value) {
+		byte[] bytes = new byte[length];
+		Arrays.fill(bytes, (byte) value);
+		return bytes;
+	}
+}
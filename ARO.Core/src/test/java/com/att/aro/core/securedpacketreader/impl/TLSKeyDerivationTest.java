@@ -0,0 +1,49 @@
+package com.att.aro.core.securedpacketreader.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class TLSKeyDerivationTest {
+
+	@Test
+	public void prf() throws Exception {
+		// the P_SHA256 test vector of the IETF TLS working group
+		byte[] out = TLSKeyDerivation.prf(TLSKeyDerivation.HMAC_SHA256, hex("9bbe436ba940f017b17652849a71db35"), "test label",
+				hex("a0ba9f936cda311827a6f796ffd5198c"), 100);
+		assertEquals("e3f229ba727be17b8d122620557cd453c2aab21d07c3d495329b52d4e61edb5a6b301791e90d35c9c9a46b4e14baf9af0fa022f7"
+				+ "077def17abfd3797c0564bab4fbc91666e9def9b97fce34f796789baa48082d122ee42c5a72e5a5110fff70187347b66", toHex(out));
+	}
+
+	@Test
+	public void hkdfExpandLabel() throws Exception {
+		// server handshake traffic keys of the RFC 8448 simple 1-RTT handshake
+		byte[] secret = hex("b67b7d690cc16c4e75e54213cb2d37b4e9c912bcded9105d42befd59d391ad38");
+		assertEquals("3fce516009c21727d0f2e4e86ee403bc", toHex(TLSKeyDerivation.hkdfExpandLabel(TLSKeyDerivation.HMAC_SHA256, secret, "key", new byte[0], 16)));
+		assertEquals("5d313eb2671276ee13000b30", toHex(TLSKeyDerivation.hkdfExpandLabel(TLSKeyDerivation.HMAC_SHA256, secret, "iv", new byte[0], 12)));
+	}
+
+	@Test
+	public void hkdfExpandLongerThanHash() throws Exception {
+		byte[] out = TLSKeyDerivation.hkdfExpand(TLSKeyDerivation.HMAC_SHA256, new byte[32], "info".getBytes(StandardCharsets.US_ASCII), 80);
+		assertEquals(80, out.length);
+	}
+
+	static byte[] hex(String hex) {
+		byte[] bytes = new byte[hex.length() / 2];
+		for (int index = 0; index < bytes.length; index++) {
+			bytes[index] = (byte) Integer.parseInt(hex.substring(2 * index, 2 * index + 2), 16);
+		}
+		return bytes;
+	}
+
+	static String toHex(byte[] bytes) {
+		StringBuilder hex = new StringBuilder();
+		for (byte value : bytes) {
+			hex.append(String.format("%02x", value & 0xFF));
+		}
+		return hex.toString();
+	}
+}
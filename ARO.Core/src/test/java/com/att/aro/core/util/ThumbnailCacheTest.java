@@ -0,0 +1,84 @@
+package com.att.aro.core.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class ThumbnailCacheTest {
+
+	private final AtomicInteger decodes = new AtomicInteger();
+
+	@Test
+	public void getDecodesOnce() {
+		ThumbnailCache cache = new ThumbnailCache(1024 * 1024, this::decode);
+		byte[] data = new byte[] { 40, 20 };
+
+		BufferedImage thumbnail = cache.get(data, 10);
+		assertEquals(20, thumbnail.getWidth());
+		assertEquals(10, thumbnail.getHeight());
+		assertSame(thumbnail, cache.get(data, 10));
+
+		BufferedImage original = cache.get(data, 0);
+		assertEquals(40, original.getWidth());
+		assertEquals(20, original.getHeight());
+		assertEquals(2, decodes.get());
+		// scaled from the stored original
+		cache.get(data, 5);
+		assertEquals(2, decodes.get());
+		assertEquals(1, cache.getHits());
+		assertEquals(3, cache.getMisses());
+
+		cache.clear();
+		cache.get(data, 10);
+		assertEquals(3, decodes.get());
+	}
+
+	@Test
+	public void getEvictsLeastRecentlyUsed() {
+		// room for two 10x10 images
+		ThumbnailCache cache = new ThumbnailCache(2 * 10 * 10 * 4, this::decode);
+		byte[][] data = { { 10, 10 }, { 10, 10 }, { 10, 10 } };
+		cache.get(data[0], 0);
+		cache.get(data[1], 0);
+		cache.get(data[0], 0);
+		cache.get(data[2], 0);
+		assertEquals(800, cache.getSize());
+		assertEquals(3, decodes.get());
+
+		cache.get(data[0], 0);
+		assertEquals(3, decodes.get());
+		cache.get(data[1], 0);
+		assertEquals(4, decodes.get());
+
+		// larger than the budget, decoded each time
+		byte[] large = { 100, 100 };
+		cache.get(large, 0);
+		cache.get(large, 0);
+		assertEquals(6, decodes.get());
+		assertEquals(800, cache.getSize());
+	}
+
+	@Test
+	public void getUndecodable() {
+		ThumbnailCache cache = new ThumbnailCache(1024, this::decode);
+		assertNull(cache.get(new byte[0], 10));
+		assertNull(cache.get(null, 10));
+		assertEquals(0, cache.getSize());
+	}
+
+	/**
+	 * Decodes width and height from the first two bytes.
+	 */
+	private BufferedImage decode(byte[] data) {
+		decodes.incrementAndGet();
+		if (data.length < 2) {
+			return null;
+		}
+		return new BufferedImage(data[0], data[1], BufferedImage.TYPE_INT_ARGB);
+	}
+}
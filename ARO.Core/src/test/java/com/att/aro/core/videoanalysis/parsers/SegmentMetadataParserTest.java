@@ -0,0 +1,172 @@
+package com.att.aro.core.videoanalysis.parsers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+import org.junit.Test;
+
+public class SegmentMetadataParserTest {
+
+	// H.264 high profile sequence parameter set of a 1920x1080 stream
+	private static final byte[] SPS_1080 = hex("67640028ACD940780227E5C044000003000400000300F03C60C658");
+
+	private final SegmentMetadataParser parser = new SegmentMetadataParser();
+
+	@Test
+	public void parse_fragmentWithInitialization() {
+		byte[] moov = box("moov", box("mvhd", fullBox(0), ints(0, 0, 1000, 0)), trak(1, 720, 90000),
+				box("mvex", box("trex", fullBox(0), ints(1, 1, 3000, 0, 0))));
+		// 48 samples of the default duration from 2 seconds
+		byte[] moof = box("moof", box("mfhd", fullBox(0), ints(7)),
+				box("traf", box("tfhd", fullBox(0), ints(1)), box("tfdt", fullBox(0), ints(180000)), box("trun", fullBox(0), ints(48))));
+		byte[] mdat = box("mdat", new byte[1000]);
+		byte[] content = concat(moov, moof, mdat);
+
+		HashMap<String, Double> metadata = parser.parse(content);
+		assertEquals(2.0, metadata.get(SegmentMetadataParser.START), 0.0001);
+		assertEquals(1.6, metadata.get(SegmentMetadataParser.DURATION), 0.0001);
+		assertEquals(content.length * 8 / 1.6, metadata.get(SegmentMetadataParser.BITRATE), 0.0001);
+		assertEquals(1080.0, metadata.get(SegmentMetadataParser.RESOLUTION), 0.0);
+	}
+
+	@Test
+	public void parse_sampleDurationsAndSidx() {
+		byte[] sidx = box("sidx", fullBox(1, 0), ints(1, 1000), longs(4000, 0), new byte[] { 0, 0, 0, 1 }, ints(500, 2500, 0));
+		byte[] moof = box("moof",
+				box("traf", box("tfhd", fullBox(0x08), ints(2, 100)), box("trun", fullBox(0x300), ints(3, 10, 1, 20, 1, 30, 1))));
+		HashMap<String, Double> metadata = parser.parse(concat(sidx, moof, box("mdat", new byte[8])));
+		// without the initialization segment the timescale comes from the sidx
+		assertEquals(4.0, metadata.get(SegmentMetadataParser.START), 0.0001);
+		assertEquals(2.5, metadata.get(SegmentMetadataParser.DURATION), 0.0001);
+		assertNull(metadata.get(SegmentMetadataParser.RESOLUTION));
+	}
+
+	@Test
+	public void parse_transportStream() {
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		writeTs(stream, 0, concat(new byte[] { 0, (byte) 0xB0, 13, 0, 1, (byte) 0xC1, 0, 0, 0, 1, (byte) 0xE1, 0 }, new byte[4]));
+		writeTs(stream, 0x100, concat(new byte[] { 2, (byte) 0xB0, 23, 0, 1, (byte) 0xC1, 0, 0, (byte) 0xE1, 1, (byte) 0xF0, 0,
+				0x1B, (byte) 0xE1, 1, (byte) 0xF0, 0, 0x0F, (byte) 0xE1, 2, (byte) 0xF0, 0 }, new byte[4]));
+		// 10 video frames from 10 seconds, 1/30 second apart, the first one with the SPS
+		for (int frame = 0; frame < 10; frame++) {
+			byte[] data = frame == 0 ? concat(new byte[] { 0, 0, 0, 1 }, SPS_1080, new byte[] { 0, 0, 1, 0x65, 0 }) : new byte[] { 0, 0, 1, 0x41, 0 };
+			writeTs(stream, 0x101, pes(0xE0, 900000 + frame * 3000L, data));
+		}
+		writeTs(stream, 0x102, pes(0xC0, 899000, new byte[16]));
+		byte[] content = stream.toByteArray();
+
+		HashMap<String, Double> metadata = parser.parse(content);
+		assertEquals(899000 / 90000.0, metadata.get(SegmentMetadataParser.START), 0.0001);
+		assertEquals(10 / 30.0, metadata.get(SegmentMetadataParser.DURATION), 0.0001);
+		assertEquals(1080.0, metadata.get(SegmentMetadataParser.RESOLUTION), 0.0);
+	}
+
+	@Test
+	public void parse_unknownContent() {
+		assertNull(parser.parse(null));
+		assertNull(parser.parse("#EXTM3U\n#EXT-X-VERSION:3\n".getBytes(StandardCharsets.ISO_8859_1)));
+		// truncated movie header
+		assertNull(parser.parse(concat(ints(100), "moov".getBytes(StandardCharsets.ISO_8859_1), new byte[4])));
+	}
+
+	@Test
+	public void parse_deeplyNestedBoxes() {
+		// a moov box in a moov box, 100000 levels deep
+		int levels = 100000;
+		ByteBuffer content = ByteBuffer.allocate(levels * 8);
+		for (int level = 0; level < levels; level++) {
+			content.putInt((levels - level) * 8).put("moov".getBytes(StandardCharsets.ISO_8859_1));
+		}
+		assertNull(parser.parse(content.array()));
+	}
+
+	private static byte[] trak(int trackId, int height, int timescale) {
+		byte[] tkhd = box("tkhd", fullBox(0), ints(0, 0, trackId, 0, 0), new byte[52], ints(1280 << 16, height << 16));
+		byte[] mdhd = box("mdhd", fullBox(0), ints(0, 0, timescale, 0), new byte[4]);
+		byte[] hdlr = box("hdlr", fullBox(0), ints(0), "vide".getBytes(StandardCharsets.ISO_8859_1), new byte[13]);
+		byte[] avcC = box("avcC", new byte[] { 1, 0x64, 0, 0x28, (byte) 0xFF, (byte) 0xE1, 0, (byte) SPS_1080.length }, SPS_1080,
+				new byte[] { 0 });
+		ByteBuffer entry = ByteBuffer.allocate(78);
+		entry.position(24);
+		entry.putShort((short) 1280).putShort((short) height);
+		byte[] stsd = box("stsd", fullBox(0), ints(1), box("avc1", entry.array(), avcC));
+		return box("trak", tkhd, box("mdia", mdhd, hdlr, box("minf", box("stbl", stsd))));
+	}
+
+	private static byte[] pes(int streamId, long pts, byte[] data) {
+		byte[] header = { 0, 0, 1, (byte) streamId, 0, 0, (byte) 0x80, (byte) 0x80, 5, (byte) (0x21 | ((pts >> 29) & 0x0E)),
+				(byte) (pts >> 22), (byte) (0x01 | ((pts >> 14) & 0xFE)), (byte) (pts >> 7), (byte) (0x01 | ((pts << 1) & 0xFE)) };
+		return concat(header, data);
+	}
+
+	/**
+	 * Writes payload as the first packet of a unit, padded with an adaptation field.
+	 */
+	private static void writeTs(ByteArrayOutputStream stream, int pid, byte[] payload) {
+		byte[] packet = new byte[188];
+		packet[0] = 0x47;
+		packet[1] = (byte) (0x40 | (pid >> 8));
+		packet[2] = (byte) pid;
+		boolean section = pid == 0 || pid == 0x100;
+		int length = payload.length + (section ? 1 : 0);
+		int stuffing = 184 - length;
+		packet[3] = 0x30;
+		packet[4] = (byte) (stuffing - 1);
+		int offset = 4 + stuffing;
+		if (section) {
+			packet[offset++] = 0;
+		}
+		System.arraycopy(payload, 0, packet, offset, payload.length);
+		stream.write(packet, 0, packet.length);
+	}
+
+	private static byte[] box(String type, byte[]... parts) {
+		byte[] payload = concat(parts);
+		return concat(ints(payload.length + 8), type.getBytes(StandardCharsets.ISO_8859_1), payload);
+	}
+
+	private static byte[] fullBox(int flags) {
+		return ints(flags);
+	}
+
+	private static byte[] fullBox(int version, int flags) {
+		return ints(version << 24 | flags);
+	}
+
+	private static byte[] ints(int... values) {
+		ByteBuffer buffer = ByteBuffer.allocate(values.length * 4);
+		for (int value : values) {
+			buffer.putInt(value);
+		}
+		return buffer.array();
+	}
+
+	private static byte[] longs(long... values) {
+		ByteBuffer buffer = ByteBuffer.allocate(values.length * 8);
+		for (long value : values) {
+			buffer.putLong(value);
+		}
+		return buffer.array();
+	}
+
+	private static byte[] concat(byte[]... parts) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for (byte[] part : parts) {
+			out.write(part, 0, part.length);
+		}
+		return out.toByteArray();
+	}
+
+	private static byte[] hex(String text) {
+		byte[] bytes = new byte[text.length() / 2];
+		for (int index = 0; index < bytes.length; index++) {
+			bytes[index] = (byte) Integer.parseInt(text.substring(2 * index, 2 * index + 2), 16);
+		}
+		return bytes;
+	}
+}
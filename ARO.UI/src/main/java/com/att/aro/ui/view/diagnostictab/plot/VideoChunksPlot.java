@@ -73,8 +73,6 @@ public class VideoChunksPlot implements IPlot {
 	// VID-TODO this will be in VideoStreamStartup
 	private XYSeries seriesStartUpDelay;
 
-	private List<BufferedImage> imgSeries;
-
 	private BufferOccupancyPlot boPlot = new BufferOccupancyPlot();
 	private BufferInSecondsPlot boTimePlot = new BufferInSecondsPlot();
 
@@ -235,7 +233,6 @@ public class VideoChunksPlot implements IPlot {
 			}
 
 			startUpDelayCollection.clear();
-			imgSeries = new ArrayList<BufferedImage>();
 
 			// create the dataset...
 			int index = 0;
@@ -243,7 +240,6 @@ public class VideoChunksPlot implements IPlot {
 			seriesDataSets = new TreeMap<>();
 			seriesDataSets = videoChunkPlotter.populateDataSet(traceData.getAnalyzerResult().getStreamingVideoData());
 
-			imgSeries = videoChunkPlotter.getImgSeries();
 			filteredChunks = streamingVideoData.getStreamingVideoCompiled().getFilteredSegments();
 			segmentsToBePlayed.clear();
 			for (VideoEvent ve : streamingVideoData.getStreamingVideoCompiled().getAllSegments()) {
@@ -404,7 +400,7 @@ public class VideoChunksPlot implements IPlot {
 
 		@Override
 		protected Image getImage(Plot plot, int series, int item, double x, double y) {
-			BufferedImage chunkImage = imgSeries.get(item);
+			BufferedImage chunkImage = videoChunkPlotter.getThumbnail(item);
 
 			return chunkImage;
 		}
@@ -24,6 +24,7 @@ import java.awt.GridLayout;
 import java.awt.Insets;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.nio.charset.Charset;
 import java.text.MessageFormat;
 import java.text.NumberFormat;
 
@@ -346,13 +347,11 @@ public class WaterfallPopup extends JDialog{
 			//For getting the request and response Data. Added this logic in new code. Getting the data from packet.
 			StringBuffer reqResString = new StringBuffer();
 			if(reqResInfo.getFirstDataPacket() != null && reqResInfo.getFirstDataPacket().getPacket() != null){
-				String firstPacketData = new String(reqResInfo.getFirstDataPacket().getPacket().getData());
-				reqResString.append(firstPacketData);
+				reqResString.append(Charset.defaultCharset().decode(reqResInfo.getFirstDataPacket().getPacket().getDataBuffer()));
 				
 			}
 			if(reqResInfo.getLastDataPacket() != null && reqResInfo.getLastDataPacket().getPacket() != null){
-				String lastPacketData = new String(reqResInfo.getLastDataPacket().getPacket().getData());
-				reqResString.append(lastPacketData);
+				reqResString.append(Charset.defaultCharset().decode(reqResInfo.getLastDataPacket().getPacket().getDataBuffer()));
 			}
 		
 			if(reqResString.length() > MAX_CHARS_TO_DISPLAY){